@@ -2,6 +2,7 @@ package org.peerbox.app;
 
 import org.peerbox.app.activity.collectors.ActivityConfiguration;
 import org.peerbox.app.config.AppConfig;
+import org.peerbox.app.manager.node.ConnectivityMonitor;
 import org.peerbox.events.MessageBus;
 import org.peerbox.server.IServer;
 import org.peerbox.view.UiContext;
@@ -30,6 +31,8 @@ public class AppContext {
 
 	private ActivityConfiguration activityConfiguration;
 
+	private ConnectivityMonitor connectivityMonitor;
+
 	private UiContext uiContext;
 
 	private ClientContext currentClientContext;
@@ -79,6 +82,15 @@ public class AppContext {
 		this.activityConfiguration = activityConfiguration;
 	}
 
+	public ConnectivityMonitor getConnectivityMonitor() {
+		return connectivityMonitor;
+	}
+
+	@Inject
+	protected void setConnectivityMonitor(ConnectivityMonitor connectivityMonitor) {
+		this.connectivityMonitor = connectivityMonitor;
+	}
+
 	public UiContext getUiContext() {
 		return uiContext;
 	}
@@ -6,9 +6,12 @@ import org.peerbox.app.manager.file.IFileManager;
 import org.peerbox.app.manager.node.INodeManager;
 import org.peerbox.app.manager.user.IUserManager;
 import org.peerbox.notifications.FileEventAggregator;
+import org.peerbox.watchservice.AbstractWatchService;
 import org.peerbox.watchservice.ActionExecutor;
+import org.peerbox.watchservice.ContentHashCache;
+import org.peerbox.watchservice.ContentHashPipeline;
 import org.peerbox.watchservice.FileEventManager;
-import org.peerbox.watchservice.FolderWatchService;
+import org.peerbox.watchservice.IgnoreRules;
 import org.peerbox.watchservice.filetree.FileTree;
 import org.peerbox.watchservice.filetree.persistency.LocalFileDao;
 import org.peerbox.watchservice.filetree.persistency.PeriodicFileDataPersister;
@@ -39,13 +42,16 @@ public class ClientContext {
 
 	private ActionExecutor actionExecutor;
 	private FileEventManager fileEventManager;
-	private FolderWatchService folderWatchService;
+	private AbstractWatchService folderWatchService;
 	private PeriodicFileDataPersister remoteProfilePersister;
 	private FileEventAggregator fileEventAggregator;
 
 	private FileTree fileTree;
 	private LocalFileDao localFileDao;
 	private RemoteFileDao remoteFileDao;
+	private ContentHashCache contentHashCache;
+	private ContentHashPipeline contentHashPipeline;
+	private IgnoreRules ignoreRules;
 
 	public ClientContext() {
 
@@ -87,12 +93,12 @@ public class ClientContext {
 		this.fileEventManager = fileEventManager;
 	}
 
-	public FolderWatchService getFolderWatchService() {
+	public AbstractWatchService getFolderWatchService() {
 		return folderWatchService;
 	}
 
 	@Inject
-	public void setFolderWatchService(FolderWatchService folderWatchService) {
+	public void setFolderWatchService(AbstractWatchService folderWatchService) {
 		this.folderWatchService = folderWatchService;
 	}
 
@@ -159,6 +165,33 @@ public class ClientContext {
 		this.remoteFileDao = remoteFileDao;
 	}
 
+	public ContentHashCache getContentHashCache() {
+		return contentHashCache;
+	}
+
+	@Inject
+	public void setContentHashCache(ContentHashCache contentHashCache) {
+		this.contentHashCache = contentHashCache;
+	}
+
+	public ContentHashPipeline getContentHashPipeline() {
+		return contentHashPipeline;
+	}
+
+	@Inject
+	public void setContentHashPipeline(ContentHashPipeline contentHashPipeline) {
+		this.contentHashPipeline = contentHashPipeline;
+	}
+
+	public IgnoreRules getIgnoreRules() {
+		return ignoreRules;
+	}
+
+	@Inject
+	public void setIgnoreRules(IgnoreRules ignoreRules) {
+		this.ignoreRules = ignoreRules;
+	}
+
 	public FileTree getFileTree() {
 		return fileTree;
 	}
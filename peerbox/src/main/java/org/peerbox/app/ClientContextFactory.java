@@ -2,7 +2,10 @@ package org.peerbox.app;
 
 import org.peerbox.app.config.UserConfig;
 import org.peerbox.guice.UserModule;
+import org.peerbox.watchservice.AbstractWatchService;
 import org.peerbox.watchservice.FileEventManager;
+import org.peerbox.watchservice.FolderWatchService;
+import org.peerbox.watchservice.OverflowRecovery;
 
 import com.google.inject.Inject;
 import com.google.inject.Injector;
@@ -29,9 +32,13 @@ public class ClientContextFactory {
 		Injector clientInjector = injector.createChildInjector(new UserModule(userConfig));
 		ClientContext context = clientInjector.getInstance(ClientContext.class);
 
-		// register for local/remote events
+		// register for local/remote events, local files are hashed before they reach the event manager
 		FileEventManager fileEventManager = context.getFileEventManager();
-		context.getFolderWatchService().addFileEventListener(fileEventManager);
+		AbstractWatchService watchService = context.getFolderWatchService();
+		watchService.addFileEventListener(context.getContentHashPipeline());
+		if (watchService instanceof FolderWatchService) {
+			((FolderWatchService) watchService).setOverflowRecovery(new OverflowRecovery(context.getFileTree()));
+		}
 		context.getNodeManager().getNode().getFileManager().subscribeFileEvents(fileEventManager);
 
 		return context;
@@ -4,10 +4,13 @@ import javafx.application.Platform;
 
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
+import org.peerbox.app.manager.node.ConnectivityMonitor;
 import org.peerbox.app.manager.node.INodeManager;
 import org.peerbox.app.manager.user.IUserManager;
 import org.peerbox.events.MessageBus;
 import org.peerbox.server.IServer;
+import org.peerbox.watchservice.ActionExecutor;
+import org.peerbox.watchservice.ContentHashPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +43,9 @@ public class ExitHandler implements IExitHandler {
 	private void exit(int status) {
 		try {
 			if (appContext != null) {
+				// no reconnect attempts during the graceful leave
+				stopConnectivityMonitor(appContext);
+
 				ClientContext clientContext = appContext.getCurrentClientContext();
 				if (clientContext != null) {
 					shutdownClient(clientContext);
@@ -73,6 +79,8 @@ public class ExitHandler implements IExitHandler {
 	 * @param context of client
 	 */
 	private void shutdownClient(ClientContext context) {
+		stopActionExecutor(context);
+		stopContentHashPipeline(context);
 		logout(context);
 		disconnect(context);
 	}
@@ -105,6 +113,22 @@ public class ExitHandler implements IExitHandler {
 		}
 	}
 
+	/**
+	 * Stop checking the connection and reconnecting to the network
+	 *
+	 * @param context of application
+	 */
+	private void stopConnectivityMonitor(AppContext context) {
+		try {
+			ConnectivityMonitor connectivityMonitor = context.getConnectivityMonitor();
+			if (connectivityMonitor != null) {
+				connectivityMonitor.stop();
+			}
+		} catch (Exception e) {
+			logger.warn("Could not stop connectivity monitor.", e);
+		}
+	}
+
 	/**
 	 * Stop the HTTP server
 	 *
@@ -124,6 +148,38 @@ public class ExitHandler implements IExitHandler {
 		}
 	}
 
+	/**
+	 * Stop the execution of actions. Pending actions remain in the journal.
+	 *
+	 * @param context of client
+	 */
+	private void stopActionExecutor(ClientContext context) {
+		try {
+			ActionExecutor actionExecutor = context.getActionExecutor();
+			if (actionExecutor != null) {
+				actionExecutor.stop();
+			}
+		} catch (Exception e) {
+			logger.warn("Could not stop action executor.", e);
+		}
+	}
+
+	/**
+	 * Stop hashing local files. Pending events are discarded.
+	 *
+	 * @param context of client
+	 */
+	private void stopContentHashPipeline(ClientContext context) {
+		try {
+			ContentHashPipeline contentHashPipeline = context.getContentHashPipeline();
+			if (contentHashPipeline != null) {
+				contentHashPipeline.stop();
+			}
+		} catch (Exception e) {
+			logger.warn("Could not stop content hash pipeline.", e);
+		}
+	}
+
 	/**
 	 * Logout H2H user profile
 	 *
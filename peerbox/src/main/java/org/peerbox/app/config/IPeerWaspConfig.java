@@ -9,5 +9,17 @@ public interface IPeerWaspConfig {
 	public long getLongAggregationIntervalInSeconds();
 	
 	public int getNumberOfExecutionSlots();
+	public int getMaximalNumberOfExecutionSlots();
 	public int getMaximalExecutionAttempts();	
+
+	public long getUploadCancelThresholdInBytes();
+
+	public int getBacklogReplayRatePerSecond();
+
+	public int getFileScanParallelism();
+
+	public long getWriteQuietPeriodInMillis();
+	public boolean isWriteLockProbeEnabled();
+
+	public int getMaxWatchedFolders();
 }
@@ -35,6 +35,7 @@ public class UserConfig extends AbstractConfig {
 	private static final String PROPERTY_PIN = "pin";
 	private static final String PROPERTY_ROOTPATH = "rootpath";
 	private static final String PROPERTY_AUTO_LOGIN = "autologin";
+	private static final String PROPERTY_POLLING_WATCH_SERVICE = "pollingwatchservice";
 
 
 	/**
@@ -193,4 +194,23 @@ public class UserConfig extends AbstractConfig {
 		saveProperties();
 	}
 
+	/**
+	 * @return true if the root path is watched by polling instead of notifications of the
+	 * operating system (e.g. network drives), false otherwise.
+	 */
+	public synchronized boolean isPollingWatchServiceEnabled() {
+		return Boolean.valueOf(getProperty(PROPERTY_POLLING_WATCH_SERVICE));
+	}
+
+	/**
+	 * Sets the polling watch service property. Takes effect at the next login.
+	 *
+	 * @param enabled true if the root path should be watched by polling. False otherwise.
+	 * @throws IOException if saving fails.
+	 */
+	public synchronized void setPollingWatchService(boolean enabled) throws IOException {
+		setProperty(PROPERTY_POLLING_WATCH_SERVICE, Boolean.toString(enabled));
+		saveProperties();
+	}
+
 }
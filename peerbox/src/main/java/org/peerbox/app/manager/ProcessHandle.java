@@ -1,15 +1,35 @@
 package org.peerbox.app.manager;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
+import org.hive2hive.processframework.exceptions.ProcessRollbackException;
 import org.hive2hive.processframework.interfaces.IProcessComponent;
+import org.hive2hive.processframework.interfaces.IProcessComponentListener;
+import org.hive2hive.processframework.interfaces.IProcessEventArgs;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * The ProcessHandle is a handle for a {@link IProcessComponent} returned by H2H.
  * It just wraps the process component and stores the {@link Future} of async execution.
  *
+ * In the case of async execution, the handle additionally provides a {@link CompletableFuture}
+ * ({@link #getCompletion()}) that completes as soon as the process ends. Clients can register
+ * callbacks instead of blocking on the {@link Future}. A watchdog ({@link #cancelAfter(long, TimeUnit)})
+ * cancels processes that do not end in time.
+ *
  * Note: use {@link #execute()} or {@link #executeAsync()} of this
  * handle instead of the methods of the process itself. Otherwise, the returned
  * Future reference is not stored.
@@ -20,10 +40,28 @@ import org.hive2hive.processframework.interfaces.IProcessComponent;
  */
 public class ProcessHandle<T> {
 
+	/* maximal time to wait for the result of a process that already reported its end */
+	private static final long RESULT_TIMEOUT_MS = 30 * 1000;
+
+	/* collects results that are not available yet when a process reports its end */
+	private static final ExecutorService resultCollector = Executors.newCachedThreadPool(
+			new ThreadFactoryBuilder().setNameFormat("ProcessResultThread-%d").setDaemon(true).build());
+
+	/* cancels processes that do not end in time */
+	private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("ProcessWatchdogThread").setDaemon(true).build());
+
 	/* process as returned by H2H */
 	private IProcessComponent<T> process;
 	/* future of async operation - set if executeAsync is called. */
-	private Future<T> future;
+	private volatile Future<T> future;
+	/* completes with the result of the future as soon as the process ends */
+	private final CompletableFuture<T> completion;
+	/* set as soon as the process is cancelled, i.e. rolled back: the exception of the completion */
+	private final AtomicReference<Exception> cancelCause = new AtomicReference<Exception>();
+	/* signaled by the process listener */
+	private final CompletableFuture<Void> ended = new CompletableFuture<Void>();
+	private final CompletableFuture<Void> rolledBack = new CompletableFuture<Void>();
 
 	/**
 	 * Creates a new process handle instance.
@@ -32,6 +70,7 @@ public class ProcessHandle<T> {
 	 */
 	public ProcessHandle(IProcessComponent<T> process) {
 		this.process = process;
+		this.completion = new CompletableFuture<T>();
 	}
 
 	/**
@@ -53,6 +92,18 @@ public class ProcessHandle<T> {
 		return future;
 	}
 
+	/**
+	 * Returns a future that completes as soon as the process ends in the case of async execution.
+	 * It completes normally with the result of the process or exceptionally with the
+	 * exception of the process (e.g. {@link ProcessExecutionException}).
+	 * The future only completes if {@link #executeAsync()} is called.
+	 *
+	 * @return completion of the process
+	 */
+	public CompletableFuture<T> getCompletion() {
+		return completion;
+	}
+
 	/**
 	 * Synchronous execution of the process.
 	 * Executes the process by calling {@link IProcessComponent#execute()}.
@@ -74,6 +125,173 @@ public class ProcessHandle<T> {
 	 * @throws ProcessExecutionException
 	 */
 	public void executeAsync() throws InvalidProcessStateException, ProcessExecutionException {
-		future = process.executeAsync();
+		process.attachListener(new CompletionListener(ended, rolledBack));
+		try {
+			future = process.executeAsync();
+		} catch (InvalidProcessStateException | ProcessExecutionException e) {
+			completion.completeExceptionally(e);
+			throw e;
+		}
+
+		// the process may end before its future is assigned
+		ended.thenRun(this::onProcessEnded);
+		rolledBack.thenRun(this::onRollbackEnded);
+	}
+
+	/**
+	 * Starts a watchdog that cancels the process if it did not end within the given time.
+	 * As with {@link #cancel()}, the process is rolled back first and the completion completes
+	 * exceptionally with a {@link TimeoutException} as soon as the rollback ended. Thus, the
+	 * process does not run anymore once the completion reports the timeout.
+	 *
+	 * @param timeout maximal duration of the process
+	 * @param unit of the timeout
+	 */
+	public void cancelAfter(long timeout, TimeUnit unit) {
+		if (completion.isDone()) {
+			return;
+		}
+		ScheduledFuture<?> timer = watchdog.schedule(() -> {
+			TimeoutException cause = new TimeoutException(String.format(
+					"Process did not end within %d %s.", timeout, unit));
+			if (!cancel(cause) && future.isDone()) {
+				// ended without notifying its listeners
+				completeWithResult();
+			}
+		}, timeout, unit);
+		completion.whenComplete((result, error) -> timer.cancel(false));
+	}
+
+	/**
+	 * Cancels the asynchronous execution of the process: the process is paused and rolled back.
+	 * The completion completes exceptionally with a {@link CancellationException} as soon as the
+	 * process reports the end of the rollback, i.e. the process does not run anymore.
+	 *
+	 * @return true if the process is cancelled, false if it already ended (or was not started)
+	 */
+	public boolean cancel() {
+		return cancel(new CancellationException("Process cancelled."));
+	}
+
+	private boolean cancel(Exception cause) {
+		if (future == null || completion.isDone() || !cancelCause.compareAndSet(null, cause)) {
+			return false;
+		}
+		try {
+			process.pause();
+		} catch (InvalidProcessStateException e) {
+			// not executing anymore, the process completes as usual
+			abortCancel();
+			return false;
+		}
+		try {
+			process.rollbackAsync();
+		} catch (InvalidProcessStateException | ProcessRollbackException e) {
+			abortCancel();
+			try {
+				process.resume();
+			} catch (InvalidProcessStateException | ProcessExecutionException | ProcessRollbackException ex) {
+				completion.completeExceptionally(ex);
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private void abortCancel() {
+		cancelCause.set(null);
+		// the end may have been notified (and ignored) in the meantime
+		if (ended.isDone()) {
+			onProcessEnded();
+		}
+	}
+
+	private void onRollbackEnded() {
+		Exception cause = cancelCause.get();
+		if (cause != null) {
+			completion.completeExceptionally(cause);
+		} else {
+			// the process failed and rolled back on its own
+			onProcessEnded();
+		}
+	}
+
+	/**
+	 * The process notifies its end slightly before its future is done. Hence, the result is
+	 * collected right away if it is available and by the result collector otherwise, without
+	 * blocking the thread of the process.
+	 */
+	private void onProcessEnded() {
+		if (cancelCause.get() != null) {
+			// completes as soon as the rollback ended
+			return;
+		}
+		if (future.isDone()) {
+			completeWithResult();
+		} else {
+			resultCollector.execute(this::completeWithResult);
+		}
+	}
+
+	private void completeWithResult() {
+		try {
+			completion.complete(future.get(RESULT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		} catch (ExecutionException e) {
+			completion.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			completion.completeExceptionally(e);
+		} catch (Exception e) {
+			completion.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Listener that signals the end of the process (success or failure).
+	 */
+	private static class CompletionListener implements IProcessComponentListener {
+
+		private final CompletableFuture<Void> ended;
+		private final CompletableFuture<Void> rolledBack;
+
+		public CompletionListener(CompletableFuture<Void> ended, CompletableFuture<Void> rolledBack) {
+			this.ended = ended;
+			this.rolledBack = rolledBack;
+		}
+
+		@Override
+		public void onExecuting(IProcessEventArgs args) {
+			// not relevant
+		}
+
+		@Override
+		public void onRollbacking(IProcessEventArgs args) {
+			// not relevant
+		}
+
+		@Override
+		public void onPaused(IProcessEventArgs args) {
+			// not relevant
+		}
+
+		@Override
+		public void onExecutionSucceeded(IProcessEventArgs args) {
+			ended.complete(null);
+		}
+
+		@Override
+		public void onExecutionFailed(IProcessEventArgs args) {
+			ended.complete(null);
+		}
+
+		@Override
+		public void onRollbackSucceeded(IProcessEventArgs args) {
+			rolledBack.complete(null);
+		}
+
+		@Override
+		public void onRollbackFailed(IProcessEventArgs args) {
+			rolledBack.complete(null);
+		}
 	}
 }
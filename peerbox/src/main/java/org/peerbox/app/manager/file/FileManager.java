@@ -116,6 +116,11 @@ public class FileManager extends AbstractManager implements IFileManager {
 
 	@Override
 	public boolean existsRemote(final Path path) {
+		return getRemoteFileNode(path) != null;
+	}
+
+	@Override
+	public FileNode getRemoteFileNode(final Path path) {
 		FileNode item = null;
 		FileNode list = null;
 		try {
@@ -124,10 +129,9 @@ public class FileManager extends AbstractManager implements IFileManager {
 		} catch (NoPeerConnectionException | NoSessionException |
 				InvalidProcessStateException | ProcessExecutionException e) {
 			item = null;
-			logger.warn("Could not check existsRemote - Exception: {}", e.getMessage(), e);
+			logger.warn("Could not get remote file node - Exception: {}", e.getMessage(), e);
 		}
-
-		return item != null ? true : false;
+		return item;
 	}
 
 	/**
@@ -130,6 +130,15 @@ public interface IFileManager {
 	 */
 	boolean existsRemote(final Path path);
 
+	/**
+	 * Returns the file node of given file in the network (remote user profile), e.g. to
+	 * get the content hash of the latest version.
+	 *
+	 * @param path of the file
+	 * @return file node or null if the file does not exist or the profile is not available.
+	 */
+	FileNode getRemoteFileNode(final Path path);
+
 	/**
 	 * Checks whether given file is a small file.
 	 *
@@ -0,0 +1,15 @@
+package org.peerbox.app.manager.file.messages;
+
+import org.peerbox.app.manager.file.FileInfo;
+
+/**
+ * Published if the content of a local file changed while an action of the file is executing,
+ * i.e. the file info carries the new content hash.
+ */
+public final class LocalFileContentChangedMessage extends AbstractFileMessage {
+
+	public LocalFileContentChangedMessage(FileInfo file) {
+		super(file);
+	}
+
+}
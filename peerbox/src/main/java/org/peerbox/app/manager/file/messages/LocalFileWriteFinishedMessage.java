@@ -0,0 +1,15 @@
+package org.peerbox.app.manager.file.messages;
+
+import org.peerbox.app.manager.file.FileInfo;
+
+/**
+ * Published if a local file that was being written is stable again, i.e. its events are
+ * handled.
+ */
+public final class LocalFileWriteFinishedMessage extends AbstractFileMessage {
+
+	public LocalFileWriteFinishedMessage(FileInfo file) {
+		super(file);
+	}
+
+}
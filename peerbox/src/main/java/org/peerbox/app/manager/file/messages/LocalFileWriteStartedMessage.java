@@ -0,0 +1,15 @@
+package org.peerbox.app.manager.file.messages;
+
+import org.peerbox.app.manager.file.FileInfo;
+
+/**
+ * Published if a local file is still being written (e.g. copied), i.e. handling its events
+ * is deferred until it is stable.
+ */
+public final class LocalFileWriteStartedMessage extends AbstractFileMessage {
+
+	public LocalFileWriteStartedMessage(FileInfo file) {
+		super(file);
+	}
+
+}
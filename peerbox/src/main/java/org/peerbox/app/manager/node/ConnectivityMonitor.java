@@ -0,0 +1,216 @@
+package org.peerbox.app.manager.node;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.engio.mbassy.listener.Handler;
+
+import org.peerbox.app.config.BootstrappingNodes;
+import org.peerbox.app.config.BootstrappingNodesFactory;
+import org.peerbox.events.MessageBus;
+import org.peerbox.utils.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * State machine of the connection to the network, driven by {@link NodeConnectMessage}s and
+ * {@link NodeDisconnectMessage}s:
+ * <ul>
+ * <li>OFFLINE: not connected or left the network on purpose. Nothing happens.</li>
+ * <li>ONLINE: connected. The connection is checked periodically. If it is lost, a
+ * {@link NodeDisconnectMessage} (connection lost) is published and the state changes to
+ * RECONNECTING.</li>
+ * <li>RECONNECTING: the node reconnects in the background, using the last address and the
+ * configured bootstrapping nodes. Failed attempts are repeated with an exponentially growing,
+ * randomized delay. As soon as the node reconnected, a {@link NodeConnectMessage} is published
+ * and the state changes to ONLINE.</li>
+ * </ul>
+ */
+@Singleton
+public class ConnectivityMonitor {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConnectivityMonitor.class);
+
+	public enum State {
+		OFFLINE, ONLINE, RECONNECTING
+	}
+
+	/** Interval of the connection checks while online **/
+	private static final long CHECK_INTERVAL_MS = 5000;
+
+	/** Delays between reconnect attempts **/
+	private static final long RECONNECT_BASE_DELAY_MS = 2000;
+	private static final long RECONNECT_MAX_DELAY_MS = 2 * 60 * 1000;
+
+	private final INodeManager nodeManager;
+	private final MessageBus messageBus;
+	private final BootstrappingNodesFactory bootstrappingNodesFactory;
+
+	private final ScheduledExecutorService scheduler;
+	private final RetryPolicy reconnectPolicy;
+	private final Random random = new Random();
+
+	private State state;
+	private volatile String lastAddress;
+	private int reconnectAttempts;
+	private ScheduledFuture<?> checkTask;
+	private ScheduledFuture<?> reconnectTask;
+
+	@Inject
+	public ConnectivityMonitor(final INodeManager nodeManager, final MessageBus messageBus,
+			final BootstrappingNodesFactory bootstrappingNodesFactory) {
+		this.nodeManager = nodeManager;
+		this.messageBus = messageBus;
+		this.bootstrappingNodesFactory = bootstrappingNodesFactory;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("ConnectivityMonitorThread").setDaemon(true).build());
+		this.reconnectPolicy = new RetryPolicy(RECONNECT_BASE_DELAY_MS, RECONNECT_MAX_DELAY_MS,
+				Integer.MAX_VALUE, true);
+		this.state = State.OFFLINE;
+	}
+
+	@Handler
+	public synchronized void onNodeConnected(NodeConnectMessage message) {
+		lastAddress = message.getNodeAddress();
+		reconnectAttempts = 0;
+		cancel(reconnectTask);
+		if (state != State.ONLINE) {
+			logger.info("Connected to the network (address: {}).", lastAddress);
+			state = State.ONLINE;
+		}
+		if (!scheduler.isShutdown() && (checkTask == null || checkTask.isDone())) {
+			checkTask = scheduler.scheduleWithFixedDelay(this::checkConnection,
+					CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Handler
+	public synchronized void onNodeDisconnected(NodeDisconnectMessage message) {
+		if (message.isConnectionLost()) {
+			if (state == State.ONLINE) {
+				onConnectionLost();
+			}
+		} else {
+			logger.info("Left the network.");
+			state = State.OFFLINE;
+			cancel(checkTask);
+			cancel(reconnectTask);
+		}
+	}
+
+	/**
+	 * Checks whether the node is still connected. A node that left the network on purpose
+	 * does not exist anymore and is not reconnected.
+	 */
+	private synchronized void checkConnection() {
+		if (state != State.ONLINE) {
+			return;
+		}
+		if (nodeManager.getNode() == null) {
+			state = State.OFFLINE;
+			cancel(checkTask);
+		} else if (!nodeManager.isConnected()) {
+			onConnectionLost();
+			messageBus.publish(new NodeDisconnectMessage(true));
+		}
+	}
+
+	private void onConnectionLost() {
+		logger.warn("Connection to the network lost. Reconnect in the background.");
+		state = State.RECONNECTING;
+		reconnectAttempts = 0;
+		scheduleReconnect(0);
+	}
+
+	private void scheduleReconnect(long delay) {
+		cancel(reconnectTask);
+		if (scheduler.isShutdown()) {
+			return;
+		}
+		reconnectTask = scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void reconnect() {
+		synchronized (this) {
+			if (state != State.RECONNECTING) {
+				return;
+			}
+			++reconnectAttempts;
+		}
+
+		// may block for a while, messages are handled in the meantime
+		boolean success = nodeManager.reconnect(getAddresses());
+
+		synchronized (this) {
+			if (state != State.RECONNECTING) {
+				return;
+			}
+			if (success) {
+				// the node manager publishes the connect message
+				state = State.ONLINE;
+				reconnectAttempts = 0;
+			} else {
+				long delay = reconnectPolicy.getDelay(reconnectAttempts, random);
+				logger.info("Reconnect attempt {} failed, try again in {} ms.", reconnectAttempts, delay);
+				scheduleReconnect(delay);
+			}
+		}
+	}
+
+	/**
+	 * @return the last address first, followed by the configured bootstrapping nodes.
+	 */
+	private List<String> getAddresses() {
+		List<String> addresses = new ArrayList<String>();
+		if (lastAddress != null && !lastAddress.isEmpty()) {
+			addresses.add(lastAddress);
+		}
+		try {
+			BootstrappingNodes nodes = bootstrappingNodesFactory.create();
+			bootstrappingNodesFactory.load();
+			if (!nodes.getLastNode().isEmpty() && !addresses.contains(nodes.getLastNode())) {
+				addresses.add(nodes.getLastNode());
+			}
+			for (String node : nodes.getBootstrappingNodes()) {
+				if (!addresses.contains(node)) {
+					addresses.add(node);
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("Could not load bootstrapping nodes from configuration.", e);
+		}
+		return addresses;
+	}
+
+	private static void cancel(ScheduledFuture<?> task) {
+		if (task != null) {
+			task.cancel(false);
+		}
+	}
+
+	/**
+	 * Stops checking and reconnecting, e.g. during shutdown.
+	 */
+	public synchronized void stop() {
+		state = State.OFFLINE;
+		scheduler.shutdownNow();
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getReconnectAttempts() {
+		return reconnectAttempts;
+	}
+}
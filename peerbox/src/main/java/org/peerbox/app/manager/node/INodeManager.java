@@ -49,6 +49,16 @@ public interface INodeManager {
 	 */
 	boolean createNetwork();
 
+	/**
+	 * Reconnects the existing node after the connection was lost. In contrast to
+	 * {@link #joinNetwork(List)}, no new node is created, i.e. the session of the node is kept.
+	 * Iterates through the given list of node addresses and tries to connect to the node.
+	 *
+	 * @param bootstrappingNodes list of node addresses
+	 * @return true if reconnect succeeds. False otherwise.
+	 */
+	boolean reconnect(List<String> bootstrappingNodes);
+
 	/**
 	 * Disconnect from network (graceful leave).
 	 *
@@ -2,8 +2,25 @@ package org.peerbox.app.manager.node;
 
 public final class NodeDisconnectMessage implements INodeMessage {
 
+	private final boolean connectionLost;
+
+	/**
+	 * Graceful leave of the network.
+	 */
 	public NodeDisconnectMessage() {
+		this(false);
+	}
+
+	/**
+	 * @param connectionLost true if the connection was lost (e.g. network failure),
+	 *            false if the node left the network on purpose.
+	 */
+	public NodeDisconnectMessage(final boolean connectionLost) {
+		this.connectionLost = connectionLost;
+	}
 
+	public boolean isConnectionLost() {
+		return connectionLost;
 	}
 
 }
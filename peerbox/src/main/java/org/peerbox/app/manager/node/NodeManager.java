@@ -86,6 +86,37 @@ public final class NodeManager implements INodeManager {
 		return success;
 	}
 
+	@Override
+	public synchronized boolean reconnect(List<String> bootstrappingNodes) {
+		if (node == null || networkConfiguration == null) {
+			logger.warn("Cannot reconnect, node did not join a network yet.");
+			return false;
+		}
+		if (isConnected()) {
+			return true;
+		}
+
+		String nodeID = networkConfiguration.getNodeID();
+		for (String address : bootstrappingNodes) {
+			try {
+				InetAddress bootstrapInetAddress = InetAddress.getByName(address);
+				INetworkConfiguration config = NetworkConfiguration.create(nodeID, bootstrapInetAddress);
+				if (node.connect(config) && isConnected()) {
+					logger.debug("Successfully reconnected to node {}", address);
+					networkConfiguration = config;
+					notifyConnect(address);
+					return true;
+				}
+				logger.debug("Could not reconnect to node {}", address);
+			} catch (UnknownHostException e) {
+				logger.warn("Address of host could not be determined: {}", address);
+			} catch (Exception e) {
+				logger.warn("Could not reconnect to node {}: {}", address, e.getMessage());
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public synchronized boolean createNetwork() {
 		createNode();
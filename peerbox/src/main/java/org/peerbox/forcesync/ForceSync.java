@@ -1,12 +1,12 @@
 package org.peerbox.forcesync;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
@@ -17,6 +17,7 @@ import org.peerbox.app.ClientContext;
 import org.peerbox.app.manager.file.FileInfo;
 import org.peerbox.app.manager.file.IFileManager;
 import org.peerbox.watchservice.FileEventManager;
+import org.peerbox.watchservice.ParallelFileScanner;
 import org.peerbox.watchservice.PathUtils;
 import org.peerbox.watchservice.filetree.FileTreeInitializer;
 import org.peerbox.watchservice.filetree.composite.FileComponent;
@@ -107,9 +108,11 @@ public class ForceSync {
 	}
 
 	private Map<Path, FileInfo> createLocalViewDisk() throws IOException {
-		Map<Path, FileInfo> local = new HashMap<>();
-		Files.walkFileTree(topLevel, new LocalFileWalker(local));
-		return local;
+		Map<Path, FileInfo> local = new ConcurrentHashMap<>();
+		int parallelism = context.getActionExecutor().getPeerWaspConfig().getFileScanParallelism();
+		new ParallelFileScanner(parallelism).scan(topLevel, new LocalFileWalker(local, context.getContentHashCache(),
+				context.getIgnoreRules()));
+		return new HashMap<>(local);
 	}
 
 	private Map<Path, FileInfo> createLocalViewDb() {
@@ -1,21 +1,31 @@
 package org.peerbox.forcesync;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
 
-import org.hive2hive.core.security.HashUtil;
 import org.peerbox.app.manager.file.FileInfo;
+import org.peerbox.watchservice.ContentHashCache;
+import org.peerbox.watchservice.IgnoreRules;
+import org.peerbox.watchservice.ParallelFileScanner;
 import org.peerbox.watchservice.PathUtils;
 
-class LocalFileWalker extends SimpleFileVisitor<Path> {
+class LocalFileWalker implements ParallelFileScanner.Visitor {
 	private Map<Path, FileInfo> local;
-
-	public LocalFileWalker(Map<Path, FileInfo> resultMap) {
+	private final ContentHashCache contentHashCache;
+	private final IgnoreRules ignoreRules;
+
+	/**
+	 * @param resultMap is filled concurrently, i.e. must be thread-safe.
+	 * @param contentHashCache of the user, null to hash all files
+	 * @param ignoreRules of the user, the ignored files are skipped
+	 */
+	public LocalFileWalker(Map<Path, FileInfo> resultMap, ContentHashCache contentHashCache,
+			IgnoreRules ignoreRules) {
 		this.local = resultMap;
+		this.contentHashCache = contentHashCache;
+		this.ignoreRules = ignoreRules;
 	}
 
 	public Map<Path, FileInfo> getLocalMap() {
@@ -23,28 +33,26 @@ class LocalFileWalker extends SimpleFileVisitor<Path> {
 	}
 
 	@Override
-	public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+	public void visitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
 		FileInfo a = new FileInfo(dir, true);
 		local.put(a.getPath(), a);
-		return super.preVisitDirectory(dir, attrs);
 	}
 
 	@Override
-	public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-		if(PathUtils.isFileHidden(file)){
-			return FileVisitResult.CONTINUE;
-		}
-		
+	public boolean isExcluded(Path path, BasicFileAttributes attrs) {
+		return ignoreRules.isIgnored(path, attrs.isDirectory());
+	}
+
+	@Override
+	public void visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+
 		FileInfo a = new FileInfo(file, false);
 		String hash = hashFile(file);
 		a.setContentHash(hash);
 		local.put(a.getPath(), a);
-		return super.visitFile(file, attrs);
 	}
 
 	private String hashFile(Path path) throws IOException {
-		byte[] hash = HashUtil.hash(path.toFile());
-		String hash64 = PathUtils.base64Encode(hash);
-		return hash64;
+		return PathUtils.hashFileContent(path, contentHashCache);
 	}
 }
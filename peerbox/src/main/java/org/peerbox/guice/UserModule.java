@@ -3,14 +3,21 @@ package org.peerbox.guice;
 import java.nio.file.Path;
 
 import org.peerbox.app.DbContext;
+import org.peerbox.app.config.IPeerWaspConfig;
 import org.peerbox.app.config.UserConfig;
 import org.peerbox.app.manager.file.FileManager;
 import org.peerbox.app.manager.file.IFileManager;
 import org.peerbox.filerecovery.FileRecoveryUILoader;
 import org.peerbox.utils.AppData;
 import org.peerbox.utils.UserDbUtils;
+import org.peerbox.watchservice.AbstractWatchService;
+import org.peerbox.watchservice.ActionJournal;
+import org.peerbox.watchservice.ContentHashCache;
 import org.peerbox.watchservice.FileEventManager;
+import org.peerbox.watchservice.FolderWatchService;
 import org.peerbox.watchservice.IFileEventManager;
+import org.peerbox.watchservice.IgnoreRules;
+import org.peerbox.watchservice.PollingWatchService;
 import org.peerbox.watchservice.filetree.FileTree;
 
 import com.google.inject.AbstractModule;
@@ -36,8 +43,34 @@ public class UserModule extends AbstractModule {
 	}
 
 	@Provides @Singleton
-	FileTree provideFileTree(UserConfig cfg){
-		return new FileTree(cfg.getRootPath());
+	FileTree provideFileTree(UserConfig cfg, ContentHashCache contentHashCache, IgnoreRules ignoreRules){
+		FileTree fileTree = new FileTree(cfg.getRootPath());
+		fileTree.setContentHashCache(contentHashCache);
+		fileTree.setIgnoreRules(ignoreRules);
+		return fileTree;
+	}
+
+	/**
+	 * Rules of the {@value IgnoreRules#FILE_NAME} file, read once at login.
+	 */
+	@Provides
+	@Singleton
+	IgnoreRules provideIgnoreRules(UserConfig cfg) {
+		return IgnoreRules.load(cfg.getRootPath());
+	}
+
+	@Provides
+	@Singleton
+	AbstractWatchService provideWatchService(UserConfig cfg, IPeerWaspConfig peerWaspConfig,
+			IgnoreRules ignoreRules) {
+		AbstractWatchService watchService;
+		if (cfg.isPollingWatchServiceEnabled()) {
+			watchService = new PollingWatchService();
+		} else {
+			watchService = new FolderWatchService(peerWaspConfig.getMaxWatchedFolders());
+		}
+		watchService.setIgnoreRules(ignoreRules);
+		return watchService;
 	}
 
 	@Provides
@@ -51,4 +84,12 @@ public class UserModule extends AbstractModule {
 		return dbContext;
 	}
 
+	@Provides
+	@Singleton
+	ActionJournal provideActionJournal(UserConfig userConfig) {
+		String filename = UserDbUtils.createJournalFileName(userConfig.getUsername());
+		Path journalPath = AppData.getConfigFolder().resolve(filename);
+		return new ActionJournal(journalPath);
+	}
+
 }
@@ -314,6 +314,7 @@ public class LoginController implements Initializable {
 
 			ForceSync forceSync = new ForceSync(ctx);
 			forceSync.forceSync(userConfig.getRootPath());
+			ctx.getActionExecutor().replayJournal();
 
 			ctx.getRemoteProfilePersister().start();
 
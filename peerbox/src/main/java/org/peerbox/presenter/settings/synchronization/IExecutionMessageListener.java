@@ -6,6 +6,8 @@ import org.peerbox.app.manager.file.messages.FileExecutionFailedMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionStartedMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionSucceededMessage;
 import org.peerbox.app.manager.file.messages.LocalFileSoftDeleteMessage;
+import org.peerbox.app.manager.file.messages.LocalFileWriteFinishedMessage;
+import org.peerbox.app.manager.file.messages.LocalFileWriteStartedMessage;
 import org.peerbox.app.manager.file.messages.LocalShareFolderMessage;
 import org.peerbox.app.manager.file.messages.RemoteFileDeletedMessage;
 import org.peerbox.app.manager.file.messages.RemoteFileMovedMessage;
@@ -37,4 +39,10 @@ public interface IExecutionMessageListener extends IMessageListener {
 	
 	@Handler
 	void onLocalFolderShared(LocalShareFolderMessage message);
+	
+	@Handler
+	void onLocalFileWriteStarted(LocalFileWriteStartedMessage message);
+	
+	@Handler
+	void onLocalFileWriteFinished(LocalFileWriteFinishedMessage message);
 }
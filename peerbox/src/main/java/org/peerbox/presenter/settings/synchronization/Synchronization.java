@@ -39,6 +39,8 @@ import org.peerbox.app.manager.file.messages.FileExecutionFailedMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionStartedMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionSucceededMessage;
 import org.peerbox.app.manager.file.messages.LocalFileSoftDeleteMessage;
+import org.peerbox.app.manager.file.messages.LocalFileWriteFinishedMessage;
+import org.peerbox.app.manager.file.messages.LocalFileWriteStartedMessage;
 import org.peerbox.app.manager.file.messages.LocalShareFolderMessage;
 import org.peerbox.app.manager.file.messages.RemoteFileDeletedMessage;
 import org.peerbox.app.manager.file.messages.RemoteFileMovedMessage;
@@ -224,6 +226,36 @@ public class Synchronization implements Initializable, IExecutionMessageListener
 		item.setProgressState(ProgressState.IN_PROGRESS);
 	}
 
+	/**
+	 * This handler is automatically invoked when a {@link org.peerbox.app.manager.file.messages.LocalFileWriteStartedMessage
+	 * LocalFileWriteStartedMessage} is published using the {@link org.peerbox.
+	 * events.MessageBus MessageBus}, i.e. a file is still being written. The corresponding
+	 * {@link javafx.scene.control.CheckBoxTreeItem CheckBoxTreeItem} is shown as in progress.
+	 */
+	@Override
+	@Handler
+	public void onLocalFileWriteStarted(LocalFileWriteStartedMessage message) {
+		logger.trace("onLocalFileWriteStarted: {}", message.getFile().getPath());
+		SyncTreeItem item = getOrCreateItem(message.getFile(), false);
+		item.setProgressState(ProgressState.IN_PROGRESS);
+	}
+
+	/**
+	 * This handler is automatically invoked when a {@link org.peerbox.app.manager.file.messages.LocalFileWriteFinishedMessage
+	 * LocalFileWriteFinishedMessage} is published using the {@link org.peerbox.
+	 * events.MessageBus MessageBus}. The corresponding {@link javafx.scene.control.
+	 * CheckBoxTreeItem CheckBoxTreeItem} is reset until the execution of the file starts.
+	 */
+	@Override
+	@Handler
+	public void onLocalFileWriteFinished(LocalFileWriteFinishedMessage message) {
+		logger.trace("onLocalFileWriteFinished: {}", message.getFile().getPath());
+		SyncTreeItem item = getTreeItem(message.getFile().getPath());
+		if (item != null && item.getProgressState() == ProgressState.IN_PROGRESS) {
+			item.setProgressState(ProgressState.DEFAULT);
+		}
+	}
+
 	/**
 	 * This handler is automatically invoked when a {@link org.peerbox.app.manager.file.messages.RemoteFileDeletedMessage RemoteFileDeletedMessage} is
 	 * published using the {@link org.peerbox.events.MessageBus MessageBus}.
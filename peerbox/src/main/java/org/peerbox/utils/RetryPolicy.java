@@ -0,0 +1,75 @@
+package org.peerbox.utils;
+
+import java.util.Random;
+
+/**
+ * Defines whether and when a failed execution is retried. The delay grows exponentially
+ * with the number of attempts (base delay * 2^(attempt-1), bounded by the maximal delay)
+ * and is randomized ("equal jitter": between half and the full delay) such that many
+ * actions that failed at the same time are not retried at the same time again.
+ */
+public class RetryPolicy {
+
+	/** Policy for errors that cannot be resolved by retrying **/
+	public static final RetryPolicy NO_RETRY = new RetryPolicy(0, 0, 0, false);
+
+	private final long baseDelay;
+	private final long maxDelay;
+	private final int maxAttempts;
+	private final boolean networkFailure;
+
+	/**
+	 * @param baseDelay delay (ms) before the first retry
+	 * @param maxDelay upper bound of the delay (ms)
+	 * @param maxAttempts maximal number of failed executions that are retried
+	 * @param networkFailure true if the error indicates a problem of the network (and not
+	 *            of an individual file). Such errors are reported to the circuit breaker.
+	 */
+	public RetryPolicy(long baseDelay, long maxDelay, int maxAttempts, boolean networkFailure) {
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.maxAttempts = maxAttempts;
+		this.networkFailure = networkFailure;
+	}
+
+	/**
+	 * @param attempts number of executions so far
+	 * @return true if the action should be executed again
+	 */
+	public boolean shouldRetry(int attempts) {
+		return attempts <= maxAttempts;
+	}
+
+	/**
+	 * Computes the delay before the next execution.
+	 *
+	 * @param attempts number of executions so far (at least 1)
+	 * @param random source of the jitter
+	 * @return delay in ms
+	 */
+	public long getDelay(int attempts, Random random) {
+		int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+		long delay = Math.min(maxDelay, baseDelay << exponent);
+		if (delay <= 1) {
+			return delay;
+		}
+		long half = delay / 2;
+		return half + (long) (random.nextDouble() * (delay - half));
+	}
+
+	public long getBaseDelay() {
+		return baseDelay;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public boolean isNetworkFailure() {
+		return networkFailure;
+	}
+}
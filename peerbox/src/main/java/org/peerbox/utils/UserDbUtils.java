@@ -62,6 +62,19 @@ public class UserDbUtils {
 		return filename;
 	}
 
+	/**
+	 * Creates a filename for the journal of pending actions given a username.
+	 *
+	 * @param username for which journal file should be created
+	 * @return filename (not a full path)
+	 */
+	public static String createJournalFileName(String username) {
+		String usernameLower = username.toLowerCase();
+		String usernameHash = hashString(usernameLower);
+		String filename = String.format("%s.journal", usernameHash);
+		return filename;
+	}
+
 	private static String hashString(String str) {
 		return Hashing.sha256().hashString(str, Charsets.UTF_8).toString();
 	}
@@ -3,11 +3,11 @@ package org.peerbox.watchservice;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.peerbox.watchservice.EventCoalescer.Event;
+import org.peerbox.watchservice.EventCoalescer.Kind;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,19 +15,28 @@ public abstract class AbstractWatchService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(AbstractWatchService.class);
 	
+	/** Time without further events of a path until its merged events are delivered **/
+	private static final long COALESCING_WINDOW_MS = 50;
+	
+	/** Maximal time the events of a path are delayed for merging **/
+	private static final long MAX_COALESCING_DELAY_MS = 1000;
+	
 	private final List<ILocalFileEventListener> eventListeners;
-	private final BlockingQueue<INotifyFileEvent> eventQueue;
+	private final EventCoalescer eventQueue;
 	private Thread notifierThread;
 	
 	private Path folderToWatch;
 	
+	/** Rules of the files and folders that are neither watched nor reported **/
+	private volatile IgnoreRules ignoreRules = IgnoreRules.DEFAULT;
+	
 	protected final AtomicBoolean isRunning;
 
 	public AbstractWatchService() {
 		super();
 		isRunning = new AtomicBoolean(false);
 		this.eventListeners = new CopyOnWriteArrayList<ILocalFileEventListener>();
-		this.eventQueue = new LinkedBlockingQueue<INotifyFileEvent>();
+		this.eventQueue = new EventCoalescer(COALESCING_WINDOW_MS, MAX_COALESCING_DELAY_MS);
 	}
 
 	public final void start(final Path folderToWatch) throws Exception {
@@ -80,6 +89,31 @@ public abstract class AbstractWatchService {
 		return folderToWatch;
 	}
 	
+	protected IgnoreRules getIgnoreRules() {
+		return ignoreRules;
+	}
+	
+	/**
+	 * Sets the rules of the user, must be called before the service is started.
+	 */
+	public void setIgnoreRules(final IgnoreRules ignoreRules) {
+		this.ignoreRules = ignoreRules;
+	}
+	
+	/**
+	 * @return number of events received from the file system.
+	 */
+	public long getRawEventCount() {
+		return eventQueue.getRawEventCount();
+	}
+	
+	/**
+	 * @return number of events delivered to the listeners after merging.
+	 */
+	public long getEmittedEventCount() {
+		return eventQueue.getEmittedEventCount();
+	}
+	
 	private void notifyFileCreated(final Path path) {
 		for (ILocalFileEventListener l : eventListeners) {
 			l.onLocalFileCreated(path);
@@ -99,7 +133,21 @@ public abstract class AbstractWatchService {
 	}
 	
 	protected void addNotifyEvent(final INotifyFileEvent event) throws InterruptedException {
-		eventQueue.put(event);
+		eventQueue.add(event.getPath(), event.getKind());
+	}
+	
+	private void notifyEvent(final Event event) {
+		switch (event.getKind()) {
+			case CREATE:
+				notifyFileCreated(event.getPath());
+				break;
+			case MODIFY:
+				notifyFileModified(event.getPath());
+				break;
+			case DELETE:
+				notifyFileDeleted(event.getPath());
+				break;
+		}
 	}
 	
 	private class EventListenerNotifier implements Runnable {
@@ -113,8 +161,13 @@ public abstract class AbstractWatchService {
 			while (true) {
 				try {
 					
-					INotifyFileEvent event = eventQueue.take();
-					event.notifyEventListeners();
+					for (Event event : eventQueue.take()) {
+						try {
+							notifyEvent(event);
+						} catch (Exception ex) {
+							logger.warn("Exception catched: {}", ex.getMessage(), ex);
+						}
+					}
 				} catch (InterruptedException iex) {
 					if (isRunning.get()) {
 						// stop not called - unexpected!
@@ -132,7 +185,8 @@ public abstract class AbstractWatchService {
 	}
 	
 	protected interface INotifyFileEvent {
-		void notifyEventListeners();
+		Path getPath();
+		Kind getKind();
 		void logEvent();
 	}
 	
@@ -144,8 +198,13 @@ public abstract class AbstractWatchService {
 		}
 
 		@Override
-		public void notifyEventListeners() {
-			notifyFileCreated(path);
+		public Path getPath() {
+			return path;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.CREATE;
 		}
 
 		@Override
@@ -162,8 +221,13 @@ public abstract class AbstractWatchService {
 		}
 
 		@Override
-		public void notifyEventListeners() {
-			notifyFileModified(path);
+		public Path getPath() {
+			return path;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.MODIFY;
 		}
 
 		@Override
@@ -180,8 +244,13 @@ public abstract class AbstractWatchService {
 		}
 
 		@Override
-		public void notifyEventListeners() {
-			notifyFileDeleted(path);
+		public Path getPath() {
+			return path;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.DELETE;
 		}
 
 		@Override
@@ -13,6 +13,7 @@ import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.peerbox.app.manager.file.IFileManager;
+import org.peerbox.watchservice.EventCoalescer.Kind;
 import org.peerbox.watchservice.filetree.composite.FileComponent;
 import org.peerbox.watchservice.filetree.composite.FolderComposite;
 import org.peerbox.watchservice.states.AbstractActionState;
@@ -20,7 +21,6 @@ import org.peerbox.watchservice.states.EstablishedState;
 import org.peerbox.watchservice.states.ExecutionHandle;
 import org.peerbox.watchservice.states.InitialState;
 import org.peerbox.watchservice.states.LocalMoveState;
-import org.peerbox.watchservice.states.RemoteUpdateState;
 import org.peerbox.watchservice.states.StateType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -134,15 +134,10 @@ public class Action implements IAction {
 
 	/**
 	 * Handles the local update event. For further documentation on event handling, 
-	 * check {@link #handleLocalCreateEvent()}. If currentState is of 
-	 * type {@link org.peerbox.watchservice.states.RemoteUpdateState 
-	 * RemoteUpdateState} and {@link org.peerbox.watchservice.states.
-	 * RemoteUpdateState#getLocalUpdateHappened() RemoteUpdateState.getLocal
-	 * UpdateHappened()} == false (i.e. no local update event happened yet), the
-	 * event is ignored. This is useful, as the local update event introduced by the
-	 * H2H download() API call should not be mistaken for an actual local file change.
-	 * In any other case, the local update is simply forwarded to the corresponding
-	 * state.
+	 * check {@link #handleLocalCreateEvent()}. The local update events introduced by
+	 * the H2H download() API call do not arrive here as long as the file shows the
+	 * downloaded content, they are dropped as echoes (see {@link ExpectedEventRegistry}).
+	 * Hence, the local update is simply forwarded to the corresponding state.
 	 */
 	@Override
 	public void handleLocalUpdateEvent() {
@@ -161,16 +156,6 @@ public class Action implements IAction {
 //						logger.debug("File {}: LocalUpdateEvent after LocalCreateEvent "
 //								+ "in RemoteCreateState - ignored!", file.getPath());
 //					}
-				} else if(currentState.getStateType() == StateType.REMOTE_UPDATE){
-					RemoteUpdateState castedState = (RemoteUpdateState)currentState;
-					if(castedState.getLocalUpdateHappened()){
-						nextState = nextState.changeStateOnLocalUpdate();
-						checkIfChanged();
-					} else {
-						castedState.setLocalUpdateHappened(true);
-						logger.debug("File {}: First LocalUpdateEvent "
-								+ "in RemoteUpdateState - ignored!", file.getPath());
-					}
 				} else {
 					nextState = nextState.changeStateOnLocalUpdate();
 					checkIfChanged();
@@ -459,14 +444,29 @@ public class Action implements IAction {
 				currentState = currentState.handleRemoteMove(path);
 				nextState = currentState.getDefaultState();
 
+				if (!Files.exists(srcPath)) {
+					return;
+				}
+				// the move is reported by the watch service, these events are dropped
+				ExpectedEventRegistry expectedEvents = getFileEventManager().getExpectedEvents();
+				expectedEvents.expect(srcPath, Kind.DELETE);
+				expectedEvents.expect(path, Kind.CREATE);
+				expectedEvents.expect(path, Kind.MODIFY);
+				boolean moved = false;
 				try {
-					if (!Files.exists(srcPath)) {
-						return;
-					}
 					Files.move(srcPath, path);
+					moved = true;
 				} catch (IOException e) {
 					logger.warn("Could not move file: from src={} to dst={} ({})",
 							srcPath, path, e.getMessage(), e);
+				} finally {
+					if (moved) {
+						expectedEvents.settle(srcPath);
+						expectedEvents.settle(path);
+					} else {
+						expectedEvents.cancel(srcPath);
+						expectedEvents.cancel(path);
+					}
 				}
 
 			}
@@ -574,6 +574,31 @@ public class Action implements IAction {
 		}
 	}
 
+	/**
+	 * This method performs the cleanup routine after an action's execution
+	 * was cancelled because it became outdated (e.g. the file changed again during
+	 * the upload). The current state is kept such that the operation is executed again
+	 * once the file is stable, the changes tracked in the meantime are
+	 * discarded since the next execution covers them.
+	 */
+	@Override
+	public void onCancelled() {
+		logger.trace("onCancelled: File {} - Keep state {}, discard next state {}",
+				getFile().getPath(), getCurrentStateName(), getNextStateName());
+		try {
+			acquireLock();
+
+			nextState = currentState.getDefaultState();
+			setIsExecuting(false);
+			changedWhileExecuted = false;
+			executionAttempts = 0;
+			updateTimestamp();
+
+		} finally {
+			releaseLock();
+		}
+	}
+
 	private void acquireLock() {
 		logger.trace("File {} with ID {}: Wait for own lock at t={} in State {}",
 				getFile().getPath(), getFile().hashCode(), System.currentTimeMillis(), getCurrentState().getStateType());
@@ -1,14 +1,24 @@
 package org.peerbox.watchservice;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.engio.mbassy.listener.Handler;
 
@@ -19,16 +29,19 @@ import org.hive2hive.core.exceptions.NoPeerConnectionException;
 import org.hive2hive.core.exceptions.NoSessionException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.peerbox.app.config.IPeerWaspConfig;
-import org.peerbox.app.manager.ProcessHandle;
 import org.peerbox.app.manager.file.FileInfo;
 import org.peerbox.app.manager.file.IFileManager;
 import org.peerbox.app.manager.file.messages.FileExecutionFailedMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionStartedMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionSucceededMessage;
+import org.peerbox.app.manager.file.messages.LocalFileContentChangedMessage;
+import org.peerbox.app.manager.node.NodeConnectMessage;
+import org.peerbox.app.manager.node.NodeDisconnectMessage;
 import org.peerbox.events.IMessage;
 import org.peerbox.forcesync.ForceSyncCompleteMessage;
 import org.peerbox.forcesync.ForceSyncMessage;
 import org.peerbox.notifications.InformationNotification;
+import org.peerbox.utils.RetryPolicy;
 import org.peerbox.view.tray.SynchronizationCompleteNotification;
 import org.peerbox.view.tray.SynchronizationErrorsResolvedNotification;
 import org.peerbox.view.tray.SynchronizationStartsNotification;
@@ -42,6 +55,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 
 /**
@@ -51,8 +66,8 @@ import com.google.inject.Inject;
  * ActionQueue} for this purpose, which runs in a separate thread. Ready
  * actions, for which no new events have been observed for a specified time
  * span, are executed. The class maintains asynchronous handles for ongoing
- * executions to check whether they conclude successfully or not and react
- * accordingly.
+ * executions and is notified as soon as an execution concludes (successfully or
+ * not) in order to react accordingly.
  *
  * This class uses the {@link org.peerbox.events.MessageBus MessageBus} instance
  * of the injected {@link org.peerbox.watchservice.FileEventManager
@@ -75,6 +90,21 @@ public class ActionExecutor implements Runnable {
 
 	private static final Logger logger = LoggerFactory.getLogger(ActionExecutor.class);
 
+	/** A lane is paused if more than half of its recent executions failed due to the network **/
+	private static final int CIRCUIT_WINDOW_SIZE = 20;
+	private static final int CIRCUIT_MIN_SAMPLES = 5;
+	private static final double CIRCUIT_FAILURE_RATE = 0.5;
+	private static final long CIRCUIT_OPEN_INTERVAL_MS = 10 * 1000;
+	private static final long CIRCUIT_MAX_OPEN_INTERVAL_MS = 5 * 60 * 1000;
+
+	/**
+	 * An execution that does not end within this time plus the time for its transfer is
+	 * cancelled and rolled back. Its slot is freed as soon as the rollback ended.
+	 **/
+	private static final long EXECUTION_TIMEOUT_MS = 30 * 60 * 1000;
+	/** Transfer time per MiB, i.e. transfers slower than 16 KiB/s time out **/
+	private static final long EXECUTION_TIMEOUT_MS_PER_MIB = 64 * 1000;
+
 	private IPeerWaspConfig peerWaspConfig;
 
 	private final IFileManager fileManager;
@@ -84,12 +114,45 @@ public class ActionExecutor implements Runnable {
 	private boolean waitForActionCompletion = true;
 
 	/**
-	 * Queue to store the handles of executing transactions, ending transactions
-	 * are examined asynchronously
+	 * Queue to store the handles of executing transactions, handles are removed
+	 * as soon as the transaction ends
 	 **/
 	private final BlockingQueue<ExecutionHandle> asyncHandles;
 
-	private Thread asyncHandlesThread;
+	/** Adapts the number of concurrent executions to the link **/
+	private final ExecutionLimiter executionLimiter;
+
+	/** Ready actions waiting for an execution slot, separated by lane **/
+	private final LaneScheduler laneScheduler;
+
+	/** Lane of each executing transaction **/
+	private final Map<ExecutionHandle, ExecutionLane> runningLanes;
+
+	/** Retry policies for failed executions and circuit breakers pausing the lanes **/
+	private final RetryPolicies retryPolicies;
+	private final Map<ExecutionLane, CircuitBreaker> circuitBreakers;
+	private final Random random = new Random();
+
+	/** Wakes up the dispatching as soon as a paused lane becomes available again **/
+	/** created on start, shut down on stop **/
+	private volatile ScheduledExecutorService wakeUpTimer;
+	private final AtomicBoolean wakeUpScheduled = new AtomicBoolean(false);
+
+	/** False while the connection to the network is lost, all lanes are suspended **/
+	private volatile boolean online = true;
+
+	/** Limits the rate at which the backlog is executed after the connection was restored **/
+	private volatile RateLimiter backlogRateLimiter;
+
+	/** Serializes the dispatching of pending actions to free execution slots **/
+	private final Object dispatchMonitor = new Object();
+
+	/** Serializes the handling of concluded executions **/
+	private final Object completionMonitor = new Object();
+
+	/** Journal of pending actions, allows to execute them again after a restart (may be null) **/
+	private ActionJournal actionJournal;
+
 	private Thread executorThread;
 
 	private boolean forceSyncRunning = false;
@@ -113,22 +176,68 @@ public class ActionExecutor implements Runnable {
 		this.peerWaspConfig = peerWaspConfig;
 
 		this.asyncHandles = new LinkedBlockingQueue<ExecutionHandle>();
+		this.laneScheduler = new LaneScheduler();
+		this.runningLanes = new ConcurrentHashMap<ExecutionHandle, ExecutionLane>();
+		this.retryPolicies = new RetryPolicies(peerWaspConfig.getMaximalExecutionAttempts());
+		this.circuitBreakers = new EnumMap<ExecutionLane, CircuitBreaker>(ExecutionLane.class);
+		for (ExecutionLane lane : ExecutionLane.values()) {
+			circuitBreakers.put(lane, new CircuitBreaker(lane.name(), CIRCUIT_WINDOW_SIZE,
+					CIRCUIT_MIN_SAMPLES, CIRCUIT_FAILURE_RATE, CIRCUIT_OPEN_INTERVAL_MS,
+					CIRCUIT_MAX_OPEN_INTERVAL_MS));
+		}
+		this.executionLimiter = new ExecutionLimiter(peerWaspConfig.getNumberOfExecutionSlots(), 1,
+				peerWaspConfig.getMaximalNumberOfExecutionSlots());
+		getFileComponentQueue().setReadyTimeFunction(this::computeReadyTime);
+	}
+
+	@Inject
+	public void setActionJournal(ActionJournal actionJournal) {
+		this.actionJournal = actionJournal;
+	}
+
+	public ActionJournal getActionJournal() {
+		return actionJournal;
 	}
 
 	public void start() {
-		// executor / asyncHandles thread must not exist already
-		if (executorThread != null || asyncHandlesThread != null) {
+		// executor thread must not exist already
+		if (executorThread != null) {
 			throw new IllegalStateException(String.format(
 					"Calling start() is not allowed when action executor is already running "
-					+ "(executorThread=%s, asyncHandlesThread=%s)",
-					executorThread, asyncHandlesThread));
+					+ "(executorThread=%s)", executorThread));
 		}
 
+		openJournal();
+
+		wakeUpScheduled.set(false);
+		wakeUpTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("ActionExecutorWakeUpThread").setDaemon(true).build());
+
 		executorThread = new Thread(this, "ActionExecutorThread");
 		executorThread.start();
+	}
 
-		asyncHandlesThread = new Thread(new ExecutingActionHandler(), "AsyncActionHandlerThread");
-		asyncHandlesThread.start();
+	/**
+	 * Opens the journal and records every action that is added to the queue from now on.
+	 * Actions that are dropped from the queue (e.g. a create followed by a delete) conclude.
+	 * The journal is optional: if it cannot be opened, actions are executed without journal.
+	 */
+	private void openJournal() {
+		if (actionJournal == null) {
+			return;
+		}
+		try {
+			actionJournal.open();
+			getFileComponentQueue().setAddListener(actionJournal::record);
+			getFileComponentQueue().setRemoveListener(component -> {
+				if (!component.getAction().isExecuting()) {
+					actionJournal.remove(component.getPath());
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Could not open journal {}, pending actions are not journaled.",
+					actionJournal.getFile(), e);
+		}
 	}
 
 	public void stop() {
@@ -136,12 +245,89 @@ public class ActionExecutor implements Runnable {
 			executorThread.interrupt();
 			executorThread = null;
 		}
-
-		if (asyncHandlesThread != null) {
-			asyncHandlesThread.interrupt();
-			asyncHandlesThread = null;
+		if (wakeUpTimer != null) {
+			wakeUpTimer.shutdownNow();
+			wakeUpTimer = null;
 		}
+		// results of ongoing executions are ignored from now on
 		asyncHandles.clear();
+		runningLanes.clear();
+		laneScheduler.clear();
+		// pending and ongoing actions stay in the journal and are replayed after the next start
+		if (actionJournal != null) {
+			actionJournal.close();
+		}
+	}
+
+	/**
+	 * Replays the actions that were pending when the client stopped (or crashed) the last time,
+	 * i.e. the local events that caused them are handled again. Should be called as soon as the
+	 * file tree is initialized. Actions of components that are already scheduled again (e.g. by
+	 * a force sync) and remote actions are skipped, the latter are triggered by the network again.
+	 * Updates are only replayed if the content hash of the file is still the recorded one.
+	 *
+	 * @return number of replayed actions
+	 */
+	public int replayJournal() {
+		if (actionJournal == null || !actionJournal.isOpen()) {
+			return 0;
+		}
+		int replayed = 0;
+		for (ActionJournal.Entry entry : actionJournal.getEntries()) {
+			actionJournal.remove(entry.getPath());
+			FileComponent component = getFileTree().getFile(entry.getPath());
+			if (component != null && (component.getAction().isExecuting()
+					|| getFileComponentQueue().contains(component))) {
+				continue;
+			}
+			if (replayEntry(entry, component)) {
+				++replayed;
+			}
+		}
+		logger.info("Replayed {} pending actions from journal.", replayed);
+		return replayed;
+	}
+
+	private boolean replayEntry(ActionJournal.Entry entry, FileComponent component) {
+		final Path path = entry.getPath();
+		final boolean uploaded = component != null && component.isUploaded();
+		logger.debug("Replay {} of {}.", entry.getPendingState(), path);
+
+		switch (entry.getPendingState()) {
+			case LOCAL_CREATE:
+				if (Files.exists(path) && !uploaded) {
+					fileEventManager.onLocalFileCreated(path);
+					return true;
+				}
+				return false;
+			case LOCAL_UPDATE:
+				// the content did not change since, otherwise a new event was observed
+				if (uploaded && Files.isRegularFile(path)
+						&& Objects.equals(entry.getContentHash(), component.getContentHash())) {
+					component.getAction().handleLocalUpdateEvent();
+					return true;
+				}
+				return false;
+			case LOCAL_MOVE:
+				// move detection pairs the deleted source with the created target
+				Path source = entry.getSourcePath();
+				FileComponent sourceComponent = source != null ? getFileTree().getFile(source) : null;
+				if (sourceComponent != null && sourceComponent.isUploaded()
+						&& !Files.exists(source) && Files.exists(path) && !uploaded) {
+					fileEventManager.onLocalFileDeleted(source);
+					fileEventManager.onLocalFileCreated(path);
+					return true;
+				}
+				return false;
+			case LOCAL_HARD_DELETE:
+				if (uploaded) {
+					fileEventManager.onLocalFileHardDelete(path);
+					return true;
+				}
+				return false;
+			default:
+				return false;
+		}
 	}
 
 	@Override
@@ -150,19 +336,19 @@ public class ActionExecutor implements Runnable {
 	}
 
 	/**
-	 * Processes the actions in the action queue, one by one. For each action,
-	 * the thread checks if a slot is free (i.e. the upper bound of concurrent
-	 * executions is not reached) and if the timestamp (updated on every event)
-	 * of the action is old enough to conclude the event aggregation for this
-	 * action. Besides that, the method checks if the ancestors of a file have
+	 * Processes the actions in the action queue, one by one. The thread blocks on the
+	 * queue until the ready time of the next action (the timestamp updated on every
+	 * event plus the aggregation interval) is reached.
+	 * Besides that, the method checks if the ancestors of a file have
 	 * been uploaded to the network yet, to prevent a
-	 * {@link org.hive2hive.core. src.main.java.org.hive2hive.core.exceptions.ParentInUserProfileNotFoundException}
+	 * {@link org.hive2hive.core. src.main.java.org.hive2hive.core.exceptions.ParentInUserProfileNotFoundException}.
+	 * Actions whose parent is not uploaded yet are parked in the queue and released
+	 * together with all siblings as soon as the parent has been uploaded.
 	 *
-	 * @throws IllegalFileLocation
-	 * @throws NoPeerConnectionException
-	 * @throws NoSessionException
+	 * Ready actions are assigned to an {@link ExecutionLane} and executed as soon as
+	 * the lane is selected by the {@link LaneScheduler} and a slot is free.
 	 */
-	private synchronized void processActions() {
+	private void processActions() {
 		while (true) {
 
 			if (Thread.currentThread().isInterrupted()) {
@@ -174,86 +360,287 @@ public class ActionExecutor implements Runnable {
 
 			try {
 
-				next = fileEventManager.getFileComponentQueue().take();
+				next = getFileComponentQueue().takeReady();
+
+				if (!isTimerReady(next.getAction())) {
+					// event happened after scheduling, schedule again with the new ready time
+					getFileComponentQueue().add(next);
+					continue;
+				}
+
 				if (!isFileComponentReady(next)) {
-					updateFileComponentQueueAndWait(next);
+					logger.debug("Component {} is not ready yet, parent not uploaded!", next.getPath());
+					getFileComponentQueue().park(next);
 					continue;
 				}
 
-				if (isTimerReady(next.getAction()) && isExecuteSlotFree()) {
-
-					removeFromDeleted(next);
-					removeFromCreated(next);
-					removeFromFailed(next.getPath());
-
-					logger.debug("Start execution: {}", next.getPath());
-
-					ExecutionHandle ehandle = next.getAction().execute(
-							fileManager);
-					if (waitForActionCompletion) {
-
-						if (ehandle != null
-								&& ehandle.getProcessHandle() != null) {
-							logger.debug("Put into async handles!");
-							asyncHandles.put(ehandle);
-							FileInfo file = new FileInfo(next);
-							publishMessage(new FileExecutionStartedMessage(
-									file, next.getAction().getCurrentState()
-											.getStateType()));
-						} else {
-							// This happens with actions in
-							// InitialState/EstablishedState
-							FileInfo file = new FileInfo(next);
-							publishMessage(new FileExecutionSucceededMessage(
-									file, next.getAction().getCurrentState()
-											.getStateType()));
-						}
+				laneScheduler.add(next, getLane(next));
+				dispatchPendingActions();
 
-						if (asyncHandles.size() != 0) {
-							publishMessage(new SynchronizationStartsNotification());
-						}
-					} else {
-						onActionExecuteSucceeded(next.getAction());
-					}
-				} else {
-					if (!isExecuteSlotFree()) {
-						logger.debug("All slots used! Current jobs: ");
-						logRunningJobs();
-					}
-					fileEventManager.getFileComponentQueue().add(next);
-					wait(calculateWaitTime(next));
-				}
 			} catch (InterruptedException iex) {
 				// happens if interrupted during blocking wait on queue
 				logger.error("Thead interrup occurred: {}", iex.getMessage(), iex);
 				return;
-			} catch (NoSessionException nse) {
-				logger.warn("No session - cannot execute pending actions.", nse);
-			} catch (NoPeerConnectionException npc) {
-				logger.warn(
-						"No peer connection - cannot execute pending actions.",
-						npc);
 			} catch (Exception e) {
 				logger.error("Exception occurred: {}", e.getMessage(), e);
 			}
 		}
 	}
 
-	private void updateFileComponentQueueAndWait(FileComponent next)
-			throws InterruptedException {
-		logger.debug("Component {} is not ready yet!", next.getPath());
+	/**
+	 * Executes pending actions as long as execution slots are free. Called whenever
+	 * an action becomes ready and whenever an execution concludes. Nothing is executed
+	 * while offline, the ready actions wait in the lanes in the meantime. After the
+	 * connection was restored, the backlog is executed at a limited rate.
+	 */
+	private void dispatchPendingActions() {
+		synchronized (dispatchMonitor) {
+			while (online && isExecuteSlotFree()) {
+				if (!tryAcquireBacklogPermit()) {
+					return;
+				}
+				ExecutionLane lane = laneScheduler.selectLane(executionLimiter.getLimit(),
+						l -> circuitBreakers.get(l).isAvailable());
+				if (lane == null) {
+					// nothing pending, all lanes with pending actions exhausted their budget or are paused
+					scheduleWakeUp();
+					return;
+				}
+				FileComponent next = laneScheduler.poll(lane);
+				if (next != null && circuitBreakers.get(lane).allowRequest()) {
+					executeAction(next, lane);
+				} else if (next != null) {
+					laneScheduler.add(next, lane);
+				}
+			}
+
+			if (laneScheduler.getNumberOfPending() > 0) {
+				logger.debug("All slots used! Current jobs: ");
+				logRunningJobs();
+			}
+		}
+	}
+
+	/**
+	 * Limits the rate at which the backlog is executed after the connection was restored.
+	 * If no permit is available, the dispatching is scheduled again. The limit is lifted
+	 * as soon as no actions are pending anymore.
+	 *
+	 * @return true if an action may be started now
+	 */
+	private boolean tryAcquireBacklogPermit() {
+		RateLimiter rateLimiter = backlogRateLimiter;
+		if (rateLimiter == null) {
+			return true;
+		}
+		if (laneScheduler.getNumberOfPending() == 0) {
+			logger.debug("Backlog executed, rate limit lifted.");
+			backlogRateLimiter = null;
+			return true;
+		}
+		if (rateLimiter.tryAcquire()) {
+			return true;
+		}
+		scheduleWakeUp((long) Math.ceil(1000.0 / rateLimiter.getRate()));
+		return false;
+	}
+
+	/**
+	 * Schedules a dispatching of pending actions at the time the first paused lane
+	 * with pending actions becomes available again.
+	 */
+	private void scheduleWakeUp() {
+		long delay = Long.MAX_VALUE;
+		for (ExecutionLane lane : ExecutionLane.values()) {
+			long remaining = circuitBreakers.get(lane).getRemainingOpenTime();
+			if (remaining > 0 && laneScheduler.getNumberOfPending(lane) > 0) {
+				delay = Math.min(delay, remaining);
+			}
+		}
+		if (delay != Long.MAX_VALUE) {
+			logger.debug("Lanes paused, dispatch pending actions again in {} ms.", delay);
+			scheduleWakeUp(delay);
+		}
+	}
+
+	private void scheduleWakeUp(long delay) {
+		ScheduledExecutorService timer = wakeUpTimer;
+		if (timer == null) {
+			// not running, pending actions are dispatched after the next start
+			return;
+		}
+		if (wakeUpScheduled.compareAndSet(false, true)) {
+			try {
+				timer.schedule(() -> {
+					wakeUpScheduled.set(false);
+					dispatchPendingActions();
+				}, delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// stopped concurrently
+				wakeUpScheduled.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Starts the execution of the action of a component.
+	 *
+	 * @param next component to execute
+	 * @param lane of the component, occupied until the execution concludes
+	 */
+	private void executeAction(FileComponent next, ExecutionLane lane) {
+		try {
+			removeFromDeleted(next);
+			removeFromCreated(next);
+			removeFromFailed(next.getPath());
+
+			logger.debug("Start execution ({}): {}", lane, next.getPath());
+
+			ExecutionHandle ehandle = next.getAction().execute(
+					fileManager);
+			if (waitForActionCompletion) {
+
+				if (ehandle != null
+						&& ehandle.getProcessHandle() != null) {
+					logger.debug("Put into async handles!");
+					laneScheduler.acquire(lane);
+					runningLanes.put(ehandle, lane);
+					asyncHandles.add(ehandle);
+					FileInfo file = new FileInfo(next);
+					publishMessage(new FileExecutionStartedMessage(
+							file, next.getAction().getCurrentState()
+									.getStateType()));
+					ehandle.getProcessHandle().getCompletion().whenComplete(
+							(result, error) -> onExecutionCompleted(ehandle, error));
+					ehandle.getProcessHandle().cancelAfter(getExecutionTimeout(ehandle, lane),
+							TimeUnit.MILLISECONDS);
+				} else {
+					// This happens with actions in
+					// InitialState/EstablishedState
+					circuitBreakers.get(lane).recordIgnored();
+					FileInfo file = new FileInfo(next);
+					publishMessage(new FileExecutionSucceededMessage(
+							file, next.getAction().getCurrentState()
+									.getStateType()));
+				}
+
+				if (asyncHandles.size() != 0) {
+					publishMessage(new SynchronizationStartsNotification());
+				}
+			} else {
+				circuitBreakers.get(lane).recordIgnored();
+				onActionExecuteSucceeded(next.getAction());
+			}
+		} catch (NoSessionException nse) {
+			logger.warn("No session - cannot execute pending actions.", nse);
+			next.getAction().onFailed();
+			handleErrorDefault(next.getAction(), nse, lane);
+		} catch (NoPeerConnectionException npc) {
+			logger.warn(
+					"No peer connection - cannot execute pending actions.",
+					npc);
+			next.getAction().onFailed();
+			handleErrorDefault(next.getAction(), npc, lane);
+		} catch (Exception e) {
+			circuitBreakers.get(lane).recordIgnored();
+			logger.error("Exception occurred: {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Assigns a component to a lane: moves, deletes and folders are metadata operations,
+	 * files are split into small and large files according to {@link IFileManager#isLargeFile(Path)}.
+	 */
+	private ExecutionLane getLane(FileComponent component) {
+		StateType type = component.getAction().getCurrentState().getStateType();
+		if (component.isFolder() || type == StateType.LOCAL_MOVE || type == StateType.LOCAL_HARD_DELETE) {
+			return ExecutionLane.METADATA;
+		}
+		if (type == StateType.LOCAL_CREATE || type == StateType.LOCAL_UPDATE) {
+			if (fileManager.isLargeFile(component.getPath())) {
+				return ExecutionLane.LARGE_FILE;
+			}
+			return ExecutionLane.SMALL_FILE;
+		}
+		if (type == StateType.REMOTE_CREATE || type == StateType.REMOTE_UPDATE) {
+			return ExecutionLane.SMALL_FILE;
+		}
+		return ExecutionLane.METADATA;
+	}
+
+	/**
+	 * Frees the slot of a concluded execution and starts pending actions.
+	 */
+	private void onSlotReleased(ExecutionHandle handle) {
+		ExecutionLane lane = runningLanes.remove(handle);
+		if (lane != null) {
+			laneScheduler.release(lane);
+		}
+		dispatchPendingActions();
+	}
 
-		fileEventManager.getFileComponentQueue().remove(next);
-		next.getAction().updateTimestamp();
-		fileEventManager.getFileComponentQueue().add(next);
+	/**
+	 * @return number of bytes an execution transferred, i.e. the size of the uploaded or
+	 *         downloaded file, 0 for metadata operations or if the size is unknown.
+	 */
+	private long getTransferSize(ExecutionHandle handle, ExecutionLane lane) {
+		FileComponent file = handle.getAction().getFile();
+		if (lane == null || lane == ExecutionLane.METADATA || !file.isFile()) {
+			return 0;
+		}
+		try {
+			return Files.size(file.getPath());
+		} catch (IOException e) {
+			return 0;
+		}
+	}
 
-		wait(calculateWaitTime(next));
+	/**
+	 * @return maximal duration of an execution in milliseconds, depending on the size of the
+	 *         transferred file (if known).
+	 */
+	private long getExecutionTimeout(ExecutionHandle handle, ExecutionLane lane) {
+		long mebibytes = getTransferSize(handle, lane) / (1024 * 1024);
+		return EXECUTION_TIMEOUT_MS + mebibytes * EXECUTION_TIMEOUT_MS_PER_MIB;
 	}
 
 	private boolean isFileComponentReady(FileComponent next) {
 		return next.isReady();
 	}
 
+	/**
+	 * Releases all parked children of the given folder at once if it is uploaded.
+	 * The children keep their timestamp and are thus executed without further delay.
+	 */
+	private void releaseDependentComponents(FileComponent parent) {
+		if (parent.isFolder() && parent.isUploaded()) {
+			int released = getFileComponentQueue().releaseDependents(parent);
+			if (released > 0) {
+				logger.debug("Released {} components waiting for upload of {}.", released, parent.getPath());
+			}
+		}
+	}
+
+	/**
+	 * Computes the time at which an action is ready to be executed, i.e.
+	 * the timestamp of the last event plus the aggregation interval.
+	 *
+	 * @param component of which the action is scheduled
+	 * @return ready time in ms
+	 */
+	private long computeReadyTime(FileComponent component) {
+		IAction action = component.getAction();
+		return action.getTimestamp() + getAggregationInterval(action);
+	}
+
+	private long getAggregationInterval(IAction action) {
+		if (action.getCurrentState().getStateType() == StateType.LOCAL_CREATE) {
+			return peerWaspConfig.getLongAggregationIntervalInMillis();
+		} else {
+			return peerWaspConfig.getAggregationIntervalInMillis();
+		}
+	}
+
 	/**
 	 * Checks whether an action is ready to be executed
 	 *
@@ -262,12 +649,7 @@ public class ActionExecutor implements Runnable {
 	 * @return true if ready to be executed, false otherwise
 	 */
 	private boolean isTimerReady(IAction action) {
-		long ageMs = getActionAge(action);
-		if (action.getCurrentState().getStateType() == StateType.LOCAL_CREATE) {
-			return ageMs >= peerWaspConfig.getLongAggregationIntervalInMillis();
-		} else {
-			return ageMs >= peerWaspConfig.getAggregationIntervalInMillis();
-		}
+		return getActionAge(action) >= getAggregationInterval(action);
 	}
 
 	/**
@@ -280,18 +662,13 @@ public class ActionExecutor implements Runnable {
 		return System.currentTimeMillis() - action.getTimestamp();
 	}
 
-	private long calculateWaitTime(FileComponent action) {
-		long timeToWait = peerWaspConfig.getAggregationIntervalInMillis()
-				- getActionAge(action.getAction()) + 1L;
-		if (timeToWait < 500L) {
-			// wait at least some time
-			timeToWait = 500L;
-		}
-		return timeToWait;
-	}
-
+	/**
+	 * Checks whether another action may be executed. The number of concurrent executions
+	 * is bounded by the {@link ExecutionLimiter}, which adapts the bound to the observed
+	 * completion latency and failures.
+	 */
 	private boolean isExecuteSlotFree() {
-		return asyncHandles.size() < peerWaspConfig.getNumberOfExecutionSlots();
+		return executionLimiter.tryAcquire(asyncHandles.size());
 	}
 
 	public void setWaitForActionCompletion(boolean wait) {
@@ -302,10 +679,21 @@ public class ActionExecutor implements Runnable {
 		return asyncHandles;
 	}
 
+	/**
+	 * @return the limiter of concurrent executions, e.g. to query the current limit and its history
+	 */
+	public ExecutionLimiter getExecutionLimiter() {
+		return executionLimiter;
+	}
+
 	public IPeerWaspConfig getPeerWaspConfig() {
 		return peerWaspConfig;
 	}
 
+	private FileComponentQueue getFileComponentQueue() {
+		return fileEventManager.getFileComponentQueue();
+	}
+
 	/**
 	 * @return the file tree
 	 */
@@ -436,6 +824,7 @@ public class ActionExecutor implements Runnable {
 			file.setIsUploaded(false);
 		}
 		action.onSucceeded();
+		releaseDependentComponents(file);
 
 		if (changedWhileExecuted) {
 			logger.trace(
@@ -443,12 +832,35 @@ public class ActionExecutor implements Runnable {
 							+ "Put back into the queue", file.getPath(),
 					action.getCurrentStateName());
 			action.updateTimestamp();
-			fileEventManager.getFileComponentQueue().add(file);
+			getFileComponentQueue().add(file);
+		} else {
+			concludeJournalEntry(file);
 		}
 	}
 
+	/**
+	 * Removes the journal entry of a component whose action concluded, unless the component
+	 * has been scheduled again in the meantime.
+	 */
+	private void concludeJournalEntry(FileComponent file) {
+		if (actionJournal != null && !getFileComponentQueue().contains(file)) {
+			actionJournal.remove(file.getPath());
+		}
+	}
+
+	/**
+	 * Reschedules an action whose execution was cancelled. The action keeps its state
+	 * and is executed again as soon as the file is stable.
+	 */
+	private void onActionExecuteCancelled(final IAction action) {
+		logger.debug("Action cancelled: {} {}. Reschedule.", action.getFile().getPath(),
+				action.getCurrentStateName());
+		action.onCancelled();
+		getFileComponentQueue().add(action.getFile());
+	}
+
 	private void handleExecutionError(IAction action,
-			ProcessExecutionException pex) {
+			ProcessExecutionException pex, ExecutionLane lane) {
 		final FileComponent file = action.getFile();
 		logger.error("Action failed: {}", file.getPath(), pex);
 
@@ -465,21 +877,53 @@ public class ActionExecutor implements Runnable {
 			}
 		}
 		if (!errorHandled) {
-			handleErrorDefault(action);
+			handleErrorDefault(action, pex, lane);
+		} else {
+			if (lane != null) {
+				circuitBreakers.get(lane).recordIgnored();
+			}
+			concludeJournalEntry(file);
 		}
 	}
 
-	private void handleErrorDefault(IAction action) {
+	/**
+	 * Retries a failed action according to the {@link RetryPolicy} of the error, i.e. the
+	 * action is executed again after an exponentially growing, randomized delay. Failures of
+	 * the network are reported to the circuit breaker of the lane. If an action fails too
+	 * many times, it is given up and a force sync of the parent folder is initiated. This
+	 * does not apply to failures of the network (or if the lane is paused) because a force sync
+	 * cannot resolve them. Such actions are retried with the maximal delay instead.
+	 *
+	 * @param action that failed
+	 * @param error cause of the failure (may be null)
+	 * @param lane of the action (may be null if unknown)
+	 */
+	private void handleErrorDefault(IAction action, Throwable error, ExecutionLane lane) {
 		final Path path = action.getFile().getPath();
+		final RetryPolicy policy = retryPolicies.getPolicy(error);
+		final CircuitBreaker circuitBreaker = lane != null ? circuitBreakers.get(lane) : null;
 		logger.trace(
 				"Default Error Handling: Re-initiate execution - {} - {} - attempt({}).",
 				path, action.getCurrentStateName(),
 				action.getExecutionAttempts());
 
-		if (action.getExecutionAttempts() <= peerWaspConfig
-				.getMaximalExecutionAttempts()) {
-			action.updateTimestamp();
-			fileEventManager.getFileComponentQueue().add(action.getFile());
+		if (circuitBreaker != null) {
+			if (policy.isNetworkFailure()) {
+				circuitBreaker.recordFailure();
+			} else {
+				circuitBreaker.recordIgnored();
+			}
+		}
+
+		if (policy.shouldRetry(action.getExecutionAttempts())) {
+			long delay = policy.getDelay(action.getExecutionAttempts(), random);
+			logger.debug("Retry {} in {} ms.", path, delay);
+			retryAfter(action, delay);
+		} else if (policy.isNetworkFailure()
+				|| (circuitBreaker != null && circuitBreaker.getState() != CircuitBreaker.State.CLOSED)) {
+			logger.warn("Action of {} failed due to the network, retry in {} ms.", path,
+					policy.getMaxDelay());
+			retryAfter(action, policy.getMaxDelay());
 		} else {
 			FileInfo file = new FileInfo(action.getFile());
 			publishMessage(new FileExecutionFailedMessage(file));
@@ -498,6 +942,17 @@ public class ActionExecutor implements Runnable {
 		}
 	}
 
+	/**
+	 * Puts the action back into the queue such that it is executed after the given delay at
+	 * the earliest.
+	 */
+	private void retryAfter(IAction action, long delay) {
+		action.updateTimestamp();
+		FileComponent file = action.getFile();
+		long readyTime = Math.max(computeReadyTime(file), System.currentTimeMillis() + delay);
+		getFileComponentQueue().add(file, readyTime);
+	}
+
 	private boolean handleErrorByCode(IAction action, ErrorCode error) {
 		final Path path = action.getFile().getPath();
 
@@ -538,6 +993,76 @@ public class ActionExecutor implements Runnable {
 		return false; // error not handled
 	}
 
+	/**
+	 * Cancels the running upload of a file if the file changed again in the meantime,
+	 * i.e. the upload is outdated. Only uploads of files larger than the configured
+	 * threshold are cancelled, smaller files are simply uploaded again afterwards.
+	 * The upload is rolled back, its slot is released as soon as the rollback ended and
+	 * the upload is rescheduled as soon as the file is stable.
+	 */
+	@Handler
+	public void onLocalFileContentChanged(LocalFileContentChangedMessage message) {
+		final Path path = message.getFile().getPath();
+		for (ExecutionHandle handle : asyncHandles) {
+			if (!handle.getAction().getFile().getPath().equals(path)) {
+				continue;
+			}
+			if (isCancelableUpload(handle.getAction())) {
+				if (handle.cancel()) {
+					logger.info("Cancelled outdated upload of {} (new content hash: {}).",
+							path, message.getFile().getContentHash());
+				}
+			}
+		}
+	}
+
+	private boolean isCancelableUpload(IAction action) {
+		StateType type = action.getCurrentState().getStateType();
+		if (type != StateType.LOCAL_CREATE && type != StateType.LOCAL_UPDATE) {
+			return false;
+		}
+		try {
+			return Files.size(action.getFile().getPath()) >= peerWaspConfig.getUploadCancelThresholdInBytes();
+		} catch (IOException e) {
+			logger.debug("Could not determine size of {}.", action.getFile().getPath());
+			return false;
+		}
+	}
+
+	/**
+	 * Suspends all lanes while the node is not connected. Events are still aggregated and
+	 * ready actions wait in their lane (at most once per file) until the connection is restored.
+	 */
+	@Handler
+	public void onNodeDisconnected(NodeDisconnectMessage message) {
+		if (online) {
+			logger.info("Node disconnected (connection lost: {}), suspend execution.",
+					message.isConnectionLost());
+			online = false;
+		}
+	}
+
+	/**
+	 * Resumes the execution after the connection was restored. The limit of concurrent
+	 * executions starts again from the minimum and the backlog is executed at the configured rate.
+	 */
+	@Handler
+	public void onNodeConnected(NodeConnectMessage message) {
+		if (online) {
+			return;
+		}
+		logger.info("Node connected, resume execution of {} pending actions.",
+				laneScheduler.getNumberOfPending());
+		executionLimiter.restart();
+		backlogRateLimiter = RateLimiter.create(peerWaspConfig.getBacklogReplayRatePerSecond());
+		online = true;
+		dispatchPendingActions();
+	}
+
+	public boolean isOnline() {
+		return online;
+	}
+
 	@Handler
 	public void onForceSync(ForceSyncMessage message) {
 		logger.trace("Force Synchronization on {}: Handle ongoing executions");
@@ -554,90 +1079,70 @@ public class ActionExecutor implements Runnable {
 		forceSyncRunning = isRunning;
 	}
 
-	private class ExecutingActionHandler implements Runnable {
+	/**
+	 * Called as soon as the process of an execution ends. Results of executions that
+	 * are not tracked anymore (e.g. after {@link #stop()}) are ignored. The slot is
+	 * released after the result is handled (outside of the completion lock, since
+	 * dispatching may execute and complete further actions).
+	 *
+	 * @param handle of the concluded execution
+	 * @param error cause of the failure, null if the execution succeeded
+	 */
+	private void onExecutionCompleted(ExecutionHandle handle, Throwable error) {
+		synchronized (completionMonitor) {
+			try {
+				if (!asyncHandles.remove(handle)) {
+					logger.trace("Ignore result of untracked execution: {}",
+							handle.getAction().getFile().getPath());
+					return;
+				}
 
-		@Override
-		public void run() {
-			processExecutingActions();
-		}
+				if (forceSyncRunning) {
+					logger.trace(
+							"FileComponent {} in state {} is discarded due to force sync!",
+							handle.getAction().getFile().getPath(), handle
+									.getAction().getCurrentState()
+									.getStateType());
+					return;
+				}
 
-		private void processExecutingActions() {
-			while (true) {
-				try {
-					// did someone call stop()? return if so.
-					if (Thread.currentThread().isInterrupted()) {
-						return;
+				ExecutionLane lane = runningLanes.get(handle);
+				if (error instanceof CancellationException) {
+					if (lane != null) {
+						circuitBreakers.get(lane).recordIgnored();
 					}
-
-					if(asyncHandles.isEmpty()){
-						publishMessage(new SynchronizationCompleteNotification());
+					onActionExecuteCancelled(handle.getAction());
+				} else if (error == null) {
+					if (lane != null) {
+						circuitBreakers.get(lane).recordSuccess();
 					}
-					ExecutionHandle next = asyncHandles.take();
-
-//					if (next.getAction().getFile().getParent() == null) {
-//						logger.trace(
-//								"File {} is not attached to the filetree anymore. Ignore response from network.",
-//								next.getAction().getFile().getPath());
-//						continue;
-//					}
-
-					try {
-						if (forceSyncRunning) {
-							logger.trace(
-									"FileComponent {} in state {} is discarded due to force sync!",
-									next.getAction().getFile().getPath(), next
-											.getAction().getCurrentState()
-											.getStateType());
-							continue;
-						}
-						// check whether there is a process attached
-						ProcessHandle<Void> process = next.getProcessHandle();
-						if (process != null) {
-							process.getFuture().get(5, TimeUnit.SECONDS);
-						}
-
-						onActionExecuteSucceeded(next.getAction());
-
-						if (asyncHandles.size() == 0) {
-							publishMessage(new SynchronizationCompleteNotification());
-						}
-						next.setTimeouts(0);
-					} catch (ExecutionException eex) {
-
-						ProcessExecutionException pex = null;
-						if (eex.getCause() instanceof ProcessExecutionException) {
-							pex = (ProcessExecutionException) eex.getCause();
-						}
-						handleExecutionError(next.getAction(), pex);
-						next.setTimeouts(0);
-					} catch (CancellationException | InterruptedException e) {
-						logger.warn(
-								"Exception while getting future result: {}",
-								e.getMessage());
-					} catch (TimeoutException tex) {
-						logger.debug(
-								"Could not get result of failed item, timed out. {}",
-								next.getAction().getFile().getPath());
-						// add it again and try later
-						if (next.getTimeouts() < 10) {
-							next.incrementTimeouts();
-							asyncHandles.put(next);
-						} else {
-							fileEventManager.getFailedOperations().add(
-									next.getAction().getFile().getPath());
-							fileEventManager.initiateForceSync(next.getAction()
-									.getFile().getPath().getParent());
-						}
-
+					executionLimiter.onSuccess(System.currentTimeMillis() - handle.getStartTime(),
+							getTransferSize(handle, lane), asyncHandles.size() + 1);
+					onActionExecuteSucceeded(handle.getAction());
+				} else {
+					if (error instanceof CompletionException && error.getCause() != null) {
+						error = error.getCause();
 					}
-				} catch (InterruptedException iex) {
-					// happens if stop() is called and waiting thread is interrupted
-					logger.warn("ExecutingActionHandler interruped.");
-					return;
-				} catch (Exception e) {
-					logger.warn("Exception in processFailedActions: ", e);
+					ProcessExecutionException pex = null;
+					if (error instanceof ProcessExecutionException) {
+						pex = (ProcessExecutionException) error;
+					} else if (error instanceof TimeoutException) {
+						logger.warn("Execution of {} timed out and was rolled back: {}",
+								handle.getAction().getFile().getPath(), error.getMessage());
+					} else {
+						logger.warn("Execution ended with unexpected exception: {}", error.getMessage());
+					}
+					executionLimiter.onDropped();
+					handleExecutionError(handle.getAction(), pex, lane);
+				}
+			} catch (Exception e) {
+				logger.warn("Exception while handling concluded execution: ", e);
+			} finally {
+				if (asyncHandles.isEmpty()) {
+					publishMessage(new SynchronizationCompleteNotification());
 				}
 			}
 		}
+		onSlotReleased(handle);
 	}
 }
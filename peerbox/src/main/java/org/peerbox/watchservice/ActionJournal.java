@@ -0,0 +1,423 @@
+package org.peerbox.watchservice;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.states.AbstractActionState;
+import org.peerbox.watchservice.states.LocalMoveState;
+import org.peerbox.watchservice.states.StateType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Append-only journal of pending actions. Whenever an action is scheduled, its current and
+ * next {@link StateType}, the path and the content hash of the file are appended. As soon as
+ * the action concluded, a removal record is appended. Hence, the journal contains all actions
+ * that were queued or executing when the application crashed or exited and allows to execute
+ * them again after a restart.
+ *
+ * Recording does not touch the disk: the entries are kept in memory and the records are
+ * written in batches by a single writer thread, which flushes and syncs them periodically
+ * (at least every {@value #FLUSH_INTERVAL_MS} ms). The records of the last interval may thus
+ * be lost on a crash. The writer thread also compacts the file (rewrites it with the live
+ * entries only) whenever the number of records exceeds twice the number of live entries.
+ *
+ * Records are tab separated lines:
+ * <ul>
+ * <li><code>P current next contentHash sourcePath path</code> (pending action)</li>
+ * <li><code>R path</code> (action concluded)</li>
+ * </ul>
+ * The content hash is only recorded for files. Lines that cannot be parsed (e.g. a partially
+ * written last line) are ignored.
+ */
+public class ActionJournal {
+
+	private static final Logger logger = LoggerFactory.getLogger(ActionJournal.class);
+
+	/** Journal is not compacted before it contains at least this number of records **/
+	private static final int COMPACTION_MIN_RECORDS = 1000;
+
+	/** Pending records are written and synced at least this often **/
+	private static final long FLUSH_INTERVAL_MS = 200;
+
+	/** Number of pending records that triggers a write before the interval elapsed **/
+	private static final int BATCH_SIZE = 256;
+
+	/** Maximal time to wait for the writer thread when the journal is closed **/
+	private static final long CLOSE_TIMEOUT_MS = 5000;
+
+	private static final String PENDING = "P";
+	private static final String REMOVED = "R";
+	private static final String SEPARATOR = "\t";
+	private static final String NONE = "-";
+
+	private final Path file;
+
+	/** guarded by this **/
+	private final Map<Path, Entry> entries;
+	private List<String> pending;
+	private ScheduledExecutorService writerThread;
+	private boolean writeScheduled;
+
+	/** used by the writer thread only (or while it does not run) **/
+	private FileChannel channel;
+	private BufferedWriter writer;
+	private int records;
+
+	public ActionJournal(final Path file) {
+		this.file = file;
+		this.entries = new LinkedHashMap<Path, Entry>();
+		this.pending = new ArrayList<String>();
+	}
+
+	/**
+	 * Loads the entries of the journal (if it exists), compacts it and starts the writer
+	 * thread. Records are only written after the journal is opened.
+	 *
+	 * @throws IOException if the journal cannot be read or written
+	 */
+	public synchronized void open() throws IOException {
+		if (writerThread != null) {
+			return;
+		}
+		entries.clear();
+		pending.clear();
+		if (Files.exists(file)) {
+			load();
+		}
+		rewrite(new ArrayList<Entry>(entries.values()));
+
+		writeScheduled = false;
+		writerThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("ActionJournalWriterThread").setDaemon(true).build());
+		writerThread.scheduleWithFixedDelay(this::writePending, FLUSH_INTERVAL_MS,
+				FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		logger.debug("Journal {} opened with {} pending actions.", file, entries.size());
+	}
+
+	private void load() throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				try {
+					apply(line);
+				} catch (IllegalArgumentException e) {
+					logger.warn("Ignore invalid journal record: '{}'", line);
+				}
+			}
+		}
+	}
+
+	private void apply(String line) {
+		if (line.startsWith(PENDING + SEPARATOR)) {
+			String[] parts = line.split(SEPARATOR, 6);
+			if (parts.length != 6) {
+				throw new IllegalArgumentException("Incomplete record.");
+			}
+			Path path = Paths.get(parts[5]);
+			Path source = NONE.equals(parts[4]) ? null : Paths.get(parts[4]);
+			String hash = NONE.equals(parts[3]) ? null : parts[3];
+			entries.put(path, new Entry(path, StateType.valueOf(parts[1]),
+					StateType.valueOf(parts[2]), hash, source));
+		} else if (line.startsWith(REMOVED + SEPARATOR)) {
+			entries.remove(Paths.get(line.substring(2)));
+		} else {
+			throw new IllegalArgumentException("Unknown record.");
+		}
+	}
+
+	/**
+	 * Records the current state of the action of a component. Nothing is recorded if
+	 * the journal is not open or the entry did not change. Does not block on I/O, the
+	 * record is written by the writer thread.
+	 */
+	public void record(final FileComponent component) {
+		if (!isOpen()) {
+			return;
+		}
+		IAction action = component.getAction();
+		AbstractActionState current = action.getCurrentState();
+		AbstractActionState next = action.getNextState();
+		if (current == null || next == null) {
+			return;
+		}
+		Path source = null;
+		if (current instanceof LocalMoveState) {
+			source = ((LocalMoveState) current).getSourcePath();
+		}
+		// the hash of a folder is computed on demand and not needed for the replay
+		String contentHash = component.isFile() ? component.getContentHash() : null;
+		Entry entry = new Entry(component.getPath(), current.getStateType(),
+				next.getStateType(), contentHash, source);
+
+		synchronized (this) {
+			if (writerThread == null || entry.equals(entries.get(entry.getPath()))) {
+				return;
+			}
+			entries.put(entry.getPath(), entry);
+			enqueue(format(entry));
+		}
+	}
+
+	/**
+	 * Records that the action of the given path concluded.
+	 */
+	public synchronized void remove(final Path path) {
+		if (writerThread == null || entries.remove(path) == null) {
+			return;
+		}
+		enqueue(String.join(SEPARATOR, REMOVED, path.toString()));
+	}
+
+	/** guarded by this **/
+	private void enqueue(String record) {
+		pending.add(record);
+		if (pending.size() >= BATCH_SIZE && !writeScheduled) {
+			writeScheduled = true;
+			writerThread.execute(this::writePending);
+		}
+	}
+
+	/**
+	 * Writes the pending records and syncs the journal, or compacts it if there are too many
+	 * records. Runs on the writer thread.
+	 */
+	private void writePending() {
+		List<String> batch;
+		List<Entry> live = null;
+		synchronized (this) {
+			writeScheduled = false;
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = pending;
+			pending = new ArrayList<String>();
+			int total = records + batch.size();
+			if (total >= COMPACTION_MIN_RECORDS && total > 2 * entries.size()) {
+				// consistent with the batch: contains the effect of all its records
+				live = new ArrayList<Entry>(entries.values());
+			}
+		}
+
+		try {
+			if (live != null) {
+				rewrite(live);
+			} else {
+				for (String record : batch) {
+					writer.write(record);
+					writer.newLine();
+				}
+				writer.flush();
+				channel.force(false);
+				records += batch.size();
+			}
+		} catch (IOException e) {
+			logger.warn("Could not write to journal {}.", file, e);
+		}
+	}
+
+	/**
+	 * Rewrites the journal such that it only contains the given entries. The new journal is
+	 * written to a temporary file first, which replaces the journal atomically.
+	 */
+	private void rewrite(List<Entry> live) throws IOException {
+		closeWriter();
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			BufferedWriter w = newWriter(out);
+			for (Entry entry : live) {
+				w.write(format(entry));
+				w.newLine();
+			}
+			w.flush();
+			out.force(false);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		records = live.size();
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		writer = newWriter(channel);
+	}
+
+	private static BufferedWriter newWriter(FileChannel channel) {
+		return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+	}
+
+	/**
+	 * Blocks until the records so far are written and synced.
+	 */
+	public void flush() {
+		ScheduledExecutorService w;
+		synchronized (this) {
+			w = writerThread;
+		}
+		if (w == null) {
+			return;
+		}
+		try {
+			w.submit(this::writePending).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | RejectedExecutionException e) {
+			logger.warn("Could not flush journal {}.", file, e);
+		}
+	}
+
+	/**
+	 * Closes the journal. The pending records are written and the entries are kept on disk
+	 * and loaded again by {@link #open()}.
+	 */
+	public void close() {
+		ScheduledExecutorService w;
+		synchronized (this) {
+			w = writerThread;
+			writerThread = null;
+		}
+		if (w == null) {
+			return;
+		}
+		// the last task of the writer thread, no records are added anymore
+		w.execute(() -> {
+			writePending();
+			try {
+				closeWriter();
+			} catch (IOException e) {
+				logger.warn("Could not close journal {}.", file, e);
+			}
+		});
+		w.shutdown();
+		try {
+			if (!w.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				logger.warn("Journal {} not closed in time.", file);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void closeWriter() throws IOException {
+		if (writer != null) {
+			BufferedWriter w = writer;
+			writer = null;
+			channel = null;
+			w.close();
+		}
+	}
+
+	/**
+	 * @return snapshot of the pending actions, in the order they were recorded first.
+	 */
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<Entry>(entries.values());
+	}
+
+	public synchronized boolean isOpen() {
+		return writerThread != null;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	private static String format(Entry entry) {
+		return String.join(SEPARATOR, PENDING, entry.getCurrentState().name(),
+				entry.getNextState().name(), orNone(entry.getContentHash()),
+				orNone(entry.getSourcePath()), entry.getPath().toString());
+	}
+
+	private static String orNone(Object value) {
+		return value != null ? value.toString() : NONE;
+	}
+
+	/**
+	 * Pending action of a file as recorded in the journal.
+	 */
+	public static final class Entry {
+		private final Path path;
+		private final StateType currentState;
+		private final StateType nextState;
+		private final String contentHash;
+		private final Path sourcePath;
+
+		public Entry(Path path, StateType currentState, StateType nextState, String contentHash, Path sourcePath) {
+			this.path = path;
+			this.currentState = currentState;
+			this.nextState = nextState;
+			this.contentHash = contentHash;
+			this.sourcePath = sourcePath;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public StateType getCurrentState() {
+			return currentState;
+		}
+
+		public StateType getNextState() {
+			return nextState;
+		}
+
+		/**
+		 * @return the operation that is pending: the current state if it executes
+		 * something, otherwise the next state.
+		 */
+		public StateType getPendingState() {
+			if (currentState == StateType.ESTABLISHED || currentState == StateType.INITIAL) {
+				return nextState;
+			}
+			return currentState;
+		}
+
+		public String getContentHash() {
+			return contentHash;
+		}
+
+		/**
+		 * @return source of a move, null for other operations.
+		 */
+		public Path getSourcePath() {
+			return sourcePath;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+			Entry other = (Entry) obj;
+			return path.equals(other.path) && currentState == other.currentState
+					&& nextState == other.nextState && Objects.equals(contentHash, other.contentHash)
+					&& Objects.equals(sourcePath, other.sourcePath);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, currentState, nextState, contentHash, sourcePath);
+		}
+	}
+}
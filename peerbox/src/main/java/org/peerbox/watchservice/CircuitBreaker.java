@@ -0,0 +1,185 @@
+package org.peerbox.watchservice;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker that stops executions if too many of the recent executions failed
+ * because of the network. It keeps the outcome of the most recent executions in a
+ * sliding window. If the failure rate exceeds the threshold, the circuit opens and no
+ * execution is allowed until the open interval passed. Afterwards, the circuit is half
+ * open: a single trial execution is allowed. If it succeeds, the circuit closes again,
+ * otherwise it opens again with a doubled interval (bounded by the maximal interval).
+ */
+public class CircuitBreaker {
+
+	private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String name;
+	private final int windowSize;
+	private final int minSamples;
+	private final double failureRateThreshold;
+	private final long baseOpenInterval;
+	private final long maxOpenInterval;
+	private final LongSupplier clock;
+
+	/** true for failures, false for successes **/
+	private final Deque<Boolean> window;
+	private int failures;
+
+	private State state;
+	private long openUntil;
+	private long openInterval;
+	private boolean trialRunning;
+
+	/**
+	 * @param name used for logging
+	 * @param windowSize number of recent outcomes to consider
+	 * @param minSamples minimal number of outcomes before the circuit may open
+	 * @param failureRateThreshold failure rate (0..1) above which the circuit opens
+	 * @param baseOpenInterval time (ms) the circuit stays open after it opened the first time
+	 * @param maxOpenInterval upper bound of the time (ms) the circuit stays open
+	 */
+	public CircuitBreaker(String name, int windowSize, int minSamples, double failureRateThreshold,
+			long baseOpenInterval, long maxOpenInterval) {
+		this(name, windowSize, minSamples, failureRateThreshold, baseOpenInterval, maxOpenInterval,
+				System::currentTimeMillis);
+	}
+
+	CircuitBreaker(String name, int windowSize, int minSamples, double failureRateThreshold,
+			long baseOpenInterval, long maxOpenInterval, LongSupplier clock) {
+		this.name = name;
+		this.windowSize = windowSize;
+		this.minSamples = minSamples;
+		this.failureRateThreshold = failureRateThreshold;
+		this.baseOpenInterval = baseOpenInterval;
+		this.maxOpenInterval = maxOpenInterval;
+		this.clock = clock;
+		this.window = new ArrayDeque<Boolean>(windowSize);
+		this.state = State.CLOSED;
+		this.openInterval = baseOpenInterval;
+	}
+
+	/**
+	 * Checks whether an execution may be started. In the half open state, only a single
+	 * trial execution is allowed until its outcome is recorded.
+	 *
+	 * @return true if the execution is allowed
+	 */
+	public synchronized boolean allowRequest() {
+		switch (getState()) {
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if (!trialRunning) {
+					trialRunning = true;
+					return true;
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	public synchronized void recordSuccess() {
+		if (state != State.CLOSED) {
+			logger.info("Circuit {} closed.", name);
+			state = State.CLOSED;
+			openInterval = baseOpenInterval;
+			trialRunning = false;
+			clearWindow();
+		}
+		record(false);
+	}
+
+	/**
+	 * Records that the outcome of an allowed execution is not relevant for the circuit
+	 * (e.g. a failure of an individual file). A half open circuit allows another trial.
+	 */
+	public synchronized void recordIgnored() {
+		trialRunning = false;
+	}
+
+	/**
+	 * @return true if an execution would be allowed, does not start a trial.
+	 */
+	public synchronized boolean isAvailable() {
+		State current = getState();
+		return current == State.CLOSED || (current == State.HALF_OPEN && !trialRunning);
+	}
+
+	public synchronized void recordFailure() {
+		if (getState() == State.HALF_OPEN) {
+			// trial failed
+			openInterval = Math.min(maxOpenInterval, openInterval * 2);
+			open();
+			return;
+		}
+		record(true);
+		if (state == State.CLOSED && window.size() >= minSamples
+				&& getFailureRate() > failureRateThreshold) {
+			open();
+		}
+	}
+
+	private void record(boolean failure) {
+		if (window.size() >= windowSize) {
+			if (window.removeFirst()) {
+				--failures;
+			}
+		}
+		window.addLast(failure);
+		if (failure) {
+			++failures;
+		}
+	}
+
+	private void open() {
+		state = State.OPEN;
+		trialRunning = false;
+		openUntil = clock.getAsLong() + openInterval;
+		logger.warn("Circuit {} opened for {} ms (failure rate: {}).", name, openInterval, getFailureRate());
+	}
+
+	private void clearWindow() {
+		window.clear();
+		failures = 0;
+	}
+
+	/**
+	 * @return the current state. An open circuit becomes half open after the open interval.
+	 */
+	public synchronized State getState() {
+		if (state == State.OPEN && clock.getAsLong() >= openUntil) {
+			state = State.HALF_OPEN;
+			trialRunning = false;
+		}
+		return state;
+	}
+
+	/**
+	 * @return remaining time (ms) until the circuit becomes half open, 0 if not open.
+	 */
+	public synchronized long getRemainingOpenTime() {
+		if (getState() != State.OPEN) {
+			return 0;
+		}
+		return Math.max(0, openUntil - clock.getAsLong());
+	}
+
+	public synchronized double getFailureRate() {
+		return window.isEmpty() ? 0.0 : (double) failures / window.size();
+	}
+
+	public String getName() {
+		return name;
+	}
+}
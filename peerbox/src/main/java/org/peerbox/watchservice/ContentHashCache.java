@@ -0,0 +1,132 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.peerbox.watchservice.filetree.persistency.ContentHashDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sql2o.Sql2oException;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Cache of file content hashes, stored in the database of the user. A hash is keyed by the
+ * file key (see {@link BasicFileAttributes#fileKey()}, or the path if the file system does
+ * not provide file keys), the size and the last modified time of the file. A file is only
+ * read and hashed again if one of them changed.
+ *
+ * Small files are not cached, because hashing them is cheaper than a lookup. Files modified
+ * very recently are not cached either: a change within the resolution of the last modified
+ * time would not be detected. The hashes of deleted and moved files are removed with
+ * {@link #evict(Path)}.
+ *
+ * There is one cache per user, it is injected where files are hashed.
+ */
+@Singleton
+public class ContentHashCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContentHashCache.class);
+
+	/** Files smaller than this are hashed directly **/
+	private static final long MIN_CACHED_SIZE = 64 * 1024;
+
+	/** Files modified less than this before hashing are not cached **/
+	private static final long MIN_AGE_MS = 2000;
+
+	private final ContentHashDao contentHashDao;
+
+	@Inject
+	public ContentHashCache(ContentHashDao contentHashDao) {
+		this.contentHashDao = contentHashDao;
+	}
+
+	/**
+	 * Returns the base64 encoded content hash of a file. It is computed only if there is no
+	 * cached hash for the current attributes of the file.
+	 *
+	 * @param path to a file
+	 * @return the hash or null if the path is not a regular file
+	 * @throws IOException if the file cannot be read
+	 */
+	public String getContentHash(final Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+		if (before.size() < MIN_CACHED_SIZE) {
+			return computeContentHash(path);
+		}
+
+		String fileKey = getFileKey(path, before);
+		long lastModified = before.lastModifiedTime().toMillis();
+		String hash = getCached(fileKey, before.size(), lastModified);
+		if (hash != null) {
+			logger.trace("Content hash of {} found in cache.", path);
+			return hash;
+		}
+
+		hash = computeContentHash(path);
+
+		// only cache if the file did not change while it was hashed
+		BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+		boolean isUnchanged = after.size() == before.size()
+				&& after.lastModifiedTime().toMillis() == lastModified;
+		if (isUnchanged && System.currentTimeMillis() - lastModified >= MIN_AGE_MS) {
+			putCached(fileKey, path, before.size(), lastModified, hash);
+		}
+		return hash;
+	}
+
+	private String getCached(String fileKey, long size, long lastModified) {
+		try {
+			return contentHashDao.getContentHash(fileKey, size, lastModified);
+		} catch (Sql2oException e) {
+			logger.warn("Could not read content hash from cache.", e);
+			return null;
+		}
+	}
+
+	private void putCached(String fileKey, Path path, long size, long lastModified, String hash) {
+		try {
+			contentHashDao.persistContentHash(fileKey, path.toAbsolutePath().toString(), size,
+					lastModified, hash);
+		} catch (Sql2oException e) {
+			logger.warn("Could not write content hash to cache.", e);
+		}
+	}
+
+	/**
+	 * Removes the cached hashes of a path, e.g. because the file was deleted or moved. The
+	 * hashes of all files below the path are removed as well.
+	 *
+	 * @param path of a file or folder, does not need to exist anymore
+	 */
+	public void evict(final Path path) {
+		try {
+			int evicted = contentHashDao.deleteByPath(path.toAbsolutePath().toString(),
+					path.getFileSystem().getSeparator());
+			if (evicted > 0) {
+				logger.trace("Evicted {} content hashes of {}.", evicted, path);
+			}
+		} catch (Sql2oException e) {
+			logger.warn("Could not remove content hashes of {} from cache.", path, e);
+		}
+	}
+
+	private static String computeContentHash(Path path) throws IOException {
+		return PathUtils.base64Encode(ContentHasher.hash(path));
+	}
+
+	private static String getFileKey(Path path, BasicFileAttributes attrs) {
+		Object fileKey = attrs.fileKey();
+		if (fileKey != null) {
+			return fileKey.toString();
+		}
+		// e.g. on Windows
+		return path.toAbsolutePath().toString();
+	}
+}
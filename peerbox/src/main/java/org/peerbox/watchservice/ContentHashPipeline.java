@@ -0,0 +1,291 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.peerbox.app.config.IPeerWaspConfig;
+import org.peerbox.watchservice.EventCoalescer.Kind;
+import org.peerbox.watchservice.ExpectedEventRegistry.Match;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Stage between the {@link AbstractWatchService watch service} and the
+ * {@link FileEventManager}, which hashes the content of created and modified files on a
+ * separate pool. Thus, the notifier thread of the watch service only records events and
+ * hashing a large file does not delay the events of other files.
+ *
+ * The events of a path are forwarded in the order they were received, as soon as the hash
+ * is available. Files are only hashed once they are not written anymore (see
+ * {@link WriteStabilityTracker}). Events that arrive before hashing started share a single
+ * hash, i.e. only the latest content is hashed. Events that do not need a hash (e.g.
+ * deletes) are forwarded immediately if no other event of the path is waiting.
+ *
+ * The forwarded events are handled by the {@link ShardedEventDispatcher} of the event
+ * manager: events of the same top-level subtree are handled one after the other, events of
+ * unrelated subtrees concurrently. Echoes of changes that PeerWasp made itself are dropped
+ * before they are hashed (see {@link ExpectedEventRegistry}). While such a change runs, the
+ * events of its path are held back.
+ */
+@Singleton
+public class ContentHashPipeline implements ILocalFileEventListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContentHashPipeline.class);
+
+	/** Number of files hashed concurrently **/
+	private static final int HASH_THREADS = 2;
+
+	/**
+	 * Computes the content hash of a file.
+	 */
+	@FunctionalInterface
+	interface HashFunction {
+		String hash(Path path) throws IOException;
+	}
+
+	private final FileEventManager eventManager;
+	private final HashFunction hashFunction;
+	private final WriteStabilityTracker stabilityTracker;
+	private final ShardedEventDispatcher eventDispatcher;
+	private final ExpectedEventRegistry expectedEvents;
+	private final ExecutorService executor;
+
+	/** pending events per path, guarded by this **/
+	private final Map<Path, PathQueue> queues;
+
+	@Inject
+	public ContentHashPipeline(final FileEventManager eventManager, final IPeerWaspConfig config) {
+		this(eventManager, HASH_THREADS,
+				path -> PathUtils.hashFileContent(path, eventManager.getContentHashCache()),
+				new WriteStabilityTracker(config.getWriteQuietPeriodInMillis(),
+						config.isWriteLockProbeEnabled(), eventManager.getMessageBus()),
+				eventManager.getEventDispatcher(), eventManager.getExpectedEvents());
+	}
+
+	ContentHashPipeline(final FileEventManager eventManager, int threads,
+			final HashFunction hashFunction, final WriteStabilityTracker stabilityTracker,
+			final ShardedEventDispatcher eventDispatcher, final ExpectedEventRegistry expectedEvents) {
+		this.eventManager = eventManager;
+		this.hashFunction = hashFunction;
+		this.stabilityTracker = stabilityTracker;
+		this.eventDispatcher = eventDispatcher;
+		this.expectedEvents = expectedEvents;
+		this.queues = new HashMap<Path, PathQueue>();
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("ContentHashPipelineThread-%d").setDaemon(true).build());
+	}
+
+	@Override
+	public void onLocalFileCreated(final Path path) {
+		submit(path, Kind.CREATE, Files.isRegularFile(path));
+	}
+
+	@Override
+	public void onLocalFileModified(final Path path) {
+		submit(path, Kind.MODIFY, Files.isRegularFile(path));
+	}
+
+	@Override
+	public void onLocalFileDeleted(final Path path) {
+		submit(path, Kind.DELETE, false);
+	}
+
+	/**
+	 * @return the files whose events are deferred because they are being written.
+	 */
+	public Set<Path> getInFlightFiles() {
+		return stabilityTracker.getInFlightFiles();
+	}
+
+	/**
+	 * Stops hashing and handling. Pending events are discarded.
+	 */
+	public void stop() {
+		stabilityTracker.stop();
+		executor.shutdownNow();
+		eventDispatcher.stop();
+		synchronized (this) {
+			for (PathQueue queue : queues.values()) {
+				queue.events.clear();
+			}
+			queues.clear();
+		}
+	}
+
+	private void submit(final Path path, final Kind kind, final boolean needsHash) {
+		Event event = new Event(kind, needsHash);
+		synchronized (this) {
+			PathQueue queue = queues.get(path);
+			if (queue != null) {
+				queue.events.add(event);
+				return;
+			}
+			if (needsHash || expectedEvents.isPending(path)) {
+				queue = new PathQueue(path);
+				queue.events.add(event);
+				queues.put(path, queue);
+				schedule(queue);
+				return;
+			}
+		}
+		// nothing to wait for
+		handleIfNotEcho(path, event, () -> null);
+	}
+
+	/**
+	 * Processes the next events of the queue, after the running mutation of the path (if any)
+	 * and as soon as the file is stable if they need a hash. Guarded by this.
+	 */
+	private void schedule(final PathQueue queue) {
+		if (expectedEvents.deferUntilSettled(queue.path, () -> reschedule(queue))) {
+			return;
+		}
+		if (queue.events.peek().needsHash) {
+			stabilityTracker.awaitStable(queue.path, () -> executor.execute(queue));
+		} else {
+			executor.execute(queue);
+		}
+	}
+
+	private synchronized void reschedule(final PathQueue queue) {
+		if (queues.get(queue.path) == queue && !queue.events.isEmpty()) {
+			schedule(queue);
+		}
+	}
+
+	/**
+	 * Handles an event unless it is an echo. Echoes are recognized by the attributes of the
+	 * path, the content hash is only requested for other events.
+	 *
+	 * @return false if the event must wait for a running mutation of the path
+	 */
+	private boolean handleIfNotEcho(final Path path, final Event event,
+			final Supplier<String> contentHash) {
+		Match match = expectedEvents.match(path, event.kind);
+		if (match == Match.PENDING) {
+			return false;
+		}
+		if (match == Match.NONE) {
+			handle(path, event, contentHash.get());
+		}
+		return true;
+	}
+
+	private void handle(final Path path, final Event event, final String contentHash) {
+		eventDispatcher.execute(path, () -> {
+			switch (event.kind) {
+				case CREATE:
+					eventManager.onLocalFileCreated(path, contentHash);
+					break;
+				case MODIFY:
+					eventManager.onLocalFileModified(path, contentHash);
+					break;
+				case DELETE:
+					eventManager.onLocalFileDeleted(path);
+					break;
+			}
+		});
+	}
+
+	private static class Event {
+		private final Kind kind;
+		private final boolean needsHash;
+
+		Event(Kind kind, boolean needsHash) {
+			this.kind = kind;
+			this.needsHash = needsHash;
+		}
+	}
+
+	/**
+	 * Events of a path that wait for their hash or for previous events.
+	 */
+	private class PathQueue implements Runnable {
+		private final Path path;
+		private final Deque<Event> events = new ArrayDeque<Event>();
+
+		PathQueue(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public void run() {
+			List<Event> batch = takeBatch();
+			// hashed once for the whole batch, as soon as an event is not an echo
+			Supplier<String> contentHash = () -> null;
+			if (!batch.isEmpty() && batch.get(0).needsHash) {
+				contentHash = Suppliers.memoize(this::computeHash);
+			}
+			for (int i = 0; i < batch.size(); ++i) {
+				if (!handleIfNotEcho(path, batch.get(i), contentHash)) {
+					// a mutation started meanwhile, the rest is matched (and hashed) again later
+					synchronized (ContentHashPipeline.this) {
+						List<Event> rest = batch.subList(i, batch.size());
+						for (int j = rest.size() - 1; j >= 0; --j) {
+							events.addFirst(rest.get(j));
+						}
+					}
+					break;
+				}
+			}
+
+			synchronized (ContentHashPipeline.this) {
+				if (events.isEmpty()) {
+					queues.remove(path);
+				} else {
+					schedule(this);
+				}
+			}
+		}
+
+		/**
+		 * Takes the next events that share a hash or that do not need one. Subsequent
+		 * modifications are covered by the first create or modify event of the batch.
+		 */
+		private List<Event> takeBatch() {
+			synchronized (ContentHashPipeline.this) {
+				if (events.isEmpty()) {
+					// discarded by stop()
+					return Collections.emptyList();
+				}
+				boolean needsHash = events.peek().needsHash;
+				List<Event> batch = new ArrayList<Event>();
+				while (!events.isEmpty() && events.peek().needsHash == needsHash) {
+					Event event = events.poll();
+					if (needsHash && event.kind == Kind.MODIFY && !batch.isEmpty()) {
+						continue;
+					}
+					batch.add(event);
+				}
+				return batch;
+			}
+		}
+
+		private String computeHash() {
+			try {
+				return hashFunction.hash(path);
+			} catch (IOException e) {
+				// the event manager tries again and retries in the background if required
+				logger.debug("Could not hash {} in advance.", path, e);
+				return null;
+			}
+		}
+	}
+}
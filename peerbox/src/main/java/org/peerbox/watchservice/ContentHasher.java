@@ -0,0 +1,166 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.peerbox.utils.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Computes MD5 content hashes of files. The result is the same as the one of
+ * {@link org.hive2hive.core.security.HashUtil#hash(java.io.File)}, i.e. it can be compared
+ * with the hashes of the network. In particular, the hash of a directory or a file that does
+ * not exist is an empty array.
+ *
+ * Files are read through a {@link FileChannel} into direct buffers, which are pooled and
+ * reused. Files that cannot be read (e.g. locked by another process) can be hashed
+ * asynchronously on a small pool of background threads: failed attempts are repeated after a
+ * delay instead of blocking the caller.
+ */
+public final class ContentHasher {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContentHasher.class);
+
+	private static final String ALGORITHM = "MD5";
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 8;
+
+	/** Retries of asynchronous hashing: up to 3, with exponential backoff from 3 s to 12 s **/
+	private static final RetryPolicy RETRY_POLICY = new RetryPolicy(3000, 12000, 3, false);
+
+	/** Number of threads hashing asynchronously, such that a large file does not block others **/
+	private static final int HASH_THREADS = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+	private static final BlockingQueue<ByteBuffer> bufferPool =
+			new ArrayBlockingQueue<ByteBuffer>(MAX_POOLED_BUFFERS);
+
+	private static final ExecutorService hashPool =
+			Executors.newFixedThreadPool(HASH_THREADS, new ThreadFactoryBuilder()
+					.setNameFormat("ContentHasherThread-%d").setDaemon(true).build());
+
+	/** only delays retries, the hashes are computed by the pool **/
+	private static final ScheduledExecutorService retryScheduler =
+			Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("ContentHasherRetryThread").setDaemon(true).build());
+
+	private static final Random random = new Random();
+
+	private ContentHasher() {
+		// only static methods
+	}
+
+	/**
+	 * Computes the MD5 hash of a file.
+	 *
+	 * @param path of the file
+	 * @return the hash, an empty array if the path is null, a directory or does not exist.
+	 * @throws IOException if the file cannot be read
+	 */
+	public static byte[] hash(final Path path) throws IOException {
+		if (path == null || Files.isDirectory(path) || !Files.exists(path)) {
+			return new byte[0];
+		}
+
+		MessageDigest digest = createDigest();
+		ByteBuffer buffer = acquireBuffer();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Computes the MD5 hash of a file on a background thread. If the file cannot be read,
+	 * hashing is repeated after a delay. The caller is never blocked.
+	 *
+	 * @param path of the file
+	 * @return future of the hash, completes exceptionally if all attempts fail.
+	 */
+	public static CompletableFuture<byte[]> hashAsync(final Path path) {
+		return computeAsync(() -> hash(path), path);
+	}
+
+	/**
+	 * Runs a hash computation on the hash pool and retries it according to the
+	 * {@link RetryPolicy} of this class if it fails with an {@link IOException}.
+	 */
+	static <T> CompletableFuture<T> computeAsync(final HashComputation<T> computation, final Path path) {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		hashPool.execute(() -> attempt(computation, path, future, 1));
+		return future;
+	}
+
+	private static <T> void attempt(HashComputation<T> computation, Path path,
+			CompletableFuture<T> future, int attempts) {
+		try {
+			future.complete(computation.compute());
+		} catch (IOException e) {
+			if (RETRY_POLICY.shouldRetry(attempts)) {
+				long delay = RETRY_POLICY.getDelay(attempts, random);
+				logger.debug("Could not hash {} (attempt {}), try again in {} ms.", path, attempts, delay);
+				retryScheduler.schedule(
+						() -> hashPool.execute(() -> attempt(computation, path, future, attempts + 1)),
+						delay, TimeUnit.MILLISECONDS);
+			} else {
+				logger.warn("Could not hash {} after {} attempts.", path, attempts, e);
+				future.completeExceptionally(e);
+			}
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports MD5
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static ByteBuffer acquireBuffer() {
+		ByteBuffer buffer = bufferPool.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		return buffer;
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		buffer.clear();
+		bufferPool.offer(buffer);
+	}
+
+	/**
+	 * Computation that may fail because the file cannot be read.
+	 */
+	@FunctionalInterface
+	interface HashComputation<T> {
+		T compute() throws IOException;
+	}
+}
@@ -0,0 +1,217 @@
+package org.peerbox.watchservice;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer between the raw events of a watch service and the event listeners, which merges
+ * the events of a path that arrive within a short window. For example, a file that is
+ * created and modified several times results in a single create event, and a file that is
+ * created and deleted again results in no event at all.
+ *
+ * The events of a path are emitted as soon as no new event of the path arrived during the
+ * window, but at the latest after a maximal delay. The paths returned by one call of
+ * {@link #take()} are in the order of their first event. Across calls, a path that keeps
+ * changing is emitted after paths whose events started later but settled earlier. This class
+ * is thread-safe.
+ */
+public class EventCoalescer {
+
+	public enum Kind {
+		CREATE, MODIFY, DELETE
+	}
+
+	/** Merged events of a path, REPLACE is a delete followed by a create **/
+	private enum State {
+		CREATE, MODIFY, DELETE, REPLACE
+	}
+
+	/**
+	 * Event as emitted by the coalescer.
+	 */
+	public static final class Event {
+		private final Path path;
+		private final Kind kind;
+
+		Event(Path path, Kind kind) {
+			this.path = path;
+			this.kind = kind;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s - %s", kind, path);
+		}
+	}
+
+	private final long windowMs;
+	private final long maxDelayMs;
+
+	/** guarded by this **/
+	private final Map<Path, Pending> pending;
+	private long rawEventCount;
+	private long emittedEventCount;
+
+	/**
+	 * @param windowMs time without further events until the events of a path are emitted
+	 * @param maxDelayMs maximal time the events of a path are delayed
+	 */
+	public EventCoalescer(long windowMs, long maxDelayMs) {
+		this.windowMs = windowMs;
+		this.maxDelayMs = Math.max(windowMs, maxDelayMs);
+		this.pending = new LinkedHashMap<Path, Pending>();
+	}
+
+	/**
+	 * Adds a raw event and merges it with the pending events of the path.
+	 */
+	public synchronized void add(final Path path, final Kind kind) {
+		++rawEventCount;
+		long now = System.currentTimeMillis();
+		Pending p = pending.get(path);
+		if (p == null) {
+			pending.put(path, new Pending(toState(kind), now));
+		} else {
+			State merged = merge(p.state, kind);
+			if (merged == null) {
+				pending.remove(path);
+			} else {
+				p.state = merged;
+				p.lastEventTime = now;
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the events of at least one path are ready and removes them.
+	 *
+	 * @return the merged events in order.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public synchronized List<Event> take() throws InterruptedException {
+		for (;;) {
+			long now = System.currentTimeMillis();
+			long nextReadyTime = Long.MAX_VALUE;
+			List<Event> ready = new ArrayList<Event>();
+			Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Path, Pending> entry = it.next();
+				long readyTime = entry.getValue().getReadyTime();
+				if (readyTime <= now) {
+					toEvents(entry.getKey(), entry.getValue().state, ready);
+					it.remove();
+				} else {
+					nextReadyTime = Math.min(nextReadyTime, readyTime);
+				}
+			}
+
+			if (!ready.isEmpty()) {
+				emittedEventCount += ready.size();
+				return ready;
+			}
+			if (nextReadyTime == Long.MAX_VALUE) {
+				wait();
+			} else {
+				wait(nextReadyTime - now);
+			}
+		}
+	}
+
+	/**
+	 * Discards all pending events.
+	 */
+	public synchronized void clear() {
+		pending.clear();
+	}
+
+	/**
+	 * @return number of events added.
+	 */
+	public synchronized long getRawEventCount() {
+		return rawEventCount;
+	}
+
+	/**
+	 * @return number of events emitted after merging.
+	 */
+	public synchronized long getEmittedEventCount() {
+		return emittedEventCount;
+	}
+
+	private static State toState(Kind kind) {
+		switch (kind) {
+			case CREATE:
+				return State.CREATE;
+			case MODIFY:
+				return State.MODIFY;
+			default:
+				return State.DELETE;
+		}
+	}
+
+	/**
+	 * @return the state after the event, null if nothing happened at all.
+	 */
+	private static State merge(State state, Kind kind) {
+		switch (state) {
+			case CREATE:
+				// created and deleted again: nothing to do
+				return kind == Kind.DELETE ? null : State.CREATE;
+			case MODIFY:
+				// a create without delete means that the delete was lost
+				return kind == Kind.DELETE ? State.DELETE : State.MODIFY;
+			case DELETE:
+				// e.g. replaced by an editor, modifications of a deleted file are stale
+				return kind == Kind.CREATE ? State.REPLACE : State.DELETE;
+			default:
+				return kind == Kind.DELETE ? State.DELETE : State.REPLACE;
+		}
+	}
+
+	private static void toEvents(Path path, State state, List<Event> events) {
+		switch (state) {
+			case CREATE:
+				events.add(new Event(path, Kind.CREATE));
+				break;
+			case MODIFY:
+				events.add(new Event(path, Kind.MODIFY));
+				break;
+			case DELETE:
+				events.add(new Event(path, Kind.DELETE));
+				break;
+			case REPLACE:
+				events.add(new Event(path, Kind.DELETE));
+				events.add(new Event(path, Kind.CREATE));
+				break;
+		}
+	}
+
+	private final class Pending {
+		private State state;
+		private final long firstEventTime;
+		private long lastEventTime;
+
+		Pending(State state, long time) {
+			this.state = state;
+			this.firstEventTime = time;
+			this.lastEventTime = time;
+		}
+
+		long getReadyTime() {
+			return Math.min(lastEventTime + windowMs, firstEventTime + maxDelayMs);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package org.peerbox.watchservice;
+
+/**
+ * Lanes of the {@link LaneScheduler}. Each lane has its own concurrency budget (a share
+ * of the overall execution limit) and a weight that determines how often the lane is
+ * served compared to other lanes with pending actions.
+ */
+public enum ExecutionLane {
+
+	/** Moves, deletes and folder operations, cheap and usually triggered interactively **/
+	METADATA(4, 1.0),
+
+	/** Creates and updates of files below the large file threshold **/
+	SMALL_FILE(2, 1.0),
+
+	/** Creates and updates of large files, may use at most half of the execution limit **/
+	LARGE_FILE(1, 0.5);
+
+	private final int weight;
+	private final double share;
+
+	private ExecutionLane(int weight, double share) {
+		this.weight = weight;
+		this.share = share;
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns the number of concurrent executions this lane may use.
+	 *
+	 * @param limit overall limit of concurrent executions
+	 * @return budget of the lane, at least 1
+	 */
+	public int getBudget(int limit) {
+		return Math.max(1, (int) Math.ceil(limit * share));
+	}
+}
@@ -0,0 +1,239 @@
+package org.peerbox.watchservice;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adaptive limit for the number of concurrently executing network transactions
+ * (additive increase, multiplicative decrease). The limit grows by one per "round"
+ * of successful executions (i.e. by 1/limit per success) as long as the completion
+ * latency stays close to the best latency observed so far and the current limit is
+ * actually used. As soon as an execution fails or times out, the limit is reduced
+ * multiplicatively. Hence, fast links quickly get many concurrent transactions while
+ * slow or overloaded links fall back to a small number of transactions.
+ *
+ * The latency of a transfer depends on its size. Hence, latencies are only compared
+ * within a size class (e.g. a large file is not mistaken for a link that queues up
+ * after many small files): each class keeps its own best and smoothed latency.
+ *
+ * The current limit as well as a bounded history of limit changes can be queried
+ * for monitoring purposes.
+ */
+public class ExecutionLimiter {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExecutionLimiter.class);
+
+	/** Factor applied to the limit if an execution fails or times out **/
+	public static final double BACKOFF_RATIO = 0.7;
+
+	/** Latency (relative to the best latency) up to which the limit may grow **/
+	public static final double LATENCY_TOLERANCE = 2.0;
+
+	/** Weight of a new latency sample in the smoothed latency **/
+	private static final double SMOOTHING = 0.2;
+
+	/** Number of limit changes kept in the history **/
+	private static final int HISTORY_SIZE = 100;
+
+	/** Transfers below this size (bytes) form the smallest size class, e.g. metadata operations **/
+	private static final long SMALLEST_SIZE_CLASS = 64 * 1024;
+
+	/** Factor between the bounds of two consecutive size classes **/
+	private static final long SIZE_CLASS_FACTOR = 16;
+
+	/** Number of size classes, the largest one is unbounded (&gt;= 256 MiB) **/
+	private static final int SIZE_CLASSES = 5;
+
+	private final int minLimit;
+	private final int maxLimit;
+
+	/** Current limit, fractional to allow additive increase by 1/limit **/
+	private double limit;
+
+	/** Best observed completion latency and smoothed completion latency in ms, per size class **/
+	private final long[] minLatency;
+	private final double[] smoothedLatency;
+
+	private long successCount = 0;
+	private long dropCount = 0;
+
+	private final Deque<LimitSample> history;
+
+	/**
+	 * @param initialLimit the limit to start with
+	 * @param minLimit lower bound of the limit (at least 1)
+	 * @param maxLimit upper bound of the limit
+	 */
+	public ExecutionLimiter(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid limits (min=%d, max=%d).", minLimit, maxLimit));
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.minLatency = new long[SIZE_CLASSES];
+		this.smoothedLatency = new double[SIZE_CLASSES];
+		resetLatencies();
+		this.history = new ArrayDeque<LimitSample>(HISTORY_SIZE);
+		addToHistory();
+	}
+
+	/**
+	 * @param inFlight number of currently executing transactions
+	 * @return true if another transaction may be started
+	 */
+	public synchronized boolean tryAcquire(int inFlight) {
+		return inFlight < getLimit();
+	}
+
+	/**
+	 * Called whenever an execution completed successfully.
+	 *
+	 * @param latency time between start and completion of the execution in ms
+	 * @param size number of bytes transferred by the execution, 0 for metadata operations
+	 * @param inFlight number of transactions that were executing (including the completed one)
+	 */
+	public synchronized void onSuccess(long latency, long size, int inFlight) {
+		++successCount;
+		latency = Math.max(0, latency);
+		int sizeClass = getSizeClass(size);
+		minLatency[sizeClass] = Math.min(minLatency[sizeClass], latency);
+		if (smoothedLatency[sizeClass] == 0.0) {
+			smoothedLatency[sizeClass] = latency;
+		} else {
+			smoothedLatency[sizeClass] = (1.0 - SMOOTHING) * smoothedLatency[sizeClass] + SMOOTHING * latency;
+		}
+
+		// only grow if the limit is used and the link does not queue up yet
+		boolean limitUsed = inFlight >= getLimit();
+		boolean latencyStable = smoothedLatency[sizeClass]
+				<= LATENCY_TOLERANCE * Math.max(1, minLatency[sizeClass]);
+		if (limitUsed && latencyStable) {
+			setLimit(limit + 1.0 / limit);
+		}
+	}
+
+	/**
+	 * Called whenever an execution failed or did not complete in time.
+	 */
+	public synchronized void onDropped() {
+		++dropCount;
+		setLimit(limit * BACKOFF_RATIO);
+	}
+
+	/**
+	 * Starts again from the minimal limit, e.g. after the connection was restored. The
+	 * latencies measured so far are discarded since the link may have changed.
+	 */
+	public synchronized void restart() {
+		resetLatencies();
+		setLimit(minLimit);
+	}
+
+	private void resetLatencies() {
+		Arrays.fill(minLatency, Long.MAX_VALUE);
+		Arrays.fill(smoothedLatency, 0.0);
+	}
+
+	/**
+	 * @param size number of bytes transferred
+	 * @return index of the size class, 0 for the smallest transfers
+	 */
+	static int getSizeClass(long size) {
+		int sizeClass = 0;
+		long bound = SMALLEST_SIZE_CLASS;
+		while (size >= bound && sizeClass < SIZE_CLASSES - 1) {
+			++sizeClass;
+			bound *= SIZE_CLASS_FACTOR;
+		}
+		return sizeClass;
+	}
+
+	private void setLimit(double newLimit) {
+		int oldLimit = getLimit();
+		limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		if (getLimit() != oldLimit) {
+			logger.debug("Execution limit changed from {} to {}.", oldLimit, getLimit());
+			addToHistory();
+		}
+	}
+
+	private void addToHistory() {
+		if (history.size() >= HISTORY_SIZE) {
+			history.removeFirst();
+		}
+		history.addLast(new LimitSample(System.currentTimeMillis(), getLimit()));
+	}
+
+	/**
+	 * @return the current limit of concurrent executions
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * @param size number of bytes transferred
+	 * @return smoothed completion latency in ms of transfers of this size class, 0 if
+	 *         nothing of this size completed yet
+	 */
+	public synchronized long getSmoothedLatency(long size) {
+		return (long) smoothedLatency[getSizeClass(size)];
+	}
+
+	public synchronized long getSuccessCount() {
+		return successCount;
+	}
+
+	public synchronized long getDropCount() {
+		return dropCount;
+	}
+
+	/**
+	 * @return the most recent limit changes, oldest first
+	 */
+	public synchronized List<LimitSample> getHistory() {
+		return new ArrayList<LimitSample>(history);
+	}
+
+	/**
+	 * A limit that was set at a given time.
+	 */
+	public static final class LimitSample {
+		private final long timestamp;
+		private final int limit;
+
+		public LimitSample(long timestamp, int limit) {
+			this.timestamp = timestamp;
+			this.limit = limit;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public int getLimit() {
+			return limit;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("LimitSample[timestamp=%d, limit=%d]", timestamp, limit);
+		}
+	}
+}
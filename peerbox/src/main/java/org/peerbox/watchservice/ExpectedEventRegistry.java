@@ -0,0 +1,304 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.peerbox.watchservice.EventCoalescer.Kind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the local events that PeerWasp causes itself, e.g. by downloading, moving or
+ * deleting a file because of a remote change. The watch service reports these changes like
+ * changes of the user. Such echoes are recognized by the {@link ContentHashPipeline} and
+ * dropped before they are hashed or reach the file tree.
+ *
+ * A mutation registers the expected events of a path before it touches the disk
+ * ({@link #expect(Path, Kind)}). As soon as it is done, it settles them
+ * ({@link #settle(Path)}), which records the file key, size and last modified time of the
+ * path, or cancels them if it failed ({@link #cancel(Path)}). While the mutation runs, the
+ * events of the path cannot be judged yet and wait until it is settled
+ * ({@link #deferUntilSettled(Path, Runnable)}). Once settled, an event is only an echo if the
+ * path still has the recorded attributes. Matching thus only reads the attributes of the
+ * path, never its content. A change of the user after the mutation is always reported.
+ *
+ * This class is thread-safe.
+ */
+public class ExpectedEventRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExpectedEventRegistry.class);
+
+	/**
+	 * Result of matching an event against the expectations.
+	 */
+	public enum Match {
+		/** the event is not caused by a mutation **/
+		NONE,
+		/** a mutation of the path is still running, match again once it is settled **/
+		PENDING,
+		/** the event is an echo of a mutation and should be dropped **/
+		ECHO
+	}
+
+	/** Maximal duration of a mutation, e.g. of a download that never completes **/
+	private static final long OPEN_WINDOW_MS = 30 * 60 * 1000;
+
+	/** Time after a mutation during which echoes are expected (covers polled folders) **/
+	private static final long SETTLED_WINDOW_MS = 90 * 1000;
+
+	/** Number of paths above which expired expectations of all paths are removed **/
+	private static final int PURGE_THRESHOLD = 1024;
+
+	/** guarded by this **/
+	private final Map<Path, List<Expectation>> expectations;
+	private final Map<Path, List<Runnable>> waiting;
+	private long droppedEventCount;
+
+	public ExpectedEventRegistry() {
+		this.expectations = new HashMap<Path, List<Expectation>>();
+		this.waiting = new HashMap<Path, List<Runnable>>();
+	}
+
+	/**
+	 * Registers an event that a mutation is about to cause. As soon as the mutation is done,
+	 * either {@link #settle(Path)} or {@link #cancel(Path)} must be called.
+	 */
+	public synchronized void expect(final Path path, final Kind kind) {
+		if (expectations.size() > PURGE_THRESHOLD) {
+			purgeExpired(System.currentTimeMillis());
+		}
+		List<Expectation> list = expectations.get(path);
+		if (list == null) {
+			list = new ArrayList<Expectation>(2);
+			expectations.put(path, list);
+		}
+		list.add(new Expectation(kind, System.currentTimeMillis() + OPEN_WINDOW_MS));
+	}
+
+	/**
+	 * Marks the mutations of a path as done. Creates and modifications are expected to show the
+	 * current attributes of the path, deletes that the path does not exist anymore. The
+	 * expectations expire after a short time window. Deferred events of the path are run.
+	 *
+	 * @param path of the mutation
+	 */
+	public void settle(final Path path) {
+		List<Runnable> deferred;
+		synchronized (this) {
+			List<Expectation> list = expectations.get(path);
+			if (list != null) {
+				Fingerprint written = null;
+				long deadline = System.currentTimeMillis() + SETTLED_WINDOW_MS;
+				for (Expectation expectation : list) {
+					if (expectation.fingerprint != null) {
+						continue;
+					}
+					if (expectation.kind == Kind.DELETE) {
+						expectation.fingerprint = Fingerprint.MISSING;
+					} else {
+						if (written == null) {
+							written = Fingerprint.of(path);
+						}
+						expectation.fingerprint = written;
+					}
+					expectation.deadline = deadline;
+				}
+			}
+			deferred = waiting.remove(path);
+		}
+		runDeferred(deferred);
+	}
+
+	/**
+	 * Removes the expectations of a mutation that failed, i.e. the events of the path are not
+	 * dropped. Deferred events of the path are run.
+	 */
+	public void cancel(final Path path) {
+		List<Runnable> deferred;
+		synchronized (this) {
+			List<Expectation> list = expectations.get(path);
+			if (list != null) {
+				list.removeIf(expectation -> expectation.fingerprint == null);
+				if (list.isEmpty()) {
+					expectations.remove(path);
+				}
+			}
+			deferred = waiting.remove(path);
+		}
+		runDeferred(deferred);
+	}
+
+	/**
+	 * Defers the handling of an event while a mutation of the path is running. The callback is
+	 * run as soon as the mutation is settled or cancelled.
+	 *
+	 * @return true if the callback is deferred, false if no mutation of the path is running
+	 */
+	public synchronized boolean deferUntilSettled(final Path path, final Runnable callback) {
+		if (!isRunning(path, System.currentTimeMillis())) {
+			return false;
+		}
+		List<Runnable> list = waiting.get(path);
+		if (list == null) {
+			list = new ArrayList<Runnable>(1);
+			waiting.put(path, list);
+		}
+		list.add(callback);
+		return true;
+	}
+
+	/**
+	 * Checks whether an event is an echo of a mutation, i.e. should be dropped. Reads the
+	 * attributes of the path only if a settled expectation of the kind exists.
+	 *
+	 * @param path of the event
+	 * @param kind of the event
+	 * @return {@link Match#PENDING} while a mutation of the path runs, whatever the kind
+	 */
+	public synchronized Match match(final Path path, final Kind kind) {
+		if (expectations.isEmpty()) {
+			return Match.NONE;
+		}
+		List<Expectation> list = expectations.get(path);
+		if (list == null) {
+			return Match.NONE;
+		}
+
+		long now = System.currentTimeMillis();
+		boolean isRunning = false;
+		boolean isEcho = false;
+		Fingerprint current = null;
+		Iterator<Expectation> it = list.iterator();
+		while (it.hasNext()) {
+			Expectation expectation = it.next();
+			if (expectation.deadline < now) {
+				it.remove();
+			} else if (expectation.fingerprint == null) {
+				isRunning = true;
+			} else if (!isEcho && expectation.kind == kind) {
+				if (current == null) {
+					current = Fingerprint.of(path);
+				}
+				isEcho = expectation.fingerprint.matches(current);
+			}
+		}
+		if (list.isEmpty()) {
+			expectations.remove(path);
+		}
+		if (isRunning) {
+			return Match.PENDING;
+		}
+		if (isEcho) {
+			++droppedEventCount;
+			logger.trace("Dropped echo {} - {}", kind, path);
+			return Match.ECHO;
+		}
+		return Match.NONE;
+	}
+
+	/**
+	 * @return true if a mutation of the path is running, i.e. neither settled nor cancelled.
+	 */
+	public synchronized boolean isPending(final Path path) {
+		return isRunning(path, System.currentTimeMillis());
+	}
+
+	/**
+	 * @return number of paths with expectations (including expired ones not removed yet).
+	 */
+	public synchronized int size() {
+		return expectations.size();
+	}
+
+	/**
+	 * @return number of events recognized as echoes so far.
+	 */
+	public synchronized long getDroppedEventCount() {
+		return droppedEventCount;
+	}
+
+	private boolean isRunning(final Path path, long now) {
+		List<Expectation> list = expectations.get(path);
+		if (list != null) {
+			for (Expectation expectation : list) {
+				if (expectation.fingerprint == null && expectation.deadline >= now) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void purgeExpired(long now) {
+		Iterator<List<Expectation>> lists = expectations.values().iterator();
+		while (lists.hasNext()) {
+			List<Expectation> list = lists.next();
+			list.removeIf(expectation -> expectation.deadline < now);
+			if (list.isEmpty()) {
+				lists.remove();
+			}
+		}
+	}
+
+	private static void runDeferred(final List<Runnable> deferred) {
+		if (deferred != null) {
+			deferred.forEach(Runnable::run);
+		}
+	}
+
+	private static final class Expectation {
+		private final Kind kind;
+		private long deadline;
+		/** state written by the mutation, null while it runs **/
+		private Fingerprint fingerprint;
+
+		Expectation(Kind kind, long deadline) {
+			this.kind = kind;
+			this.deadline = deadline;
+		}
+	}
+
+	/**
+	 * File key, size and last modified time of a path, or its absence.
+	 */
+	private static final class Fingerprint {
+		private static final Fingerprint MISSING = new Fingerprint(null, -1, -1);
+
+		private final Object fileKey;
+		private final long size;
+		private final long lastModified;
+
+		private Fingerprint(Object fileKey, long size, long lastModified) {
+			this.fileKey = fileKey;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		static Fingerprint of(final Path path) {
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class,
+						LinkOption.NOFOLLOW_LINKS);
+				return new Fingerprint(attrs.fileKey(), attrs.size(),
+						attrs.lastModifiedTime().toMillis());
+			} catch (IOException e) {
+				return MISSING;
+			}
+		}
+
+		/**
+		 * @return true if the other fingerprint has the same attributes
+		 */
+		boolean matches(final Fingerprint other) {
+			return size == other.size && lastModified == other.lastModified
+					&& (fileKey == null ? other.fileKey == null : fileKey.equals(other.fileKey));
+		}
+	}
+}
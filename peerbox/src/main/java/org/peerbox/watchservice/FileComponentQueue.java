@@ -2,8 +2,16 @@ package org.peerbox.watchservice;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import org.peerbox.watchservice.filetree.composite.FileComponent;
 
@@ -11,6 +19,14 @@ import org.peerbox.watchservice.filetree.composite.FileComponent;
  * This class is a wrapper for a {@link java.util.concurrent.BlockingQueue
  * } storing objects of type {@link org.peerbox.watchservice.filetree.composite.FileComponent
  * FileComponent}. This class is used to build to queue of pending Actions.
+ *
+ * Each element is scheduled with a ready time (a deadline in ms) which is computed once
+ * when the element is added. The queue is ordered by this ready time and consumers can use
+ * {@link #takeReady()} to block exactly until the head of the queue becomes ready or the
+ * queue changes. Elements that cannot be executed yet because the parent folder is not
+ * uploaded are parked with {@link #park(FileComponent)}. The dependency on the parent is
+ * tracked in a {@link ParentDependencyGraph} and all parked children of a folder are
+ * released at once with {@link #releaseDependents(FileComponent)}.
 
  * @author Andreas
  *
@@ -18,22 +34,229 @@ import org.peerbox.watchservice.filetree.composite.FileComponent;
 public class FileComponentQueue {
 
 	private static final int QUEUE_CAPACITY = 100;
+
+	/** Ready time of parked elements, they are never returned by {@link #takeReady()} **/
+	private static final long PARKED = Long.MAX_VALUE;
+
 	private final BlockingQueue<FileComponent> queue;
 
+	/** Ready time of each queued element, captured when the element is added. **/
+	private final Map<FileComponent, Long> readyTimes;
+
+	/** Parked elements waiting for their parent folder to be uploaded **/
+	private final ParentDependencyGraph dependencies;
+
+	/** Computes the ready time of an element when it is added to the queue **/
+	private volatile ToLongFunction<FileComponent> readyTimeFunction;
+
+	/** Notified whenever an element is added, e.g. to journal pending actions **/
+	private volatile Consumer<FileComponent> addListener;
+
+	/** Notified whenever an element is dropped with {@link #remove(FileComponent)} **/
+	private volatile Consumer<FileComponent> removeListener;
+
+	/** Guards waiting consumers, signaled whenever the queue changes **/
+	private final Lock lock;
+	private final Condition changed;
+
 	public FileComponentQueue() {
-		queue = new PriorityBlockingQueue<FileComponent>(QUEUE_CAPACITY, new FileActionTimeComparator());
+		readyTimes = new ConcurrentHashMap<FileComponent, Long>();
+		dependencies = new ParentDependencyGraph();
+		queue = new PriorityBlockingQueue<FileComponent>(QUEUE_CAPACITY, new FileActionReadyTimeComparator());
+		readyTimeFunction = component -> component.getAction().getTimestamp();
+		addListener = component -> {};
+		removeListener = component -> {};
+		lock = new ReentrantLock();
+		changed = lock.newCondition();
+	}
+
+	/**
+	 * Sets the function used to compute the ready time of elements. The ready time
+	 * of elements already in the queue does not change.
+	 *
+	 * @param readyTimeFunction maps a component to the time (ms) when it becomes ready
+	 */
+	public void setReadyTimeFunction(ToLongFunction<FileComponent> readyTimeFunction) {
+		this.readyTimeFunction = readyTimeFunction;
+	}
+
+	/**
+	 * Sets the listener that is notified whenever an element is added (or rescheduled).
+	 *
+	 * @param addListener called with the added element
+	 */
+	public void setAddListener(Consumer<FileComponent> addListener) {
+		this.addListener = addListener;
+	}
+
+	/**
+	 * Sets the listener that is notified whenever an element is dropped from the queue
+	 * without being taken, e.g. because its events collapsed.
+	 *
+	 * @param removeListener called with the removed element
+	 */
+	public void setRemoveListener(Consumer<FileComponent> removeListener) {
+		this.removeListener = removeListener;
 	}
 
 	public FileComponent take() throws InterruptedException {
-		return queue.take();
+		FileComponent next = queue.take();
+		readyTimes.remove(next);
+		dependencies.removeDependency(next);
+		return next;
 	}
 
+	/**
+	 * Blocks until the head of the queue is ready (i.e. its ready time passed) and removes it.
+	 * The waiting thread wakes up exactly when the ready time of the head is reached or when
+	 * the queue changes (add, remove, release of parked elements) or {@link #signalChange()} is called.
+	 *
+	 * @return the ready component
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public FileComponent takeReady() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (true) {
+				FileComponent head = queue.peek();
+				if (head == null) {
+					changed.await();
+					continue;
+				}
+
+				long delay = getReadyTime(head) - System.currentTimeMillis();
+				if (delay > 0) {
+					changed.await(delay, TimeUnit.MILLISECONDS);
+					continue;
+				}
+
+				if (queue.remove(head)) {
+					readyTimes.remove(head);
+					return head;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds an element. If the element is already queued, it is rescheduled
+	 * according to its new ready time.
+	 */
 	public void add(FileComponent element) {
+		dependencies.removeDependency(element);
+		schedule(element, readyTimeFunction.applyAsLong(element));
+		addListener.accept(element);
+	}
+
+	/**
+	 * Adds an element with the given ready time instead of the computed one, e.g. to
+	 * delay the retry of a failed execution. If the element is already queued, it is
+	 * rescheduled.
+	 *
+	 * @param element to add
+	 * @param readyTime time (ms) at which the element becomes ready
+	 */
+	public void add(FileComponent element, long readyTime) {
+		dependencies.removeDependency(element);
+		schedule(element, readyTime);
+		addListener.accept(element);
+	}
+
+	/**
+	 * Parks an element: it stays in the queue but is not returned by {@link #takeReady()}
+	 * until its parent is released with {@link #releaseDependents(FileComponent)} or the
+	 * element itself is released with {@link #release(FileComponent)}.
+	 */
+	public void park(FileComponent element) {
+		schedule(element, PARKED);
+		dependencies.addDependency(element, element.getParent());
+
+		// parent may have been uploaded in the meantime
+		if (element.isReady()) {
+			release(element);
+		}
+	}
+
+	/**
+	 * Releases a parked element, i.e. it is scheduled again according to its ready time.
+	 *
+	 * @return true if the element was parked
+	 */
+	public boolean release(FileComponent element) {
+		if (!isParked(element)) {
+			return false;
+		}
+		add(element);
+		return true;
+	}
+
+	/**
+	 * Releases all elements that are parked because they wait for the given parent. Children
+	 * that are still not ready (e.g. because they were moved to another folder in the meantime)
+	 * are parked again.
+	 *
+	 * @param parent of the parked elements
+	 * @return number of released elements
+	 */
+	public int releaseDependents(FileComponent parent) {
+		int released = 0;
+		for (FileComponent child : dependencies.removeDependents(parent)) {
+			if (!isParked(child)) {
+				continue;
+			}
+			if (child.isReady()) {
+				add(child);
+				++released;
+			} else {
+				park(child);
+			}
+		}
+		return released;
+	}
+
+	/**
+	 * @return true if the element is queued (scheduled or parked)
+	 */
+	public boolean contains(FileComponent element) {
+		return readyTimes.containsKey(element);
+	}
+
+	public boolean isParked(FileComponent element) {
+		Long readyTime = readyTimes.get(element);
+		return readyTime != null && readyTime == PARKED;
+	}
+
+	private void schedule(FileComponent element, long readyTime) {
+		queue.remove(element);
+		readyTimes.put(element, readyTime);
 		queue.add(element);
+		signalChange();
 	}
 
 	public boolean remove(FileComponent element) {
-		return queue.remove(element);
+		boolean removed = queue.remove(element);
+		readyTimes.remove(element);
+		dependencies.removeDependency(element);
+		if (removed) {
+			signalChange();
+			removeListener.accept(element);
+		}
+		return removed;
+	}
+
+	/**
+	 * Wakes up all threads waiting in {@link #takeReady()}, e.g. because
+	 * an execution slot was released.
+	 */
+	public void signalChange() {
+		lock.lock();
+		try {
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	public Iterator<FileComponent> iterator() {
@@ -44,19 +267,34 @@ public class FileComponentQueue {
 		return queue.size();
 	}
 
+	/**
+	 * @return number of parked elements waiting for their parent
+	 */
+	public int getNumberOfParked() {
+		return dependencies.size();
+	}
+
 	public BlockingQueue<FileComponent> getQueue() {
 		return queue;
 	}
 
-	private class FileActionTimeComparator implements Comparator<FileComponent> {
+	private long getReadyTime(FileComponent component) {
+		Long readyTime = readyTimes.get(component);
+		return readyTime != null ? readyTime : readyTimeFunction.applyAsLong(component);
+	}
+
+	private class FileActionReadyTimeComparator implements Comparator<FileComponent> {
 		@Override
 		public int compare(FileComponent a, FileComponent b) {
-			return Long.compare(a.getAction().getTimestamp(), b.getAction().getTimestamp());
+			return Long.compare(getReadyTime(a), getReadyTime(b));
 		}
 	}
 
 	public void clear() {
 		queue.clear();
+		readyTimes.clear();
+		dependencies.clear();
+		signalChange();
 	}
 
 }
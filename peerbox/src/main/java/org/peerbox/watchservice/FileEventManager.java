@@ -2,7 +2,9 @@ package org.peerbox.watchservice;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import net.engio.mbassy.listener.Handler;
 
@@ -20,6 +22,7 @@ import org.hive2hive.core.model.UserPermission;
 import org.peerbox.app.manager.file.FileInfo;
 import org.peerbox.app.manager.file.IFileMessage;
 import org.peerbox.app.manager.file.messages.FileExecutionStartedMessage;
+import org.peerbox.app.manager.file.messages.LocalFileContentChangedMessage;
 import org.peerbox.app.manager.file.messages.LocalFileSoftDeleteMessage;
 import org.peerbox.app.manager.file.messages.RemoteFileDeletedMessage;
 import org.peerbox.app.manager.file.messages.RemoteFileMovedMessage;
@@ -59,6 +62,9 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 
 	private static final Logger logger = LoggerFactory.getLogger(FileEventManager.class);
 
+	/** Number of subtrees whose local events are handled concurrently **/
+	private static final int DISPATCH_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
 	/**
 	 * This queue contains FileComponents on which local or remote events happened that require
 	 * some kind of network operation. The objects can be picked from the queu when no new events
@@ -75,6 +81,22 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 	/** Used to publish important events system-wide.*/
 	private final MessageBus messageBus;
 
+	/**
+	 * Handles events of different top-level subtrees of the root folder concurrently.
+	 * Events of the same subtree are handled one after the other, local and remote
+	 * handlers acquire the lock of the affected subtree.
+	 */
+	private final ShardedEventDispatcher eventDispatcher;
+
+	/**
+	 * Local events caused by PeerWasp itself (e.g. downloads), which are dropped
+	 * before they reach this manager.
+	 */
+	private final ExpectedEventRegistry expectedEvents;
+
+	/** Cache of the content hashes of the user, null if files are hashed without cache **/
+	private ContentHashCache contentHashCache;
+
 	/**
 	 * If the execution of an {@link org.peerbox.watchservice.Action Action}
 	 * definitely fails (i.e. repeatedly until the maximal number of attempts to
@@ -87,7 +109,7 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 
 //	private final Set<Path> sharedFolders;
 
-	private boolean cleanupRunning;
+	private volatile boolean cleanupRunning;
 
 	private Set<Path> pendingEvents = new ConcurrentHashSet<Path>();
 
@@ -104,8 +126,15 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 		this.fileTree = fileTree;
 		this.messageBus = messageBus;
 		this.failedOperations = new ConcurrentHashSet<Path>();
+		this.eventDispatcher = new ShardedEventDispatcher(fileTree.getRootPath(), DISPATCH_THREADS);
+		this.expectedEvents = new ExpectedEventRegistry();
 	}
 
+    @Inject
+    public void setContentHashCache(ContentHashCache contentHashCache) {
+    	this.contentHashCache = contentHashCache;
+    }
+
     @Inject
     public void setForceSyncHandlerProvider(Provider<IForceSyncHandler> forceSyncHandlerProvider){
     	this.forceSyncHandlerProvider = forceSyncHandlerProvider;
@@ -138,6 +167,17 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 	 */
 	@Override
 	public void onLocalFileCreated(final Path path) {
+		onLocalFileCreated(path, null);
+	}
+
+	/**
+	 * Same as {@link #onLocalFileCreated(Path)}, but the content hash of the file was
+	 * already computed (see {@link org.peerbox.watchservice.ContentHashPipeline
+	 * ContentHashPipeline}).
+	 *
+	 * @param contentHash of the file, null to compute it now.
+	 */
+	public void onLocalFileCreated(final Path path, final String contentHash) {
 		if(cleanupRunning){
 			pendingEvents.add(path);
 			return;
@@ -159,7 +199,7 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 			String structureHash = fileTree.discoverSubtreeStructure(path, this);
 			((FolderComposite)file).setStructureHash(structureHash);
 		}
-		file.updateContentHash();
+		file.updateContentHash(contentHash);
 
 		file.getAction().handleLocalCreateEvent();
 
@@ -178,6 +218,17 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 	 */
 	@Override
 	public void onLocalFileModified(final Path path) {
+		onLocalFileModified(path, null);
+	}
+
+	/**
+	 * Same as {@link #onLocalFileModified(Path)}, but the content hash of the file was
+	 * already computed (see {@link org.peerbox.watchservice.ContentHashPipeline
+	 * ContentHashPipeline}).
+	 *
+	 * @param contentHash of the file, null to compute it now.
+	 */
+	public void onLocalFileModified(final Path path, final String contentHash) {
 		if(cleanupRunning){
 			pendingEvents.add(path);
 			return;
@@ -196,13 +247,18 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 			return;
 		}
 
-		boolean hasChanged = file.updateContentHash();
+		boolean hasChanged = file.updateContentHash(contentHash);
 		if (!hasChanged) {
 			logger.debug("Content hash did not change for file {}. Update rejected.", path);
 			return;
 		}
 
 		file.getAction().handleLocalUpdateEvent();
+
+		if (file.getAction().isExecuting()) {
+			// allows to cancel an outdated upload of the file
+			publishMessage(new LocalFileContentChangedMessage(new FileInfo(file)));
+		}
 	}
 
 	/**
@@ -313,35 +369,36 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 	 */
 	@Override
 	@Handler
-	public synchronized void onFileAdd(final IFileAddEvent fileEvent){
+	public void onFileAdd(final IFileAddEvent fileEvent){
 		if(cleanupRunning){
 			pendingEvents.add(fileEvent.getFile().toPath());
 			return;
 		}
 
 		final Path path = fileEvent.getFile().toPath();
-		logger.debug("onFileAdd: {}", path);
+		List<Lock> locks = eventDispatcher.lock(path);
+		try {
+			logger.debug("onFileAdd: {}", path);
 
-		final FileComponent file = fileTree.getOrCreateFileComponent(path, fileEvent.isFile(), this);
+			final FileComponent file = fileTree.getOrCreateFileComponent(path, fileEvent.isFile(), this);
 
-		file.getAction().setFile(file);
-		file.getAction().setFileEventManager(this);
+			file.getAction().setFile(file);
+			file.getAction().setFileEventManager(this);
 
-		logger.trace("file {} has ID {}", path, file.hashCode());
-		if (!hasSynchronizedAncestor(path)) {
-			logger.debug("File {} is in folder that is not synchronized. Event ignored.", path);
-			file.setIsSynchronized(false);
-			getMessageBus().publish(new FileExecutionStartedMessage(new FileInfo(file), StateType.INITIAL));
-			//return;
-		} else {
-			logger.debug("File {} is in folder that is synchronized.", path);
-			file.setIsSynchronized(true);
-			file.getAction().handleRemoteCreateEvent();
+			logger.trace("file {} has ID {}", path, file.hashCode());
+			if (!hasSynchronizedAncestor(path)) {
+				logger.debug("File {} is in folder that is not synchronized. Event ignored.", path);
+				file.setIsSynchronized(false);
+				getMessageBus().publish(new FileExecutionStartedMessage(new FileInfo(file), StateType.INITIAL));
+				//return;
+			} else {
+				logger.debug("File {} is in folder that is synchronized.", path);
+				file.setIsSynchronized(true);
+				file.getAction().handleRemoteCreateEvent();
+			}
+		} finally {
+			eventDispatcher.unlock(locks);
 		}
-
-
-
-
 	}
 
 	/**
@@ -359,13 +416,18 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 		}
 
 		final Path path = fileEvent.getFile().toPath();
-		logger.debug("onFileDelete: {}", path);
+		List<Lock> locks = eventDispatcher.lock(path);
+		try {
+			logger.debug("onFileDelete: {}", path);
 
-		final FileComponent file = fileTree.getOrCreateFileComponent(path, fileEvent.isFile(), this);
-		file.getAction().handleRemoteDeleteEvent();
+			final FileComponent file = fileTree.getOrCreateFileComponent(path, fileEvent.isFile(), this);
+			file.getAction().handleRemoteDeleteEvent();
 
-		FileInfo fileHelper = new FileInfo(file);
-		messageBus.publish(new RemoteFileDeletedMessage(fileHelper));
+			FileInfo fileHelper = new FileInfo(file);
+			messageBus.publish(new RemoteFileDeletedMessage(fileHelper));
+		} finally {
+			eventDispatcher.unlock(locks);
+		}
 	}
 
 	/**
@@ -380,10 +442,15 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 			return;
 		}
 		final Path path = fileEvent.getFile().toPath();
-		logger.debug("onFileUpdate: {}", path);
-
-		final FileComponent file = fileTree.getOrCreateFileComponent(path, this);
-		file.getAction().handleRemoteUpdateEvent();
+		List<Lock> locks = eventDispatcher.lock(path);
+		try {
+			logger.debug("onFileUpdate: {}", path);
+
+			final FileComponent file = fileTree.getOrCreateFileComponent(path, this);
+			file.getAction().handleRemoteUpdateEvent();
+		} finally {
+			eventDispatcher.unlock(locks);
+		}
 	}
 
 	/**
@@ -402,14 +469,19 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 		}
 		final Path srcPath = fileEvent.getSrcFile().toPath();
 		final Path dstPath = fileEvent.getDstFile().toPath();
-		logger.debug("onFileMove: {} -> {}", srcPath, dstPath);
-
-		final FileComponent source = fileTree.getOrCreateFileComponent(srcPath, this);
-		source.getAction().handleRemoteMoveEvent(dstPath);
-
-		FileInfo srcFile = new FileInfo(srcPath, fileEvent.isFolder());
-		FileInfo dstFile = new FileInfo(dstPath, fileEvent.isFolder());
-		messageBus.publish(new RemoteFileMovedMessage(srcFile, dstFile));
+		List<Lock> locks = eventDispatcher.lock(srcPath, dstPath);
+		try {
+			logger.debug("onFileMove: {} -> {}", srcPath, dstPath);
+
+			final FileComponent source = fileTree.getOrCreateFileComponent(srcPath, this);
+			source.getAction().handleRemoteMoveEvent(dstPath);
+
+			FileInfo srcFile = new FileInfo(srcPath, fileEvent.isFolder());
+			FileInfo dstFile = new FileInfo(dstPath, fileEvent.isFolder());
+			messageBus.publish(new RemoteFileMovedMessage(srcFile, dstFile));
+		} finally {
+			eventDispatcher.unlock(locks);
+		}
 	}
 
 
@@ -450,7 +522,7 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 	 * @return The {@link #fileTree}.
 	 */
 	@Override
-	public synchronized IFileTree getFileTree() {
+	public IFileTree getFileTree() {
 		return fileTree;
 	}
 
@@ -470,6 +542,23 @@ public class FileEventManager implements IFileEventManager, ILocalFileEventListe
 		return messageBus;
 	}
 
+	/**
+	 * @return The {@link #eventDispatcher} that handles events per subtree.
+	 */
+	public ShardedEventDispatcher getEventDispatcher() {
+		return eventDispatcher;
+	}
+
+	@Override
+	public ExpectedEventRegistry getExpectedEvents() {
+		return expectedEvents;
+	}
+
+	@Override
+	public ContentHashCache getContentHashCache() {
+		return contentHashCache;
+	}
+
 	private void publishMessage(IFileMessage message) {
 		if (messageBus != null) {
 			messageBus.publish(message);
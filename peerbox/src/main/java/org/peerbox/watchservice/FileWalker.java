@@ -28,6 +28,7 @@ public class FileWalker {
 
 	private Path rootFolder;
 	private FileEventManager eventManager;
+	private IgnoreRules ignoreRules;
 
 	/**
 	 * This object is used to build the subtree structuredefined by the Path 
@@ -35,10 +36,11 @@ public class FileWalker {
 	 */
 	private FolderComposite fileTree;
 
-	public FileWalker(Path rootDirectory, FileEventManager eventManager){
+	public FileWalker(Path rootDirectory, FileEventManager eventManager, IgnoreRules ignoreRules){
 		this.rootFolder = rootDirectory;
 		this.fileTree = new FolderComposite(rootDirectory, true);
 		this.eventManager = eventManager;
+		this.ignoreRules = ignoreRules;
 	}
 
 	/**
@@ -89,6 +91,10 @@ public class FileWalker {
 		@Override
 		public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attr)
 				throws IOException {
+			if(!path.equals(rootFolder) && ignoreRules.isIgnored(path, true)){
+				// the content of ignored folders is never walked
+				return FileVisitResult.SKIP_SUBTREE;
+			}
 			if(throwCreates){
 				if(path.toString().equals(rootFolder.toString())){
 					logger.trace("Skipping root directory.");
@@ -101,7 +107,7 @@ public class FileWalker {
 
 		@Override
 		public FileVisitResult visitFile(Path path, BasicFileAttributes attr) throws IOException {
-			if(PathUtils.isFileHidden(path)){
+			if(ignoreRules.isIgnored(path, attr.isDirectory())){
 				return FileVisitResult.CONTINUE;
 			}
 			if (throwCreates) {
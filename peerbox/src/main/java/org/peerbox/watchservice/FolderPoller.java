@@ -0,0 +1,418 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects changes of folders by rescanning them periodically. A compact snapshot of each folder
+ * is kept in memory: the sorted names of its entries and their size, last modified time and
+ * inode (if the file system has one) in primitive arrays. Each folder has its own scan interval:
+ * folders with changes are scanned at the minimal interval, the interval of folders without
+ * changes doubles up to the maximal interval.
+ *
+ * Folders are polled individually, i.e. new subfolders are not added automatically. The
+ * listener is called on the poller thread.
+ */
+public class FolderPoller {
+
+	private static final Logger logger = LoggerFactory.getLogger(FolderPoller.class);
+
+	private static final String UNIX_ATTRIBUTES = "unix:ino,size,lastModifiedTime,isDirectory,isRegularFile";
+
+	/**
+	 * Receives the changes detected by the poller.
+	 */
+	public interface Listener {
+		void onCreated(Path path, boolean isFolder) throws InterruptedException;
+
+		void onModified(Path path) throws InterruptedException;
+
+		void onDeleted(Path path, boolean isFolder) throws InterruptedException;
+	}
+
+	private final String threadName;
+	private final long minIntervalMs;
+	private final long maxIntervalMs;
+	private final Listener listener;
+
+	/** snapshots of the folders, the entries are modified by the poller thread only **/
+	private final Map<Path, FolderSnapshot> folders;
+	/** folders ordered by their next scan, guarded by itself **/
+	private final PriorityQueue<FolderSnapshot> scanQueue;
+
+	private Thread pollerThread;
+
+	/**
+	 * @param threadName name of the poller thread
+	 * @param minIntervalMs scan interval of folders with recent changes
+	 * @param maxIntervalMs scan interval of folders without changes
+	 * @param listener of the changes
+	 */
+	public FolderPoller(String threadName, long minIntervalMs, long maxIntervalMs, Listener listener) {
+		if (minIntervalMs <= 0 || maxIntervalMs < minIntervalMs) {
+			throw new IllegalArgumentException("Invalid scan intervals.");
+		}
+		this.threadName = threadName;
+		this.minIntervalMs = minIntervalMs;
+		this.maxIntervalMs = maxIntervalMs;
+		this.listener = listener;
+		this.folders = new ConcurrentHashMap<Path, FolderSnapshot>();
+		this.scanQueue = new PriorityQueue<FolderSnapshot>(
+				(a, b) -> Long.compare(a.nextScanTime, b.nextScanTime));
+	}
+
+	public synchronized void start() {
+		if (pollerThread != null) {
+			return;
+		}
+		pollerThread = new Thread(new Poller());
+		pollerThread.setName(threadName);
+		pollerThread.setDaemon(true);
+		pollerThread.start();
+	}
+
+	/**
+	 * Stops polling and removes all folders.
+	 */
+	public synchronized void stop() {
+		if (pollerThread != null) {
+			pollerThread.interrupt();
+			pollerThread = null;
+		}
+		for (FolderSnapshot snapshot : folders.values()) {
+			snapshot.isRemoved = true;
+		}
+		folders.clear();
+		synchronized (scanQueue) {
+			scanQueue.clear();
+		}
+	}
+
+	/**
+	 * Takes the snapshot of a folder without reporting events. Only changes after this call
+	 * are reported.
+	 */
+	public void addFolder(final Path folder) {
+		if (folders.containsKey(folder)) {
+			return;
+		}
+		FolderSnapshot snapshot = new FolderSnapshot(folder);
+		try {
+			snapshot.entries = readEntries(folder);
+		} catch (IOException e) {
+			logger.warn("Could not scan folder: {} ({})", folder, e.getMessage());
+		}
+		folders.put(folder, snapshot);
+		schedule(snapshot, minIntervalMs);
+	}
+
+	/**
+	 * Stops polling a folder. Its subfolders are still polled.
+	 */
+	public void removeFolder(final Path folder) {
+		FolderSnapshot snapshot = folders.remove(folder);
+		if (snapshot != null) {
+			snapshot.isRemoved = true;
+		}
+	}
+
+	/**
+	 * Stops polling a folder as soon as it was scanned once more, i.e. changes since the last
+	 * scan are still reported.
+	 */
+	public void removeFolderAfterNextScan(final Path folder) {
+		FolderSnapshot snapshot = folders.get(folder);
+		if (snapshot != null) {
+			snapshot.isRemovedAfterScan = true;
+			synchronized (scanQueue) {
+				scanQueue.remove(snapshot);
+				snapshot.nextScanTime = System.currentTimeMillis();
+				scanQueue.add(snapshot);
+				scanQueue.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Stops polling a folder and all its polled subfolders.
+	 */
+	public void removeFolderRecursive(final Path folder) {
+		Deque<Path> toRemove = new ArrayDeque<Path>();
+		toRemove.push(folder);
+		while (!toRemove.isEmpty()) {
+			FolderSnapshot snapshot = folders.remove(toRemove.pop());
+			if (snapshot != null) {
+				snapshot.isRemoved = true;
+				Entries entries = snapshot.entries;
+				for (int i = entries.folders.nextSetBit(0); i >= 0; i = entries.folders.nextSetBit(i + 1)) {
+					toRemove.push(snapshot.folder.resolve(entries.names[i]));
+				}
+			}
+		}
+	}
+
+	public boolean contains(final Path folder) {
+		return folders.containsKey(folder);
+	}
+
+	/**
+	 * @return the polled folders.
+	 */
+	public Set<Path> getFolders() {
+		return new HashSet<Path>(folders.keySet());
+	}
+
+	/**
+	 * @return number of polled folders.
+	 */
+	public int size() {
+		return folders.size();
+	}
+
+	/**
+	 * @return the current scan interval of the folder, or -1 if it is not polled.
+	 */
+	public long getScanInterval(final Path folder) {
+		FolderSnapshot snapshot = folders.get(folder);
+		return snapshot != null ? snapshot.intervalMs : -1;
+	}
+
+	private void schedule(final FolderSnapshot snapshot, long intervalMs) {
+		synchronized (scanQueue) {
+			snapshot.intervalMs = intervalMs;
+			snapshot.nextScanTime = System.currentTimeMillis() + intervalMs;
+			scanQueue.add(snapshot);
+			scanQueue.notifyAll();
+		}
+	}
+
+	/**
+	 * Compares the entries of a folder with its snapshot and reports the differences. Both are
+	 * sorted by name, i.e. they are merged in a single pass. A regular file with a new inode,
+	 * e.g. after the atomic save of an editor, is reported as modified.
+	 *
+	 * @return true if something changed.
+	 */
+	private boolean scan(final FolderSnapshot snapshot) throws InterruptedException {
+		Entries current;
+		try {
+			current = readEntries(snapshot.folder);
+		} catch (IOException e) {
+			// deleted: reported by the scan or the events of the parent folder
+			logger.debug("Could not scan folder: {} ({})", snapshot.folder, e.getMessage());
+			return false;
+		}
+
+		Entries previous = snapshot.entries;
+		snapshot.entries = current;
+		// deletes are reported after the creates and modifications
+		BitSet deleted = new BitSet();
+		boolean hasChanged = false;
+		int i = 0;
+		int j = 0;
+		while (i < previous.size || j < current.size) {
+			int cmp;
+			if (i == previous.size) {
+				cmp = 1;
+			} else if (j == current.size) {
+				cmp = -1;
+			} else {
+				cmp = previous.names[i].compareTo(current.names[j]);
+			}
+
+			if (cmp < 0) {
+				deleted.set(i++);
+				continue;
+			}
+			Path path = snapshot.folder.resolve(current.names[j]);
+			boolean isFolder = current.folders.get(j);
+			if (cmp > 0) {
+				listener.onCreated(path, isFolder);
+				hasChanged = true;
+			} else {
+				boolean wasFolder = previous.folders.get(i);
+				boolean isNewInode = previous.inodes[i] != current.inodes[j];
+				if (wasFolder != isFolder || (isFolder && isNewInode)) {
+					listener.onDeleted(path, wasFolder);
+					listener.onCreated(path, isFolder);
+					hasChanged = true;
+				} else if (!isFolder && (isNewInode || previous.sizes[i] != current.sizes[j]
+						|| previous.lastModified[i] != current.lastModified[j])) {
+					// changes of a folder are reported by its own scan
+					listener.onModified(path);
+					hasChanged = true;
+				}
+				++i;
+			}
+			++j;
+		}
+
+		for (int k = deleted.nextSetBit(0); k >= 0; k = deleted.nextSetBit(k + 1)) {
+			listener.onDeleted(snapshot.folder.resolve(previous.names[k]), previous.folders.get(k));
+			hasChanged = true;
+		}
+		return hasChanged;
+	}
+
+	private static Entries readEntries(final Path folder) throws IOException {
+		List<String> names = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			for (Path path : stream) {
+				names.add(path.getFileName().toString());
+			}
+		}
+		Collections.sort(names);
+
+		boolean hasInodes = folder.getFileSystem().supportedFileAttributeViews().contains("unix");
+		Entries entries = new Entries(names.size());
+		for (String name : names) {
+			Path path = folder.resolve(name);
+			try {
+				if (hasInodes) {
+					Map<String, Object> attrs = Files.readAttributes(path, UNIX_ATTRIBUTES,
+							LinkOption.NOFOLLOW_LINKS);
+					if ((Boolean) attrs.get("isDirectory") || (Boolean) attrs.get("isRegularFile")) {
+						entries.add(name, (Boolean) attrs.get("isDirectory"), (Long) attrs.get("size"),
+								((FileTime) attrs.get("lastModifiedTime")).toMillis(),
+								(Long) attrs.get("ino"));
+					}
+				} else {
+					BasicFileAttributes attrs = Files.readAttributes(path,
+							BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					if (attrs.isDirectory() || attrs.isRegularFile()) {
+						entries.add(name, attrs.isDirectory(), attrs.size(),
+								attrs.lastModifiedTime().toMillis(), 0);
+					}
+				}
+			} catch (IOException e) {
+				// deleted in the meantime
+			}
+		}
+		entries.trim();
+		return entries;
+	}
+
+	private class Poller implements Runnable {
+		@Override
+		public void run() {
+			try {
+				for (;;) {
+					FolderSnapshot snapshot = takeNextFolder();
+					if (snapshot.isRemoved) {
+						continue;
+					}
+					boolean hasChanged = scan(snapshot);
+					if (snapshot.isRemovedAfterScan) {
+						folders.remove(snapshot.folder, snapshot);
+						snapshot.isRemoved = true;
+					} else if (!snapshot.isRemoved) {
+						long intervalMs = hasChanged
+								? minIntervalMs : Math.min(snapshot.intervalMs * 2, maxIntervalMs);
+						schedule(snapshot, intervalMs);
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.trace("Poller interrupted (stop polling folders).");
+			}
+		}
+
+		private FolderSnapshot takeNextFolder() throws InterruptedException {
+			synchronized (scanQueue) {
+				for (;;) {
+					FolderSnapshot next = scanQueue.peek();
+					long now = System.currentTimeMillis();
+					if (next == null) {
+						scanQueue.wait();
+					} else if (next.nextScanTime > now) {
+						scanQueue.wait(next.nextScanTime - now);
+					} else {
+						return scanQueue.poll();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Entries of a folder at the time of the last scan.
+	 */
+	private static final class FolderSnapshot {
+		private final Path folder;
+		private volatile Entries entries = Entries.EMPTY;
+		private long intervalMs;
+		private long nextScanTime;
+		private volatile boolean isRemoved;
+		private volatile boolean isRemovedAfterScan;
+
+		FolderSnapshot(Path folder) {
+			this.folder = folder;
+		}
+	}
+
+	/**
+	 * Entries of a folder sorted by name. The names are relative to the folder, the attributes
+	 * of the i-th entry are stored at index i of the arrays. The inode is 0 if unknown.
+	 */
+	private static final class Entries {
+		private static final Entries EMPTY = new Entries(0);
+
+		private String[] names;
+		private long[] sizes;
+		private long[] lastModified;
+		private long[] inodes;
+		private final BitSet folders;
+		private int size;
+
+		Entries(int capacity) {
+			this.names = new String[capacity];
+			this.sizes = new long[capacity];
+			this.lastModified = new long[capacity];
+			this.inodes = new long[capacity];
+			this.folders = new BitSet();
+		}
+
+		/**
+		 * Appends an entry. Entries must be added in the order of their names.
+		 */
+		void add(String name, boolean isFolder, long size, long lastModified, long inode) {
+			names[this.size] = name;
+			sizes[this.size] = size;
+			this.lastModified[this.size] = lastModified;
+			inodes[this.size] = inode;
+			folders.set(this.size, isFolder);
+			++this.size;
+		}
+
+		/**
+		 * Releases the capacity of entries that were skipped.
+		 */
+		void trim() {
+			if (size < names.length) {
+				names = Arrays.copyOf(names, size);
+				sizes = Arrays.copyOf(sizes, size);
+				lastModified = Arrays.copyOf(lastModified, size);
+				inodes = Arrays.copyOf(inodes, size);
+			}
+		}
+	}
+}
@@ -7,9 +7,12 @@ import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.WatchEvent;
@@ -17,45 +20,125 @@ import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Watch service based on the Java {@link WatchService}, which requires a watch key for each
+ * folder. The registered folders are maintained incrementally: new folders are registered
+ * when they are created, deleted folders are unregistered together with their subfolders.
+ * In case of an overflow, only the registrations of the affected folder are reconciled with
+ * the file system and the lost events of the folder are recovered (see {@link OverflowRecovery}).
+ *
+ * The number of watch keys is limited by a {@link WatchBudget} (e.g. inotify watches on Linux).
+ * Folders beyond the budget, or whose registration fails, are polled by a {@link FolderPoller}
+ * at a low frequency instead. The budget is rebalanced periodically: polled folders with
+ * changes get a watch key, in exchange for watched folders without recent events.
+ */
 public class FolderWatchService extends AbstractWatchService {
 
 	private static final Logger logger = LoggerFactory.getLogger(FolderWatchService.class);
 
-	private static final long CLEANUP_TASK_DELAY = 5000;
+	/** Files modified shortly before a key was reset are recovered as well (timestamp resolution) **/
+	private static final long RECOVERY_TIME_SLACK = 2000;
+
+	/** Scan intervals of folders that are polled instead of watched **/
+	private static final long POLL_MIN_INTERVAL_MS = 2000;
+	private static final long POLL_MAX_INTERVAL_MS = 60000;
+
+	/** Interval at which watch keys are moved to the most active folders **/
+	private static final long REBALANCE_INTERVAL_MS = 10000;
 
 	private Thread fileEventProcessor;
 	private WatchService watcher;
-    private final Map<WatchKey, Path> watchKeyToPath;
+	private ScheduledExecutorService rebalancer;
+
+	/** watch keys and registered folders, guarded by this **/
+	private final BiMap<WatchKey, Path> watchKeyToPath;
+	/** registered subfolders of a registered folder, guarded by this **/
+	private final SetMultimap<Path, Path> registeredSubfolders;
+	/** time since when the events of a key were received, guarded by this **/
+	private final Map<WatchKey, Long> keyResetTimes;
+	/** ignored folders skipped during registration, guarded by this **/
+	private final Set<Path> ignoredFolders;
+
+	/** watched and polled folders, guarded by this **/
+	private WatchBudget watchBudget;
+	private final int maxWatches;
+	private final FolderPoller poller;
+	private final long rebalanceIntervalMs;
 
-    private Timer timer;
+	private volatile OverflowRecovery overflowRecovery;
 
 	public FolderWatchService() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxWatches maximal number of watched folders, further folders are polled.
+	 */
+	public FolderWatchService(int maxWatches) {
+		this(maxWatches, POLL_MIN_INTERVAL_MS, POLL_MAX_INTERVAL_MS, REBALANCE_INTERVAL_MS);
+	}
+
+	FolderWatchService(int maxWatches, long pollMinIntervalMs, long pollMaxIntervalMs, long rebalanceIntervalMs) {
 		super();
-		this.watchKeyToPath = new HashMap<WatchKey, Path>();
+		this.watchKeyToPath = HashBiMap.create();
+		this.registeredSubfolders = HashMultimap.create();
+		this.keyResetTimes = new HashMap<WatchKey, Long>();
+		this.ignoredFolders = new HashSet<Path>();
+		this.maxWatches = maxWatches;
+		this.watchBudget = new WatchBudget(maxWatches);
+		this.poller = new FolderPoller("WatchServicePoller", pollMinIntervalMs, pollMaxIntervalMs,
+				new PollerListener());
+		this.rebalanceIntervalMs = rebalanceIntervalMs;
+	}
+
+	/**
+	 * @param overflowRecovery recovers the events lost due to an overflow. If not set, the
+	 *            events are lost and only the registrations of new folders are updated.
+	 */
+	public void setOverflowRecovery(final OverflowRecovery overflowRecovery) {
+		this.overflowRecovery = overflowRecovery;
 	}
 
 	protected void onStarted() throws IOException {
 		watcher = FileSystems.getDefault().newWatchService();
 
 		logger.info("Scanning folder: {} ...", getFolderToWatch());
-		watchKeyToPath.clear();
+		clearRegistrations();
 		registerFoldersRecursive(getFolderToWatch());
-		logger.info("Scanning done.");
+		logger.info("Scanning done, watching {} and polling {} folders.",
+				getWatchedFolderCount(), poller.size());
 
 		fileEventProcessor = new Thread(new FolderWatchEventProcessor());
 		fileEventProcessor.setName("WatchServiceFileEventProcessor");
 		fileEventProcessor.start();
 
+		poller.start();
+		rebalancer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("WatchBudgetRebalancer").setDaemon(true).build());
+		rebalancer.scheduleWithFixedDelay(this::rebalance, rebalanceIntervalMs, rebalanceIntervalMs,
+				TimeUnit.MILLISECONDS);
+
 		logger.info("Watch Service started.");
 	}
 
@@ -65,13 +148,13 @@ public class FolderWatchService extends AbstractWatchService {
 			fileEventProcessor.interrupt();
 			fileEventProcessor = null;
 		}
+		if (rebalancer != null) {
+			rebalancer.shutdownNow();
+			rebalancer = null;
+		}
 
 		// cancel all watch keys and clear key map
-		watchKeyToPath.entrySet().forEach(entry -> {
-			entry.getKey().cancel();
-			logger.trace("Canceled watchkey: '{}'", entry.getValue());
-		});
-		watchKeyToPath.clear();
+		clearRegistrations();
 
 		// Java watch service
 		if (watcher != null) {
@@ -79,62 +162,336 @@ public class FolderWatchService extends AbstractWatchService {
 			watcher = null;
 		}
 
-		// cleanup task / timer
-		if (timer != null) {
-			timer.cancel();
-			timer = null;
-		}
-
 		logger.info("Watch Service stopped.");
 	}
 
+	private synchronized void clearRegistrations() {
+		watchKeyToPath.entrySet().forEach(entry -> {
+			entry.getKey().cancel();
+			logger.trace("Canceled watchkey: '{}'", entry.getValue());
+		});
+		watchKeyToPath.clear();
+		registeredSubfolders.clear();
+		keyResetTimes.clear();
+		ignoredFolders.clear();
+		poller.stop();
+		watchBudget = new WatchBudget(maxWatches);
+	}
+
+	/**
+	 * Watches the folder if the budget allows it, polls it otherwise.
+	 */
 	private synchronized void registerFolder(final Path folder) throws IOException {
-		// FIXME: containsValue has bad performance in case of many folders.
-		// maybe bidirectional (e.g. BiMap from Guava) map would be an option.
-		if (!watchKeyToPath.containsValue(folder)) {
+		WatchKey existing = watchKeyToPath.inverse().get(folder);
+		if ((existing != null && existing.isValid()) || poller.contains(folder)) {
+			return;
+		}
+		if (watchBudget.add(folder) && watchFolder(folder)) {
 			logger.info("Register folder: {}", folder);
-			WatchKey key = folder.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY, OVERFLOW);
-			watchKeyToPath.put(key, folder);
+		} else {
+			logger.debug("Poll folder: {}", folder);
+			poller.addFolder(folder);
+		}
+		if (folder.getParent() != null) {
+			registeredSubfolders.put(folder.getParent(), folder);
 		}
 	}
 
+	/**
+	 * Registers a watch key for the folder.
+	 *
+	 * @return true if the folder is watched, false if the limit of the operating system is
+	 *         reached.
+	 * @throws NoSuchFileException if the folder does not exist (anymore).
+	 */
+	private synchronized boolean watchFolder(final Path folder) throws NoSuchFileException {
+		WatchKey key;
+		try {
+			key = registerKey(folder);
+		} catch (NoSuchFileException e) {
+			watchBudget.remove(folder);
+			throw e;
+		} catch (IOException e) {
+			logger.warn("Could not watch folder {}, poll it instead ({}).", folder, e.getMessage());
+			watchBudget.onWatchFailed(folder);
+			return false;
+		}
+		addKey(folder, key);
+		return true;
+	}
+
+	/**
+	 * Registers a folder with the watch service. Does not require the lock.
+	 *
+	 * @throws NoSuchFileException if the folder does not exist (anymore).
+	 */
+	private WatchKey registerKey(final Path folder) throws IOException {
+		try {
+			return folder.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY, OVERFLOW);
+		} catch (NoSuchFileException | NotDirectoryException e) {
+			throw new NoSuchFileException(folder.toString());
+		}
+	}
+
+	private synchronized void addKey(final Path folder, final WatchKey key) {
+		// the key of a renamed folder may still be registered with its previous path
+		Path previous = watchKeyToPath.get(key);
+		if (previous != null && !previous.equals(folder)) {
+			removeRegistration(previous);
+		}
+		watchKeyToPath.forcePut(key, folder);
+		keyResetTimes.put(key, System.currentTimeMillis());
+	}
+
 	private synchronized void registerFoldersRecursive(final Path folder) throws IOException {
 		// register recursively all folders and subfolders
 		Files.walkFileTree(folder, new RegisterFolderVisitor());
 	}
 
-	private synchronized void unregisterFolder(WatchKey folderKey) {
-		folderKey.cancel();
-		Path folder = watchKeyToPath.remove(folderKey);
-		logger.info("Unregister folder: {}", folder);
+	private synchronized Path getRegisteredFolder(final WatchKey key) {
+		return watchKeyToPath.get(key);
+	}
+
+	private synchronized boolean hasRegistrations() {
+		return !watchKeyToPath.isEmpty() || poller.size() > 0;
+	}
+
+	private synchronized int getWatchedFolderCount() {
+		return watchKeyToPath.size();
+	}
+
+	private synchronized void recordEvents(final Path folder, int count) {
+		watchBudget.recordEvents(folder, count);
+	}
+
+	/**
+	 * Moves watch keys from idle folders to polled folders with changes. The moves are planned
+	 * under the lock, but the folders are scanned and registered without it, such that events
+	 * are not blocked in the meantime. Folders that were unregistered (or registered again)
+	 * while the plan was carried out are skipped.
+	 */
+	private void rebalance() {
+		WatchBudget.Rebalance rebalance;
+		synchronized (this) {
+			rebalance = watchBudget.rebalance();
+		}
+		int demoted = 0;
+		for (Path folder : rebalance.getDemoted()) {
+			// snapshot first: changes until the key is canceled are found by the poller
+			poller.addFolder(folder);
+			if (cancelDemotedKey(folder)) {
+				++demoted;
+			}
+		}
+		int promoted = 0;
+		for (Path folder : rebalance.getPromoted()) {
+			if (watchPromotedFolder(folder)) {
+				++promoted;
+			}
+		}
+		if (demoted > 0 || promoted > 0) {
+			logger.info("Rebalanced watches: {} promoted, {} demoted. Watching {} and polling {} folders.",
+					promoted, demoted, getWatchedFolderCount(), poller.size());
+		}
+	}
+
+	/**
+	 * Cancels the key of a folder that is polled from now on.
+	 *
+	 * @return true if the key was canceled, false if the folder is not polled anymore.
+	 */
+	private synchronized boolean cancelDemotedKey(final Path folder) {
+		if (!watchBudget.contains(folder) || watchBudget.isWatched(folder)) {
+			// unregistered or watched again in the meantime
+			poller.removeFolder(folder);
+			return false;
+		}
+		WatchKey key = watchKeyToPath.inverse().remove(folder);
+		if (key != null) {
+			keyResetTimes.remove(key);
+			key.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * Watches a folder that was polled so far.
+	 *
+	 * @return true if the folder is watched from now on.
+	 */
+	private boolean watchPromotedFolder(final Path folder) {
+		WatchKey key;
+		try {
+			key = registerKey(folder);
+		} catch (NoSuchFileException e) {
+			// deleted: reported by the parent folder
+			logger.debug("Could not watch deleted folder {}.", folder);
+			synchronized (this) {
+				watchBudget.remove(folder);
+			}
+			return false;
+		} catch (IOException | ClosedWatchServiceException e) {
+			logger.warn("Could not watch folder {}, poll it instead ({}).", folder, e.getMessage());
+			synchronized (this) {
+				watchBudget.onWatchFailed(folder);
+			}
+			return false;
+		}
+
+		synchronized (this) {
+			if (!watchBudget.isWatched(folder)) {
+				// unregistered or demoted again in the meantime
+				key.cancel();
+				return false;
+			}
+			addKey(folder, key);
+		}
+		// changes since the last scan are still reported by the poller
+		poller.removeFolderAfterNextScan(folder);
+		return true;
 	}
 
-	private synchronized void cleanupFolderRegistrations() {
-		// find watch keys of deleted folders
-		Set<WatchKey> keySet = new HashSet<>(watchKeyToPath.keySet());
-		Set<WatchKey> keysToCancel = new HashSet<>();
-		for (WatchKey key : keySet) {
-			Path folder = watchKeyToPath.get(key);
-			if (folder != null && !Files.exists(folder, NOFOLLOW_LINKS)) {
-				keysToCancel.add(key);
+	private synchronized void setKeyResetTime(final WatchKey key, long time) {
+		if (watchKeyToPath.containsKey(key)) {
+			keyResetTimes.put(key, time);
+		}
+	}
+
+	private synchronized long getKeyResetTime(final WatchKey key) {
+		Long time = keyResetTimes.get(key);
+		return time != null ? time : 0L;
+	}
+
+	/**
+	 * Cancels the watch keys of a folder and of all its registered subfolders.
+	 */
+	private synchronized void unregisterFolderRecursive(final Path folder) {
+		Deque<Path> toUnregister = new ArrayDeque<Path>();
+		toUnregister.push(folder);
+		while (!toUnregister.isEmpty()) {
+			Path next = toUnregister.pop();
+			toUnregister.addAll(registeredSubfolders.removeAll(next));
+			WatchKey key = watchKeyToPath.inverse().remove(next);
+			if (key != null) {
+				keyResetTimes.remove(key);
+				key.cancel();
+				logger.info("Unregister folder: {}", next);
 			}
+			poller.removeFolder(next);
+			watchBudget.remove(next);
+		}
+		if (folder.getParent() != null) {
+			registeredSubfolders.remove(folder.getParent(), folder);
 		}
+		if (!ignoredFolders.isEmpty()) {
+			ignoredFolders.removeIf(ignored -> ignored.startsWith(folder));
+		}
+	}
 
-		// unregister folders (cancel watch key)
-		for (WatchKey key : keysToCancel) {
-			unregisterFolder(key);
+	/**
+	 * @return true if the path is a folder that is registered or was skipped as ignored. Used
+	 *         for deleted paths, whose type cannot be read from disk anymore.
+	 */
+	private synchronized boolean isKnownFolder(final Path path) {
+		return watchKeyToPath.inverse().containsKey(path) || poller.contains(path)
+				|| ignoredFolders.contains(path);
+	}
+
+	/**
+	 * Unregisters the folder of a key that is not valid anymore, unless the folder was
+	 * registered again with a new key in the meantime.
+	 */
+	private synchronized void unregisterInvalidKey(final WatchKey key) {
+		Path folder = watchKeyToPath.get(key);
+		if (folder != null) {
+			unregisterFolderRecursive(folder);
+		}
+	}
+
+	/**
+	 * Removes the path of a folder from the indices without canceling its watch key.
+	 */
+	private void removeRegistration(final Path folder) {
+		watchKeyToPath.inverse().remove(folder);
+		watchBudget.remove(folder);
+		if (folder.getParent() != null) {
+			registeredSubfolders.remove(folder.getParent(), folder);
 		}
 	}
 
-	private synchronized void scheduleCleanupTask() {
-		// cancel previous task if existing
-		if (timer != null) {
-			timer.cancel();
-			timer = null;
+	/**
+	 * Brings the registrations of a folder and its subfolders in line with the file system,
+	 * e.g. after events were lost. Registrations outside of the folder are not touched.
+	 */
+	private synchronized void reconcileFolder(final Path folder) {
+		List<Path> deleted = new ArrayList<Path>();
+		Deque<Path> toVisit = new ArrayDeque<Path>();
+		toVisit.push(folder);
+		while (!toVisit.isEmpty()) {
+			Path next = toVisit.pop();
+			if (!Files.isDirectory(next, NOFOLLOW_LINKS)) {
+				deleted.add(next);
+			} else {
+				toVisit.addAll(registeredSubfolders.get(next));
+			}
+		}
+		for (Path path : deleted) {
+			unregisterFolderRecursive(path);
+		}
+
+		if (Files.isDirectory(folder, NOFOLLOW_LINKS)) {
+			try {
+				registerFoldersRecursive(folder);
+			} catch (IOException e) {
+				logger.warn("Could not register folders of {} ({})", folder, e.getMessage(), e);
+			}
 		}
+	}
+
+	/**
+	 * @return the folders that are currently registered.
+	 */
+	synchronized Set<Path> getRegisteredFolders() {
+		Set<Path> folders = new HashSet<Path>(watchKeyToPath.values());
+		folders.addAll(poller.getFolders());
+		return folders;
+	}
 
-		timer = new Timer(getClass().getName());
-		timer.schedule(new CleanupFolderRegistrationsTask(), CLEANUP_TASK_DELAY);
+	/**
+	 * @return the folders that are currently polled instead of watched.
+	 */
+	synchronized Set<Path> getPolledFolders() {
+		return poller.getFolders();
+	}
+
+	/**
+	 * Precondition: Event and child must not be null.
+	 * @param kind type of the event (create, modify, ...)
+	 * @param source Identifies the related file.
+	 * @param isFolder whether the source is a folder (was one, if deleted)
+	 */
+	private void handleEvent(Kind<Path> kind, Path source, boolean isFolder) {
+		try {
+			if(getIgnoreRules().isIgnored(source, isFolder)){
+				return;
+			}
+			if (kind.equals(ENTRY_CREATE)) {
+				addNotifyEvent(new NotifyFileCreated(source));
+			} else if (kind.equals(ENTRY_MODIFY)) {
+				addNotifyEvent(new NotifyFileModified(source));
+			} else if (kind.equals(ENTRY_DELETE)) {
+				addNotifyEvent(new NotifyFileDeleted(source));
+			} else if (kind.equals(OVERFLOW)) {
+				// error - overflow... should not happen here (continue if such an event occurs).
+				// handled already
+				logger.warn("Overflow event from watch service. Too many events?");
+			} else {
+				logger.warn("Unknown event received");
+			}
+		} catch (InterruptedException iex) {
+			// put into queue failed
+			logger.info("Handling event interrupted.", iex);
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -160,18 +517,21 @@ public class FolderWatchService extends AbstractWatchService {
 					return;
 				}
 
-				Path dir = watchKeyToPath.get(key);
+				Path dir = getRegisteredFolder(key);
 				if (dir == null) {
-					logger.error("WatchKey not recognized!!");
+					// e.g. canceled because the folder is polled now
+					logger.debug("WatchKey not recognized.");
 					continue;
 				}
 
-				for (WatchEvent<?> event : key.pollEvents()) {
+				List<WatchEvent<?>> events = key.pollEvents();
+				recordEvents(dir, events.size());
+				for (WatchEvent<?> event : events) {
 
-					// FIXME: how to handle this event?
 					// means Watcher lost some events due to too many events
 					if (event.kind() == OVERFLOW) {
-						logger.warn("OVERFLOW of WatchService - some eventy may be lost.");
+						logger.warn("OVERFLOW of WatchService - recover events of {}.", dir);
+						recoverLostEvents(key, dir);
 						continue;
 					}
 
@@ -183,13 +543,19 @@ public class FolderWatchService extends AbstractWatchService {
 					Path name = ev.context();
 					Path child = dir.resolve(name);
 
+					boolean isFolder;
+					if (kind == ENTRY_DELETE) {
+						// a deleted folder cannot be accessed anymore, neither its subfolders
+						isFolder = isKnownFolder(child);
+						unregisterFolderRecursive(child);
+					} else {
+						isFolder = Files.isDirectory(child, NOFOLLOW_LINKS);
+					}
 					// if directory is created, and watching recursively, then
 					// register it and its sub-directories
-					if (kind == ENTRY_CREATE) {
+					if (kind == ENTRY_CREATE && isFolder) {
 						try {
-							if (Files.isDirectory(child, NOFOLLOW_LINKS)) {
-								registerFoldersRecursive(child);
-							}
+							registerFoldersRecursive(child);
 						} catch (IOException ioex) {
 							// registration of new folder failed.
 							logger.warn("Could not register new folder: {}", child, ioex);
@@ -198,25 +564,24 @@ public class FolderWatchService extends AbstractWatchService {
 
 					// print out event
 //					logger.debug("{}: {}", event.kind().name(), child);
-					handleEvent(kind, child);
+					handleEvent(kind, child, isFolder);
 
 				}
 
 				// reset key and remove from set if directory no longer accessible
+				long resetTime = System.currentTimeMillis();
 				boolean valid = key.reset();
-				if (!valid) {
-					unregisterFolder(key);
+				if (valid) {
+					setKeyResetTime(key, resetTime);
+				} else {
+					unregisterInvalidKey(key);
 					// all directories are inaccessible
-					if (watchKeyToPath.isEmpty()) {
+					if (!hasRegistrations()) {
 						logger.info("No more paths to watch, exit event processing loop.");
 						break;
 					}
 				}
 
-				// schedule a cleanup task that iterates over all directories and updates watch keys (adds or
-				// removes them)
-				scheduleCleanupTask();
-
 				// watch service was stopped in the meantime
 				if(!isRunning.get()) {
 					return;
@@ -225,52 +590,85 @@ public class FolderWatchService extends AbstractWatchService {
 		}
 
 		/**
-		 * Precondition: Event and child must not be null.
-		 * @param kind type of the event (create, modify, ...)
-		 * @param source Identifies the related file.
+		 * Reconciles the registrations of the folder and adds the events that were lost since
+		 * the key was reset the last time.
 		 */
-		private void handleEvent(Kind<Path> kind, Path source) {
+		private void recoverLostEvents(final WatchKey key, final Path dir) {
+			long since = getKeyResetTime(key) - RECOVERY_TIME_SLACK;
+			reconcileFolder(dir);
+
+			OverflowRecovery recovery = overflowRecovery;
+			if (recovery == null) {
+				logger.warn("Events of {} may be lost.", dir);
+				return;
+			}
 			try {
-				if(PathUtils.isFileHidden(source)){
-					return;
-				}
-				if (kind.equals(ENTRY_CREATE)) {
-					addNotifyEvent(new NotifyFileCreated(source));
-				} else if (kind.equals(ENTRY_MODIFY)) {
-					addNotifyEvent(new NotifyFileModified(source));
-				} else if (kind.equals(ENTRY_DELETE)) {
-					addNotifyEvent(new NotifyFileDeleted(source));
-				} else if (kind.equals(OVERFLOW)) {
-					// error - overflow... should not happen here (continue if such an event occurs).
-					// handled already
-					logger.warn("Overflow event from watch service. Too many events?");
-				} else {
-					logger.warn("Unknown event received");
+				List<EventCoalescer.Event> events = recovery.recover(dir, since);
+				logger.info("Recovered {} events of {}.", events.size(), dir);
+				for (EventCoalescer.Event event : events) {
+					// recovered deletes are paths of the file tree, which has no ignored paths
+					Kind<Path> kind = toWatchEventKind(event.getKind());
+					boolean isFolder = kind != ENTRY_DELETE
+							&& Files.isDirectory(event.getPath(), NOFOLLOW_LINKS);
+					handleEvent(kind, event.getPath(), isFolder);
 				}
-			} catch (InterruptedException iex) {
-				// put into queue failed
-				logger.info("Handling event interrupted.", iex);
+			} catch (IOException e) {
+				logger.warn("Could not recover events of {} ({})", dir, e.getMessage(), e);
 			}
 		}
-	}
 
+		private Kind<Path> toWatchEventKind(final EventCoalescer.Kind kind) {
+			switch (kind) {
+				case CREATE:
+					return ENTRY_CREATE;
+				case MODIFY:
+					return ENTRY_MODIFY;
+				default:
+					return ENTRY_DELETE;
+			}
+		}
+	}
 
-	private class CleanupFolderRegistrationsTask extends TimerTask {
+	/**
+	 * Handles the changes of polled folders like the events of a watch key.
+	 */
+	private class PollerListener implements FolderPoller.Listener {
 		@Override
-		public void run() {
-			try {
-				logger.info("Running cleanup for registered folders.");
-				registerFoldersRecursive(getFolderToWatch());
-				cleanupFolderRegistrations();
-			} catch (IOException e) {
-				logger.warn("Could not register folders ({})", e.getMessage(), e);
+		public void onCreated(Path path, boolean isFolder) {
+			if (isFolder) {
+				try {
+					registerFoldersRecursive(path);
+				} catch (IOException ioex) {
+					logger.warn("Could not register new folder: {}", path, ioex);
+				}
 			}
+			recordEvents(path.getParent(), 1);
+			handleEvent(ENTRY_CREATE, path, isFolder);
+		}
+
+		@Override
+		public void onModified(Path path) {
+			recordEvents(path.getParent(), 1);
+			// only files are reported as modified
+			handleEvent(ENTRY_MODIFY, path, false);
+		}
+
+		@Override
+		public void onDeleted(Path path, boolean isFolder) {
+			unregisterFolderRecursive(path);
+			recordEvents(path.getParent(), 1);
+			handleEvent(ENTRY_DELETE, path, isFolder);
 		}
 	}
 
 	private class RegisterFolderVisitor extends SimpleFileVisitor<Path> {
 		@Override
 		public FileVisitResult preVisitDirectory(Path folder, BasicFileAttributes attrs) {
+			if (!folder.equals(getFolderToWatch()) && getIgnoreRules().isIgnored(folder, true)) {
+				// ignored folders are neither watched nor polled, the lock is held by the walk
+				ignoredFolders.add(folder);
+				return FileVisitResult.SKIP_SUBTREE;
+			}
 			try {
 				registerFolder(folder);
 			} catch (IOException ioex) {
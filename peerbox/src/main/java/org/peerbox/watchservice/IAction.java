@@ -48,6 +48,7 @@ public interface IAction {
 
 	void onSucceeded();
 	void onFailed();
+	void onCancelled();
 	void setCurrentState(AbstractActionState state);
 
 	@Override
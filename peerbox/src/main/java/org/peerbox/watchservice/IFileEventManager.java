@@ -18,6 +18,8 @@ public interface IFileEventManager {
 	public void onLocalFileHardDelete(Path toDelete);
 
 	public MessageBus getMessageBus();
+	public ExpectedEventRegistry getExpectedEvents();
+	public ContentHashCache getContentHashCache();
 	public Set<Path> getFailedOperations();
 	public void initiateForceSync(Path topLevel);
 }
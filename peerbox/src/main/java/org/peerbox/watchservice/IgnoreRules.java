@@ -0,0 +1,463 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides which files and folders are not synchronized, based on the rules of the
+ * {@value #FILE_NAME} file in the root folder. The syntax follows .gitignore:
+ * <ul>
+ * <li>empty lines and lines starting with # are skipped.</li>
+ * <li>a pattern without slash (e.g. <code>*.tmp</code>) matches the name of a file or folder
+ * at any depth.</li>
+ * <li>a pattern with a slash (e.g. <code>/build</code> or <code>docs/*.pdf</code>) is anchored
+ * at the root folder. <code>**</code> matches any number of folders.</li>
+ * <li>a trailing slash (e.g. <code>node_modules/</code>) matches folders only.</li>
+ * <li>a leading ! includes a path again that was excluded by a previous rule.</li>
+ * <li>a pattern starting with <code>re:</code> is a regular expression over the path relative
+ * to the root folder (separated by /).</li>
+ * </ul>
+ * For paths outside of the root folder, only the rules without slash are applied to the name.
+ * The last matching rule wins. The default rules ({@link #DEFAULT_RULES}) come first and can
+ * be overridden. If a folder is ignored, its content is ignored as well and is never walked,
+ * watched or hashed.
+ *
+ * The rules are compiled once: literal names are looked up in a hash map, prefix and suffix
+ * patterns in character tries and anchored patterns in a trie of path segments. Only the
+ * remaining patterns are matched one by one. Instances are immutable and thread-safe.
+ */
+public final class IgnoreRules {
+
+	private static final Logger logger = LoggerFactory.getLogger(IgnoreRules.class);
+
+	/** Name of the file with the rules in the root folder **/
+	public static final String FILE_NAME = ".peerwaspignore";
+
+	/** Hidden and temporary files (e.g. .DS_Store, ~$document.docx) **/
+	public static final List<String> DEFAULT_RULES = Arrays.asList("$*", ".*", "~*");
+
+	/** Default rules without root folder: anchored rules never match **/
+	public static final IgnoreRules DEFAULT = new IgnoreRules(null, DEFAULT_RULES);
+
+	private static final String REGEX_PREFIX = "re:";
+	private static final int NO_RULE = -1;
+
+	private final Path rootPath;
+	/** negation flag of each rule, indexed by the position of the rule **/
+	private final List<Boolean> negated = new ArrayList<Boolean>();
+
+	/** unanchored rules, matched against a single name **/
+	private final Map<String, Match> literalNames = new HashMap<String, Match>();
+	private final CharTrie namePrefixes = new CharTrie();
+	private final CharTrie nameSuffixes = new CharTrie();
+	private final List<PatternRule> namePatterns = new ArrayList<PatternRule>();
+
+	/** anchored rules, matched against the path relative to the root **/
+	private final SegmentNode anchored = new SegmentNode();
+	private boolean hasAnchoredRules;
+	private final List<PatternRule> pathPatterns = new ArrayList<PatternRule>();
+
+	/**
+	 * @param rootPath root folder the anchored rules refer to, null if there is none.
+	 * @param rules lines of the rules file
+	 */
+	public IgnoreRules(final Path rootPath, final List<String> rules) {
+		this.rootPath = rootPath;
+		for (String rule : rules) {
+			try {
+				compile(rule);
+			} catch (PatternSyntaxException e) {
+				logger.warn("Skipping invalid ignore rule: {} ({})", rule, e.getDescription());
+			}
+		}
+	}
+
+	/**
+	 * Reads the rules of the {@value #FILE_NAME} file in the root folder. The default rules
+	 * apply if there is no such file.
+	 */
+	public static IgnoreRules load(final Path rootPath) {
+		List<String> rules = new ArrayList<String>(DEFAULT_RULES);
+		Path file = rootPath.resolve(FILE_NAME);
+		try {
+			rules.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+			logger.info("Loaded ignore rules from {}.", file);
+		} catch (NoSuchFileException e) {
+			logger.debug("No ignore rules in {}.", rootPath);
+		} catch (IOException e) {
+			logger.warn("Could not read ignore rules: {} ({})", file, e.getMessage());
+		}
+		return new IgnoreRules(rootPath, rules);
+	}
+
+	/**
+	 * Checks whether a path is ignored, e.g. for a watch event. Reads the file attributes
+	 * only if a rule for folders decides it.
+	 */
+	public boolean isIgnored(final Path path) {
+		List<String> segments = getSegments(path);
+		if (segments.isEmpty()) {
+			return false;
+		}
+		if (isAncestorIgnored(segments)) {
+			return true;
+		}
+		boolean isInRoot = isInRoot(path);
+		int asFile = findRule(segments, isInRoot, false);
+		int asFolder = findRule(segments, isInRoot, true);
+		if (asFile == asFolder) {
+			return isExcluding(asFile);
+		}
+		return isExcluding(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) ? asFolder : asFile);
+	}
+
+	/**
+	 * Checks whether a path is ignored, including its parent folders.
+	 *
+	 * @param isFolder whether the path is a folder
+	 */
+	public boolean isIgnored(final Path path, boolean isFolder) {
+		List<String> segments = getSegments(path);
+		if (segments.isEmpty()) {
+			return false;
+		}
+		return isAncestorIgnored(segments)
+				|| isExcluding(findRule(segments, isInRoot(path), isFolder));
+	}
+
+	private boolean isInRoot(final Path path) {
+		return rootPath != null && path.startsWith(rootPath);
+	}
+
+	/**
+	 * @return the relative path segments if the path is in the root folder, the name only
+	 *         otherwise (i.e. anchored rules do not apply).
+	 */
+	private List<String> getSegments(final Path path) {
+		List<String> segments = new ArrayList<String>();
+		if (isInRoot(path)) {
+			for (Path segment : rootPath.relativize(path)) {
+				String name = segment.toString();
+				if (!name.isEmpty()) {
+					segments.add(name);
+				}
+			}
+		} else if (path.getFileName() != null) {
+			segments.add(path.getFileName().toString());
+		}
+		return segments;
+	}
+
+	/**
+	 * Precondition: more than one segment only if the path is in the root folder.
+	 */
+	private boolean isAncestorIgnored(final List<String> segments) {
+		for (int depth = 1; depth < segments.size(); ++depth) {
+			if (isExcluding(findRule(segments.subList(0, depth), true, true))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isExcluding(int rule) {
+		return rule != NO_RULE && !negated.get(rule);
+	}
+
+	/**
+	 * @param isInRoot whether the segments are relative to the root, i.e. anchored rules apply.
+	 * @return index of the last rule that matches the last segment, NO_RULE if none does.
+	 */
+	private int findRule(final List<String> segments, boolean isInRoot, boolean isFolder) {
+		String name = segments.get(segments.size() - 1);
+		int rule = NO_RULE;
+
+		Match literal = literalNames.get(name);
+		if (literal != null) {
+			rule = literal.get(isFolder);
+		}
+		rule = Math.max(rule, namePrefixes.findPrefix(name, isFolder));
+		rule = Math.max(rule, nameSuffixes.findSuffix(name, isFolder));
+		for (PatternRule pattern : namePatterns) {
+			if (pattern.index > rule && pattern.matches(name, isFolder)) {
+				rule = pattern.index;
+			}
+		}
+
+		if (!isInRoot) {
+			return rule;
+		}
+		if (hasAnchoredRules) {
+			rule = Math.max(rule, anchored.find(segments, 0, isFolder));
+		}
+		if (!pathPatterns.isEmpty()) {
+			String relative = String.join("/", segments);
+			for (PatternRule pattern : pathPatterns) {
+				if (pattern.index > rule && pattern.matches(relative, isFolder)) {
+					rule = pattern.index;
+				}
+			}
+		}
+		return rule;
+	}
+
+	private void compile(final String line) {
+		String rule = line.trim();
+		if (rule.isEmpty() || rule.startsWith("#")) {
+			return;
+		}
+		boolean isNegated = rule.startsWith("!");
+		if (isNegated) {
+			rule = rule.substring(1);
+		}
+
+		if (rule.startsWith(REGEX_PREFIX)) {
+			Pattern regex = Pattern.compile(rule.substring(REGEX_PREFIX.length()));
+			pathPatterns.add(new PatternRule(addRule(isNegated), false, regex));
+			return;
+		}
+
+		boolean foldersOnly = rule.endsWith("/");
+		if (foldersOnly) {
+			rule = rule.substring(0, rule.length() - 1);
+		}
+		if (rule.startsWith("**/") && rule.indexOf('/', 3) < 0) {
+			// same as a pattern without slash
+			rule = rule.substring(3);
+		}
+		if (rule.isEmpty()) {
+			return;
+		}
+
+		if (rule.contains("/")) {
+			if (rule.startsWith("/")) {
+				rule = rule.substring(1);
+			}
+			SegmentNode node = anchored;
+			for (String segment : rule.split("/+")) {
+				node = node.child(segment);
+			}
+			node.match.add(addRule(isNegated), foldersOnly);
+			hasAnchoredRules = true;
+		} else if (!isGlob(rule)) {
+			literalNames.computeIfAbsent(unescape(rule), k -> new Match())
+					.add(addRule(isNegated), foldersOnly);
+		} else if (rule.lastIndexOf('*') == rule.length() - 1 && !isGlob(rule.substring(0, rule.length() - 1))) {
+			namePrefixes.add(unescape(rule.substring(0, rule.length() - 1)), false)
+					.add(addRule(isNegated), foldersOnly);
+		} else if (rule.indexOf('*') == 0 && !isGlob(rule.substring(1))) {
+			nameSuffixes.add(unescape(rule.substring(1)), true)
+					.add(addRule(isNegated), foldersOnly);
+		} else {
+			namePatterns.add(new PatternRule(addRule(isNegated), foldersOnly, globToRegex(rule)));
+		}
+	}
+
+	private int addRule(boolean isNegated) {
+		negated.add(isNegated);
+		return negated.size() - 1;
+	}
+
+	private static boolean isGlob(final String pattern) {
+		for (int i = 0; i < pattern.length(); ++i) {
+			char c = pattern.charAt(i);
+			if (c == '\\') {
+				++i;
+			} else if (c == '*' || c == '?' || c == '[') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String unescape(final String literal) {
+		return literal.replaceAll("\\\\(.)", "$1");
+	}
+
+	/**
+	 * Translates a glob of a single name: * and ? do not match a slash.
+	 */
+	private static Pattern globToRegex(final String glob) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < glob.length(); ++i) {
+			char c = glob.charAt(i);
+			if (c == '*') {
+				regex.append("[^/]*");
+			} else if (c == '?') {
+				regex.append("[^/]");
+			} else if (c == '[') {
+				int end = glob.indexOf(']', i + 2);
+				if (end < 0) {
+					regex.append("\\[");
+				} else {
+					String set = glob.substring(i + 1, end);
+					if (set.startsWith("!")) {
+						set = "^" + set.substring(1);
+					}
+					regex.append('[').append(set.replace("\\", "\\\\")).append(']');
+					i = end;
+				}
+			} else if (c == '\\' && i + 1 < glob.length()) {
+				regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+	/**
+	 * Last rule for files and last rule for folders that end at a trie node.
+	 */
+	private static final class Match {
+		private int fileRule = NO_RULE;
+		private int folderRule = NO_RULE;
+
+		void add(int rule, boolean foldersOnly) {
+			folderRule = Math.max(folderRule, rule);
+			if (!foldersOnly) {
+				fileRule = Math.max(fileRule, rule);
+			}
+		}
+
+		int get(boolean isFolder) {
+			return isFolder ? folderRule : fileRule;
+		}
+	}
+
+	/**
+	 * Trie of characters for prefix (e.g. <code>~*</code>) or suffix (e.g. <code>*.tmp</code>)
+	 * patterns. Suffixes are stored reversed.
+	 */
+	private static final class CharTrie {
+		private final Map<Character, CharTrie> children = new HashMap<Character, CharTrie>();
+		private final Match match = new Match();
+		private boolean isEmpty = true;
+
+		Match add(final String key, boolean reversed) {
+			isEmpty = false;
+			CharTrie node = this;
+			for (int i = 0; i < key.length(); ++i) {
+				char c = key.charAt(reversed ? key.length() - 1 - i : i);
+				node = node.children.computeIfAbsent(c, k -> new CharTrie());
+			}
+			return node.match;
+		}
+
+		int findPrefix(final String name, boolean isFolder) {
+			return find(name, false, isFolder);
+		}
+
+		int findSuffix(final String name, boolean isFolder) {
+			return find(name, true, isFolder);
+		}
+
+		private int find(final String name, boolean reversed, boolean isFolder) {
+			if (isEmpty) {
+				return NO_RULE;
+			}
+			int rule = match.get(isFolder);
+			CharTrie node = this;
+			for (int i = 0; i < name.length() && node != null; ++i) {
+				node = node.children.get(name.charAt(reversed ? name.length() - 1 - i : i));
+				if (node != null) {
+					rule = Math.max(rule, node.match.get(isFolder));
+				}
+			}
+			return rule;
+		}
+	}
+
+	/**
+	 * Trie of path segments for anchored patterns. Literal segments are looked up in a map,
+	 * globs are matched one by one and ** matches any number of segments.
+	 */
+	private static final class SegmentNode {
+		private final Map<String, SegmentNode> literals = new HashMap<String, SegmentNode>();
+		private final Map<String, SegmentNode> globs = new HashMap<String, SegmentNode>();
+		private SegmentNode anyDepth;
+		/** pattern of the segment if this is the node of a glob **/
+		private Pattern pattern;
+		private final Match match = new Match();
+
+		SegmentNode child(final String segment) {
+			if (segment.equals("**")) {
+				if (anyDepth == null) {
+					anyDepth = new SegmentNode();
+				}
+				return anyDepth;
+			} else if (!isGlob(segment)) {
+				return literals.computeIfAbsent(unescape(segment), k -> new SegmentNode());
+			}
+			SegmentNode node = globs.get(segment);
+			if (node == null) {
+				node = new SegmentNode();
+				node.pattern = globToRegex(segment);
+				globs.put(segment, node);
+			}
+			return node;
+		}
+
+		/**
+		 * @return last rule that matches the segments from the given position on.
+		 */
+		int find(final List<String> segments, int position, boolean isFolder) {
+			if (position == segments.size()) {
+				return match.get(isFolder);
+			}
+			String segment = segments.get(position);
+			int rule = NO_RULE;
+			SegmentNode literal = literals.get(segment);
+			if (literal != null) {
+				rule = literal.find(segments, position + 1, isFolder);
+			}
+			for (SegmentNode glob : globs.values()) {
+				if (glob.pattern.matcher(segment).matches()) {
+					rule = Math.max(rule, glob.find(segments, position + 1, isFolder));
+				}
+			}
+			if (anyDepth != null) {
+				// ** consumes zero or more segments, at the end of a pattern at least one
+				for (int next = position; next <= segments.size(); ++next) {
+					if (next < segments.size() || next > position) {
+						rule = Math.max(rule, anyDepth.find(segments, next, isFolder));
+					}
+				}
+			}
+			return rule;
+		}
+	}
+
+	/**
+	 * A rule that is matched with a regular expression.
+	 */
+	private static final class PatternRule {
+		private final int index;
+		private final boolean foldersOnly;
+		private final Pattern pattern;
+
+		PatternRule(int index, boolean foldersOnly, Pattern pattern) {
+			this.index = index;
+			this.foldersOnly = foldersOnly;
+			this.pattern = pattern;
+		}
+
+		boolean matches(final String input, boolean isFolder) {
+			return (isFolder || !foldersOnly) && pattern.matcher(input).matches();
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package org.peerbox.watchservice;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+
+/**
+ * Holds ready {@link org.peerbox.watchservice.filetree.composite.FileComponent FileComponent}s
+ * that wait for an execution slot, separated by {@link ExecutionLane}. Each lane has its own
+ * concurrency budget such that, for example, large uploads cannot occupy all execution slots.
+ * If several lanes have pending components, a weighted-fair arbiter (stride scheduling)
+ * decides which lane is served next: each lane advances its pass by 1/weight whenever it is
+ * selected, and the lane with the smallest pass wins.
+ *
+ * Within a lane, components are executed in the order they became ready. Components whose
+ * action changed (i.e. got a new timestamp) while they were pending are dropped, since they
+ * are either scheduled again in the {@link FileComponentQueue} or must not be executed anymore.
+ */
+public class LaneScheduler {
+
+	private final Map<ExecutionLane, Set<FileComponent>> pending;
+	/** Timestamp of the action of each pending component when it was added **/
+	private final Map<FileComponent, Long> timestamps;
+	private final Map<ExecutionLane, Integer> inFlight;
+	private final Map<ExecutionLane, Double> pass;
+
+	/** Pass of the most recently selected lane **/
+	private double virtualTime;
+
+	public LaneScheduler() {
+		pending = new EnumMap<ExecutionLane, Set<FileComponent>>(ExecutionLane.class);
+		inFlight = new EnumMap<ExecutionLane, Integer>(ExecutionLane.class);
+		pass = new EnumMap<ExecutionLane, Double>(ExecutionLane.class);
+		timestamps = new HashMap<FileComponent, Long>();
+		for (ExecutionLane lane : ExecutionLane.values()) {
+			pending.put(lane, new LinkedHashSet<FileComponent>());
+			inFlight.put(lane, 0);
+			pass.put(lane, 0.0);
+		}
+		virtualTime = 0.0;
+	}
+
+	/**
+	 * Adds a ready component to the given lane. If the component is already pending
+	 * (in any lane), it is moved to the end of the given lane.
+	 */
+	public synchronized void add(FileComponent component, ExecutionLane lane) {
+		remove(component);
+		Set<FileComponent> components = pending.get(lane);
+		if (components.isEmpty()) {
+			// idle lanes must not catch up on the time they did not use
+			pass.put(lane, Math.max(pass.get(lane), virtualTime));
+		}
+		components.add(component);
+		timestamps.put(component, component.getAction().getTimestamp());
+	}
+
+	public synchronized boolean remove(FileComponent component) {
+		timestamps.remove(component);
+		for (Set<FileComponent> components : pending.values()) {
+			if (components.remove(component)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Selects the lane that is served next, i.e. the lane with pending components, a free
+	 * slot in its budget and the smallest pass.
+	 *
+	 * @param limit overall limit of concurrent executions
+	 * @return the selected lane or null if no lane can be served.
+	 */
+	public ExecutionLane selectLane(int limit) {
+		return selectLane(limit, lane -> true);
+	}
+
+	/**
+	 * Selects the lane that is served next among the available lanes, see {@link #selectLane(int)}.
+	 *
+	 * @param limit overall limit of concurrent executions
+	 * @param available lanes that may be served (e.g. lanes that are not paused)
+	 * @return the selected lane or null if no lane can be served.
+	 */
+	public synchronized ExecutionLane selectLane(int limit, Predicate<ExecutionLane> available) {
+		ExecutionLane selected = null;
+		for (ExecutionLane lane : ExecutionLane.values()) {
+			if (pending.get(lane).isEmpty() || inFlight.get(lane) >= lane.getBudget(limit)
+					|| !available.test(lane)) {
+				continue;
+			}
+			if (selected == null || pass.get(lane) < pass.get(selected)) {
+				selected = lane;
+			}
+		}
+		if (selected != null) {
+			virtualTime = pass.get(selected);
+			pass.put(selected, virtualTime + 1.0 / selected.getWeight());
+		}
+		return selected;
+	}
+
+	/**
+	 * Removes and returns the next pending component of the lane. Outdated components are dropped.
+	 *
+	 * @return the component or null if the lane is empty.
+	 */
+	public synchronized FileComponent poll(ExecutionLane lane) {
+		Iterator<FileComponent> it = pending.get(lane).iterator();
+		while (it.hasNext()) {
+			FileComponent next = it.next();
+			it.remove();
+			Long timestamp = timestamps.remove(next);
+			if (timestamp != null && timestamp == next.getAction().getTimestamp()) {
+				return next;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Occupies a slot of the lane, must be released with {@link #release(ExecutionLane)}.
+	 */
+	public synchronized void acquire(ExecutionLane lane) {
+		inFlight.put(lane, inFlight.get(lane) + 1);
+	}
+
+	public synchronized void release(ExecutionLane lane) {
+		inFlight.put(lane, Math.max(0, inFlight.get(lane) - 1));
+	}
+
+	public synchronized int getInFlight(ExecutionLane lane) {
+		return inFlight.get(lane);
+	}
+
+	public synchronized int getNumberOfPending(ExecutionLane lane) {
+		return pending.get(lane).size();
+	}
+
+	public synchronized int getNumberOfPending() {
+		int size = 0;
+		for (Set<FileComponent> components : pending.values()) {
+			size += components.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Removes all pending components and resets the slots of all lanes.
+	 */
+	public synchronized void clear() {
+		for (ExecutionLane lane : ExecutionLane.values()) {
+			pending.get(lane).clear();
+			inFlight.put(lane, 0);
+		}
+		timestamps.clear();
+	}
+}
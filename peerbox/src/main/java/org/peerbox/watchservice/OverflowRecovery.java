@@ -0,0 +1,98 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.peerbox.watchservice.EventCoalescer.Event;
+import org.peerbox.watchservice.EventCoalescer.Kind;
+import org.peerbox.watchservice.filetree.IFileTree;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.filetree.composite.FolderComposite;
+
+/**
+ * Recovers the events of a folder that were lost because the watch service overflowed.
+ * Only the entries of the affected folder are read (attributes only, no content) and compared
+ * with the children of the folder in the {@link IFileTree}:
+ * <ul>
+ * <li>entries that are not in the file tree result in a create event. Created folders are
+ * discovered completely by the event manager.</li>
+ * <li>synchronized children that do not exist on disk anymore result in a delete event.</li>
+ * <li>files modified after the given time result in a modify event. The event manager
+ * discards the event if the content did not change.</li>
+ * </ul>
+ */
+public class OverflowRecovery {
+
+	private final IFileTree fileTree;
+
+	public OverflowRecovery(final IFileTree fileTree) {
+		this.fileTree = fileTree;
+	}
+
+	/**
+	 * @param folder whose events were lost
+	 * @param sinceMillis time since when events may be lost
+	 * @return the events that explain the differences between disk and file tree.
+	 * @throws IOException if the folder cannot be read.
+	 */
+	public List<Event> recover(final Path folder, final long sinceMillis) throws IOException {
+		List<Event> events = new ArrayList<Event>();
+		FileComponent component = fileTree.getFile(folder);
+		if (!(component instanceof FolderComposite)) {
+			// not known yet: the folder itself is recovered by its parent
+			return events;
+		}
+
+		Map<Path, BasicFileAttributes> entries = readEntries(folder);
+		Map<Path, FileComponent> children = ((FolderComposite) component).getChildren();
+
+		for (Map.Entry<Path, BasicFileAttributes> entry : entries.entrySet()) {
+			Path path = folder.resolve(entry.getKey());
+			BasicFileAttributes attrs = entry.getValue();
+			if (!attrs.isDirectory() && !attrs.isRegularFile()) {
+				// e.g. links are not synchronized
+				continue;
+			}
+			FileComponent child = children.get(entry.getKey());
+			if (child == null || child.isFolder() != attrs.isDirectory()) {
+				if (child != null) {
+					// replaced by a file of the other type
+					events.add(new Event(path, Kind.DELETE));
+				}
+				events.add(new Event(path, Kind.CREATE));
+			} else if (attrs.isRegularFile() && attrs.lastModifiedTime().toMillis() >= sinceMillis) {
+				events.add(new Event(path, Kind.MODIFY));
+			}
+		}
+
+		for (Map.Entry<Path, FileComponent> child : children.entrySet()) {
+			if (!entries.containsKey(child.getKey()) && child.getValue().isSynchronized()) {
+				events.add(new Event(folder.resolve(child.getKey()), Kind.DELETE));
+			}
+		}
+		return events;
+	}
+
+	private Map<Path, BasicFileAttributes> readEntries(final Path folder) throws IOException {
+		Map<Path, BasicFileAttributes> entries = new HashMap<Path, BasicFileAttributes>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			for (Path path : stream) {
+				try {
+					entries.put(path.getFileName(), Files.readAttributes(path,
+							BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+				} catch (IOException e) {
+					// deleted in the meantime
+				}
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,179 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Traverses a file tree in parallel. Directories are listed by a work-stealing
+ * {@link ForkJoinPool}, i.e. idle threads take over subtrees of busy threads. Files are
+ * visited (e.g. hashed) by a separate, bounded pool. If too many files are waiting, the
+ * thread that lists a directory visits the file itself, which slows down the traversal.
+ *
+ * Like {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)}, symbolic links are not
+ * followed and the traversal fails with the first {@link IOException}. In contrast, the
+ * visitor is called concurrently and in no specific order, except that a directory is
+ * visited before its content.
+ */
+public class ParallelFileScanner {
+
+	private static final Logger logger = LoggerFactory.getLogger(ParallelFileScanner.class);
+
+	/** Number of waiting file visits per thread before the listing threads help out **/
+	private static final int QUEUED_FILES_PER_THREAD = 64;
+
+	/**
+	 * Callback of the scanner. Must be thread-safe.
+	 */
+	public interface Visitor {
+		void visitDirectory(Path dir, BasicFileAttributes attrs) throws IOException;
+
+		void visitFile(Path file, BasicFileAttributes attrs) throws IOException;
+
+		/**
+		 * @return true if the entry is skipped, i.e. neither visited nor (if it is a
+		 *         directory) listed. The start of the scan is never excluded.
+		 */
+		default boolean isExcluded(Path path, BasicFileAttributes attrs) {
+			return false;
+		}
+	}
+
+	private final int parallelism;
+
+	/**
+	 * @param parallelism number of threads listing directories and number of threads
+	 *            visiting files.
+	 */
+	public ParallelFileScanner(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Traverses the file tree starting at the given path and returns as soon as all
+	 * directories and files are visited.
+	 *
+	 * @param start root of the tree
+	 * @param visitor is called for each directory and file (including the start)
+	 * @throws IOException the first exception thrown while listing or visiting
+	 */
+	public void scan(final Path start, final Visitor visitor) throws IOException {
+		BasicFileAttributes attrs = readAttributes(start);
+		if (!attrs.isDirectory()) {
+			visitor.visitFile(start, attrs);
+			return;
+		}
+
+		final AtomicReference<IOException> error = new AtomicReference<IOException>();
+		ForkJoinPool directoryPool = new ForkJoinPool(parallelism);
+		ThreadPoolExecutor filePool = new ThreadPoolExecutor(parallelism, parallelism,
+				0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(parallelism * QUEUED_FILES_PER_THREAD),
+				new ThreadFactoryBuilder().setNameFormat("FileScannerThread-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+
+		long startTime = System.currentTimeMillis();
+		try {
+			directoryPool.invoke(new DirectoryTask(start, attrs, visitor, filePool, error));
+			filePool.shutdown();
+			filePool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Scan of " + start + " interrupted.");
+		} finally {
+			directoryPool.shutdownNow();
+			filePool.shutdownNow();
+		}
+
+		if (error.get() != null) {
+			throw error.get();
+		}
+		logger.debug("Scanned {} in {} ms (parallelism: {}).", start,
+				System.currentTimeMillis() - startTime, parallelism);
+	}
+
+	private static BasicFileAttributes readAttributes(Path path) throws IOException {
+		return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+	}
+
+	private static class DirectoryTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path dir;
+		private final BasicFileAttributes attrs;
+		private final Visitor visitor;
+		private final ThreadPoolExecutor filePool;
+		private final AtomicReference<IOException> error;
+
+		DirectoryTask(Path dir, BasicFileAttributes attrs, Visitor visitor,
+				ThreadPoolExecutor filePool, AtomicReference<IOException> error) {
+			this.dir = dir;
+			this.attrs = attrs;
+			this.visitor = visitor;
+			this.filePool = filePool;
+			this.error = error;
+		}
+
+		@Override
+		protected void compute() {
+			if (error.get() != null) {
+				return;
+			}
+			List<DirectoryTask> subdirectories = new ArrayList<DirectoryTask>();
+			try {
+				visitor.visitDirectory(dir, attrs);
+				try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+					for (Path entry : entries) {
+						BasicFileAttributes entryAttrs = readAttributes(entry);
+						if (visitor.isExcluded(entry, entryAttrs)) {
+							continue;
+						}
+						if (entryAttrs.isDirectory()) {
+							subdirectories.add(new DirectoryTask(entry, entryAttrs, visitor, filePool, error));
+						} else {
+							filePool.execute(() -> visitFile(entry, entryAttrs));
+						}
+					}
+				}
+			} catch (IOException e) {
+				error.compareAndSet(null, e);
+				return;
+			}
+			invokeAll(subdirectories);
+		}
+
+		private void visitFile(Path file, BasicFileAttributes fileAttrs) {
+			if (error.get() != null) {
+				return;
+			}
+			try {
+				visitor.visitFile(file, fileAttrs);
+			} catch (IOException e) {
+				error.compareAndSet(null, e);
+			} catch (RuntimeException e) {
+				error.compareAndSet(null, new IOException("Could not visit " + file, e));
+			}
+		}
+	}
+}
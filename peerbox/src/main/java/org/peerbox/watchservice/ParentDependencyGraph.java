@@ -0,0 +1,94 @@
+package org.peerbox.watchservice;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Keeps track of pending {@link org.peerbox.watchservice.filetree.composite.FileComponent
+ * FileComponent}s that cannot be executed yet because their parent folder is not uploaded
+ * to the network. The graph maps each parent to its waiting children (and vice versa), such that
+ * all children of a folder can be released at once as soon as the folder itself is uploaded.
+ * Since children are released in bulk, the depth of a new folder tree does not add additional
+ * aggregation intervals to the synchronization latency.
+ *
+ * The graph only contains edges of waiting children. Components are identified by
+ * identity (and not by path) because a parent may be moved while children are waiting.
+ */
+public class ParentDependencyGraph {
+
+	/** parent -> children waiting for the parent to be uploaded **/
+	private final SetMultimap<FileComponent, FileComponent> dependents;
+
+	/** child -> parent on which the child waits **/
+	private final Map<FileComponent, FileComponent> dependencies;
+
+	public ParentDependencyGraph() {
+		this.dependents = HashMultimap.create();
+		this.dependencies = new HashMap<FileComponent, FileComponent>();
+	}
+
+	/**
+	 * Registers the child as waiting for the given parent. An existing dependency of
+	 * the child is replaced.
+	 *
+	 * @param child waiting component
+	 * @param parent the component must be uploaded first (may be null)
+	 */
+	public synchronized void addDependency(final FileComponent child, final FileComponent parent) {
+		removeDependency(child);
+		dependencies.put(child, parent);
+		dependents.put(parent, child);
+	}
+
+	/**
+	 * Removes the dependency of the child (if there is any).
+	 *
+	 * @param child component to remove
+	 * @return true if the child was waiting.
+	 */
+	public synchronized boolean removeDependency(final FileComponent child) {
+		if (!dependencies.containsKey(child)) {
+			return false;
+		}
+		FileComponent parent = dependencies.remove(child);
+		dependents.remove(parent, child);
+		return true;
+	}
+
+	/**
+	 * Removes and returns all children that wait for the given parent.
+	 *
+	 * @param parent component
+	 * @return waiting children, empty set if there are none.
+	 */
+	public synchronized Set<FileComponent> removeDependents(final FileComponent parent) {
+		if (!dependents.containsKey(parent)) {
+			return Collections.emptySet();
+		}
+		Set<FileComponent> children = dependents.removeAll(parent);
+		for (FileComponent child : children) {
+			dependencies.remove(child);
+		}
+		return children;
+	}
+
+	public synchronized boolean hasDependency(final FileComponent child) {
+		return dependencies.containsKey(child);
+	}
+
+	public synchronized int size() {
+		return dependencies.size();
+	}
+
+	public synchronized void clear() {
+		dependents.clear();
+		dependencies.clear();
+	}
+}
@@ -3,12 +3,12 @@ package org.peerbox.watchservice;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Iterator;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-import org.hive2hive.core.security.HashUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This is a utility class to compute file content hashes and
@@ -18,36 +18,60 @@ import org.hive2hive.core.security.HashUtil;
  */
 public class PathUtils {
 
+	private static final Logger logger = LoggerFactory.getLogger(PathUtils.class);
+
 	/**
 	 * This method computes the hash over a file. If the file
 	 * is not accessible for some reason (i.e. locked by another
-	 * process), then the method makes three consecutive tries
-	 * after waiting 3 seconds.
+	 * process), an empty hash is returned without retrying. Use
+	 * {@link #computeFileContentHashAsync(Path, ContentHashCache)} to
+	 * retry in the background.
 	 *
 	 * @param path to file on disk
 	 * @return the hash as base64 encoded string
 	 */
 	public static String computeFileContentHash(Path path) {
-		String newHash = "";
-		if (path != null && path.toFile() != null) {
-			for (int i = 0; i < 3; i++) {
-				try {
-					byte[] rawHash = HashUtil.hash(path.toFile());
-					if (rawHash != null) {
-						newHash = base64Encode(rawHash);
-					}
-					break;
-				} catch (IOException e) {
-					e.printStackTrace();
-					try {
-						Thread.sleep(3000);
-					} catch (InterruptedException e1) {
-						e1.printStackTrace();
-					}
-				}
-			}
+		try {
+			return hashFileContent(path, null);
+		} catch (IOException e) {
+			logger.warn("Could not compute content hash of {}.", path, e);
+			return "";
 		}
-		return newHash;
+	}
+
+	/**
+	 * Computes the hash over a file. If a {@link ContentHashCache} is
+	 * given, the file is only hashed if it changed since it was
+	 * hashed last.
+	 *
+	 * @param path to file on disk
+	 * @param cache of the user, null to hash the file without cache
+	 * @return the hash as base64 encoded string, empty if the path
+	 * is null, a folder or does not exist
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String hashFileContent(Path path, ContentHashCache cache) throws IOException {
+		if (path == null) {
+			return "";
+		}
+		String hash = cache != null ? cache.getContentHash(path) : null;
+		if (hash == null) {
+			hash = base64Encode(ContentHasher.hash(path));
+		}
+		return hash;
+	}
+
+	/**
+	 * Computes the hash over a file in the background. If the file
+	 * is not accessible, the method makes three more tries after
+	 * waiting a few seconds, without blocking the caller.
+	 *
+	 * @param path to file on disk
+	 * @param cache of the user, null to hash the file without cache
+	 * @return future of the base64 encoded hash
+	 */
+	public static CompletableFuture<String> computeFileContentHashAsync(Path path, ContentHashCache cache) {
+		return ContentHasher.computeAsync(() -> hashFileContent(path, cache), path);
 	}
 
 	/**
@@ -72,17 +96,6 @@ public class PathUtils {
 		return d;
 	}
 
-	public static boolean isFileHidden(Path file){
-
-		List<String> illegal = new ArrayList<String>();
-		illegal.add("$");
-		illegal.add(".");
-		illegal.add("~");
-
-		return illegal.stream().anyMatch(pattern -> file.getFileName().toString().startsWith(pattern));
-
-	}
-
     public static Path getCommonPath(Path path1, Path path2){
 		Path commonPath = Paths.get("");
     	if(path1 == null || path2 == null){
@@ -0,0 +1,125 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watch service that detects changes by rescanning the folders periodically instead of
+ * relying on notifications of the operating system. It does not need a kernel watch per
+ * folder and also works on network file systems (NFS, SMB), which do not deliver
+ * notifications.
+ *
+ * Each folder is scanned at its own, adaptive interval (see {@link FolderPoller}): folders
+ * with changes are scanned often, folders without changes rarely.
+ */
+public class PollingWatchService extends AbstractWatchService {
+
+	private static final Logger logger = LoggerFactory.getLogger(PollingWatchService.class);
+
+	/** Scan interval of folders with recent changes **/
+	private static final long DEFAULT_MIN_INTERVAL_MS = 500;
+
+	/** Scan interval of folders without changes for a long time **/
+	private static final long DEFAULT_MAX_INTERVAL_MS = 30000;
+
+	private final FolderPoller poller;
+
+	public PollingWatchService() {
+		this(DEFAULT_MIN_INTERVAL_MS, DEFAULT_MAX_INTERVAL_MS);
+	}
+
+	/**
+	 * @param minIntervalMs scan interval of folders with recent changes
+	 * @param maxIntervalMs scan interval of folders without changes
+	 */
+	public PollingWatchService(long minIntervalMs, long maxIntervalMs) {
+		super();
+		this.poller = new FolderPoller("PollingWatchServiceThread", minIntervalMs, maxIntervalMs,
+				new PollerListener());
+	}
+
+	@Override
+	protected void onStarted() throws Exception {
+		logger.info("Scanning folder: {} ...", getFolderToWatch());
+		poller.stop();
+		addFolderRecursive(getFolderToWatch());
+		logger.info("Scanning done, {} folders.", poller.size());
+
+		poller.start();
+		logger.info("Polling Watch Service started.");
+	}
+
+	@Override
+	protected void onStopped() throws Exception {
+		poller.stop();
+		logger.info("Polling Watch Service stopped.");
+	}
+
+	/**
+	 * @return the current scan interval of the folder, or -1 if it is not watched.
+	 */
+	long getScanInterval(final Path folder) {
+		return poller.getScanInterval(folder);
+	}
+
+	/**
+	 * Polls a folder and its subfolders. Only changes after this call are reported.
+	 */
+	private void addFolderRecursive(final Path folder) {
+		try {
+			Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					if (!dir.equals(getFolderToWatch()) && getIgnoreRules().isIgnored(dir, true)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					poller.addFolder(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Could not scan folder: {} ({})", folder, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param isFolder type of the path as known by the poller, also for deleted paths
+	 */
+	private void notifyEvent(final INotifyFileEvent event, boolean isFolder) throws InterruptedException {
+		if (!getIgnoreRules().isIgnored(event.getPath(), isFolder)) {
+			addNotifyEvent(event);
+		}
+	}
+
+	private class PollerListener implements FolderPoller.Listener {
+		@Override
+		public void onCreated(Path path, boolean isFolder) throws InterruptedException {
+			if (isFolder) {
+				// like a registration: only changes after the creation are reported
+				addFolderRecursive(path);
+			}
+			notifyEvent(new NotifyFileCreated(path), isFolder);
+		}
+
+		@Override
+		public void onModified(Path path) throws InterruptedException {
+			// only files are reported as modified
+			notifyEvent(new NotifyFileModified(path), false);
+		}
+
+		@Override
+		public void onDeleted(Path path, boolean isFolder) throws InterruptedException {
+			if (isFolder) {
+				poller.removeFolderRecursive(path);
+			}
+			notifyEvent(new NotifyFileDeleted(path), isFolder);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package org.peerbox.watchservice;
+
+import java.util.Map;
+
+import org.hive2hive.core.exceptions.GetFailedException;
+import org.hive2hive.core.exceptions.NoPeerConnectionException;
+import org.hive2hive.core.exceptions.NoSessionException;
+import org.hive2hive.core.exceptions.PutFailedException;
+import org.hive2hive.processframework.exceptions.ProcessExecutionException;
+import org.peerbox.utils.RetryPolicy;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Table of {@link RetryPolicy}s. The policy of a failed execution is determined by the
+ * exception and its causes (e.g. the cause of a {@link ProcessExecutionException}): the
+ * first exception in the cause chain whose type (including super types) has a policy
+ * decides. If nothing matches, the default policy is used.
+ *
+ * Failures of the network are missing connections to other peers, a missing session and
+ * DHT operations (put and get) that failed. The table is immutable.
+ */
+public class RetryPolicies {
+
+	/** Delays for failures of the network (e.g. no connection to other peers) **/
+	public static final long NETWORK_BASE_DELAY_MS = 5000;
+	public static final long NETWORK_MAX_DELAY_MS = 5 * 60 * 1000;
+	public static final int NETWORK_MAX_ATTEMPTS = 10;
+
+	/** Delays for all other failures **/
+	public static final long DEFAULT_BASE_DELAY_MS = 1000;
+	public static final long DEFAULT_MAX_DELAY_MS = 60 * 1000;
+
+	/** Bound of the cause chain, protects against cyclic causes **/
+	private static final int MAX_CAUSE_DEPTH = 16;
+
+	private final Map<Class<? extends Throwable>, RetryPolicy> byType;
+	private final RetryPolicy defaultPolicy;
+
+	/**
+	 * Creates the table with the default policies.
+	 *
+	 * @param maxAttempts maximal number of executions for failures that are not related to the network
+	 */
+	public RetryPolicies(int maxAttempts) {
+		defaultPolicy = new RetryPolicy(DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, maxAttempts, false);
+
+		RetryPolicy network = new RetryPolicy(NETWORK_BASE_DELAY_MS, NETWORK_MAX_DELAY_MS,
+				NETWORK_MAX_ATTEMPTS, true);
+		byType = ImmutableMap.<Class<? extends Throwable>, RetryPolicy> builder()
+				.put(NoPeerConnectionException.class, network)
+				.put(NoSessionException.class, network)
+				.put(PutFailedException.class, network)
+				.put(GetFailedException.class, network)
+				.build();
+	}
+
+	/**
+	 * Returns the policy for a failed execution.
+	 *
+	 * @param error exception of the failed execution (may be null). Its causes are considered.
+	 * @return the policy, never null
+	 */
+	public RetryPolicy getPolicy(Throwable error) {
+		Throwable cause = error;
+		for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; ++depth) {
+			for (Class<?> type = cause.getClass(); type != null; type = type.getSuperclass()) {
+				RetryPolicy policy = byType.get(type);
+				if (policy != null) {
+					return policy;
+				}
+			}
+			cause = cause.getCause();
+		}
+		return defaultPolicy;
+	}
+
+	public RetryPolicy getDefaultPolicy() {
+		return defaultPolicy;
+	}
+}
@@ -0,0 +1,134 @@
+package org.peerbox.watchservice;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Handles file events concurrently, but in order within a subtree. Each top-level folder
+ * (or file) of the root folder is assigned to one of several shards, i.e. all events of a
+ * subtree are handled by the same thread in the order they were dispatched. Events of
+ * unrelated subtrees are handled in parallel.
+ *
+ * Each shard has a lock that is held while an event is handled. Events that are not
+ * dispatched, e.g. remote events delivered on other threads, acquire the lock of their
+ * subtree with {@link #getLock(Path)} to exclude concurrent handling of the subtree.
+ * The delete and create of a move across subtrees may be handled in parallel; they are
+ * matched by the file tree, which registers and looks up move candidates atomically.
+ */
+public class ShardedEventDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardedEventDispatcher.class);
+
+	private final Path rootPath;
+	private final ExecutorService[] executors;
+	private final Lock[] locks;
+
+	/**
+	 * @param rootPath root folder whose top-level entries define the subtrees
+	 * @param shards number of threads
+	 */
+	public ShardedEventDispatcher(final Path rootPath, int shards) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("Number of shards must be at least 1.");
+		}
+		this.rootPath = rootPath;
+		this.executors = new ExecutorService[shards];
+		this.locks = new Lock[shards];
+		for (int i = 0; i < shards; ++i) {
+			executors[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("EventDispatcherThread-" + i).setDaemon(true).build());
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Handles the event of a path on the thread of its subtree, after all events of the
+	 * subtree that were dispatched before.
+	 *
+	 * @param path of the event
+	 * @param handler of the event
+	 */
+	public void execute(final Path path, final Runnable handler) {
+		final int shard = getShard(path);
+		executors[shard].execute(() -> {
+			locks[shard].lock();
+			try {
+				handler.run();
+			} catch (RuntimeException e) {
+				logger.warn("Could not handle event of {}.", path, e);
+			} finally {
+				locks[shard].unlock();
+			}
+		});
+	}
+
+	/**
+	 * @return the lock of the subtree of the path, which is held while events of the subtree
+	 *         are handled.
+	 */
+	public Lock getLock(final Path path) {
+		return locks[getShard(path)];
+	}
+
+	/**
+	 * Locks the subtrees of all paths, e.g. the source and destination of a move. The locks
+	 * are acquired in a fixed order to avoid deadlocks.
+	 *
+	 * @return the acquired locks, to be released with {@link #unlock(List)}.
+	 */
+	public List<Lock> lock(final Path... paths) {
+		SortedMap<Integer, Lock> shardLocks = new TreeMap<Integer, Lock>();
+		for (Path path : paths) {
+			int shard = getShard(path);
+			shardLocks.put(shard, locks[shard]);
+		}
+		List<Lock> acquired = new ArrayList<Lock>(shardLocks.values());
+		for (Lock lock : acquired) {
+			lock.lock();
+		}
+		return acquired;
+	}
+
+	public void unlock(final List<Lock> acquired) {
+		for (Lock lock : acquired) {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the threads. Events not handled yet are discarded.
+	 */
+	public void stop() {
+		for (ExecutorService executor : executors) {
+			executor.shutdownNow();
+		}
+	}
+
+	int getShard(final Path path) {
+		int hash = getSubtree(path).hashCode();
+		return (hash & Integer.MAX_VALUE) % executors.length;
+	}
+
+	/**
+	 * @return the top-level folder or file of the root that contains the path, or the path
+	 *         itself if it is not within the root.
+	 */
+	Path getSubtree(final Path path) {
+		if (rootPath == null || !path.startsWith(rootPath) || path.equals(rootPath)) {
+			return path;
+		}
+		return rootPath.resolve(rootPath.relativize(path).getName(0));
+	}
+}
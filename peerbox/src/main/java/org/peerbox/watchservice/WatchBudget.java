@@ -0,0 +1,193 @@
+package org.peerbox.watchservice;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which folders are watched with a kernel watch and which are polled, given a maximal
+ * number of kernel watches. Folders are watched as long as the budget allows, the remaining
+ * folders are polled. The event rate of each folder is tracked: at each
+ * {@link #rebalance()}, polled folders with changes are promoted to a watch, if necessary in
+ * exchange for watched folders without recent events.
+ *
+ * Every folder that was added is either watched or polled. This class is not thread-safe.
+ */
+public class WatchBudget {
+
+	/** Weight of the previous rate at a rebalance, i.e. the rate halves each round **/
+	private static final double RATE_DECAY = 0.5;
+
+	/** Rates below are considered as idle (about 7 rounds after a single event) **/
+	private static final double MIN_RATE = 0.01;
+
+	/**
+	 * Folders whose mode changed at a rebalance.
+	 */
+	public static final class Rebalance {
+		private final List<Path> promoted = new ArrayList<Path>();
+		private final List<Path> demoted = new ArrayList<Path>();
+
+		/**
+		 * @return polled folders that should be watched now.
+		 */
+		public List<Path> getPromoted() {
+			return promoted;
+		}
+
+		/**
+		 * @return watched folders that should be polled now.
+		 */
+		public List<Path> getDemoted() {
+			return demoted;
+		}
+	}
+
+	private int maxWatches;
+	private int watchCount;
+	private final Map<Path, FolderStats> folders;
+
+	/**
+	 * @param maxWatches maximal number of watched folders
+	 */
+	public WatchBudget(int maxWatches) {
+		if (maxWatches < 0) {
+			throw new IllegalArgumentException("The budget must not be negative.");
+		}
+		this.maxWatches = maxWatches;
+		this.folders = new HashMap<Path, FolderStats>();
+	}
+
+	/**
+	 * Adds a folder, it is watched if the budget allows it.
+	 *
+	 * @return true if the folder should be watched, false if it should be polled.
+	 */
+	public boolean add(final Path folder) {
+		FolderStats stats = folders.get(folder);
+		if (stats == null) {
+			stats = new FolderStats(folder);
+			folders.put(folder, stats);
+			if (watchCount < maxWatches) {
+				stats.isWatched = true;
+				++watchCount;
+			}
+		}
+		return stats.isWatched;
+	}
+
+	public void remove(final Path folder) {
+		FolderStats stats = folders.remove(folder);
+		if (stats != null && stats.isWatched) {
+			--watchCount;
+		}
+	}
+
+	/**
+	 * Called if a watch could not be created, e.g. because the limit of the operating system is
+	 * reached. The folder is polled and the budget is reduced to the current number of watches.
+	 */
+	public void onWatchFailed(final Path folder) {
+		FolderStats stats = folders.get(folder);
+		if (stats != null && stats.isWatched) {
+			stats.isWatched = false;
+			--watchCount;
+		}
+		maxWatches = Math.min(maxWatches, watchCount);
+	}
+
+	/**
+	 * Records the changes detected in a folder (events of a watch or changes found by polling).
+	 */
+	public void recordEvents(final Path folder, int count) {
+		FolderStats stats = folders.get(folder);
+		if (stats != null) {
+			stats.pendingEvents += count;
+		}
+	}
+
+	/**
+	 * Updates the event rates and moves watches from the coldest watched folders to the
+	 * hottest polled folders. Watched folders are only demoted if they had no events recently.
+	 */
+	public Rebalance rebalance() {
+		List<FolderStats> hotPolled = new ArrayList<FolderStats>();
+		List<FolderStats> idleWatched = new ArrayList<FolderStats>();
+		for (FolderStats stats : folders.values()) {
+			stats.rate = stats.rate * RATE_DECAY + stats.pendingEvents;
+			stats.pendingEvents = 0;
+			if (stats.rate < MIN_RATE) {
+				stats.rate = 0;
+			}
+			if (!stats.isWatched && stats.rate > 0) {
+				hotPolled.add(stats);
+			} else if (stats.isWatched && stats.rate == 0) {
+				idleWatched.add(stats);
+			}
+		}
+		// hottest first
+		Collections.sort(hotPolled, Comparator.comparingDouble(FolderStats::getRate).reversed());
+
+		Rebalance result = new Rebalance();
+		int idleIndex = 0;
+		for (FolderStats promote : hotPolled) {
+			if (watchCount >= maxWatches) {
+				if (idleIndex >= idleWatched.size()) {
+					break;
+				}
+				FolderStats demote = idleWatched.get(idleIndex++);
+				demote.isWatched = false;
+				--watchCount;
+				result.demoted.add(demote.folder);
+			}
+			if (watchCount >= maxWatches) {
+				// the budget was reduced below the number of watches
+				break;
+			}
+			promote.isWatched = true;
+			++watchCount;
+			result.promoted.add(promote.folder);
+		}
+		return result;
+	}
+
+	public boolean isWatched(final Path folder) {
+		FolderStats stats = folders.get(folder);
+		return stats != null && stats.isWatched;
+	}
+
+	public boolean contains(final Path folder) {
+		return folders.containsKey(folder);
+	}
+
+	public int getWatchCount() {
+		return watchCount;
+	}
+
+	public int getPollCount() {
+		return folders.size() - watchCount;
+	}
+
+	public int getMaxWatches() {
+		return maxWatches;
+	}
+
+	private static final class FolderStats {
+		private final Path folder;
+		private boolean isWatched;
+		private int pendingEvents;
+		private double rate;
+
+		FolderStats(Path folder) {
+			this.folder = folder;
+		}
+
+		double getRate() {
+			return rate;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package org.peerbox.watchservice;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.peerbox.app.manager.file.FileInfo;
+import org.peerbox.app.manager.file.IFileMessage;
+import org.peerbox.app.manager.file.messages.LocalFileWriteFinishedMessage;
+import org.peerbox.app.manager.file.messages.LocalFileWriteStartedMessage;
+import org.peerbox.events.MessageBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Detects files that are still being written, e.g. while a large file is copied into the
+ * root folder. A file is stable if its size and last modified time did not change for a
+ * quiet period, which grows with the size of the file. Optionally, the file must not be
+ * locked by another process as well.
+ *
+ * Files that change while waiting are reported as "in-flight" by publishing a
+ * {@link LocalFileWriteStartedMessage} and a {@link LocalFileWriteFinishedMessage} as soon
+ * as they are stable.
+ */
+public class WriteStabilityTracker {
+
+	private static final Logger logger = LoggerFactory.getLogger(WriteStabilityTracker.class);
+
+	/** Additional quiet period per MiB of the file **/
+	private static final long QUIET_PERIOD_PER_MIB_MS = 1;
+
+	/** Upper bound of the size-scaled quiet period **/
+	private static final long MAX_QUIET_PERIOD_MS = 10000;
+
+	/** Minimal delay between two checks of a file **/
+	private static final long MIN_CHECK_INTERVAL_MS = 100;
+
+	private final long quietPeriodMs;
+	private final boolean probeLock;
+	private final MessageBus messageBus;
+
+	private final Set<Path> inFlightFiles;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param quietPeriodMs minimal time a file must not change (files of size 0)
+	 * @param probeLock whether a stable file must not be locked by another process
+	 * @param messageBus to report in-flight files, may be null
+	 */
+	public WriteStabilityTracker(long quietPeriodMs, boolean probeLock, MessageBus messageBus) {
+		this.quietPeriodMs = quietPeriodMs;
+		this.probeLock = probeLock;
+		this.messageBus = messageBus;
+		this.inFlightFiles = ConcurrentHashMap.newKeySet();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setNameFormat("WriteStabilityThread").setDaemon(true).build());
+	}
+
+	/**
+	 * Runs the callback on a background thread as soon as the file is stable. The file is
+	 * checked at least twice, because copies may keep the last modified time of the source.
+	 * Files that do not exist (anymore) are considered stable.
+	 *
+	 * @param path of the file
+	 * @param onStable callback
+	 */
+	public void awaitStable(final Path path, final Runnable onStable) {
+		Snapshot snapshot = takeSnapshot(path);
+		schedule(path, snapshot, onStable, snapshot.getRemainingQuietPeriod());
+	}
+
+	/**
+	 * @return the files that are currently being written.
+	 */
+	public Set<Path> getInFlightFiles() {
+		return Collections.unmodifiableSet(inFlightFiles);
+	}
+
+	/**
+	 * Stops tracking. Callbacks of files that are not stable yet are not run anymore.
+	 */
+	public void stop() {
+		scheduler.shutdownNow();
+		inFlightFiles.clear();
+	}
+
+	private void schedule(Path path, Snapshot snapshot, Runnable onStable, long delayMs) {
+		// the last modified time may be in the future (clock skew)
+		long boundedDelayMs = Math.min(Math.max(delayMs, MIN_CHECK_INTERVAL_MS), getMaxQuietPeriod());
+		scheduler.schedule(() -> check(path, snapshot, onStable), boundedDelayMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void check(Path path, Snapshot previous, Runnable onStable) {
+		Snapshot current = takeSnapshot(path);
+		boolean isChanged = !current.equals(previous);
+		if (!isChanged && isUnlocked(path)) {
+			if (inFlightFiles.remove(path)) {
+				logger.debug("File {} is stable, size: {}.", path, current.size);
+				publishMessage(new LocalFileWriteFinishedMessage(new FileInfo(path, false)));
+			}
+			try {
+				onStable.run();
+			} catch (RuntimeException e) {
+				logger.warn("Could not handle stable file {}.", path, e);
+			}
+			return;
+		}
+
+		if (inFlightFiles.add(path)) {
+			logger.debug("File {} is being written, defer handling.", path);
+			publishMessage(new LocalFileWriteStartedMessage(new FileInfo(path, false)));
+		}
+		// changed: wait until quiet again, locked: wait for the writer
+		long delayMs = isChanged ? current.getRemainingQuietPeriod() : quietPeriodMs;
+		schedule(path, current, onStable, delayMs);
+	}
+
+	private long getMaxQuietPeriod() {
+		return Math.max(quietPeriodMs, MAX_QUIET_PERIOD_MS);
+	}
+
+	private boolean isUnlocked(Path path) {
+		if (!probeLock || !Files.isRegularFile(path)) {
+			return true;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			FileLock lock = channel.tryLock();
+			if (lock == null) {
+				return false;
+			}
+			lock.release();
+			return true;
+		} catch (AccessDeniedException | NoSuchFileException e) {
+			// read-only or deleted, nobody is writing
+			return true;
+		} catch (IOException | OverlappingFileLockException e) {
+			// e.g. opened by another process without sharing
+			return false;
+		}
+	}
+
+	private Snapshot takeSnapshot(Path path) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			return new Snapshot(attrs.size(), attrs.lastModifiedTime().toMillis());
+		} catch (IOException e) {
+			// does not exist (anymore)
+			return new Snapshot(-1, 0);
+		}
+	}
+
+	private void publishMessage(IFileMessage message) {
+		if (messageBus != null) {
+			messageBus.publish(message);
+		}
+	}
+
+	/**
+	 * Size and last modified time of a file at a point in time.
+	 */
+	private final class Snapshot {
+		private final long size;
+		private final long lastModified;
+
+		Snapshot(long size, long lastModified) {
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * @return time until the file is unchanged for the quiet period of its size.
+		 */
+		long getRemainingQuietPeriod() {
+			if (size < 0) {
+				return 0;
+			}
+			long quietPeriod = Math.min(quietPeriodMs + (size >> 20) * QUIET_PERIOD_PER_MIB_MS,
+					getMaxQuietPeriod());
+			return lastModified + quietPeriod - System.currentTimeMillis();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Snapshot)) {
+				return false;
+			}
+			Snapshot other = (Snapshot) obj;
+			return size == other.size && lastModified == other.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+		}
+	}
+}
@@ -8,9 +8,11 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.jetty.util.ConcurrentHashSet;
+import org.peerbox.watchservice.ContentHashCache;
 import org.peerbox.watchservice.FileEventManager;
 import org.peerbox.watchservice.FileWalker;
 import org.peerbox.watchservice.IFileEventManager;
+import org.peerbox.watchservice.IgnoreRules;
 import org.peerbox.watchservice.filetree.composite.FileComponent;
 import org.peerbox.watchservice.filetree.composite.FileLeaf;
 import org.peerbox.watchservice.filetree.composite.FolderComposite;
@@ -33,8 +35,16 @@ public class FileTree implements IFileTree {
 	private SetMultimap<String, FolderComposite> createdByStructureHash = Multimaps.synchronizedSetMultimap(HashMultimap.create());
 	private SetMultimap<String, FileComponent> deletedByContentHash = Multimaps.synchronizedSetMultimap(HashMultimap.create());
 	private SetMultimap<String, FileComponent> createdByContentHash = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+	/** guards the lookup and registration of move candidates as one step **/
+	private final Object moveCandidatesLock = new Object();
     private boolean maintainContentHashes;
 
+	/** Hashes of deleted and moved components are evicted from this cache (may be null) **/
+	private ContentHashCache contentHashCache;
+
+	/** Rules of the files that are not walked when a subtree is discovered **/
+	private IgnoreRules ignoreRules = IgnoreRules.DEFAULT;
+
 	@Inject
 	public FileTree(Path rootPath) {
 		this(rootPath, true);
@@ -58,6 +68,18 @@ public class FileTree implements IFileTree {
     	return rootOfFileTree;
     }
 
+	public void setContentHashCache(ContentHashCache contentHashCache) {
+		this.contentHashCache = contentHashCache;
+	}
+
+	public IgnoreRules getIgnoreRules() {
+		return ignoreRules;
+	}
+
+	public void setIgnoreRules(IgnoreRules ignoreRules) {
+		this.ignoreRules = ignoreRules;
+	}
+
 	@Override
 	public void putFile(Path dstPath, FileComponent fileToPut) {
 		rootOfFileTree.putComponent(dstPath, fileToPut);
@@ -106,9 +128,17 @@ public class FileTree implements IFileTree {
 		return component;
 	}
 
+	/**
+	 * Removes a component, e.g. because it was deleted or moved. The cached content
+	 * hashes of the component and its children are evicted.
+	 */
 	@Override
 	public FileComponent deleteFile(Path fileToDelete) {
-		return rootOfFileTree.deleteComponent(fileToDelete);
+		FileComponent deleted = rootOfFileTree.deleteComponent(fileToDelete);
+		if (deleted != null && contentHashCache != null) {
+			contentHashCache.evict(fileToDelete);
+		}
+		return deleted;
 	}
 
 	@Override
@@ -134,7 +164,7 @@ public class FileTree implements IFileTree {
 	 * @return the hash representing the folder's structure
 	 */
 	public String discoverSubtreeStructure(Path filePath, FileEventManager manager) {
-		FileWalker walker = new FileWalker(filePath, manager);
+		FileWalker walker = new FileWalker(filePath, manager, ignoreRules);
 		logger.debug("start discovery of subtree structure at : {}", filePath);
 		return walker.computeStructureHashOfFolder();
 	}
@@ -148,7 +178,7 @@ public class FileTree implements IFileTree {
 	 * @return the complete subtree as a FolderComposite
 	 */
 	public void discoverSubtreeCompletely(Path filePath, FileEventManager manager) {
-		FileWalker walker = new FileWalker(filePath, manager);
+		FileWalker walker = new FileWalker(filePath, manager, ignoreRules);
 		logger.debug("start complete subtree discovery at : {}", filePath);
 		walker.generateLocalCreateEvents();
 	}
@@ -217,6 +247,51 @@ public class FileTree implements IFileTree {
 				getDeletedByStructureHash());
 	}
 
+	@Override
+	public FileComponent putMoveTargetAndTakeSource(FileComponent created, boolean isCandidate) {
+		synchronized (moveCandidatesLock) {
+			if (created.isFile()) {
+				if (isCandidate) {
+					logger.trace("Put file {} with content hash {}", created.getPath(), created.getContentHash());
+					createdByContentHash.put(created.getContentHash(), created);
+				}
+				return findDeletedByContent((FileLeaf) created);
+			}
+			FolderComposite folder = (FolderComposite) created;
+			if (isCandidate) {
+				createdByStructureHash.put(folder.getStructureHash(), folder);
+			}
+			return findDeletedByStructure(folder);
+		}
+	}
+
+	@Override
+	public FileComponent takeMoveTargetOrPutSource(FileComponent deleted, boolean isCandidate) {
+		synchronized (moveCandidatesLock) {
+			FileComponent moveTarget;
+			if (deleted.isFile()) {
+				moveTarget = findCreatedByContent((FileLeaf) deleted);
+			} else {
+				moveTarget = findCreatedByStructure((FolderComposite) deleted);
+			}
+			if (moveTarget != null && moveTarget.getPath().toFile().exists()) {
+				return moveTarget;
+			}
+
+			if (isCandidate) {
+				if (deleted.isFile()) {
+					deletedByContentHash.put(deleted.getContentHash(), deleted);
+					logger.debug("Put deleted file {} with hash {} to SetMultimap<String, FileComponent>", deleted.getPath(), deleted.getContentHash());
+				} else {
+					FolderComposite folder = (FolderComposite) deleted;
+					logger.trace("Delete folder: put folder {} with structure hash {} to deleted folders.", folder.getPath(), folder.getStructureHash());
+					deletedByStructureHash.put(folder.getStructureHash(), folder);
+				}
+			}
+			return null;
+		}
+	}
+
 	public Path getRootPath() {
 		return rootOfFileTree.getPath();
 	}
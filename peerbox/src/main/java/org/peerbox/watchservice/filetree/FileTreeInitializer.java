@@ -1,17 +1,19 @@
 package org.peerbox.watchservice.filetree;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 
 import org.hive2hive.core.processes.files.list.FileNode;
 import org.peerbox.app.ClientContext;
+import org.peerbox.watchservice.IgnoreRules;
+import org.peerbox.watchservice.ParallelFileScanner;
 import org.peerbox.watchservice.filetree.composite.FileComponent;
 import org.peerbox.watchservice.filetree.composite.FileLeaf;
 import org.peerbox.watchservice.filetree.composite.FolderComposite;
@@ -72,46 +74,18 @@ public class FileTreeInitializer {
 			// state: InitialState for all
 		}
 
-		// Add the files on disk to the tree (if not present yet)
-		Files.walkFileTree(topLevel, new SimpleFileVisitor<Path>() {
-			@Override
-			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-				FileComponent component = tree.getFile(dir);
-				if (component == null) {
-					component = new FolderComposite(dir, true);
-					component.setIsUploaded(false);
-					tree.putFile(dir, component);
-					// state: initial, because not present in network
-				} else {
-					// already exists, i.e. present in network - state: established
-					component.getAction().setCurrentState(new EstablishedState(component.getAction()));
-				}
-
-				component.getAction().setFileEventManager(context.getFileEventManager());
-				component.getAction().setFile(component);
-
-				return super.preVisitDirectory(dir, attrs);
-			}
-
-			@Override
-			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-				FileComponent component = tree.getFile(file);
-				if (component == null) {
-					component = new FileLeaf(file, true);
-					component.setIsUploaded(false);
-					tree.putFile(file, component);
-					// state: initial, because not present in network
-				} else {
-					// already exists, state: established
-					component.getAction().setCurrentState(new EstablishedState(component.getAction()));
-				}
-
-				component.getAction().setFileEventManager(context.getFileEventManager());
-				component.getAction().setFile(component);
-
-				return super.visitFile(file, attrs);
+		// Add the files on disk to the tree (if not present yet).
+		// The disk is scanned in parallel, but the tree is built sequentially with parents first.
+		int parallelism = context.getActionExecutor().getPeerWaspConfig().getFileScanParallelism();
+		NavigableMap<Path, BasicFileAttributes> diskFiles = scanDisk(topLevel, parallelism,
+				context.getIgnoreRules());
+		for (Map.Entry<Path, BasicFileAttributes> entry : diskFiles.entrySet()) {
+			if (entry.getValue().isDirectory()) {
+				addDiskFolder(tree, entry.getKey());
+			} else {
+				addDiskFile(tree, entry.getKey());
 			}
-		});
+		}
 
 		// selective sync: use database to disable sync on some elements
 		final LocalFileDao localFileDao = context.getLocalFileDao();
@@ -147,4 +121,62 @@ public class FileTreeInitializer {
 		}
 	}
 
+	/**
+	 * Scans the files on disk. Ignored files are skipped and ignored folders are not listed,
+	 * i.e. their content is neither scanned nor added to the tree.
+	 */
+	static NavigableMap<Path, BasicFileAttributes> scanDisk(Path topLevel, int parallelism,
+			final IgnoreRules ignoreRules) throws IOException {
+		final NavigableMap<Path, BasicFileAttributes> diskFiles = new ConcurrentSkipListMap<Path, BasicFileAttributes>();
+		new ParallelFileScanner(parallelism).scan(topLevel, new ParallelFileScanner.Visitor() {
+			@Override
+			public void visitDirectory(Path dir, BasicFileAttributes attrs) {
+				diskFiles.put(dir, attrs);
+			}
+
+			@Override
+			public void visitFile(Path file, BasicFileAttributes attrs) {
+				diskFiles.put(file, attrs);
+			}
+
+			@Override
+			public boolean isExcluded(Path path, BasicFileAttributes attrs) {
+				return ignoreRules.isIgnored(path, attrs.isDirectory());
+			}
+		});
+		return diskFiles;
+	}
+
+	private void addDiskFolder(IFileTree tree, Path dir) {
+		FileComponent component = tree.getFile(dir);
+		if (component == null) {
+			component = new FolderComposite(dir, true);
+			component.setIsUploaded(false);
+			tree.putFile(dir, component);
+			// state: initial, because not present in network
+		} else {
+			// already exists, i.e. present in network - state: established
+			component.getAction().setCurrentState(new EstablishedState(component.getAction()));
+		}
+
+		component.getAction().setFileEventManager(context.getFileEventManager());
+		component.getAction().setFile(component);
+	}
+
+	private void addDiskFile(IFileTree tree, Path file) {
+		FileComponent component = tree.getFile(file);
+		if (component == null) {
+			component = new FileLeaf(file, true);
+			component.setIsUploaded(false);
+			tree.putFile(file, component);
+			// state: initial, because not present in network
+		} else {
+			// already exists, state: established
+			component.getAction().setCurrentState(new EstablishedState(component.getAction()));
+		}
+
+		component.getAction().setFileEventManager(context.getFileEventManager());
+		component.getAction().setFile(component);
+	}
+
 }
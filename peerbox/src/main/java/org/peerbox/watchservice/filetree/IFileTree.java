@@ -41,6 +41,28 @@ public interface IFileTree {
 
 	FolderComposite findDeletedByStructure(FolderComposite createdFolder);
 
+	/**
+	 * Registers a created component as move target and takes the deleted component with the
+	 * same content (files) or structure (folders), in one step that is atomic with
+	 * {@link #takeMoveTargetOrPutSource(FileComponent, boolean)}. Thus, a delete and a create
+	 * handled concurrently by different threads always find each other.
+	 *
+	 * @param isCandidate false if the component must not be registered as move target
+	 * @return the move source or null if there is none.
+	 */
+	FileComponent putMoveTargetAndTakeSource(FileComponent created, boolean isCandidate);
+
+	/**
+	 * Takes the created component with the same content (files) or structure (folders) that
+	 * still exists on disk. If there is none, the deleted component is registered as move
+	 * source, in one step that is atomic with
+	 * {@link #putMoveTargetAndTakeSource(FileComponent, boolean)}.
+	 *
+	 * @param isCandidate false if the component must not be registered as move source
+	 * @return the move target or null if there is none.
+	 */
+	FileComponent takeMoveTargetOrPutSource(FileComponent deleted, boolean isCandidate);
+
 	FileComponent getOrCreateFileComponent(Path path, IFileEventManager eventManager);
 
 	List<FileComponent> asList();
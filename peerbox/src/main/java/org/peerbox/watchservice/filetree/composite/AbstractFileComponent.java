@@ -4,6 +4,7 @@ import java.nio.file.Path;
 
 import org.peerbox.watchservice.Action;
 import org.peerbox.watchservice.IAction;
+import org.peerbox.watchservice.IFileEventManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,12 +78,25 @@ public abstract class AbstractFileComponent implements FileComponent {
 	}
 
 	/**
-	 * @return Sets the flag {@link #isUploaded}.
+	 * @return Sets the flag {@link #isUploaded}. As soon as a folder is marked as uploaded,
+	 * its children that wait for the upload in the queue are released, no matter whether the
+	 * folder was uploaded by an action or e.g. found in the network during initialization.
 	 */
 	@Override
 	public final void setIsUploaded(boolean isUploaded) {
 		logger.trace("SetIsUploaded of {}  with ID {} to {}", getPath(), hashCode(), isUploaded);
+		boolean wasUploaded = this.isUploaded;
 		this.isUploaded = isUploaded;
+		if (isUploaded && !wasUploaded && isFolder()) {
+			releaseDependents();
+		}
+	}
+
+	private void releaseDependents() {
+		IFileEventManager eventManager = action.getFileEventManager();
+		if (eventManager != null && eventManager.getFileComponentQueue() != null) {
+			eventManager.getFileComponentQueue().releaseDependents(this);
+		}
 	}
 
 	@Override
@@ -119,9 +133,17 @@ public abstract class AbstractFileComponent implements FileComponent {
 	 */
 	@Override
 	public final String getContentHash() {
+		flushContentHash();
 		return contentHash;
 	}
 
+	/**
+	 * Brings a {@link #contentHash} whose computation was deferred up to date before
+	 * it is read. Nothing is deferred by default.
+	 */
+	protected void flushContentHash() {
+	}
+
 	/**
 	 * Sets the {@link #contentHash}. This is only public because it
 	 * has to be used in the {@link org.peerbox.watchservice.filetree.
@@ -146,11 +168,34 @@ public abstract class AbstractFileComponent implements FileComponent {
 	public final boolean updateContentHash() {
 		boolean hasChanged = computeContentHash();
 		if (hasChanged && getParent() != null) {
-			getParent().updateContentHash();
+			getParent().onChildContentHashChanged(this);
 		}
 		return hasChanged;
 	}
 
+	/**
+	 * Updates the {@link #contentHash} with a hash that was computed in advance, e.g. on
+	 * a background thread. Ascending {@link org.peerbox.watchservice.filetree.composite.
+	 * FolderComposite FolderComposite}s are updated as in {@link #updateContentHash()}.
+	 *
+	 * @param contentHash the new hash, or null to compute it now.
+	 * @return True if the {@link #contentHash} changed.
+	 */
+	@Override
+	public final boolean updateContentHash(final String contentHash) {
+		if (contentHash == null) {
+			return updateContentHash();
+		}
+		if (contentHash.equals(getContentHash())) {
+			return false;
+		}
+		setContentHash(contentHash);
+		if (getParent() != null) {
+			getParent().onChildContentHashChanged(this);
+		}
+		return true;
+	}
+
 	protected abstract boolean computeContentHash();
 
 	@Override
@@ -161,7 +206,11 @@ public abstract class AbstractFileComponent implements FileComponent {
 	@Override
 	public void setIsSynchronized(boolean isSynchronized) {
 //		logger.trace("setIsSynchronized of {} with ID {} to {}", getPath(), hashCode(), isSynchronized);
+		boolean hasChanged = this.isSynchronized != isSynchronized;
 		this.isSynchronized = isSynchronized;
+		if (hasChanged && getParent() != null) {
+			getParent().onChildSynchronizedChanged(this);
+		}
 	}
 
 	/**
@@ -24,6 +24,8 @@ public interface FileComponent {
 
 	boolean updateContentHash();
 
+	boolean updateContentHash(String contentHash);
+
 	boolean isSynchronized();
 
 	void setIsSynchronized(boolean isSynchronized);
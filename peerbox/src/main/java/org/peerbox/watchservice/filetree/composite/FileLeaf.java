@@ -1,7 +1,11 @@
 package org.peerbox.watchservice.filetree.composite;
 
+import java.io.IOException;
 import java.nio.file.Path;
 
+import org.peerbox.watchservice.ContentHashCache;
+import org.peerbox.watchservice.IFileEventManager;
+import org.peerbox.watchservice.ILocalFileEventListener;
 import org.peerbox.watchservice.PathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +29,14 @@ public class FileLeaf extends AbstractFileComponent {
 
 	@Override
 	protected boolean computeContentHash() {
-		String newHash = PathUtils.computeFileContentHash(getPath());
+		String newHash;
+		try {
+			newHash = PathUtils.hashFileContent(getPath(), getContentHashCache());
+		} catch (IOException e) {
+			logger.warn("Could not compute content hash of {}, try again in the background.", getPath());
+			computeContentHashAsync();
+			return false;
+		}
 		logger.trace("New content hash: '{}'", newHash);
 		if (!getContentHash().equals(newHash)) {
 			setContentHash(newHash);
@@ -35,6 +46,28 @@ public class FileLeaf extends AbstractFileComponent {
 		}
 	}
 
+	/**
+	 * Computes the content hash in the background (e.g. if the file is locked by another
+	 * process). If it changed, the file is handled as if it was modified.
+	 */
+	private void computeContentHashAsync() {
+		PathUtils.computeFileContentHashAsync(getPath(), getContentHashCache()).thenAccept(hash -> {
+			IFileEventManager eventManager = getAction().getFileEventManager();
+			if (!hash.equals(getContentHash()) && eventManager instanceof ILocalFileEventListener) {
+				((ILocalFileEventListener) eventManager).onLocalFileModified(getPath());
+			}
+		});
+	}
+
+	/**
+	 * @return the cache of the user this file belongs to, null if the file is not managed
+	 * by an event manager (yet).
+	 */
+	private ContentHashCache getContentHashCache() {
+		IFileEventManager eventManager = getAction().getFileEventManager();
+		return eventManager != null ? eventManager.getContentHashCache() : null;
+	}
+
 	@Override
 	public boolean isFile() {
 		return true;
@@ -55,4 +88,4 @@ public class FileLeaf extends AbstractFileComponent {
 				getPath(), getContentHash(), isUploaded(), isSynchronized());
 		return s;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
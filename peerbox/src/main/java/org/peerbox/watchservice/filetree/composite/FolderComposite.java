@@ -1,10 +1,13 @@
 package org.peerbox.watchservice.filetree.composite;
 
 import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.hive2hive.core.security.HashUtil;
 import org.peerbox.watchservice.PathUtils;
@@ -20,11 +23,47 @@ public class FolderComposite extends AbstractFileComponent {
 
 	private static final Logger logger = LoggerFactory.getLogger(FolderComposite.class);
 
+	/**
+	 * Defines how the content and structure hashes of folders are computed.
+	 * <ul>
+	 * <li>INCREMENTAL: order-independent sum ({@link MultisetHash}) over the hashes of the
+	 * synchronized children. A change of a child updates each ancestor in constant time.</li>
+	 * <li>COMPATIBLE: hash over the concatenated hashes of the synchronized children, sorted
+	 * by name. Recomputed completely on every change, but produces the same values as earlier
+	 * versions.</li>
+	 * </ul>
+	 * Both modes produce the same values for empty folders and folders with a single
+	 * synchronized child. The mode should be set before the file tree is built.
+	 */
+	public enum HashMode {
+		INCREMENTAL, COMPATIBLE
+	}
+
+	private static volatile HashMode hashMode = HashMode.INCREMENTAL;
+
+	/**
+	 * If true, changes only mark the folder and its ancestors as dirty. The hashes are
+	 * recomputed when they are read, once per folder and not once per change.
+	 */
+	private static volatile boolean deferHashUpdates = true;
+
 	private final SortedMap<Path, FileComponent> children;
 
+	/** Hashes of the content hashes and names of the synchronized children **/
+	private final MultisetHash childContentHashes = new MultisetHash();
+	private final MultisetHash childNameHashes = new MultisetHash();
+
+	/** Names of children whose content hash changed since the content hash was computed **/
+	private final Set<Path> dirtyChildren = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean isContentHashDirty = new AtomicBoolean(false);
+	private volatile boolean isStructureHashDirty = false;
+
 	private String structureHash;
 	private boolean isRoot = false;
 
+	/** Index of the tree this folder belongs to (null if not attached to a root) **/
+	private volatile PathIndex index;
+
 	public FolderComposite(final Path path, boolean updateContentHash, boolean isRoot) {
 		super(path, updateContentHash);
 
@@ -35,6 +74,8 @@ public class FolderComposite extends AbstractFileComponent {
 		if (isRoot) {
 			setIsUploaded(true);
 			setIsSynchronized(true);
+			index = new PathIndex();
+			index.addSubtree(this);
 		}
 //
 //		if (updateContentHash) {
@@ -51,7 +92,26 @@ public class FolderComposite extends AbstractFileComponent {
 		setContentHash(contentHash);
 	}
 
-	public synchronized FileComponent getComponent(Path remainingPath) {
+	/**
+	 * Returns the component at the given path. The root of a tree serves absolute paths
+	 * from its {@link PathIndex} without traversing and locking the tree.
+	 *
+	 * @return the component or null if it does not exist.
+	 */
+	public FileComponent getComponent(Path remainingPath) {
+		PathIndex idx = index;
+		if (isRoot && idx != null && remainingPath.startsWith(getPath())) {
+			FileComponent component = idx.get(remainingPath);
+			if (component == null || remainingPath.equals(component.getPath())) {
+				return component;
+			}
+			// outdated entry, e.g. the component was moved without removing it first
+			idx.remove(remainingPath, component);
+		}
+		return findComponent(remainingPath);
+	}
+
+	private FileComponent findComponent(Path remainingPath) {
 		if (remainingPath.equals(getPath())) {
 			return this;
 		}
@@ -69,7 +129,7 @@ public class FolderComposite extends AbstractFileComponent {
 		} else if (nextLevel.isFolder()) {
 			// go to next level if it is a folder
 			Path newRemainingPath = remainingPath.subpath(1, remainingPath.getNameCount());
-			return ((FolderComposite)nextLevel).getComponent(newRemainingPath);
+			return ((FolderComposite)nextLevel).findComponent(newRemainingPath);
 		} else {
 			// not possible to contintue recursion.
 			return null;
@@ -86,24 +146,33 @@ public class FolderComposite extends AbstractFileComponent {
 	/**
 	 * Appends a new component to the FolderComposite. Inexistent folders are added on the
 	 * fly. Existing items are replaced. Triggers updates of content and name hashes.
+	 *
+	 * Only the folder that is changed is locked, i.e. the lock of a folder is released before
+	 * continuing with the next level. Thus, components in different subtrees can be added
+	 * concurrently.
 	 */
-	public synchronized void putComponent(Path remainingPath, FileComponent component) {
+	public void putComponent(Path remainingPath, FileComponent component) {
 		remainingPath = stripOffPrefix(remainingPath, getPath());
 
 		Path nextLevelPath = remainingPath.getName(0);
 
 		// if we are at the last recursion, perform the add, else recursively continue
 		if (remainingPath.getNameCount() == 1) {
-			deleteComponent(nextLevelPath);
-			addComponentToChildren(nextLevelPath, component);
+			synchronized (this) {
+				deleteComponent(nextLevelPath);
+				addComponentToChildren(nextLevelPath, component);
+			}
 		} else {
-			FileComponent nextLevel = children.get(nextLevelPath);
-			if (nextLevel == null) {
-				// next level does not exist yet, create it
-				Path childPath = constructFullPath(nextLevelPath);
-				nextLevel = new FolderComposite(childPath, updateContentHash);
-				nextLevel.getAction().setFileEventManager(getAction().getFileEventManager());
-				addComponentToChildren(nextLevelPath, nextLevel);
+			FileComponent nextLevel;
+			synchronized (this) {
+				nextLevel = children.get(nextLevelPath);
+				if (nextLevel == null) {
+					// next level does not exist yet, create it
+					Path childPath = constructFullPath(nextLevelPath);
+					nextLevel = new FolderComposite(childPath, updateContentHash);
+					nextLevel.getAction().setFileEventManager(getAction().getFileEventManager());
+					addComponentToChildren(nextLevelPath, nextLevel);
+				}
 			}
 			Path newRemainingPath = remainingPath.subpath(1, remainingPath.getNameCount());
 			((FolderComposite) nextLevel).putComponent(newRemainingPath, component);
@@ -114,13 +183,17 @@ public class FolderComposite extends AbstractFileComponent {
 	 * Because of the new children, the content hash of the directory may change and is propagated
 	 */
 	protected void addComponentToChildren(final Path nextLevelPath, final FileComponent component) {
-		children.remove(nextLevelPath);
-		children.put(nextLevelPath, component);
 		Path childPath = getPath().resolve(nextLevelPath);
+		FileComponent replaced = children.remove(nextLevelPath);
+		if (replaced != null && replaced != component) {
+			removeFromIndex(childPath, replaced);
+		}
+		children.put(nextLevelPath, component);
 		component.setPath(childPath);
 		component.setParent(this);
+		updateChildHashes(nextLevelPath, component);
 		if (updateContentHash) {
-			updateContentHash();
+			onContentChanged();
 		}
 		updateParentPathInChild(component);
 
@@ -128,6 +201,9 @@ public class FolderComposite extends AbstractFileComponent {
 			FolderComposite componentAsFolder = (FolderComposite) component;
 			componentAsFolder.propagatePathChangeToChildren();
 		}
+		if (index != null) {
+			index.addSubtree(component);
+		}
 		updateStructureHash();
 		if(component.isSynchronized()){
 			bubbleIsSynchronized(true);
@@ -155,26 +231,29 @@ public class FolderComposite extends AbstractFileComponent {
 	 *
 	 * @return The deleted component. If it does not exist, null is returned
 	 */
-	public synchronized FileComponent deleteComponent(Path remainingPath) {
+	public FileComponent deleteComponent(Path remainingPath) {
 		remainingPath = stripOffPrefix(remainingPath, getPath());
 
 		Path nextLevelPath = remainingPath.getName(0);
 
 		FileComponent removed = null;
 		if (remainingPath.getNameCount() == 1) {
-
-			children.get(nextLevelPath);
-			FileComponent toRemove = children.get(nextLevelPath);
-			if(toRemove != null){
-				if(toRemove instanceof FolderComposite){
-					removeBottomUp((FolderComposite)toRemove);
+			synchronized (this) {
+				FileComponent toRemove = children.get(nextLevelPath);
+				if(toRemove != null){
+					if(toRemove instanceof FolderComposite){
+						removeBottomUp((FolderComposite)toRemove);
+					}
+					removed = children.remove(nextLevelPath);
+					childContentHashes.remove(nextLevelPath);
+					childNameHashes.remove(nextLevelPath);
+					removeFromIndex(constructFullPath(nextLevelPath), removed);
 				}
-				removed = children.remove(nextLevelPath);
-			}
-			if (updateContentHash) {
-				updateContentHash();
+				if (updateContentHash) {
+					onContentChanged();
+				}
+				updateStructureHash();
 			}
-			updateStructureHash();
 		} else {
 			FileComponent nextLevel = children.get(nextLevelPath);
 			if (nextLevel != null && nextLevel.isFolder()) {
@@ -185,6 +264,20 @@ public class FolderComposite extends AbstractFileComponent {
 		return removed;
 	}
 
+	/**
+	 * Removes a component that is not a child anymore from the index. Components that were
+	 * moved to another location in the meantime (i.e. have another path) stay in the index.
+	 */
+	private void removeFromIndex(final Path childPath, final FileComponent child) {
+		if (index != null && child != null && childPath.equals(child.getPath())) {
+			index.removeSubtree(child);
+		}
+	}
+
+	void setIndex(PathIndex index) {
+		this.index = index;
+	}
+
 	private void removeBottomUp(FolderComposite folder){
 		for(FileComponent child : folder.getChildren().values()){
 			if(child instanceof FolderComposite){
@@ -200,47 +293,162 @@ public class FolderComposite extends AbstractFileComponent {
 	}
 
 	/**
-	 * Computes the content hash for this object by appending the content hashes of contained
-	 * components and hashing over it again.
+	 * Updates the hashes of a child in {@link #childContentHashes} and {@link #childNameHashes}.
+	 * Children that are not synchronized do not contribute to the hashes of this folder.
+	 */
+	private void updateChildHashes(final Path name, final FileComponent child) {
+		if (child.isSynchronized()) {
+			childContentHashes.put(name, HashUtil.hash(child.getContentHash().getBytes()));
+			childNameHashes.put(name, HashUtil.hash(name.toString().getBytes()));
+		} else {
+			childContentHashes.remove(name);
+			childNameHashes.remove(name);
+		}
+	}
+
+	/**
+	 * Called by a child after its content hash changed. Updates the content hash of this folder
+	 * and its ancestors, or marks them as dirty if updates are deferred. Locks are acquired
+	 * from the child towards the root only, i.e. changes in different subtrees do not deadlock.
+	 */
+	synchronized void onChildContentHashChanged(final FileComponent child) {
+		Path name = child.getPath().getFileName();
+		if (deferHashUpdates) {
+			dirtyChildren.add(name);
+			markContentHashDirty();
+			return;
+		}
+		if (children.get(name) == child) {
+			updateChildHashes(name, child);
+		}
+		updateContentHash();
+	}
+
+	/**
+	 * Called after the children changed, updates (or marks as dirty) the content hash of
+	 * this folder and its ancestors.
+	 */
+	private void onContentChanged() {
+		if (deferHashUpdates) {
+			markContentHashDirty();
+		} else {
+			updateContentHash();
+		}
+	}
+
+	/**
+	 * Marks the content hash of this folder as dirty. Ancestors are marked as well, unless
+	 * this folder is dirty already (in which case they are dirty too).
+	 */
+	private void markContentHashDirty() {
+		if (isContentHashDirty.compareAndSet(false, true) && getParent() != null) {
+			getParent().onChildContentHashChanged(this);
+		}
+	}
+
+	@Override
+	protected void flushContentHash() {
+		if (isContentHashDirty.get()) {
+			computeContentHash();
+		}
+	}
+
+	/**
+	 * Updates the hashes of children that changed since the content hash was computed.
+	 * Dirty child folders compute their content hash when it is read.
+	 */
+	private void updateDirtyChildHashes() {
+		for (Iterator<Path> it = dirtyChildren.iterator(); it.hasNext();) {
+			Path name = it.next();
+			it.remove();
+			FileComponent child = children.get(name);
+			if (child != null) {
+				updateChildHashes(name, child);
+			}
+		}
+	}
+
+	/**
+	 * Called by a child after its synchronized flag changed. The hashes of this folder reflect
+	 * the change the next time they are updated.
+	 */
+	synchronized void onChildSynchronizedChanged(final FileComponent child) {
+		Path name = child.getPath().getFileName();
+		if (children.get(name) == child) {
+			updateChildHashes(name, child);
+		}
+	}
+
+	/**
+	 * Computes the structure hash for this object, which is a hash over the names of the
+	 * synchronized children.
 	 *
-	 * @return
+	 * @return true if the structure hash changed.
 	 */
 	private boolean computeStructureHash() {
-		String nameHashInput = "";
 		String oldNamesHash = structureHash;
 
-		for (Map.Entry<Path, FileComponent> child : children.entrySet()) {
-			if(child.getValue().isSynchronized()){
-				nameHashInput = nameHashInput.concat(child.getKey().toString());
+		if (hashMode == HashMode.COMPATIBLE) {
+			StringBuilder nameHashInput = new StringBuilder();
+			for (Map.Entry<Path, FileComponent> child : children.entrySet()) {
+				if(child.getValue().isSynchronized()){
+					nameHashInput.append(child.getKey().toString());
+				}
 			}
+			byte[] rawHash = HashUtil.hash(nameHashInput.toString().getBytes());
+			structureHash = PathUtils.base64Encode(rawHash);
+		} else {
+			structureHash = childNameHashes.getValue();
 		}
 
-		byte[] rawHash = HashUtil.hash(nameHashInput.getBytes());
-		structureHash = PathUtils.base64Encode(rawHash);
-
 		boolean hasChanged = !structureHash.equals(oldNamesHash);
 		return hasChanged;
 	}
 
 	public void updateStructureHash() {
+		if (deferHashUpdates) {
+			markStructureHashDirty();
+			return;
+		}
 		boolean hasChanged = computeStructureHash();
-		if (hasChanged && getParent() != null) {
+		// the structure hash of the parent only depends on names. Propagate the change
+		// nevertheless in compatibility mode, which recomputes hashes completely.
+		if (hasChanged && getParent() != null && hashMode == HashMode.COMPATIBLE) {
 			getParent().updateStructureHash();
 		}
 	}
 
+	private void markStructureHashDirty() {
+		isStructureHashDirty = true;
+		if (getParent() != null && hashMode == HashMode.COMPATIBLE) {
+			getParent().markStructureHashDirty();
+		}
+	}
+
+	/**
+	 * Computes the content hash for this object, which is a hash over the content hashes
+	 * of the synchronized children.
+	 */
 	@Override
 	protected boolean computeContentHash() {
-		String hashOfChildren = "";
-		for (FileComponent child : children.values()) {
-			if(child.isSynchronized()){
-				hashOfChildren = hashOfChildren.concat(child.getContentHash());
+		// cleared before the children are visited: changes in the meantime mark it again
+		isContentHashDirty.set(false);
+		updateDirtyChildHashes();
+
+		String newHash;
+		if (hashMode == HashMode.COMPATIBLE) {
+			StringBuilder hashOfChildren = new StringBuilder();
+			for (FileComponent child : children.values()) {
+				if(child.isSynchronized()){
+					hashOfChildren.append(child.getContentHash());
+				}
 			}
+			byte[] rawHash = HashUtil.hash(hashOfChildren.toString().getBytes());
+			newHash = PathUtils.base64Encode(rawHash);
+		} else {
+			newHash = childContentHashes.getValue();
 		}
 
-		byte[] rawHash = HashUtil.hash(hashOfChildren.getBytes());
-		String newHash = PathUtils.base64Encode(rawHash);
-
 		if (!getContentHash().equals(newHash)) {
 			setContentHash(newHash);
 			return true;
@@ -292,10 +500,38 @@ public class FolderComposite extends AbstractFileComponent {
 	}
 
 	public String getStructureHash() {
+		if (isStructureHashDirty) {
+			isStructureHashDirty = false;
+			computeStructureHash();
+		}
 		return structureHash;
 	}
 
+	public static HashMode getHashMode() {
+		return hashMode;
+	}
+
+	/**
+	 * Sets the {@link HashMode} of all folders. Hashes computed before are not updated.
+	 */
+	public static void setHashMode(HashMode mode) {
+		hashMode = mode;
+	}
+
+	public static boolean isDeferHashUpdates() {
+		return deferHashUpdates;
+	}
+
+	/**
+	 * Enables or disables deferred hash updates of all folders. Should be set before the
+	 * file tree is built.
+	 */
+	public static void setDeferHashUpdates(boolean defer) {
+		deferHashUpdates = defer;
+	}
+
 	public void setStructureHash(String structureHash) {
+		isStructureHashDirty = false;
 		this.structureHash = structureHash;
 	}
 
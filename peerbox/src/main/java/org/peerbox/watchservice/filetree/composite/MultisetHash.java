@@ -0,0 +1,86 @@
+package org.peerbox.watchservice.filetree.composite;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hive2hive.core.security.HashUtil;
+import org.peerbox.watchservice.PathUtils;
+
+/**
+ * Order-independent hash over a multiset of digests. The value is the sum of all digests
+ * (interpreted as unsigned big-endian numbers, modulo 2^(8 * digest length)). Hence, adding,
+ * removing or replacing a digest takes constant time, independent of the number of digests.
+ *
+ * Each digest is stored under a key (e.g. the name of a child), such that it can be removed
+ * or replaced later without knowing the digest that was added.
+ *
+ * The value of a multiset with a single digest is the digest itself and the value of the
+ * empty multiset is the hash of the empty input.
+ */
+final class MultisetHash {
+
+	private static final String EMPTY_HASH = PathUtils.base64Encode(HashUtil.hash(new byte[0]));
+
+	private final Map<Object, byte[]> digests;
+	private byte[] sum;
+
+	MultisetHash() {
+		digests = new HashMap<Object, byte[]>();
+	}
+
+	/**
+	 * Adds the digest under the given key. An existing digest of the key is replaced.
+	 */
+	synchronized void put(Object key, byte[] digest) {
+		byte[] previous = digests.put(key, digest);
+		if (previous != null) {
+			subtract(previous);
+		}
+		add(digest);
+	}
+
+	/**
+	 * Removes the digest of the given key (if any).
+	 */
+	synchronized void remove(Object key) {
+		byte[] previous = digests.remove(key);
+		if (previous != null) {
+			subtract(previous);
+		}
+	}
+
+	synchronized int size() {
+		return digests.size();
+	}
+
+	/**
+	 * @return the base64 encoded value of the multiset.
+	 */
+	synchronized String getValue() {
+		if (digests.isEmpty()) {
+			return EMPTY_HASH;
+		}
+		return PathUtils.base64Encode(sum.clone());
+	}
+
+	private void add(byte[] digest) {
+		if (sum == null) {
+			sum = new byte[digest.length];
+		}
+		int carry = 0;
+		for (int i = sum.length - 1; i >= 0; --i) {
+			int s = (sum[i] & 0xFF) + (digest[i] & 0xFF) + carry;
+			sum[i] = (byte) s;
+			carry = s >>> 8;
+		}
+	}
+
+	private void subtract(byte[] digest) {
+		int borrow = 0;
+		for (int i = sum.length - 1; i >= 0; --i) {
+			int d = (sum[i] & 0xFF) - (digest[i] & 0xFF) - borrow;
+			sum[i] = (byte) d;
+			borrow = d < 0 ? 1 : 0;
+		}
+	}
+}
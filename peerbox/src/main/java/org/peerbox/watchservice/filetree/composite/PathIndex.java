@@ -0,0 +1,63 @@
+package org.peerbox.watchservice.filetree.composite;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flat index of a tree of {@link FileComponent}s, maps absolute paths to components.
+ * It is shared by all folders of a tree (i.e. owned by the root) and kept consistent
+ * with the tree whenever a subtree is added or removed. Lookups do not lock and do not
+ * traverse the tree.
+ */
+final class PathIndex {
+
+	private final Map<Path, FileComponent> components;
+
+	PathIndex() {
+		components = new ConcurrentHashMap<Path, FileComponent>();
+	}
+
+	FileComponent get(Path path) {
+		return components.get(path);
+	}
+
+	/**
+	 * Indexes the component and its descendants using their current paths.
+	 */
+	void addSubtree(FileComponent component) {
+		components.put(component.getPath(), component);
+		if (component.isFolder()) {
+			FolderComposite folder = (FolderComposite) component;
+			folder.setIndex(this);
+			for (FileComponent child : folder.getChildren().values()) {
+				addSubtree(child);
+			}
+		}
+	}
+
+	/**
+	 * Removes the component and its descendants from the index.
+	 */
+	void removeSubtree(FileComponent component) {
+		components.remove(component.getPath(), component);
+		if (component.isFolder()) {
+			FolderComposite folder = (FolderComposite) component;
+			folder.setIndex(null);
+			for (FileComponent child : folder.getChildren().values()) {
+				removeSubtree(child);
+			}
+		}
+	}
+
+	/**
+	 * Removes an outdated entry, i.e. a component that is not at the given path anymore.
+	 */
+	void remove(Path path, FileComponent component) {
+		components.remove(path, component);
+	}
+
+	int size() {
+		return components.size();
+	}
+}
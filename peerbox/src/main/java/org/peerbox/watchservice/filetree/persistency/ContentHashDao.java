@@ -0,0 +1,123 @@
+package org.peerbox.watchservice.filetree.persistency;
+
+import org.peerbox.app.DbContext;
+import org.sql2o.Connection;
+import org.sql2o.Sql2o;
+
+import com.google.inject.Inject;
+
+/**
+ * Stores content hashes of files together with the attributes they were computed for
+ * (file key, size and last modified time). A stored hash is only returned if the attributes
+ * did not change. The path of the file is stored as well, such that the hashes of deleted
+ * or moved files (whose file key cannot be read anymore) can be removed.
+ */
+public class ContentHashDao {
+
+	private static final String HASH_TABLE = "content_hashes";
+
+	private final DbContext dbContext;
+	private final Sql2o sql2o;
+
+	@Inject
+	public ContentHashDao(DbContext dbContext) {
+		this.dbContext = dbContext;
+		this.sql2o = new Sql2o(this.dbContext.getDataSource());
+
+		createTable();
+	}
+
+	public String getTableName() {
+		return HASH_TABLE;
+	}
+
+	/**
+	 * Creates tables and indices (if they do not exist yet)
+	 */
+	public void createTable() {
+		final String tableSql =
+				"CREATE TABLE IF NOT EXISTS " + HASH_TABLE + " ( "
+						+ "file_key NVARCHAR NOT NULL PRIMARY KEY, "
+						+ "path NVARCHAR, "
+						+ "size BIGINT NOT NULL, "
+						+ "last_modified BIGINT NOT NULL, "
+						+ "content_hash NVARCHAR(64) NOT NULL "
+				+ ");";
+
+		final String indexSql = "CREATE INDEX IF NOT EXISTS content_hashes_path "
+				+ "ON " + HASH_TABLE + " (path);";
+
+		try (Connection con = sql2o.open()) {
+			con.createQuery(tableSql).executeUpdate();
+			con.createQuery(indexSql).executeUpdate();
+		}
+	}
+
+	/**
+	 * @return the stored content hash or null if there is none for the given attributes.
+	 */
+	public String getContentHash(final String fileKey, final long size, final long lastModified) {
+		final String sql = String.format(
+				"SELECT content_hash FROM %s "
+				+ "WHERE file_key = :file_key AND size = :size AND last_modified = :last_modified;",
+				HASH_TABLE);
+
+		try (Connection con = sql2o.open()) {
+			return con.createQuery(sql)
+					.addParameter("file_key", fileKey)
+					.addParameter("size", size)
+					.addParameter("last_modified", lastModified)
+					.executeScalar(String.class);
+		}
+	}
+
+	/**
+	 * Stores the content hash of a file. A stored hash of the same file key is replaced.
+	 */
+	public void persistContentHash(final String fileKey, final String path, final long size,
+			final long lastModified, final String contentHash) {
+		final String sql =
+				"MERGE INTO " + HASH_TABLE + " "
+				+ "(file_key, path, size, last_modified, content_hash) "
+				+ "KEY(file_key) "
+				+ "VALUES (:file_key, :path, :size, :last_modified, :content_hash);";
+
+		try (Connection con = sql2o.open()) {
+			con.createQuery(sql)
+				.addParameter("file_key", fileKey)
+				.addParameter("path", path)
+				.addParameter("size", size)
+				.addParameter("last_modified", lastModified)
+				.addParameter("content_hash", contentHash)
+				.executeUpdate();
+		}
+	}
+
+	/**
+	 * Deletes the stored hashes of a path and of all paths below it.
+	 *
+	 * @param path of a file or folder
+	 * @param separator of the file system, separates the folder from its content
+	 * @return number of deleted hashes
+	 */
+	public int deleteByPath(final String path, final String separator) {
+		final String sql = String.format(
+				"DELETE FROM %s WHERE path = :path OR path LIKE :prefix ESCAPE '\\'", HASH_TABLE);
+
+		try (Connection con = sql2o.open()) {
+			return con.createQuery(sql)
+				.addParameter("path", path)
+				.addParameter("prefix", escapeLike(path + separator) + "%")
+				.executeUpdate()
+				.getResult();
+		}
+	}
+
+	private static String escapeLike(final String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	public void dumpCsv() {
+		DaoUtils.dumpTableToCsv(HASH_TABLE, sql2o);
+	}
+}
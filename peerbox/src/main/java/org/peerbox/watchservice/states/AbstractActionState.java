@@ -10,6 +10,8 @@ import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.peerbox.app.manager.ProcessHandle;
 import org.peerbox.app.manager.file.IFileManager;
+import org.peerbox.watchservice.EventCoalescer.Kind;
+import org.peerbox.watchservice.ExpectedEventRegistry;
 import org.peerbox.watchservice.IAction;
 import org.peerbox.watchservice.IFileEventManager;
 import org.peerbox.watchservice.filetree.IFileTree;
@@ -19,8 +21,6 @@ import org.peerbox.watchservice.filetree.composite.FolderComposite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.SetMultimap;
-
 /**
  * Base class for the concrete states of the state pattern.
  *
@@ -44,6 +44,28 @@ public abstract class AbstractActionState {
 		this.type = type;
 	}
 
+	/**
+	 * Registers the local events of a download that is about to start (see
+	 * {@link ExpectedEventRegistry}). They are settled by the download listener
+	 * ({@link org.peerbox.watchservice.states.listeners.RemoteFileDownloadListener
+	 * RemoteFileDownloadListener}) and cancelled if the download fails or times out.
+	 *
+	 * @param download handle of the download, not executed yet
+	 * @return the registry of the expected events
+	 */
+	protected ExpectedEventRegistry expectDownload(final ProcessHandle<Void> download) {
+		final Path path = action.getFile().getPath();
+		final ExpectedEventRegistry expectedEvents = action.getFileEventManager().getExpectedEvents();
+		expectedEvents.expect(path, Kind.CREATE);
+		expectedEvents.expect(path, Kind.MODIFY);
+		download.getCompletion().whenComplete((result, error) -> {
+			if (error != null) {
+				expectedEvents.cancel(path);
+			}
+		});
+		return expectedEvents;
+	}
+
 	public StateType getStateType(){
 		return type;
 	}
@@ -121,20 +143,9 @@ public abstract class AbstractActionState {
 		action.updateTimeAndQueue();
 		file.setIsSynchronized(false);
 
-		if(file.isFile()){
-			FileLeaf moveTarget = fileTree.findCreatedByContent((FileLeaf)file);
-			if(moveTargetIsValid(moveTarget)){
-				return performSwappedMove(moveTarget);
-			} else if(file.isUploaded()){
-				putToFileMoveSources((FileLeaf)file);
-			}
-		} else {
-			FileComponent moveTarget = fileTree.findCreatedByStructure((FolderComposite)file);
-			if(moveTargetIsValid(moveTarget)){
-				return performSwappedMove(moveTarget);
-			} else if(file.isUploaded()){
-				putToFolderMoveSources((FolderComposite)file);
-			}
+		FileComponent moveTarget = fileTree.takeMoveTargetOrPutSource(file, file.isUploaded());
+		if(moveTarget != null){
+			return performSwappedMove(moveTarget);
 		}
 
 		file.getParent().updateContentHash();
@@ -178,11 +189,21 @@ public abstract class AbstractActionState {
 		eventManager.getFileTree().deleteFile(action.getFile().getPath());
 		eventManager.getFileComponentQueue().remove(action.getFile());
 
+		Path path = action.getFile().getPath();
+		ExpectedEventRegistry expectedEvents = eventManager.getExpectedEvents();
+		expectedEvents.expect(path, Kind.DELETE);
+		boolean deleted = false;
 		try {
-			java.nio.file.Files.delete(action.getFile().getPath());
+			java.nio.file.Files.delete(path);
+			deleted = true;
 		} catch (IOException e) {
-			logger.warn("Could not delete file {} ({}).",
-					action.getFile().getPath(), e.getMessage(), e);
+			logger.warn("Could not delete file {} ({}).", path, e.getMessage(), e);
+		} finally {
+			if (deleted) {
+				expectedEvents.settle(path);
+			} else {
+				expectedEvents.cancel(path);
+			}
 		}
 		return changeStateOnRemoteDelete();
 	}
@@ -206,24 +227,6 @@ public abstract class AbstractActionState {
 		return changeStateOnRemoteMove(sourcePath);
 	}
 
-	private boolean moveTargetIsValid(FileComponent moveTarget){
-		return moveTarget != null && moveTarget.getPath().toFile().exists();
-	}
-
-	private void putToFolderMoveSources(FolderComposite file) {
-		final IFileTree fileTree = action.getFileEventManager().getFileTree();
-		SetMultimap<String, FolderComposite> deletedFolders = fileTree.getDeletedByStructureHash();
-		logger.trace("Delete folder: put folder {} with structure hash {} to deleted folders.", file.getPath(), file.getStructureHash());
-		deletedFolders.put(file.getStructureHash(), (FolderComposite)file);
-	}
-
-	private void putToFileMoveSources(FileLeaf file) {
-		final IFileTree fileTree = action.getFileEventManager().getFileTree();
-		SetMultimap<String, FileComponent> deletedFiles = fileTree.getDeletedByContentHash();
-		deletedFiles.put(file.getContentHash(), file);
-		logger.debug("Put deleted file {} with hash {} to SetMultimap<String, FileComponent>", file.getPath(), file.getContentHash());
-	}
-
 
 	private AbstractActionState performSwappedMove(
 			FileComponent moveTarget) {
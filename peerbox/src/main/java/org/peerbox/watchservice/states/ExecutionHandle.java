@@ -2,8 +2,6 @@ package org.peerbox.watchservice.states;
 
 import org.peerbox.app.manager.ProcessHandle;
 import org.peerbox.watchservice.IAction;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Encapsulation class for the ProcessHandles in Hive2Hive.
@@ -12,14 +10,15 @@ import org.slf4j.LoggerFactory;
  */
 public class ExecutionHandle {
 
-	private final static Logger logger = LoggerFactory.getLogger(ExecutionHandle.class);
 	private IAction action;
 	private ProcessHandle<Void> processHandle;
-	private int timeouts = 0;
+	/** Time (ms) at which the execution was started **/
+	private final long startTime;
 
 	public ExecutionHandle(IAction action, ProcessHandle<Void> processHandle) {
 		this.action = action;
 		this.processHandle = processHandle;
+		this.startTime = System.currentTimeMillis();
 	}
 
 	public IAction getAction() {
@@ -30,17 +29,16 @@ public class ExecutionHandle {
 		return processHandle;
 	}
 
-	public void incrementTimeouts() {
-		timeouts++;
-		logger.trace("Incremented timeout to {}", timeouts);
+	public long getStartTime() {
+		return startTime;
 	}
 
-	public int getTimeouts() {
-		return timeouts;
-	}
-
-	public void setTimeouts(int i) {
-		logger.trace("set timeout to {}", i);
-		timeouts = i;
+	/**
+	 * Cancels the execution, see {@link ProcessHandle#cancel()}.
+	 *
+	 * @return true if the execution was cancelled, false if it already ended.
+	 */
+	public boolean cancel() {
+		return processHandle != null && processHandle.cancel();
 	}
 }
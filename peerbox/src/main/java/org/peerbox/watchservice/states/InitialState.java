@@ -58,17 +58,12 @@ public class InitialState extends AbstractActionState {
 
 		fileTree.putFile(file.getPath(), file);
 
-		addComponentToMoveTargetCandidates();
-
-		if (file.isFolder()) {
-			FolderComposite moveSource = fileTree.findDeletedByStructure((FolderComposite)file);
-			if (moveSource != null) {
-				return moveFolder(moveSource);
-			}
-		} else {
-			FileLeaf moveSource = fileTree.findDeletedByContent((FileLeaf)file);
-			if(moveSource != null){
-				return moveFile(moveSource);
+		FileComponent moveSource = fileTree.putMoveTargetAndTakeSource(file, isMoveTargetCandidate());
+		if (moveSource != null) {
+			if (file.isFolder()) {
+				return moveFolder((FolderComposite) moveSource);
+			} else {
+				return moveFile((FileLeaf) moveSource);
 			}
 		}
 		if (file.isUploaded() && file.isSynchronized()) {
@@ -100,20 +95,13 @@ public class InitialState extends AbstractActionState {
 		return null;
 	}
 
-	private void addComponentToMoveTargetCandidates() {
+	private boolean isMoveTargetCandidate() {
 		if(action.getFile().getPath().toString().contains("CONFLICT")){
 			logger.trace("Workaround: Don't add conflict file {} to move target candidates",
 					action.getFile().getPath());
-			return;
-		}
-		if(action.getFile().isFile()){
-			SetMultimap<String, FileComponent> createdByContentHash = action.getFileEventManager().getFileTree().getCreatedByContentHash();
-			logger.trace("Put file {} with content hash {}", action.getFile().getPath(), action.getFile().getContentHash());
-			createdByContentHash.put(action.getFile().getContentHash(), action.getFile());
-		} else {
-			SetMultimap<String, FolderComposite> createdByStructureHash = action.getFileEventManager().getFileTree().getCreatedByStructureHash();
-			createdByStructureHash.put(((FolderComposite)action.getFile()).getStructureHash(), (FolderComposite)action.getFile());
+			return false;
 		}
+		return true;
 	}
 
 	private AbstractActionState localCreateDefaultHandling() {
@@ -8,6 +8,7 @@ import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.peerbox.app.manager.file.FileInfo;
 import org.peerbox.app.manager.file.IFileManager;
+import org.peerbox.watchservice.ExpectedEventRegistry;
 import org.peerbox.watchservice.IAction;
 import org.peerbox.watchservice.conflicthandling.ConflictHandler;
 import org.peerbox.watchservice.filetree.IFileTree;
@@ -39,7 +40,11 @@ public class RemoteCreateState extends AbstractActionState {
 		handle = fileManager.download(path);
 		if (handle != null && handle.getProcess() != null) {
 			FileInfo file = new FileInfo(action.getFile());
-			handle.getProcess().attachListener(new RemoteFileAddListener(file, action.getFileEventManager().getMessageBus()));
+			// the download is reported by the watch service, these events are dropped
+			ExpectedEventRegistry expectedEvents = expectDownload(handle);
+			handle.getProcess().attachListener(new RemoteFileAddListener(file,
+					action.getFileEventManager().getMessageBus(), action.getFile(), fileManager,
+					expectedEvents));
 			handle.executeAsync();
 		} else {
 			logger.warn("process or handle is null");
@@ -61,7 +66,7 @@ public class RemoteCreateState extends AbstractActionState {
 
 	@Override
 	public AbstractActionState handleLocalCreate() {
-		action.getFile().updateContentHash();
+		// the content hash is already updated by the event manager
 		return changeStateOnLocalCreate();
 	}
 
@@ -8,6 +8,7 @@ import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.peerbox.app.manager.file.FileInfo;
 import org.peerbox.app.manager.file.IFileManager;
+import org.peerbox.watchservice.ExpectedEventRegistry;
 import org.peerbox.watchservice.IAction;
 import org.peerbox.watchservice.conflicthandling.ConflictHandler;
 import org.peerbox.watchservice.filetree.IFileTree;
@@ -26,7 +27,6 @@ import org.slf4j.LoggerFactory;
  */
 public class RemoteUpdateState extends AbstractActionState {
 
-	private boolean localUpdateHappened = false;
 	private final static Logger logger = LoggerFactory.getLogger(RemoteUpdateState.class);
 
 	public RemoteUpdateState(IAction action) {
@@ -41,7 +41,11 @@ public class RemoteUpdateState extends AbstractActionState {
 		handle = fileManager.download(path);
 		if (handle != null && handle.getProcess() != null) {
 			FileInfo file = new FileInfo(action.getFile());
-			handle.getProcess().attachListener(new RemoteFileUpdateListener(file, action.getFileEventManager().getMessageBus()));
+			// the download is reported by the watch service, these events are dropped
+			ExpectedEventRegistry expectedEvents = expectDownload(handle);
+			handle.getProcess().attachListener(new RemoteFileUpdateListener(file,
+					action.getFileEventManager().getMessageBus(), action.getFile(), fileManager,
+					expectedEvents));
 			handle.executeAsync();
 		} else {
 			logger.warn("process or handle is null");
@@ -115,12 +119,4 @@ public class RemoteUpdateState extends AbstractActionState {
 		logStateTransition(getStateType(), EventType.REMOTE_MOVE, StateType.INITIAL);
 		return new InitialState(action);
 	}
-
-	public void setLocalUpdateHappened(boolean b){
-		localUpdateHappened = b;
-	}
-
-	public boolean getLocalUpdateHappened(){
-		return localUpdateHappened;
-	}
 }
@@ -0,0 +1,78 @@
+package org.peerbox.watchservice.states.listeners;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hive2hive.core.processes.files.list.FileNode;
+import org.hive2hive.processframework.interfaces.IProcessEventArgs;
+import org.peerbox.app.manager.file.FileInfo;
+import org.peerbox.app.manager.file.IFileManager;
+import org.peerbox.events.MessageBus;
+import org.peerbox.watchservice.ExpectedEventRegistry;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Base class of the listeners of downloads. As soon as a download succeeded, the local events
+ * it caused are settled (see {@link ExpectedEventRegistry}) and the content hash of the
+ * downloaded version is stored in the file tree. The hash is taken from the remote file node,
+ * which is looked up in the background while the download runs, and not from the disk.
+ */
+public class RemoteFileDownloadListener extends FileOperationListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(RemoteFileDownloadListener.class);
+
+	/* looks up the downloaded versions, the threads of the processes are not blocked */
+	private static final ExecutorService remoteLookup = Executors.newFixedThreadPool(2,
+			new ThreadFactoryBuilder().setNameFormat("RemoteFileLookupThread-%d").setDaemon(true).build());
+
+	private final FileComponent component;
+	private final ExpectedEventRegistry expectedEvents;
+	/* content hash of the downloaded version, null if unknown */
+	private final CompletableFuture<String> remoteContentHash;
+
+	RemoteFileDownloadListener(final FileInfo file, MessageBus messageBus, FileComponent component,
+			IFileManager fileManager, ExpectedEventRegistry expectedEvents) {
+		super(file, messageBus);
+		this.component = component;
+		this.expectedEvents = expectedEvents;
+		if (component.isFile()) {
+			final Path path = file.getPath();
+			this.remoteContentHash = CompletableFuture.supplyAsync(() -> {
+				FileNode node = fileManager.getRemoteFileNode(path);
+				return node != null ? new FileInfo(node).getContentHash() : null;
+			}, remoteLookup);
+		} else {
+			this.remoteContentHash = CompletableFuture.completedFuture(null);
+		}
+	}
+
+	@Override
+	public void onExecutionSucceeded(IProcessEventArgs args) {
+		super.onExecutionSucceeded(args);
+		final Path path = getFile().getPath();
+		expectedEvents.settle(path);
+		if (component.isFolder()) {
+			return;
+		}
+
+		remoteContentHash.whenComplete((contentHash, error) -> {
+			if (contentHash == null) {
+				logger.warn("Downloaded version of {} unknown, hash the local file.", path);
+			}
+			// null computes the hash from the disk
+			component.updateContentHash(contentHash);
+		});
+	}
+
+	@Override
+	public void onExecutionFailed(IProcessEventArgs args) {
+		super.onExecutionFailed(args);
+		expectedEvents.cancel(getFile().getPath());
+	}
+}
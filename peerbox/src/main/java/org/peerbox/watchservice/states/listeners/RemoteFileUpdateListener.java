@@ -2,13 +2,17 @@ package org.peerbox.watchservice.states.listeners;
 
 import org.hive2hive.processframework.interfaces.IProcessEventArgs;
 import org.peerbox.app.manager.file.FileInfo;
+import org.peerbox.app.manager.file.IFileManager;
 import org.peerbox.app.manager.file.messages.RemoteFileUpdatedMessage;
 import org.peerbox.events.MessageBus;
+import org.peerbox.watchservice.ExpectedEventRegistry;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
 
-public class RemoteFileUpdateListener extends FileOperationListener{
+public class RemoteFileUpdateListener extends RemoteFileDownloadListener{
 
-	public RemoteFileUpdateListener(FileInfo file, MessageBus messageBus) {
-		super(file, messageBus);
+	public RemoteFileUpdateListener(FileInfo file, MessageBus messageBus,
+			FileComponent component, IFileManager fileManager, ExpectedEventRegistry expectedEvents) {
+		super(file, messageBus, component, fileManager, expectedEvents);
 	}
 
 	@Override
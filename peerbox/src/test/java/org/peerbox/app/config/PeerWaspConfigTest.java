@@ -35,4 +35,14 @@ public class PeerWaspConfigTest {
 		assertTrue(config.getMaximalExecutionAttempts() >= 0);
 	}
 
+	@Test
+	public void testGetFileScanParallelism() {
+		assertTrue(config.getFileScanParallelism() >= 1);
+	}
+
+	@Test
+	public void testGetMaxWatchedFolders() {
+		assertTrue(config.getMaxWatchedFolders() >= 0);
+	}
+
 }
@@ -211,6 +211,19 @@ public class UserConfigTest extends BaseJUnitTest {
 		userConfigAssertPersistence(userConfig, configFile);
 	}
 
+	@Test
+	public void testSetPollingWatchService() throws IOException {
+		assertFalse(userConfig.isPollingWatchServiceEnabled());
+
+		userConfig.setPollingWatchService(true);
+		assertTrue(userConfig.isPollingWatchServiceEnabled());
+		userConfigAssertPersistence(userConfig, configFile);
+
+		userConfig.setPollingWatchService(false);
+		assertFalse(userConfig.isPollingWatchServiceEnabled());
+		userConfigAssertPersistence(userConfig, configFile);
+	}
+
 	/**
 	 * Allows to check that changes made to a config are persistent, i.e. saved on disk in
 	 * a property file.
@@ -240,6 +253,7 @@ public class UserConfigTest extends BaseJUnitTest {
 		assertTrue(a.hasRootPath() == b.hasRootPath());
 
 		assertEquals(a.isAutoLoginEnabled(), b.isAutoLoginEnabled());
+		assertEquals(a.isPollingWatchServiceEnabled(), b.isPollingWatchServiceEnabled());
 
 		assertEquals(a.getConfigFile(), b.getConfigFile());
 
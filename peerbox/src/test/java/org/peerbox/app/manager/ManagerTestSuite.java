@@ -6,6 +6,7 @@ import org.junit.runners.Suite.SuiteClasses;
 import org.peerbox.app.manager.file.FileInfoTest;
 import org.peerbox.app.manager.file.FileManagerNetworkTest;
 import org.peerbox.app.manager.file.FileManagerTest;
+import org.peerbox.app.manager.node.ConnectivityMonitorTest;
 import org.peerbox.app.manager.node.NodeManagerTest;
 import org.peerbox.app.manager.user.FileAgentTest;
 import org.peerbox.app.manager.user.UserManagerTest;
@@ -19,6 +20,7 @@ import org.peerbox.app.manager.user.UserManagerTest;
 
 	// Node package
 	NodeManagerTest.class,
+	ConnectivityMonitorTest.class,
 
 	// User package
 	FileAgentTest.class,
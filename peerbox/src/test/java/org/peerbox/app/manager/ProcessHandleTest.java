@@ -4,14 +4,25 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.hive2hive.processframework.exceptions.InvalidProcessStateException;
 import org.hive2hive.processframework.exceptions.ProcessExecutionException;
 import org.hive2hive.processframework.interfaces.IProcessComponent;
+import org.hive2hive.processframework.interfaces.IProcessComponentListener;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.peerbox.BaseJUnitTest;
 
@@ -62,8 +73,155 @@ public class ProcessHandleTest extends BaseJUnitTest {
 	@Test
 	public void testExecuteAsync() throws InvalidProcessStateException, ProcessExecutionException {
 		handle.executeAsync();
+		Mockito.verify(process, Mockito.times(1)).attachListener(Mockito.any(IProcessComponentListener.class));
 		Mockito.verify(process, Mockito.times(1)).executeAsync();
 		Mockito.verifyNoMoreInteractions(process);
 	}
 
+	@Test
+	public void testCompletion_Succeeded() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		handle.executeAsync();
+		assertFalse(handle.getCompletion().isDone());
+
+		future.complete(null);
+		getListener().onExecutionSucceeded(null);
+
+		handle.getCompletion().get(5, TimeUnit.SECONDS);
+		assertFalse(handle.getCompletion().isCompletedExceptionally());
+	}
+
+	@Test
+	public void testCompletion_Failed() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		ProcessExecutionException pex = Mockito.mock(ProcessExecutionException.class);
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		handle.executeAsync();
+
+		future.completeExceptionally(pex);
+		getListener().onExecutionFailed(null);
+
+		try {
+			handle.getCompletion().get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertEquals(pex, e.getCause());
+		}
+		assertTrue(handle.getCompletion().isCompletedExceptionally());
+	}
+
+	@Test
+	public void testCompletion_ResultNotReady() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		handle.executeAsync();
+
+		// the end is notified before the future is done
+		getListener().onExecutionSucceeded(null);
+		assertFalse(handle.getCompletion().isDone());
+
+		future.complete(null);
+		handle.getCompletion().get(5, TimeUnit.SECONDS);
+		assertFalse(handle.getCompletion().isCompletedExceptionally());
+	}
+
+	@Test
+	public void testCompletion_Timeout() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		handle.executeAsync();
+		handle.cancelAfter(100, TimeUnit.MILLISECONDS);
+
+		// the process does not end in time and is rolled back
+		Mockito.verify(process, Mockito.timeout(5000)).rollbackAsync();
+		Mockito.verify(process).pause();
+		// the slot must not be released before the process is rolled back
+		assertFalse(handle.getCompletion().isDone());
+
+		getListener().onRollbackSucceeded(null);
+		try {
+			handle.getCompletion().get(5, TimeUnit.SECONDS);
+			fail("Completion should time out.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof TimeoutException);
+		}
+	}
+
+	@Test
+	public void testCompletion_TimeoutNotNotified() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		Mockito.doThrow(Mockito.mock(InvalidProcessStateException.class)).when(process).pause();
+		handle.executeAsync();
+
+		// the process ended, but never notifies its end
+		future.complete(null);
+		handle.cancelAfter(100, TimeUnit.MILLISECONDS);
+
+		handle.getCompletion().get(5, TimeUnit.SECONDS);
+		assertFalse(handle.getCompletion().isCompletedExceptionally());
+		Mockito.verify(process, Mockito.never()).rollbackAsync();
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		assertFalse(handle.cancel());
+
+		handle.executeAsync();
+		assertTrue(handle.cancel());
+		Mockito.verify(process).pause();
+		Mockito.verify(process).rollbackAsync();
+		// already cancelled
+		assertFalse(handle.cancel());
+
+		// the slot must not be released before the process is rolled back
+		assertFalse(handle.getCompletion().isDone());
+		getListener().onRollbackSucceeded(null);
+		try {
+			handle.getCompletion().get(5, TimeUnit.SECONDS);
+			fail("Completion should be cancelled.");
+		} catch (CancellationException e) {
+			assertTrue(handle.getCompletion().isCompletedExceptionally());
+		}
+	}
+
+	@Test
+	public void testCancel_NotExecuting() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		Mockito.doThrow(Mockito.mock(InvalidProcessStateException.class)).when(process).pause();
+		handle.executeAsync();
+
+		// the process ends before it can be paused
+		future.complete(null);
+		getListener().onExecutionSucceeded(null);
+		assertFalse(handle.cancel());
+		Mockito.verify(process, Mockito.never()).rollbackAsync();
+
+		handle.getCompletion().get(5, TimeUnit.SECONDS);
+		assertFalse(handle.getCompletion().isCompletedExceptionally());
+	}
+
+	@Test
+	public void testCancel_AfterCompletion() throws Exception {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		Mockito.stub(process.executeAsync()).toReturn(future);
+		handle.executeAsync();
+
+		future.complete(null);
+		getListener().onExecutionSucceeded(null);
+		handle.getCompletion().get(5, TimeUnit.SECONDS);
+
+		assertFalse(handle.cancel());
+		assertFalse(handle.getCompletion().isCompletedExceptionally());
+	}
+
+	private IProcessComponentListener getListener() {
+		ArgumentCaptor<IProcessComponentListener> listener = ArgumentCaptor.forClass(IProcessComponentListener.class);
+		Mockito.verify(process).attachListener(listener.capture());
+		return listener.getValue();
+	}
+
 }
@@ -0,0 +1,94 @@
+package org.peerbox.app.manager.node;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.peerbox.BaseJUnitTest;
+import org.peerbox.app.config.BootstrappingNodesFactory;
+import org.peerbox.events.MessageBus;
+
+public class ConnectivityMonitorTest extends BaseJUnitTest {
+
+	private ConnectivityMonitor monitor;
+	private INodeManager nodeManager;
+	private MessageBus messageBus;
+	private Path folder;
+
+	@Before
+	public void setUp() throws Exception {
+		nodeManager = Mockito.mock(INodeManager.class);
+		messageBus = Mockito.mock(MessageBus.class);
+
+		folder = Files.createTempDirectory("PeerWasp_nodes");
+		Path lastNodeFile = folder.resolve("lastnode");
+		Path nodesFile = folder.resolve("bootstrappingnodes");
+		Files.write(lastNodeFile, Arrays.asList("10.0.0.2"));
+		Files.write(nodesFile, Arrays.asList("10.0.0.1"));
+		BootstrappingNodesFactory factory = new BootstrappingNodesFactory();
+		factory.setLastNodeFile(lastNodeFile);
+		factory.setNodesFile(nodesFile);
+
+		monitor = new ConnectivityMonitor(nodeManager, messageBus, factory);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		monitor.stop();
+		FileUtils.deleteDirectory(folder.toFile());
+	}
+
+	@Test
+	public void testConnectAndLeave() {
+		assertEquals(ConnectivityMonitor.State.OFFLINE, monitor.getState());
+
+		monitor.onNodeConnected(new NodeConnectMessage("10.0.0.1"));
+		assertEquals(ConnectivityMonitor.State.ONLINE, monitor.getState());
+
+		monitor.onNodeDisconnected(new NodeDisconnectMessage());
+		assertEquals(ConnectivityMonitor.State.OFFLINE, monitor.getState());
+		Mockito.verify(nodeManager, Mockito.never()).reconnect(Matchers.<List<String>>any());
+	}
+
+	@Test
+	public void testReconnect() throws InterruptedException {
+		Mockito.stub(nodeManager.reconnect(Matchers.<List<String>>any())).toReturn(true);
+		monitor.onNodeConnected(new NodeConnectMessage("10.0.0.3"));
+
+		monitor.onNodeDisconnected(new NodeDisconnectMessage(true));
+
+		// last address first, then the configured nodes
+		Mockito.verify(nodeManager, Mockito.timeout(5000)).reconnect(
+				Arrays.asList("10.0.0.3", "10.0.0.2", "10.0.0.1"));
+		Thread.sleep(100);
+		assertEquals(ConnectivityMonitor.State.ONLINE, monitor.getState());
+	}
+
+	@Test
+	public void testReconnectFailed() throws InterruptedException {
+		Mockito.stub(nodeManager.reconnect(Matchers.<List<String>>any())).toReturn(false);
+		monitor.onNodeConnected(new NodeConnectMessage("10.0.0.3"));
+
+		monitor.onNodeDisconnected(new NodeDisconnectMessage(true));
+
+		Mockito.verify(nodeManager, Mockito.timeout(5000)).reconnect(Matchers.<List<String>>any());
+		Thread.sleep(100);
+		assertEquals(ConnectivityMonitor.State.RECONNECTING, monitor.getState());
+		assertEquals(1, monitor.getReconnectAttempts());
+
+		// connected in the meantime, e.g. by the user
+		monitor.onNodeConnected(new NodeConnectMessage("10.0.0.1"));
+		assertEquals(ConnectivityMonitor.State.ONLINE, monitor.getState());
+		assertEquals(0, monitor.getReconnectAttempts());
+	}
+}
@@ -0,0 +1,161 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.states.AbstractActionState;
+import org.peerbox.watchservice.states.LocalMoveState;
+import org.peerbox.watchservice.states.StateType;
+
+public class ActionJournalTest {
+
+	private Path folder;
+	private Path file;
+	private ActionJournal journal;
+
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("PeerWasp_journal");
+		file = folder.resolve("test.journal");
+		journal = new ActionJournal(file);
+		journal.open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		journal.close();
+		FileUtils.deleteDirectory(folder.toFile());
+	}
+
+	@Test
+	public void testRecordAndReopen() throws IOException {
+		journal.record(createFileComponent("/a", StateType.LOCAL_CREATE, StateType.ESTABLISHED, "h1"));
+		journal.record(createFileComponent("/b", StateType.LOCAL_UPDATE, StateType.LOCAL_UPDATE, "h2"));
+		journal.close();
+
+		journal = new ActionJournal(file);
+		journal.open();
+		List<ActionJournal.Entry> entries = journal.getEntries();
+		assertEquals(2, entries.size());
+		assertEquals(Paths.get("/a"), entries.get(0).getPath());
+		assertEquals(StateType.LOCAL_CREATE, entries.get(0).getPendingState());
+		assertEquals("h1", entries.get(0).getContentHash());
+		assertEquals(StateType.LOCAL_UPDATE, entries.get(1).getNextState());
+		assertNull(entries.get(1).getSourcePath());
+	}
+
+	@Test
+	public void testRecordMove() throws IOException {
+		FileComponent moved = createFileComponent("/target", StateType.LOCAL_MOVE, StateType.ESTABLISHED, "h");
+		LocalMoveState state = Mockito.mock(LocalMoveState.class);
+		Mockito.stub(state.getStateType()).toReturn(StateType.LOCAL_MOVE);
+		Mockito.stub(state.getSourcePath()).toReturn(Paths.get("/source"));
+		Mockito.stub(moved.getAction().getCurrentState()).toReturn(state);
+		journal.record(moved);
+		journal.close();
+
+		journal = new ActionJournal(file);
+		journal.open();
+		assertEquals(Paths.get("/source"), journal.getEntries().get(0).getSourcePath());
+	}
+
+	@Test
+	public void testRemove() throws IOException {
+		journal.record(createFileComponent("/a", StateType.LOCAL_CREATE, StateType.ESTABLISHED, "h1"));
+		journal.record(createFileComponent("/b", StateType.LOCAL_CREATE, StateType.ESTABLISHED, "h2"));
+		journal.remove(Paths.get("/a"));
+		journal.close();
+
+		journal = new ActionJournal(file);
+		journal.open();
+		assertEquals(1, journal.getEntries().size());
+		assertEquals(Paths.get("/b"), journal.getEntries().get(0).getPath());
+	}
+
+	@Test
+	public void testPendingState() {
+		ActionJournal.Entry entry = new ActionJournal.Entry(Paths.get("/a"), StateType.ESTABLISHED,
+				StateType.LOCAL_UPDATE, "h", null);
+		assertEquals(StateType.LOCAL_UPDATE, entry.getPendingState());
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		FileComponent f = createFileComponent("/a", StateType.LOCAL_UPDATE, StateType.ESTABLISHED, "h");
+		for (int i = 0; i < 2000; ++i) {
+			Mockito.stub(f.getContentHash()).toReturn("h" + i);
+			journal.record(f);
+		}
+		journal.flush();
+		// compacted whenever the records exceed twice the live entries
+		assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).size() < 1000);
+		assertEquals("h1999", journal.getEntries().get(0).getContentHash());
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		journal.record(createFileComponent("/a", StateType.LOCAL_CREATE, StateType.ESTABLISHED, "h1"));
+		journal.flush();
+		// written while the journal is still open
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0).endsWith("h1\t-\t" + Paths.get("/a")));
+	}
+
+	@Test
+	public void testFolderWithoutHash() throws IOException {
+		FileComponent folder = createFileComponent("/folder", StateType.LOCAL_CREATE, StateType.ESTABLISHED, "h");
+		Mockito.stub(folder.isFile()).toReturn(false);
+		journal.record(folder);
+		journal.close();
+
+		// the hash of a folder is never computed
+		Mockito.verify(folder, Mockito.never()).getContentHash();
+		journal = new ActionJournal(file);
+		journal.open();
+		assertNull(journal.getEntries().get(0).getContentHash());
+	}
+
+	@Test
+	public void testIncompleteRecordIgnored() throws IOException {
+		journal.record(createFileComponent("/a", StateType.LOCAL_CREATE, StateType.ESTABLISHED, "h1"));
+		journal.close();
+		// crash while writing the last record
+		Files.write(file, "P\tLOCAL_UPD".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		journal = new ActionJournal(file);
+		journal.open();
+		assertEquals(1, journal.getEntries().size());
+	}
+
+	private FileComponent createFileComponent(String path, StateType current, StateType next, String hash) {
+		FileComponent f = Mockito.mock(FileComponent.class);
+		IAction action = Mockito.mock(IAction.class);
+		AbstractActionState currentState = Mockito.mock(AbstractActionState.class);
+		AbstractActionState nextState = Mockito.mock(AbstractActionState.class);
+		Mockito.stub(currentState.getStateType()).toReturn(current);
+		Mockito.stub(nextState.getStateType()).toReturn(next);
+		Mockito.stub(action.getCurrentState()).toReturn(currentState);
+		Mockito.stub(action.getNextState()).toReturn(nextState);
+		Mockito.stub(f.getAction()).toReturn(action);
+		Mockito.stub(f.getPath()).toReturn(Paths.get(path));
+		Mockito.stub(f.getContentHash()).toReturn(hash);
+		Mockito.stub(f.isFile()).toReturn(true);
+		return f;
+	}
+}
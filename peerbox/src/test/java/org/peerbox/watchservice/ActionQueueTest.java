@@ -1,9 +1,11 @@
 package org.peerbox.watchservice;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -13,6 +15,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.filetree.composite.FileLeaf;
+import org.peerbox.watchservice.filetree.composite.FolderComposite;
 
 public class ActionQueueTest {
 
@@ -86,6 +90,21 @@ public class ActionQueueTest {
 		assertTrue(queue.size() == 0);
 	}
 
+	@Test
+	public void testRemove_NotifiesListener() {
+		List<FileComponent> removed = new ArrayList<>();
+		queue.setRemoveListener(removed::add);
+		FileComponent f1 = createFileComponent();
+		FileComponent f2 = createFileComponent();
+		queue.add(f1);
+
+		queue.remove(f2);
+		assertTrue(removed.isEmpty());
+		queue.remove(f1);
+		assertEquals(1, removed.size());
+		assertEquals(f1, removed.get(0));
+	}
+
 	@Test
 	public void testSize() throws InterruptedException {
 		FileComponent f;
@@ -100,6 +119,123 @@ public class ActionQueueTest {
 		assertTrue(queue.size() == 1);
 	}
 
+	@Test
+	public void testTakeReady_WaitsForReadyTime() throws InterruptedException {
+		final long delay = 500;
+		queue.setReadyTimeFunction(c -> c.getAction().getTimestamp() + delay);
+
+		FileComponent f = createFileComponent();
+		long start = System.currentTimeMillis();
+		queue.add(f);
+		FileComponent take = queue.takeReady();
+		long waited = System.currentTimeMillis() - start;
+
+		assertEquals(f, take);
+		assertTrue(waited >= delay - 50);
+		assertTrue(queue.size() == 0);
+	}
+
+	@Test
+	public void testTakeReady_ReadyTimeOrder() throws InterruptedException {
+		FileComponent late = createFileComponent();
+		FileComponent early = createFileComponent();
+		queue.setReadyTimeFunction(c -> c == late ? Long.MAX_VALUE - 1 : c.getAction().getTimestamp());
+
+		queue.add(late);
+		queue.add(early);
+		assertEquals(early, queue.takeReady());
+		assertTrue(queue.size() == 1);
+	}
+
+	@Test
+	public void testParkAndRelease() throws InterruptedException {
+		FileComponent parked = createFileComponent();
+		FileComponent ready = createFileComponent();
+
+		queue.park(parked);
+		assertTrue(queue.isParked(parked));
+		queue.add(ready);
+		assertTrue(queue.size() == 2);
+
+		// parked element is skipped
+		assertEquals(ready, queue.takeReady());
+
+		assertTrue(queue.release(parked));
+		assertFalse(queue.isParked(parked));
+		assertFalse(queue.release(parked));
+		assertEquals(parked, queue.takeReady());
+	}
+
+	@Test
+	public void testReleaseDependents() throws InterruptedException {
+		FolderComposite parent = Mockito.mock(FolderComposite.class);
+		FolderComposite other = Mockito.mock(FolderComposite.class);
+		FileComponent child1 = createFileComponent();
+		FileComponent child2 = createFileComponent();
+		FileComponent child3 = createFileComponent();
+		Mockito.stub(child1.getParent()).toReturn(parent);
+		Mockito.stub(child2.getParent()).toReturn(parent);
+		Mockito.stub(child3.getParent()).toReturn(other);
+
+		queue.park(child1);
+		queue.park(child2);
+		queue.park(child3);
+		assertEquals(3, queue.getNumberOfParked());
+
+		// parent uploaded: both children are released at once
+		Mockito.stub(child1.isReady()).toReturn(true);
+		Mockito.stub(child2.isReady()).toReturn(true);
+		assertEquals(2, queue.releaseDependents(parent));
+		assertFalse(queue.isParked(child1));
+		assertFalse(queue.isParked(child2));
+		assertTrue(queue.isParked(child3));
+		assertEquals(1, queue.getNumberOfParked());
+		assertEquals(0, queue.releaseDependents(parent));
+
+		assertNotNull(queue.takeReady());
+		assertNotNull(queue.takeReady());
+		assertTrue(queue.size() == 1);
+	}
+
+	@Test
+	public void testReleaseDependents_NotReady() {
+		FolderComposite parent = Mockito.mock(FolderComposite.class);
+		FileComponent child = createFileComponent();
+		Mockito.stub(child.getParent()).toReturn(parent);
+
+		queue.park(child);
+		// still not ready, e.g. moved in the meantime: parked again
+		assertEquals(0, queue.releaseDependents(parent));
+		assertTrue(queue.isParked(child));
+		assertEquals(1, queue.getNumberOfParked());
+	}
+
+	@Test
+	public void testReleaseDependents_ParentMarkedUploaded() throws InterruptedException {
+		IFileEventManager eventManager = Mockito.mock(IFileEventManager.class);
+		Mockito.stub(eventManager.getFileComponentQueue()).toReturn(queue);
+		FolderComposite parent = new FolderComposite(Paths.get("folder"), false);
+		parent.getAction().setFileEventManager(eventManager);
+		FileLeaf child = new FileLeaf(Paths.get("folder", "file"), false);
+		child.setParent(parent);
+
+		queue.park(child);
+		assertTrue(queue.isParked(child));
+
+		// e.g. found in the network when the tree is initialized, not uploaded by an action
+		parent.setIsUploaded(true);
+		assertFalse(queue.isParked(child));
+		assertEquals(0, queue.getNumberOfParked());
+		assertEquals(child, queue.takeReady());
+	}
+
+	@Test
+	public void testAdd_NoDuplicates() {
+		FileComponent f = createFileComponent();
+		queue.add(f);
+		queue.add(f);
+		assertTrue(queue.size() == 1);
+	}
 
 	/**
 	 * @return mocked file component
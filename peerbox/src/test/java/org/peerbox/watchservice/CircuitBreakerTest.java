@@ -0,0 +1,89 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.watchservice.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	private AtomicLong time;
+	private CircuitBreaker breaker;
+
+	@Before
+	public void initialization() {
+		time = new AtomicLong(0);
+		breaker = new CircuitBreaker("test", 10, 4, 0.5, 1000, 4000, time::get);
+	}
+
+	@Test
+	public void testClosed() {
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+
+		// not enough samples
+		for (int i = 0; i < 3; ++i) {
+			breaker.recordFailure();
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+
+		// failure rate not exceeded
+		for (int i = 0; i < 4; ++i) {
+			breaker.recordSuccess();
+		}
+		breaker.recordFailure();
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testOpenAndClose() {
+		openBreaker();
+		assertFalse(breaker.allowRequest());
+		assertFalse(breaker.isAvailable());
+		assertEquals(1000, breaker.getRemainingOpenTime());
+
+		time.set(1000);
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.isAvailable());
+		// single trial
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.allowRequest());
+
+		breaker.recordSuccess();
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void testTrialFailed() {
+		openBreaker();
+		time.set(1000);
+		assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+
+		// open interval is doubled
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals(2000, breaker.getRemainingOpenTime());
+	}
+
+	@Test
+	public void testTrialIgnored() {
+		openBreaker();
+		time.set(1000);
+		assertTrue(breaker.allowRequest());
+		breaker.recordIgnored();
+		assertTrue(breaker.allowRequest());
+	}
+
+	private void openBreaker() {
+		for (int i = 0; i < 4; ++i) {
+			breaker.recordFailure();
+		}
+		assertEquals(State.OPEN, breaker.getState());
+	}
+}
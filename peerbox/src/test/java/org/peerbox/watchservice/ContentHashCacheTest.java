@@ -0,0 +1,119 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.hive2hive.core.security.HashUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.utils.UserDbUtils;
+import org.peerbox.watchservice.filetree.persistency.ContentHashDao;
+
+public class ContentHashCacheTest {
+
+	private Path basePath;
+	private Path dbFile;
+	private ContentHashDao dao;
+	private ContentHashCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		basePath = Files.createTempDirectory("PeerWasp_hashcache");
+		dbFile = Paths.get(FileUtils.getTempDirectoryPath(),
+				String.format("%s.testdb", RandomStringUtils.randomAlphabetic(12)));
+
+		dao = new ContentHashDao(UserDbUtils.createDbContext(dbFile));
+		cache = new ContentHashCache(dao);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(basePath.toFile());
+		// physical db file has suffix ".mv.db"
+		Files.deleteIfExists(Paths.get(dbFile.toString() + ".mv.db"));
+	}
+
+	@Test
+	public void testCachedHash() throws IOException {
+		Path file = createFile("large.bin", 100 * 1024, 60000);
+		String hash = cache.getContentHash(file);
+		assertEquals(PathUtils.base64Encode(HashUtil.hash(file.toFile())), hash);
+		assertNotNull(getStoredHash(file));
+
+		// same size and last modified time: not hashed again
+		FileTime lastModified = Files.getLastModifiedTime(file);
+		Files.write(file, RandomStringUtils.randomAlphanumeric(100 * 1024).getBytes());
+		Files.setLastModifiedTime(file, lastModified);
+		assertEquals(hash, cache.getContentHash(file));
+
+		// last modified time changed: hashed again
+		Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified.toMillis() - 10000));
+		String newHash = cache.getContentHash(file);
+		assertFalse(hash.equals(newHash));
+		assertEquals(PathUtils.base64Encode(HashUtil.hash(file.toFile())), newHash);
+	}
+
+	@Test
+	public void testSmallFileNotCached() throws IOException {
+		Path file = createFile("small.txt", 100, 60000);
+		assertEquals(PathUtils.base64Encode(HashUtil.hash(file.toFile())), cache.getContentHash(file));
+		assertNull(getStoredHash(file));
+	}
+
+	@Test
+	public void testRecentlyModifiedNotCached() throws IOException {
+		Path file = createFile("recent.bin", 100 * 1024, 0);
+		assertNotNull(cache.getContentHash(file));
+		assertNull(getStoredHash(file));
+	}
+
+	@Test
+	public void testEvict() throws IOException {
+		Path folder = Files.createDirectory(basePath.resolve("folder_1"));
+		Path sibling = Files.createDirectory(basePath.resolve("folder_10"));
+		Path file = createFile("folder_1/large.bin", 100 * 1024, 60000);
+		Path other = createFile("folder_10/large.bin", 100 * 1024, 60000);
+		cache.getContentHash(file);
+		cache.getContentHash(other);
+		assertNotNull(getStoredHash(file));
+
+		// e.g. the folder was deleted, hashes below are evicted but not of a sibling
+		cache.evict(folder);
+		assertNull(getStoredHash(file));
+		assertNotNull(getStoredHash(other));
+
+		cache.evict(sibling.resolve("large.bin"));
+		assertNull(getStoredHash(other));
+	}
+
+	@Test
+	public void testNotAFile() throws IOException {
+		assertNull(cache.getContentHash(basePath));
+		assertNull(cache.getContentHash(basePath.resolve("missing")));
+	}
+
+	private Path createFile(String name, int size, long age) throws IOException {
+		Path file = basePath.resolve(name);
+		Files.write(file, RandomStringUtils.randomAlphanumeric(size).getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - age));
+		return file;
+	}
+
+	private String getStoredHash(Path file) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		String fileKey = attrs.fileKey() != null ? attrs.fileKey().toString() : file.toAbsolutePath().toString();
+		return dao.getContentHash(fileKey, attrs.size(), attrs.lastModifiedTime().toMillis());
+	}
+}
@@ -0,0 +1,232 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.hive2hive.core.processes.files.list.FileNode;
+import org.hive2hive.processframework.interfaces.IProcessComponent;
+import org.hive2hive.processframework.interfaces.IProcessComponentListener;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.peerbox.app.manager.ProcessHandle;
+import org.peerbox.app.manager.file.IFileManager;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.states.RemoteCreateState;
+
+public class ContentHashPipelineTest {
+
+	private Path basePath;
+	private Path file;
+	private FileEventManager eventManager;
+	private ContentHashPipeline pipeline;
+	private ExpectedEventRegistry expectedEvents;
+
+	private CountDownLatch hashStarted;
+	private CountDownLatch hashReleased;
+	private AtomicInteger hashCount;
+
+	@Before
+	public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("PeerWasp_pipeline");
+		file = Files.write(basePath.resolve("file"), "content".getBytes());
+		eventManager = mock(FileEventManager.class);
+
+		hashStarted = new CountDownLatch(1);
+		hashReleased = new CountDownLatch(1);
+		hashCount = new AtomicInteger();
+		expectedEvents = new ExpectedEventRegistry();
+		pipeline = new ContentHashPipeline(eventManager, 2, path -> {
+			hashStarted.countDown();
+			try {
+				hashReleased.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			return "hash-" + hashCount.incrementAndGet();
+		}, new WriteStabilityTracker(0, false, null), new ShardedEventDispatcher(basePath, 2),
+				expectedEvents);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		pipeline.stop();
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testOtherEventsNotDelayed() throws Exception {
+		Path other = basePath.resolve("other");
+
+		pipeline.onLocalFileModified(file);
+		assertTrue(hashStarted.await(5, TimeUnit.SECONDS));
+
+		// hashing blocks, but the delete of another file is handled
+		pipeline.onLocalFileDeleted(other);
+		verify(eventManager, timeout(5000)).onLocalFileDeleted(other);
+		verify(eventManager, never()).onLocalFileModified(any(Path.class), anyString());
+
+		hashReleased.countDown();
+		verify(eventManager, timeout(5000)).onLocalFileModified(file, "hash-1");
+	}
+
+	@Test
+	public void testCoalescedModifications() throws Exception {
+		pipeline.onLocalFileCreated(file);
+		assertTrue(hashStarted.await(5, TimeUnit.SECONDS));
+
+		// arrive while the create is hashed, only the latest content is hashed once more
+		pipeline.onLocalFileModified(file);
+		pipeline.onLocalFileModified(file);
+		pipeline.onLocalFileModified(file);
+		hashReleased.countDown();
+
+		verify(eventManager, timeout(5000)).onLocalFileModified(file, "hash-2");
+		verify(eventManager).onLocalFileCreated(file, "hash-1");
+		verify(eventManager, times(1)).onLocalFileModified(any(Path.class), anyString());
+		assertEquals(2, hashCount.get());
+	}
+
+	@Test
+	public void testOrderOfPath() throws Exception {
+		pipeline.onLocalFileCreated(file);
+		assertTrue(hashStarted.await(5, TimeUnit.SECONDS));
+
+		// waits for the create
+		pipeline.onLocalFileDeleted(file);
+		verify(eventManager, never()).onLocalFileDeleted(file);
+
+		hashReleased.countDown();
+		verify(eventManager, timeout(5000)).onLocalFileDeleted(file);
+		InOrder order = inOrder(eventManager);
+		order.verify(eventManager).onLocalFileCreated(file, "hash-1");
+		order.verify(eventManager).onLocalFileDeleted(file);
+	}
+
+	@Test
+	public void testFolderNotHashed() throws Exception {
+		Path folder = Files.createDirectory(basePath.resolve("folder"));
+		pipeline.onLocalFileCreated(folder);
+		verify(eventManager, timeout(5000)).onLocalFileCreated(folder, null);
+		assertEquals(0, hashCount.get());
+	}
+
+	@Test
+	public void testEchoDropped() throws Exception {
+		Path other = basePath.resolve("other");
+		expectedEvents.expect(file, EventCoalescer.Kind.MODIFY);
+		hashReleased.countDown();
+
+		// the events of the path wait while the mutation runs, other events do not
+		pipeline.onLocalFileModified(file);
+		pipeline.onLocalFileDeleted(file);
+		pipeline.onLocalFileDeleted(other);
+		verify(eventManager, timeout(5000)).onLocalFileDeleted(other);
+		Thread.sleep(200);
+		verify(eventManager, never()).onLocalFileDeleted(file);
+		assertEquals(0, hashCount.get());
+
+		// the modification is dropped without hashing, the delete is not expected
+		expectedEvents.settle(file);
+		verify(eventManager, timeout(5000)).onLocalFileDeleted(file);
+		verify(eventManager, never()).onLocalFileModified(any(Path.class), anyString());
+		assertEquals(0, hashCount.get());
+		assertEquals(1, expectedEvents.getDroppedEventCount());
+	}
+
+	@Test
+	public void testChangeAfterMutationReported() throws Exception {
+		expectedEvents.expect(file, EventCoalescer.Kind.MODIFY);
+		expectedEvents.settle(file);
+		hashReleased.countDown();
+
+		// e.g. the user changed the file after it was downloaded
+		Files.write(file, "changed by user".getBytes());
+		pipeline.onLocalFileModified(file);
+		verify(eventManager, timeout(5000)).onLocalFileModified(file, "hash-1");
+		assertEquals(0, expectedEvents.getDroppedEventCount());
+	}
+
+	@Test
+	public void testCancelledMutationReported() throws Exception {
+		expectedEvents.expect(file, EventCoalescer.Kind.DELETE);
+		pipeline.onLocalFileDeleted(file);
+		Thread.sleep(200);
+		verify(eventManager, never()).onLocalFileDeleted(file);
+
+		expectedEvents.cancel(file);
+		verify(eventManager, timeout(5000)).onLocalFileDeleted(file);
+	}
+
+	@Test
+	public void testRemoteCreateEchoDropped() throws Exception {
+		byte[] md5 = "downloaded".getBytes();
+		String downloadedHash = PathUtils.base64Encode(md5);
+		hashReleased.countDown();
+
+		FileComponent component = mock(FileComponent.class);
+		when(component.getPath()).thenReturn(file);
+		when(component.isFile()).thenReturn(true);
+		IFileEventManager fileEventManager = mock(IFileEventManager.class);
+		when(fileEventManager.getExpectedEvents()).thenReturn(expectedEvents);
+		IAction action = mock(IAction.class);
+		when(action.getFile()).thenReturn(component);
+		when(action.getFileEventManager()).thenReturn(fileEventManager);
+
+		@SuppressWarnings("unchecked")
+		IProcessComponent<Void> process = mock(IProcessComponent.class);
+		when(process.executeAsync()).thenReturn(new CompletableFuture<Void>());
+		FileNode node = mock(FileNode.class);
+		when(node.getFile()).thenReturn(file.toFile());
+		when(node.isFile()).thenReturn(true);
+		when(node.getMd5()).thenReturn(md5);
+		IFileManager fileManager = mock(IFileManager.class);
+		when(fileManager.download(file)).thenReturn(new ProcessHandle<Void>(process));
+		when(fileManager.getRemoteFileNode(file)).thenReturn(node);
+
+		new RemoteCreateState(action).execute(fileManager);
+
+		// the download creates the file, the event waits for the download
+		Files.write(file, "downloaded".getBytes());
+		pipeline.onLocalFileCreated(file);
+		Thread.sleep(200);
+		assertEquals(0, hashCount.get());
+
+		ArgumentCaptor<IProcessComponentListener> listeners =
+				ArgumentCaptor.forClass(IProcessComponentListener.class);
+		verify(process, times(2)).attachListener(listeners.capture());
+		for (IProcessComponentListener listener : listeners.getAllValues()) {
+			listener.onExecutionSucceeded(null);
+		}
+
+		// the hash of the downloaded version is stored, the echo is dropped without hashing
+		verify(component, timeout(5000)).updateContentHash(downloadedHash);
+		verify(component, never()).updateContentHash();
+		for (int i = 0; i < 50 && expectedEvents.getDroppedEventCount() == 0; ++i) {
+			Thread.sleep(100);
+		}
+		assertEquals(1, expectedEvents.getDroppedEventCount());
+		assertEquals(0, hashCount.get());
+		verify(eventManager, never()).onLocalFileCreated(any(Path.class), anyString());
+	}
+}
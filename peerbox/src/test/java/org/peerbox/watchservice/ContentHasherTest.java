@@ -0,0 +1,77 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.hive2hive.core.security.HashUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentHasherTest {
+
+	private Path basePath;
+
+	@Before
+	public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("PeerWasp_hasher");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testSameHashAsHashUtil() throws IOException {
+		int buffer = 256 * 1024;
+		int[] sizes = { 0, 1, 1000, buffer - 1, buffer, buffer + 1, 3 * buffer + 17 };
+		Random random = new Random(42);
+		for (int size : sizes) {
+			Path file = basePath.resolve("file-" + size);
+			byte[] content = new byte[size];
+			random.nextBytes(content);
+			Files.write(file, content);
+
+			assertArrayEquals(HashUtil.hash(file.toFile()), ContentHasher.hash(file));
+		}
+	}
+
+	@Test
+	public void testNotAFile() throws IOException {
+		assertEquals(0, ContentHasher.hash(null).length);
+		assertEquals(0, ContentHasher.hash(basePath).length);
+		assertEquals(0, ContentHasher.hash(basePath.resolve("missing")).length);
+	}
+
+	@Test
+	public void testHashAsync() throws Exception {
+		Path file = basePath.resolve("file");
+		Files.write(file, "hello world".getBytes());
+		byte[] hash = ContentHasher.hashAsync(file).get(5, TimeUnit.SECONDS);
+		assertEquals("XrY7u+Ae7tCTyyK7j1rNww==", PathUtils.base64Encode(hash));
+	}
+
+	@Test
+	public void testRetryAsync() throws Exception {
+		AtomicInteger attempts = new AtomicInteger();
+		CompletableFuture<String> future = ContentHasher.computeAsync(() -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new IOException("locked");
+			}
+			return "hash";
+		}, basePath);
+
+		assertEquals("hash", future.get(10, TimeUnit.SECONDS));
+		assertEquals(2, attempts.get());
+	}
+}
@@ -0,0 +1,117 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.watchservice.EventCoalescer.Event;
+import org.peerbox.watchservice.EventCoalescer.Kind;
+
+public class EventCoalescerTest {
+
+	private static final long WINDOW_MS = 50;
+
+	private EventCoalescer coalescer;
+	private Path file;
+	private Path other;
+
+	@Before
+	public void setUp() {
+		coalescer = new EventCoalescer(WINDOW_MS, 500);
+		file = Paths.get("root", "file.txt");
+		other = Paths.get("root", "other.txt");
+	}
+
+	@Test
+	public void testCreateModify() throws InterruptedException {
+		coalescer.add(file, Kind.CREATE);
+		coalescer.add(file, Kind.MODIFY);
+		coalescer.add(file, Kind.MODIFY);
+		assertEvents(coalescer.take(), file, Kind.CREATE);
+		assertEquals(3, coalescer.getRawEventCount());
+		assertEquals(1, coalescer.getEmittedEventCount());
+	}
+
+	@Test
+	public void testCreateDelete() throws InterruptedException {
+		coalescer.add(file, Kind.CREATE);
+		coalescer.add(file, Kind.MODIFY);
+		coalescer.add(file, Kind.DELETE);
+		coalescer.add(other, Kind.MODIFY);
+		assertEvents(coalescer.take(), other, Kind.MODIFY);
+	}
+
+	@Test
+	public void testModifyDelete() throws InterruptedException {
+		coalescer.add(file, Kind.MODIFY);
+		coalescer.add(file, Kind.DELETE);
+		coalescer.add(file, Kind.MODIFY);
+		assertEvents(coalescer.take(), file, Kind.DELETE);
+	}
+
+	@Test
+	public void testReplace() throws InterruptedException {
+		// editor saves by deleting and renaming a temporary file
+		coalescer.add(file, Kind.DELETE);
+		coalescer.add(file, Kind.CREATE);
+		coalescer.add(file, Kind.MODIFY);
+		assertEvents(coalescer.take(), file, Kind.DELETE, file, Kind.CREATE);
+	}
+
+	@Test
+	public void testOrderOfFirstEvent() throws InterruptedException {
+		coalescer.add(file, Kind.DELETE);
+		coalescer.add(other, Kind.CREATE);
+		coalescer.add(file, Kind.DELETE);
+		assertEvents(coalescer.take(), file, Kind.DELETE, other, Kind.CREATE);
+	}
+
+	@Test
+	public void testWindow() throws InterruptedException {
+		long start = System.currentTimeMillis();
+		coalescer.add(file, Kind.MODIFY);
+		List<Event> events = coalescer.take();
+		long waited = System.currentTimeMillis() - start;
+		assertEvents(events, file, Kind.MODIFY);
+		assertTrue(waited >= WINDOW_MS - 5);
+	}
+
+	@Test
+	public void testMaxDelay() throws InterruptedException {
+		Thread writer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 40; ++i) {
+					coalescer.add(file, Kind.MODIFY);
+					Thread.sleep(WINDOW_MS / 2);
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		});
+		long start = System.currentTimeMillis();
+		writer.start();
+		assertEvents(coalescer.take(), file, Kind.MODIFY);
+		long waited = System.currentTimeMillis() - start;
+		writer.interrupt();
+		writer.join();
+		assertTrue(waited < 1000);
+	}
+
+	private static void assertEvents(List<Event> events, Object... expected) {
+		List<String> actual = new ArrayList<String>();
+		for (Event e : events) {
+			actual.add(e.getKind() + " " + e.getPath());
+		}
+		List<String> exp = new ArrayList<String>();
+		for (int i = 0; i < expected.length; i += 2) {
+			exp.add(expected[i + 1] + " " + expected[i]);
+		}
+		assertEquals(exp, actual);
+	}
+}
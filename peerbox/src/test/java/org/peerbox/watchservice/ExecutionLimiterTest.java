@@ -0,0 +1,133 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutionLimiterTest {
+
+	private ExecutionLimiter limiter;
+
+	@Before
+	public void initialization() {
+		limiter = new ExecutionLimiter(3, 1, 10);
+	}
+
+	@Test
+	public void testTryAcquire() {
+		assertTrue(limiter.tryAcquire(0));
+		assertTrue(limiter.tryAcquire(2));
+		assertFalse(limiter.tryAcquire(3));
+	}
+
+	@Test
+	public void testIncreaseIfLimitUsed() {
+		// about one round of successes at full use increases the limit by one
+		for (int i = 0; i < 4; ++i) {
+			limiter.onSuccess(100, 0, limiter.getLimit());
+		}
+		assertEquals(4, limiter.getLimit());
+		assertEquals(2, limiter.getHistory().size());
+	}
+
+	@Test
+	public void testNoIncreaseIfLimitNotUsed() {
+		for (int i = 0; i < 20; ++i) {
+			limiter.onSuccess(100, 0, 1);
+		}
+		assertEquals(3, limiter.getLimit());
+	}
+
+	@Test
+	public void testNoIncreaseIfLatencyGrows() {
+		limiter.onSuccess(100, 0, 3);
+		for (int i = 0; i < 20; ++i) {
+			limiter.onSuccess(1000, 0, 3);
+		}
+		// smoothed latency exceeds tolerance after a few samples
+		assertTrue(limiter.getLimit() < 6);
+		int limit = limiter.getLimit();
+		limiter.onSuccess(1000, 0, limit);
+		assertEquals(limit, limiter.getLimit());
+	}
+
+	@Test
+	public void testMixedSizes() {
+		for (int i = 0; i < 4; ++i) {
+			limiter.onSuccess(100, 1024, limiter.getLimit());
+		}
+		assertEquals(4, limiter.getLimit());
+
+		// a large file takes longer, but the link does not queue up
+		for (int i = 0; i < 5; ++i) {
+			limiter.onSuccess(20000, 100 * 1024 * 1024, limiter.getLimit());
+			limiter.onSuccess(100, 0, limiter.getLimit());
+		}
+		assertEquals(6, limiter.getLimit());
+		assertEquals(100, limiter.getSmoothedLatency(1024));
+		assertEquals(20000, limiter.getSmoothedLatency(200 * 1024 * 1024));
+
+		// small files queue up behind the large files
+		int limit = limiter.getLimit();
+		for (int i = 0; i < 20; ++i) {
+			limiter.onSuccess(1000, 1024, limiter.getLimit());
+		}
+		assertTrue(limiter.getLimit() < limit + 3);
+		limit = limiter.getLimit();
+		limiter.onSuccess(1000, 1024, limit);
+		assertEquals(limit, limiter.getLimit());
+	}
+
+	@Test
+	public void testSizeClass() {
+		assertEquals(0, ExecutionLimiter.getSizeClass(0));
+		assertEquals(0, ExecutionLimiter.getSizeClass(64 * 1024 - 1));
+		assertEquals(1, ExecutionLimiter.getSizeClass(64 * 1024));
+		assertEquals(2, ExecutionLimiter.getSizeClass(1024 * 1024));
+		assertEquals(4, ExecutionLimiter.getSizeClass(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testDecreaseOnDrop() {
+		limiter = new ExecutionLimiter(10, 1, 10);
+		limiter.onDropped();
+		assertEquals(7, limiter.getLimit());
+		for (int i = 0; i < 10; ++i) {
+			limiter.onDropped();
+		}
+		assertEquals(1, limiter.getLimit());
+		assertEquals(11, limiter.getDropCount());
+	}
+
+	@Test
+	public void testUpperBound() {
+		for (int i = 0; i < 200; ++i) {
+			limiter.onSuccess(100, 0, limiter.getLimit());
+		}
+		assertEquals(10, limiter.getLimit());
+	}
+
+	@Test
+	public void testRestart() {
+		for (int i = 0; i < 20; ++i) {
+			limiter.onSuccess(1000, 0, limiter.getLimit());
+		}
+		assertTrue(limiter.getLimit() > 3);
+
+		limiter.restart();
+		assertEquals(1, limiter.getLimit());
+		// latency of the previous link is forgotten
+		for (int i = 0; i < 4; ++i) {
+			limiter.onSuccess(100, 0, limiter.getLimit());
+		}
+		assertEquals(3, limiter.getLimit());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBounds() {
+		new ExecutionLimiter(3, 0, 10);
+	}
+}
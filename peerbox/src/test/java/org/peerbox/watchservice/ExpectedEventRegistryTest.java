@@ -0,0 +1,129 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.watchservice.EventCoalescer.Kind;
+import org.peerbox.watchservice.ExpectedEventRegistry.Match;
+
+public class ExpectedEventRegistryTest {
+
+	private Path basePath;
+	private Path file;
+	private ExpectedEventRegistry registry;
+
+	@Before
+	public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("PeerWasp_expected");
+		file = basePath.resolve("file");
+		registry = new ExpectedEventRegistry();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testNotExpected() {
+		assertEquals(Match.NONE, registry.match(file, Kind.MODIFY));
+		registry.expect(file, Kind.MODIFY);
+		registry.settle(file);
+		assertEquals(Match.NONE, registry.match(file, Kind.DELETE));
+		assertEquals(Match.NONE, registry.match(basePath.resolve("other"), Kind.MODIFY));
+	}
+
+	@Test
+	public void testPendingWhileRunning() throws IOException {
+		registry.expect(file, Kind.CREATE);
+		registry.expect(file, Kind.MODIFY);
+
+		// e.g. a download writing the file, events of any kind are not judged yet
+		Files.write(file, "first".getBytes());
+		assertTrue(registry.isPending(file));
+		assertEquals(Match.PENDING, registry.match(file, Kind.CREATE));
+		assertEquals(Match.PENDING, registry.match(file, Kind.DELETE));
+		assertEquals(0, registry.getDroppedEventCount());
+
+		AtomicInteger deferred = new AtomicInteger();
+		assertTrue(registry.deferUntilSettled(file, deferred::incrementAndGet));
+		registry.settle(file);
+		assertEquals(1, deferred.get());
+		assertFalse(registry.isPending(file));
+		assertFalse(registry.deferUntilSettled(file, deferred::incrementAndGet));
+	}
+
+	@Test
+	public void testSettled() throws IOException {
+		registry.expect(file, Kind.MODIFY);
+		Files.write(file, "downloaded".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1000000000000L));
+		registry.settle(file);
+
+		// late echo of the download
+		assertEquals(Match.ECHO, registry.match(file, Kind.MODIFY));
+		assertEquals(1, registry.getDroppedEventCount());
+
+		// change of the user after the download
+		Files.write(file, "changed by user".getBytes());
+		assertEquals(Match.NONE, registry.match(file, Kind.MODIFY));
+	}
+
+	@Test
+	public void testTouchedAfterMutation() throws IOException {
+		registry.expect(file, Kind.MODIFY);
+		Files.write(file, "downloaded".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1000000000000L));
+		registry.settle(file);
+
+		// same size, but written again by the user
+		Files.write(file, "downloadeD".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1000000001000L));
+		assertEquals(Match.NONE, registry.match(file, Kind.MODIFY));
+		assertEquals(0, registry.getDroppedEventCount());
+	}
+
+	@Test
+	public void testCancelled() throws IOException {
+		registry.expect(file, Kind.MODIFY);
+		AtomicInteger deferred = new AtomicInteger();
+		assertTrue(registry.deferUntilSettled(file, deferred::incrementAndGet));
+		Files.write(file, "partial".getBytes());
+
+		registry.cancel(file);
+		assertEquals(1, deferred.get());
+		assertEquals(Match.NONE, registry.match(file, Kind.MODIFY));
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void testSettledDelete() throws IOException {
+		Files.write(file, "content".getBytes());
+		registry.expect(file, Kind.DELETE);
+		Files.delete(file);
+		registry.settle(file);
+		assertEquals(Match.ECHO, registry.match(file, Kind.DELETE));
+
+		// created again by the user
+		Files.write(file, "content".getBytes());
+		assertEquals(Match.NONE, registry.match(file, Kind.DELETE));
+	}
+
+	@Test
+	public void testSettleUnknownPath() {
+		registry.settle(file);
+		registry.cancel(file);
+		assertEquals(0, registry.size());
+	}
+}
@@ -1,5 +1,6 @@
 package org.peerbox.watchservice;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 
@@ -10,7 +11,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -341,6 +346,87 @@ public class FolderWatchServiceTest {
 		Mockito.verify(fileEventListener, Mockito.times(1)).onLocalFileCreated(rename);
 	}
 	
+	@Test
+	public void testFolderRegistrations() throws Exception {
+		Path folder = Paths.get(basePath.toString(), "folder");
+		Path subfolder = Paths.get(folder.toString(), "subfolder");
+		watchService.start(basePath);
+		assertEquals(Collections.singleton(basePath), watchService.getRegisteredFolders());
+		
+		// new folders are registered
+		Files.createDirectories(subfolder);
+		sleep();
+		Set<Path> expected = new HashSet<Path>(Arrays.asList(basePath, folder, subfolder));
+		assertEquals(expected, watchService.getRegisteredFolders());
+		
+		// renamed folders are registered with their new path
+		Path rename = Paths.get(basePath.toString(), "rename");
+		Files.move(folder, rename);
+		sleep();
+		expected = new HashSet<Path>(Arrays.asList(basePath, rename, rename.resolve("subfolder")));
+		assertEquals(expected, watchService.getRegisteredFolders());
+		
+		// deleted folders are unregistered with their subfolders
+		FileUtils.deleteDirectory(rename.toFile());
+		sleep();
+		assertEquals(Collections.singleton(basePath), watchService.getRegisteredFolders());
+	}
+	
+	@Test
+	public void testIgnoredFolder() throws Exception {
+		Path ignored = Paths.get(basePath.toString(), "node_modules");
+		Files.createDirectories(ignored.resolve("lib"));
+		watchService.setIgnoreRules(new IgnoreRules(basePath, Arrays.asList("node_modules/")));
+		
+		// ignored folders are neither watched nor polled
+		watchService.start(basePath);
+		assertEquals(Collections.singleton(basePath), watchService.getRegisteredFolders());
+		
+		Path file = ignored.resolve("lib").resolve("file.txt");
+		Files.write(file, "content".getBytes());
+		Path created = Paths.get(basePath.toString(), "web", "node_modules");
+		Files.createDirectories(created);
+		sleep();
+		Mockito.verify(fileEventListener, Mockito.never()).onLocalFileCreated(file);
+		Mockito.verify(fileEventListener, Mockito.never()).onLocalFileCreated(created);
+		assertEquals(new HashSet<Path>(Arrays.asList(basePath, created.getParent())),
+				watchService.getRegisteredFolders());
+		
+		// folder-only rules also match deleted folders
+		FileUtils.deleteDirectory(ignored.toFile());
+		sleep();
+		Mockito.verify(fileEventListener, Mockito.never()).onLocalFileDeleted(ignored);
+	}
+	
+	@Test
+	public void testWatchBudgetExceeded() throws Exception {
+		Path folder = Paths.get(basePath.toString(), "folder");
+		Path subfolder = Paths.get(folder.toString(), "subfolder");
+		Files.createDirectories(subfolder);
+		
+		// a single watch: the subfolders are polled
+		watchService = new FolderWatchService(1, 100, 200, 60000);
+		watchService.addFileEventListener(fileEventListener);
+		watchService.start(basePath);
+		Set<Path> expected = new HashSet<Path>(Arrays.asList(basePath, folder, subfolder));
+		assertEquals(expected, watchService.getRegisteredFolders());
+		assertEquals(2, watchService.getPolledFolders().size());
+		
+		// changes in polled folders are reported as well
+		Path file = subfolder.resolve("file.txt");
+		Files.write(file, "content".getBytes());
+		Path newFolder = subfolder.resolve("new");
+		Files.createDirectory(newFolder);
+		sleep();
+		Mockito.verify(fileEventListener, Mockito.times(1)).onLocalFileCreated(file);
+		Mockito.verify(fileEventListener, Mockito.times(1)).onLocalFileCreated(newFolder);
+		assertTrue(watchService.getPolledFolders().contains(newFolder));
+		
+		Files.delete(file);
+		sleep();
+		Mockito.verify(fileEventListener, Mockito.times(1)).onLocalFileDeleted(file);
+	}
+	
 	@Test 
 	public void testFolderCopyEvent() throws Exception {
 		Path folder = Paths.get(basePath.toString(), "tomove");
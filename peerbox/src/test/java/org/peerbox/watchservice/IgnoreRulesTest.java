@@ -0,0 +1,158 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class IgnoreRulesTest {
+
+	private static final Path ROOT = Paths.get("root").toAbsolutePath();
+
+	@Test
+	public void testDefaultRules() {
+		IgnoreRules rules = IgnoreRules.DEFAULT;
+		assertTrue(rules.isIgnored(ROOT.resolve(".file"), false));
+		assertTrue(rules.isIgnored(ROOT.resolve("~$document.docx"), false));
+		assertTrue(rules.isIgnored(ROOT.resolve("$file"), false));
+		assertTrue(rules.isIgnored(ROOT.resolve(".git"), true));
+		assertFalse(rules.isIgnored(ROOT.resolve("file"), false));
+		assertFalse(rules.isIgnored(ROOT.resolve("file~"), false));
+	}
+
+	@Test
+	public void testNames() {
+		IgnoreRules rules = create("Thumbs.db", "*.tmp", "build-*", "file?.[ch]");
+		assertTrue(rules.isIgnored(path("Thumbs.db"), false));
+		assertTrue(rules.isIgnored(path("a/b/Thumbs.db"), false));
+		assertTrue(rules.isIgnored(path("a/report.tmp"), false));
+		assertTrue(rules.isIgnored(path("build-2015"), true));
+		assertTrue(rules.isIgnored(path("a/file1.c"), false));
+		assertFalse(rules.isIgnored(path("a/file10.c"), false));
+		assertFalse(rules.isIgnored(path("a/file1.o"), false));
+		assertFalse(rules.isIgnored(path("report.tmp.txt"), false));
+	}
+
+	@Test
+	public void testFoldersOnly() {
+		IgnoreRules rules = create("node_modules/", "*.cache/");
+		assertTrue(rules.isIgnored(path("node_modules"), true));
+		assertTrue(rules.isIgnored(path("web/node_modules"), true));
+		assertTrue(rules.isIgnored(path("x.cache"), true));
+		assertFalse(rules.isIgnored(path("node_modules"), false));
+		assertFalse(rules.isIgnored(path("x.cache"), false));
+	}
+
+	@Test
+	public void testContentOfIgnoredFolder() {
+		IgnoreRules rules = create("node_modules/", "!important.js");
+		// a folder that is ignored cannot be included again by its content
+		assertTrue(rules.isIgnored(path("node_modules/lib/important.js"), false));
+		assertTrue(rules.isIgnored(path("web/node_modules/lib/index.js"), false));
+		assertFalse(rules.isIgnored(path("web/lib/index.js"), false));
+	}
+
+	@Test
+	public void testAnchored() {
+		IgnoreRules rules = create("/build", "docs/*.pdf", "src/**/generated", "logs/**");
+		assertTrue(rules.isIgnored(path("build"), true));
+		assertFalse(rules.isIgnored(path("a/build"), true));
+		assertTrue(rules.isIgnored(path("docs/manual.pdf"), false));
+		assertFalse(rules.isIgnored(path("a/docs/manual.pdf"), false));
+		assertFalse(rules.isIgnored(path("docs/a/manual.pdf"), false));
+		assertTrue(rules.isIgnored(path("src/generated"), true));
+		assertTrue(rules.isIgnored(path("src/a/b/generated/X.java"), false));
+		assertFalse(rules.isIgnored(path("generated"), true));
+		// the content of logs, but not the folder itself
+		assertTrue(rules.isIgnored(path("logs/today.log"), false));
+		assertFalse(rules.isIgnored(path("logs"), true));
+	}
+
+	@Test
+	public void testAnyDepthPrefix() {
+		IgnoreRules rules = create("**/target", "**/a/b");
+		assertTrue(rules.isIgnored(path("target"), true));
+		assertTrue(rules.isIgnored(path("x/y/target"), true));
+		assertTrue(rules.isIgnored(path("a/b"), true));
+		assertTrue(rules.isIgnored(path("x/a/b"), true));
+		assertFalse(rules.isIgnored(path("x/a/c"), true));
+	}
+
+	@Test
+	public void testNegation() {
+		IgnoreRules rules = create("*.log", "!keep.log", "/keep/*.log");
+		assertTrue(rules.isIgnored(path("error.log"), false));
+		assertFalse(rules.isIgnored(path("keep.log"), false));
+		// the last matching rule wins
+		assertTrue(rules.isIgnored(path("keep/keep.log"), false));
+
+		// default rules can be overridden
+		rules = create("!.htaccess");
+		assertFalse(rules.isIgnored(path(".htaccess"), false));
+		assertTrue(rules.isIgnored(path(".DS_Store"), false));
+	}
+
+	@Test
+	public void testRegex() {
+		IgnoreRules rules = create("re:.*/cache-[0-9]+", "re:[(");
+		assertTrue(rules.isIgnored(path("a/cache-12"), false));
+		assertFalse(rules.isIgnored(path("cache-12"), false));
+		assertFalse(rules.isIgnored(path("a/cache-x"), false));
+	}
+
+	@Test
+	public void testCommentsAndEscapes() {
+		IgnoreRules rules = create("# comment", "", "\\#hash", "star\\*");
+		assertTrue(rules.isIgnored(path("#hash"), false));
+		assertTrue(rules.isIgnored(path("star*"), false));
+		assertFalse(rules.isIgnored(path("starlight"), false));
+		assertFalse(rules.isIgnored(path("comment"), false));
+	}
+
+	@Test
+	public void testPathOutsideRoot() {
+		IgnoreRules rules = create("/build", "*.tmp");
+		// only the name is checked
+		assertTrue(rules.isIgnored(Paths.get("other", "file.tmp"), false));
+		assertFalse(rules.isIgnored(Paths.get("build"), true));
+		assertFalse(rules.isIgnored(ROOT, true));
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		Path root = Files.createTempDirectory("PeerWasp_ignore");
+		try {
+			Files.createDirectory(root.resolve("build"));
+			Files.createFile(root.resolve("dist"));
+			assertFalse(IgnoreRules.load(root).isIgnored(root.resolve("build")));
+
+			Files.write(root.resolve(IgnoreRules.FILE_NAME), Arrays.asList("build/", "dist/"));
+			IgnoreRules rules = IgnoreRules.load(root);
+			// the type is read from disk if it matters
+			assertTrue(rules.isIgnored(root.resolve("build")));
+			assertFalse(rules.isIgnored(root.resolve("dist")));
+			assertTrue(rules.isIgnored(root.resolve(IgnoreRules.FILE_NAME)));
+		} finally {
+			FileUtils.deleteDirectory(root.toFile());
+		}
+	}
+
+	private static IgnoreRules create(String... lines) {
+		List<String> rules = new ArrayList<String>(IgnoreRules.DEFAULT_RULES);
+		rules.addAll(Arrays.asList(lines));
+		return new IgnoreRules(ROOT, rules);
+	}
+
+	private static Path path(String relative) {
+		return ROOT.resolve(relative);
+	}
+}
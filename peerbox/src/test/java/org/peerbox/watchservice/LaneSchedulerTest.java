@@ -0,0 +1,111 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+
+public class LaneSchedulerTest {
+
+	private LaneScheduler scheduler;
+
+	@Before
+	public void initialization() {
+		scheduler = new LaneScheduler();
+	}
+
+	@Test
+	public void testFifoWithinLane() {
+		FileComponent f1 = createFileComponent();
+		FileComponent f2 = createFileComponent();
+		scheduler.add(f1, ExecutionLane.SMALL_FILE);
+		scheduler.add(f2, ExecutionLane.SMALL_FILE);
+
+		assertEquals(ExecutionLane.SMALL_FILE, scheduler.selectLane(3));
+		assertEquals(f1, scheduler.poll(ExecutionLane.SMALL_FILE));
+		assertEquals(f2, scheduler.poll(ExecutionLane.SMALL_FILE));
+		assertNull(scheduler.poll(ExecutionLane.SMALL_FILE));
+		assertNull(scheduler.selectLane(3));
+	}
+
+	@Test
+	public void testLaneBudget() {
+		for (int i = 0; i < 3; ++i) {
+			scheduler.add(createFileComponent(), ExecutionLane.LARGE_FILE);
+		}
+
+		// large files may use half of the limit (rounded up)
+		for (int i = 0; i < 2; ++i) {
+			assertEquals(ExecutionLane.LARGE_FILE, scheduler.selectLane(4));
+			scheduler.poll(ExecutionLane.LARGE_FILE);
+			scheduler.acquire(ExecutionLane.LARGE_FILE);
+		}
+		assertNull(scheduler.selectLane(4));
+
+		// a small file is still executed while the large lane is exhausted
+		scheduler.add(createFileComponent(), ExecutionLane.SMALL_FILE);
+		assertEquals(ExecutionLane.SMALL_FILE, scheduler.selectLane(4));
+		scheduler.poll(ExecutionLane.SMALL_FILE);
+
+		scheduler.release(ExecutionLane.LARGE_FILE);
+		assertEquals(ExecutionLane.LARGE_FILE, scheduler.selectLane(4));
+	}
+
+	@Test
+	public void testWeightedFairness() {
+		for (int i = 0; i < 100; ++i) {
+			scheduler.add(createFileComponent(), ExecutionLane.METADATA);
+			scheduler.add(createFileComponent(), ExecutionLane.LARGE_FILE);
+		}
+
+		int metadata = 0;
+		int large = 0;
+		for (int i = 0; i < 50; ++i) {
+			ExecutionLane lane = scheduler.selectLane(100);
+			scheduler.poll(lane);
+			if (lane == ExecutionLane.METADATA) {
+				++metadata;
+			} else if (lane == ExecutionLane.LARGE_FILE) {
+				++large;
+			}
+		}
+		// weights 4:1
+		assertEquals(40, metadata);
+		assertEquals(10, large);
+	}
+
+	@Test
+	public void testOutdatedComponentDropped() {
+		FileComponent f = createFileComponent();
+		scheduler.add(f, ExecutionLane.METADATA);
+		Mockito.stub(f.getAction().getTimestamp()).toReturn(Long.valueOf(2));
+
+		assertEquals(ExecutionLane.METADATA, scheduler.selectLane(3));
+		assertNull(scheduler.poll(ExecutionLane.METADATA));
+		assertEquals(0, scheduler.getNumberOfPending());
+	}
+
+	@Test
+	public void testAdd_NoDuplicates() {
+		FileComponent f = createFileComponent();
+		scheduler.add(f, ExecutionLane.SMALL_FILE);
+		scheduler.add(f, ExecutionLane.LARGE_FILE);
+		assertEquals(1, scheduler.getNumberOfPending());
+		assertEquals(0, scheduler.getNumberOfPending(ExecutionLane.SMALL_FILE));
+		assertEquals(1, scheduler.getNumberOfPending(ExecutionLane.LARGE_FILE));
+	}
+
+	/**
+	 * @return mocked file component with a mocked action
+	 */
+	private FileComponent createFileComponent() {
+		FileComponent f = Mockito.mock(FileComponent.class);
+		IAction action = Mockito.mock(IAction.class);
+		Mockito.stub(action.getTimestamp()).toReturn(Long.valueOf(1));
+		Mockito.stub(f.getAction()).toReturn(action);
+		return f;
+	}
+}
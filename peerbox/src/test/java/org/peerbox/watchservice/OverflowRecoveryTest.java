@@ -0,0 +1,138 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.watchservice.EventCoalescer.Event;
+import org.peerbox.watchservice.EventCoalescer.Kind;
+import org.peerbox.watchservice.filetree.IFileTree;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.filetree.composite.FileLeaf;
+import org.peerbox.watchservice.filetree.composite.FolderComposite;
+
+public class OverflowRecoveryTest {
+
+	private static final long SINCE = 1000000000000L;
+
+	private Path basePath;
+	private FolderComposite root;
+	private IFileTree fileTree;
+	private OverflowRecovery recovery;
+
+	@Before
+	public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("PeerWasp_overflow");
+		root = new FolderComposite(basePath, false, true);
+		fileTree = mock(IFileTree.class);
+		when(fileTree.getFile(basePath)).thenReturn(root);
+		recovery = new OverflowRecovery(fileTree);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testNoChanges() throws IOException {
+		addToTree(createFile("file", SINCE - 1000), true);
+		addToTree(Files.createDirectory(basePath.resolve("folder")), true);
+
+		assertTrue(recovery.recover(basePath, SINCE).isEmpty());
+	}
+
+	@Test
+	public void testCreated() throws IOException {
+		Path file = createFile("file", SINCE - 1000);
+		Path folder = Files.createDirectory(basePath.resolve("folder"));
+		Files.createFile(folder.resolve("child"));
+
+		// contents of the created folder are discovered by the event manager
+		List<Event> events = recovery.recover(basePath, SINCE);
+		assertEquals(2, events.size());
+		assertContains(events, file, Kind.CREATE);
+		assertContains(events, folder, Kind.CREATE);
+	}
+
+	@Test
+	public void testDeleted() throws IOException {
+		Path file = basePath.resolve("file");
+		addToTree(file, true);
+		// not synchronized: does not exist on disk on purpose
+		addToTree(basePath.resolve("desynchronized"), false);
+
+		List<Event> events = recovery.recover(basePath, SINCE);
+		assertEquals(1, events.size());
+		assertContains(events, file, Kind.DELETE);
+	}
+
+	@Test
+	public void testModified() throws IOException {
+		Path modified = createFile("modified", SINCE + 1000);
+		Path unmodified = createFile("unmodified", SINCE - 1000);
+		addToTree(modified, true);
+		addToTree(unmodified, true);
+
+		List<Event> events = recovery.recover(basePath, SINCE);
+		assertEquals(1, events.size());
+		assertContains(events, modified, Kind.MODIFY);
+	}
+
+	@Test
+	public void testReplacedByFolder() throws IOException {
+		Path path = basePath.resolve("replaced");
+		addToTree(path, true);
+		Files.createDirectory(path);
+
+		List<Event> events = recovery.recover(basePath, SINCE);
+		assertEquals(2, events.size());
+		assertEquals(Kind.DELETE, events.get(0).getKind());
+		assertEquals(Kind.CREATE, events.get(1).getKind());
+	}
+
+	@Test
+	public void testUnknownFolder() throws IOException {
+		Path folder = Files.createDirectory(basePath.resolve("folder"));
+		Files.createFile(folder.resolve("file"));
+
+		// the folder is recovered by its parent
+		assertTrue(recovery.recover(folder, SINCE).isEmpty());
+	}
+
+	private Path createFile(String name, long lastModified) throws IOException {
+		Path file = Files.write(basePath.resolve(name), name.getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+		return file;
+	}
+
+	private void addToTree(Path path, boolean isSynchronized) {
+		FileComponent component = Files.isDirectory(path)
+				? new FolderComposite(path, false) : new FileLeaf(path, false, "hash");
+		component.setIsSynchronized(isSynchronized);
+		root.putComponent(path, component);
+	}
+
+	private void assertContains(List<Event> events, Path path, Kind kind) {
+		List<String> found = new ArrayList<String>();
+		for (Event event : events) {
+			if (event.getPath().equals(path) && event.getKind() == kind) {
+				return;
+			}
+			found.add(event.toString());
+		}
+		throw new AssertionError(String.format("%s - %s not found in %s", kind, path, found));
+	}
+}
@@ -0,0 +1,150 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelFileScannerTest {
+
+	private Path basePath;
+
+	@Before
+	public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("PeerWasp_scanner");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testScanTree() throws IOException {
+		for (int i = 0; i < 5; ++i) {
+			Path folder = Files.createDirectories(basePath.resolve("folder-" + i).resolve("sub"));
+			for (int j = 0; j < 50; ++j) {
+				Files.write(folder.resolve("file-" + j), ("content " + j).getBytes());
+				Files.write(folder.getParent().resolve("file-" + j), ("content " + j).getBytes());
+			}
+		}
+		Files.createDirectory(basePath.resolve("empty"));
+
+		RecordingVisitor visitor = new RecordingVisitor();
+		new ParallelFileScanner(4).scan(basePath, visitor);
+
+		Set<Path> expected;
+		try (Stream<Path> paths = Files.walk(basePath)) {
+			expected = paths.collect(Collectors.toSet());
+		}
+		assertEquals(expected, visitor.visited.keySet());
+		for (Map.Entry<Path, Boolean> entry : visitor.visited.entrySet()) {
+			assertEquals(Files.isDirectory(entry.getKey()), entry.getValue());
+		}
+		assertTrue(visitor.unordered.isEmpty());
+	}
+
+	@Test
+	public void testScanFile() throws IOException {
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+
+		RecordingVisitor visitor = new RecordingVisitor();
+		new ParallelFileScanner(2).scan(file, visitor);
+
+		assertEquals(1, visitor.visited.size());
+		assertEquals(Boolean.FALSE, visitor.visited.get(file));
+	}
+
+	@Test
+	public void testVisitorException() throws IOException {
+		Path folder = Files.createDirectory(basePath.resolve("folder"));
+		for (int i = 0; i < 20; ++i) {
+			Files.write(folder.resolve("file-" + i), "content".getBytes());
+		}
+
+		try {
+			new ParallelFileScanner(2).scan(basePath, new RecordingVisitor() {
+				@Override
+				public void visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					throw new IOException("locked");
+				}
+			});
+			fail("Exception expected.");
+		} catch (IOException e) {
+			assertEquals("locked", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testExcludedSubtree() throws IOException {
+		Path excluded = Files.createDirectories(basePath.resolve("node_modules").resolve("lib"));
+		Files.write(excluded.resolve("file"), "content".getBytes());
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+
+		Set<Path> checked = ConcurrentHashMap.newKeySet();
+		RecordingVisitor visitor = new RecordingVisitor() {
+			@Override
+			public boolean isExcluded(Path path, BasicFileAttributes attrs) {
+				checked.add(path);
+				return path.getFileName().toString().equals("node_modules");
+			}
+		};
+		new ParallelFileScanner(2).scan(basePath, visitor);
+
+		assertEquals(2, visitor.visited.size());
+		assertTrue(visitor.visited.containsKey(basePath));
+		assertTrue(visitor.visited.containsKey(file));
+		// the content of the excluded directory is not even listed
+		assertEquals(2, checked.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testScanMissing() throws IOException {
+		new ParallelFileScanner(2).scan(basePath.resolve("missing"), new RecordingVisitor());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParallelism() {
+		new ParallelFileScanner(0);
+	}
+
+	private static class RecordingVisitor implements ParallelFileScanner.Visitor {
+
+		/** visited paths, true for directories **/
+		final Map<Path, Boolean> visited = new ConcurrentHashMap<Path, Boolean>();
+		/** paths visited before their parent directory **/
+		final Set<Path> unordered = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public void visitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+			visit(dir, true);
+		}
+
+		@Override
+		public void visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+			visit(file, false);
+		}
+
+		private void visit(Path path, boolean isDirectory) {
+			// the start is visited first, everything else after its parent
+			if (!visited.isEmpty() && !visited.containsKey(path.getParent())) {
+				unordered.add(path);
+			}
+			visited.put(path, isDirectory);
+		}
+	}
+}
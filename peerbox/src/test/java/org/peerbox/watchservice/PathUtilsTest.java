@@ -2,7 +2,6 @@ package org.peerbox.watchservice;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.assertFalse;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -78,14 +77,6 @@ public class PathUtilsTest extends BaseJUnitTest {
 		assertTrue(content.equals(expected));
 	}
 
-	@Test
-	public void isFileHiddenTest(){
-		assertTrue(PathUtils.isFileHidden(Paths.get(".file")));
-		assertTrue(PathUtils.isFileHidden(Paths.get("~file")));
-		assertTrue(PathUtils.isFileHidden(Paths.get("$file")));
-		assertFalse(PathUtils.isFileHidden(Paths.get("file")));
-	}
-
 	@Test
 	public void getCommonPathTest(){
 		Path emptyPath = Paths.get("");
@@ -0,0 +1,121 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PollingWatchServiceTest {
+
+	private static final long MIN_INTERVAL = 20;
+	private static final long MAX_INTERVAL = 160;
+	private static final int TIMEOUT = 5000;
+
+	private Path basePath;
+	private PollingWatchService watchService;
+	private ILocalFileEventListener fileEventListener;
+
+	@Before
+	public void setUp() throws Exception {
+		basePath = Files.createTempDirectory("PeerWasp_polling");
+		fileEventListener = mock(ILocalFileEventListener.class);
+		watchService = new PollingWatchService(MIN_INTERVAL, MAX_INTERVAL);
+		watchService.addFileEventListener(fileEventListener);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		watchService.stop();
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testExistingFilesNotReported() throws Exception {
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+		watchService.start(basePath);
+		Thread.sleep(10 * MIN_INTERVAL);
+		verify(fileEventListener, never()).onLocalFileCreated(file);
+	}
+
+	@Test
+	public void testFileEvents() throws Exception {
+		watchService.start(basePath);
+
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+		verify(fileEventListener, timeout(TIMEOUT)).onLocalFileCreated(file);
+
+		Files.write(file, "modified content".getBytes());
+		verify(fileEventListener, timeout(TIMEOUT)).onLocalFileModified(file);
+
+		Files.delete(file);
+		verify(fileEventListener, timeout(TIMEOUT)).onLocalFileDeleted(file);
+	}
+
+	@Test
+	public void testAtomicSave() throws Exception {
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+		Path tempFolder = Files.createTempDirectory("PeerWasp_polling_save");
+		watchService.start(basePath);
+		try {
+			// editors write a new file and rename it over the original, i.e. the inode changes
+			Path temp = Files.write(tempFolder.resolve("file.tmp"), "saved content".getBytes());
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			verify(fileEventListener, timeout(TIMEOUT)).onLocalFileModified(file);
+			verify(fileEventListener, never()).onLocalFileDeleted(file);
+			verify(fileEventListener, never()).onLocalFileCreated(file);
+		} finally {
+			FileUtils.deleteDirectory(tempFolder.toFile());
+		}
+	}
+
+	@Test
+	public void testFolderEvents() throws Exception {
+		watchService.start(basePath);
+
+		Path folder = Files.createDirectory(basePath.resolve("folder"));
+		verify(fileEventListener, timeout(TIMEOUT)).onLocalFileCreated(folder);
+
+		// the new folder is watched as well
+		Path file = Files.write(folder.resolve("file"), "content".getBytes());
+		verify(fileEventListener, timeout(TIMEOUT)).onLocalFileCreated(file);
+
+		FileUtils.deleteDirectory(folder.toFile());
+		verify(fileEventListener, timeout(TIMEOUT)).onLocalFileDeleted(folder);
+		waitForInterval(folder, -1);
+	}
+
+	@Test
+	public void testAdaptiveInterval() throws Exception {
+		watchService.start(basePath);
+
+		// idle folders are scanned rarely
+		waitForInterval(basePath, MAX_INTERVAL);
+
+		// changes make the folder hot again
+		Files.createFile(basePath.resolve("file"));
+		waitForInterval(basePath, MIN_INTERVAL);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidIntervals() {
+		new PollingWatchService(100, 10);
+	}
+
+	private void waitForInterval(Path folder, long expected) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (watchService.getScanInterval(folder) != expected && System.currentTimeMillis() < end) {
+			Thread.sleep(5);
+		}
+		assertEquals(expected, watchService.getScanInterval(folder));
+	}
+}
@@ -0,0 +1,92 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.hive2hive.core.exceptions.AbortModificationCode;
+import org.hive2hive.core.exceptions.GetFailedException;
+import org.hive2hive.core.exceptions.Hive2HiveException;
+import org.hive2hive.core.exceptions.NoPeerConnectionException;
+import org.hive2hive.core.exceptions.PutFailedException;
+import org.hive2hive.processframework.exceptions.ProcessExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.peerbox.utils.RetryPolicy;
+
+public class RetryPoliciesTest {
+
+	private RetryPolicies policies;
+
+	@Before
+	public void initialization() {
+		policies = new RetryPolicies(3);
+	}
+
+	@Test
+	public void testDefaultPolicy() {
+		assertEquals(policies.getDefaultPolicy(), policies.getPolicy(null));
+		assertEquals(policies.getDefaultPolicy(), policies.getPolicy(createException(new IllegalStateException())));
+		assertFalse(policies.getDefaultPolicy().isNetworkFailure());
+	}
+
+	@Test
+	public void testPolicyByType() {
+		RetryPolicy policy = policies.getPolicy(createException(new NoPeerConnectionException()));
+		assertTrue(policy.isNetworkFailure());
+		// also without process exception
+		assertEquals(policy, policies.getPolicy(new NoPeerConnectionException()));
+	}
+
+	@Test
+	public void testDhtFailures() {
+		RetryPolicy network = policies.getPolicy(new NoPeerConnectionException());
+		assertEquals(network, policies.getPolicy(createException(new PutFailedException("put"))));
+		assertEquals(network, policies.getPolicy(createException(new GetFailedException("get"))));
+	}
+
+	@Test
+	public void testCauseChain() {
+		// e.g. a failed put wrapped by the step that failed
+		Exception wrapped = new IllegalStateException(new PutFailedException("put"));
+		assertTrue(policies.getPolicy(createException(wrapped)).isNetworkFailure());
+
+		Hive2HiveException h2hex = Mockito.mock(Hive2HiveException.class);
+		Mockito.stub(h2hex.getError()).toReturn(AbortModificationCode.NO_WRITE_PERM);
+		assertEquals(policies.getDefaultPolicy(), policies.getPolicy(createException(h2hex)));
+	}
+
+	@Test
+	public void testShouldRetry() {
+		RetryPolicy policy = policies.getDefaultPolicy();
+		assertTrue(policy.shouldRetry(1));
+		assertTrue(policy.shouldRetry(3));
+		assertFalse(policy.shouldRetry(4));
+	}
+
+	@Test
+	public void testDelay() {
+		RetryPolicy policy = new RetryPolicy(1000, 10000, 10, false);
+		Random random = new Random(42);
+		for (int i = 0; i < 100; ++i) {
+			long delay = policy.getDelay(1, random);
+			assertTrue(delay >= 500 && delay <= 1000);
+
+			delay = policy.getDelay(3, random);
+			assertTrue(delay >= 2000 && delay <= 4000);
+
+			// bounded by the maximal delay
+			delay = policy.getDelay(20, random);
+			assertTrue(delay >= 5000 && delay <= 10000);
+		}
+	}
+
+	private ProcessExecutionException createException(Throwable cause) {
+		ProcessExecutionException pex = Mockito.mock(ProcessExecutionException.class);
+		Mockito.stub(pex.getCause()).toReturn(cause);
+		return pex;
+	}
+}
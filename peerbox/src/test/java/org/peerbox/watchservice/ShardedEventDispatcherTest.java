@@ -0,0 +1,129 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedEventDispatcherTest {
+
+	private Path rootPath;
+	private ShardedEventDispatcher dispatcher;
+
+	@Before
+	public void setUp() {
+		rootPath = Paths.get("root").toAbsolutePath();
+		dispatcher = new ShardedEventDispatcher(rootPath, 4);
+	}
+
+	@After
+	public void tearDown() {
+		dispatcher.stop();
+	}
+
+	@Test
+	public void testSubtree() {
+		Path a = rootPath.resolve("a");
+		assertEquals(a, dispatcher.getSubtree(a));
+		assertEquals(a, dispatcher.getSubtree(a.resolve("b").resolve("c.txt")));
+		assertEquals(rootPath, dispatcher.getSubtree(rootPath));
+
+		Path outside = Paths.get("other").toAbsolutePath();
+		assertEquals(outside, dispatcher.getSubtree(outside));
+
+		assertEquals(dispatcher.getShard(a), dispatcher.getShard(a.resolve("b")));
+		assertTrue(dispatcher.getLock(a) == dispatcher.getLock(a.resolve("b")));
+	}
+
+	@Test
+	public void testOrderWithinSubtree() throws Exception {
+		Path folder = rootPath.resolve("folder");
+		List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+		CountDownLatch done = new CountDownLatch(1);
+		for (int i = 0; i < 100; ++i) {
+			final int n = i;
+			dispatcher.execute(folder.resolve("file-" + i), () -> handled.add(n));
+		}
+		dispatcher.execute(folder, () -> done.countDown());
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(100, handled.size());
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(i, handled.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testSubtreesInParallel() throws Exception {
+		Path blocked = rootPath.resolve("blocked");
+		Path other = findPathOfOtherShard(blocked);
+
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch otherHandled = new CountDownLatch(1);
+		dispatcher.execute(blocked, () -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		dispatcher.execute(other, () -> otherHandled.countDown());
+
+		// the blocked subtree does not delay the other one
+		assertTrue(otherHandled.await(5, TimeUnit.SECONDS));
+		release.countDown();
+	}
+
+	@Test
+	public void testLockExcludesHandling() throws Exception {
+		Path file = rootPath.resolve("folder").resolve("file");
+		CountDownLatch handled = new CountDownLatch(1);
+
+		List<Lock> locks = dispatcher.lock(file, findPathOfOtherShard(file));
+		assertEquals(2, locks.size());
+		try {
+			dispatcher.execute(file, () -> handled.countDown());
+			assertFalse(handled.await(200, TimeUnit.MILLISECONDS));
+		} finally {
+			dispatcher.unlock(locks);
+		}
+		assertTrue(handled.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testFailingHandler() throws Exception {
+		Path file = rootPath.resolve("file");
+		CountDownLatch handled = new CountDownLatch(1);
+		dispatcher.execute(file, () -> {
+			throw new IllegalStateException("test");
+		});
+		dispatcher.execute(file, () -> handled.countDown());
+		assertTrue(handled.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoShards() {
+		new ShardedEventDispatcher(rootPath, 0);
+	}
+
+	private Path findPathOfOtherShard(Path path) {
+		for (int i = 0;; ++i) {
+			Path other = rootPath.resolve("other-" + i);
+			if (dispatcher.getShard(other) != dispatcher.getShard(path)) {
+				return other;
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.peerbox.watchservice.WatchBudget.Rebalance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WatchBudgetTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(WatchBudgetTest.class);
+
+	private static final Path ROOT = Paths.get("root");
+
+	@Test
+	public void testBudget() {
+		WatchBudget budget = new WatchBudget(2);
+		assertTrue(budget.add(folder(0)));
+		assertTrue(budget.add(folder(1)));
+		assertFalse(budget.add(folder(2)));
+		// adding twice does not change the mode
+		assertTrue(budget.add(folder(0)));
+		assertEquals(2, budget.getWatchCount());
+		assertEquals(1, budget.getPollCount());
+
+		// a removed watch is available again
+		budget.remove(folder(1));
+		assertTrue(budget.add(folder(3)));
+		assertFalse(budget.contains(folder(1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeBudget() {
+		new WatchBudget(-1);
+	}
+
+	@Test
+	public void testPromoteHotFolder() {
+		WatchBudget budget = new WatchBudget(2);
+		budget.add(folder(0));
+		budget.add(folder(1));
+		budget.add(folder(2));
+		budget.add(folder(3));
+
+		// watched folder 1 is busy, polled folders 2 and 3 have changes
+		budget.recordEvents(folder(1), 5);
+		budget.recordEvents(folder(2), 1);
+		budget.recordEvents(folder(3), 10);
+		Rebalance rebalance = budget.rebalance();
+
+		// only the idle watch of folder 0 is given to the hottest polled folder
+		assertEquals(listOf(folder(3)), rebalance.getPromoted());
+		assertEquals(listOf(folder(0)), rebalance.getDemoted());
+		assertTrue(budget.isWatched(folder(1)));
+		assertTrue(budget.isWatched(folder(3)));
+		assertFalse(budget.isWatched(folder(0)));
+		assertFalse(budget.isWatched(folder(2)));
+	}
+
+	@Test
+	public void testNoRebalanceWithoutEvents() {
+		WatchBudget budget = new WatchBudget(1);
+		budget.add(folder(0));
+		budget.add(folder(1));
+
+		Rebalance rebalance = budget.rebalance();
+		assertTrue(rebalance.getPromoted().isEmpty());
+		assertTrue(rebalance.getDemoted().isEmpty());
+	}
+
+	@Test
+	public void testRateDecays() {
+		WatchBudget budget = new WatchBudget(1);
+		budget.add(folder(0));
+		budget.add(folder(1));
+		budget.recordEvents(folder(0), 1);
+		budget.rebalance();
+
+		// folder 0 is not idle as long as its rate did not decay
+		budget.recordEvents(folder(1), 1);
+		assertTrue(budget.rebalance().getPromoted().isEmpty());
+		List<Path> promoted = new ArrayList<Path>();
+		for (int i = 0; i < 10; ++i) {
+			promoted.addAll(budget.rebalance().getPromoted());
+		}
+		// folder 1 had its event later and is still warm when folder 0 becomes idle
+		assertEquals(listOf(folder(1)), promoted);
+		assertFalse(budget.isWatched(folder(0)));
+	}
+
+	@Test
+	public void testWatchFailed() {
+		WatchBudget budget = new WatchBudget(10);
+		budget.add(folder(0));
+		budget.add(folder(1));
+		budget.add(folder(2));
+
+		// the limit of the operating system was reached at the third folder
+		budget.onWatchFailed(folder(2));
+		assertFalse(budget.isWatched(folder(2)));
+		assertEquals(2, budget.getMaxWatches());
+		assertFalse(budget.add(folder(3)));
+
+		// the reduced budget is not exceeded by promotions
+		budget.recordEvents(folder(3), 1);
+		budget.recordEvents(folder(0), 1);
+		budget.recordEvents(folder(1), 1);
+		assertTrue(budget.rebalance().getPromoted().isEmpty());
+		assertEquals(2, budget.getWatchCount());
+	}
+
+	/**
+	 * A tree with 500k folders and a budget far below: every folder is either watched or
+	 * polled, also after the watches were moved to the active folders.
+	 */
+	@Test
+	public void testCoverageOfLargeTree() {
+		final int numFolders = 500000;
+		final int maxWatches = 8192;
+		final int hotFolders = 1000;
+
+		List<Path> folders = new ArrayList<Path>(numFolders);
+		for (int i = 0; i < numFolders; ++i) {
+			folders.add(folder(i));
+		}
+
+		long start = System.currentTimeMillis();
+		WatchBudget budget = new WatchBudget(maxWatches);
+		for (Path folder : folders) {
+			budget.add(folder);
+		}
+		long added = System.currentTimeMillis();
+		assertCoverage(budget, folders, maxWatches);
+		assertEquals(maxWatches, budget.getWatchCount());
+
+		// activity at the end of the tree, i.e. in polled folders only
+		List<Path> hot = folders.subList(numFolders - hotFolders, numFolders);
+		for (Path folder : hot) {
+			budget.recordEvents(folder, 3);
+		}
+		long rebalanceStart = System.currentTimeMillis();
+		Rebalance rebalance = budget.rebalance();
+		long rebalanced = System.currentTimeMillis();
+
+		assertEquals(hotFolders, rebalance.getPromoted().size());
+		assertEquals(hotFolders, rebalance.getDemoted().size());
+		for (Path folder : hot) {
+			assertTrue(budget.isWatched(folder));
+		}
+		assertCoverage(budget, folders, maxWatches);
+
+		logger.info("{} folders, {} watches: added in {} ms, rebalanced in {} ms.",
+				numFolders, maxWatches, added - start, rebalanced - rebalanceStart);
+	}
+
+	private void assertCoverage(WatchBudget budget, List<Path> folders, int maxWatches) {
+		assertTrue(budget.getWatchCount() <= maxWatches);
+		assertEquals(folders.size(), budget.getWatchCount() + budget.getPollCount());
+		int watched = 0;
+		for (Path folder : folders) {
+			assertTrue(budget.contains(folder));
+			if (budget.isWatched(folder)) {
+				++watched;
+			}
+		}
+		assertEquals(budget.getWatchCount(), watched);
+	}
+
+	private static Path folder(int i) {
+		return ROOT.resolve(String.format("d%d", i / 1000)).resolve(String.format("d%d", i));
+	}
+
+	private static List<Path> listOf(Path path) {
+		List<Path> list = new ArrayList<Path>();
+		list.add(path);
+		return list;
+	}
+}
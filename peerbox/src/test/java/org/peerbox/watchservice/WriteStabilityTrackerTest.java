@@ -0,0 +1,90 @@
+package org.peerbox.watchservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteStabilityTrackerTest {
+
+	private static final long QUIET_PERIOD_MS = 300;
+
+	private Path basePath;
+	private WriteStabilityTracker tracker;
+
+	@Before
+	public void setUp() throws IOException {
+		basePath = Files.createTempDirectory("PeerWasp_stability");
+		tracker = new WriteStabilityTracker(QUIET_PERIOD_MS, true, null);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		tracker.stop();
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testStableFile() throws Exception {
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+		CountDownLatch stable = new CountDownLatch(1);
+		tracker.awaitStable(file, stable::countDown);
+		assertTrue(stable.await(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS));
+		assertTrue(tracker.getInFlightFiles().isEmpty());
+	}
+
+	@Test
+	public void testFileBeingWritten() throws Exception {
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+
+		CountDownLatch stable = new CountDownLatch(1);
+		tracker.awaitStable(file, stable::countDown);
+		for (int i = 0; i < 10; ++i) {
+			Thread.sleep(QUIET_PERIOD_MS / 3);
+			Files.write(file, "more content".getBytes(), StandardOpenOption.APPEND);
+			assertEquals(1, stable.getCount());
+		}
+		assertTrue(tracker.getInFlightFiles().contains(file));
+
+		assertTrue(stable.await(QUIET_PERIOD_MS * 10, TimeUnit.MILLISECONDS));
+		assertTrue(tracker.getInFlightFiles().isEmpty());
+	}
+
+	@Test
+	public void testLockedFile() throws Exception {
+		Path file = Files.write(basePath.resolve("file"), "content".getBytes());
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+		CountDownLatch stable = new CountDownLatch(1);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			FileLock lock = channel.lock();
+			tracker.awaitStable(file, stable::countDown);
+			assertFalse(stable.await(QUIET_PERIOD_MS * 3, TimeUnit.MILLISECONDS));
+			lock.release();
+		}
+		assertTrue(stable.await(QUIET_PERIOD_MS * 10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testMissingFile() throws Exception {
+		CountDownLatch stable = new CountDownLatch(1);
+		tracker.awaitStable(basePath.resolve("missing"), stable::countDown);
+		assertTrue(stable.await(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS));
+	}
+}
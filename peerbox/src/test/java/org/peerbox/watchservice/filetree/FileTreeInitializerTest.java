@@ -0,0 +1,50 @@
+package org.peerbox.watchservice.filetree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.NavigableMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.watchservice.IgnoreRules;
+
+public class FileTreeInitializerTest {
+
+	private Path root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("PeerWasp_init");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root.toFile());
+	}
+
+	@Test
+	public void testScanDisk_IgnoredFolderSkipped() throws IOException {
+		Path ignored = Files.createDirectories(root.resolve("node_modules").resolve("lib"));
+		Files.createFile(ignored.resolve("index.js"));
+		Path folder = Files.createDirectory(root.resolve("src"));
+		Files.createFile(folder.resolve("main.js"));
+		Files.createFile(folder.resolve("main.tmp"));
+		Files.write(root.resolve(IgnoreRules.FILE_NAME), Arrays.asList("node_modules/", "*.tmp"));
+
+		NavigableMap<Path, BasicFileAttributes> files = FileTreeInitializer.scanDisk(root, 2,
+				IgnoreRules.load(root));
+
+		assertEquals(3, files.size());
+		assertTrue(files.containsKey(root));
+		assertTrue(files.containsKey(folder));
+		assertTrue(files.containsKey(folder.resolve("main.js")));
+	}
+}
@@ -0,0 +1,100 @@
+package org.peerbox.watchservice.filetree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.peerbox.watchservice.filetree.composite.FileComponent;
+import org.peerbox.watchservice.filetree.composite.FileLeaf;
+
+public class FileTreeMoveCandidatesTest {
+
+	private Path basePath;
+	private FileTree fileTree;
+
+	@Before
+	public void setUp() throws Exception {
+		basePath = Paths.get(FileUtils.getTempDirectoryPath(), "PeerWasp_Test_MoveCandidates");
+		Files.createDirectories(basePath);
+		fileTree = new FileTree(basePath, false);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(basePath.toFile());
+	}
+
+	@Test
+	public void testDeleteBeforeCreate() throws Exception {
+		FileLeaf source = new FileLeaf(basePath.resolve("a.txt"), false, "hash");
+		FileLeaf target = createTarget("b.txt", "hash");
+
+		assertNull(fileTree.takeMoveTargetOrPutSource(source, true));
+		assertSame(source, fileTree.putMoveTargetAndTakeSource(target, true));
+	}
+
+	@Test
+	public void testCreateBeforeDelete() throws Exception {
+		FileLeaf source = new FileLeaf(basePath.resolve("a.txt"), false, "hash");
+		FileLeaf target = createTarget("b.txt", "hash");
+
+		assertNull(fileTree.putMoveTargetAndTakeSource(target, true));
+		assertSame(target, fileTree.takeMoveTargetOrPutSource(source, true));
+	}
+
+	@Test
+	public void testNoCandidates() throws Exception {
+		FileLeaf source = new FileLeaf(basePath.resolve("a.txt"), false, "hash");
+		FileLeaf target = createTarget("b.txt", "hash");
+
+		assertNull(fileTree.takeMoveTargetOrPutSource(source, false));
+		assertNull(fileTree.putMoveTargetAndTakeSource(target, false));
+	}
+
+	@Test
+	public void testConcurrentDeleteAndCreate() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 500; ++i) {
+				final String hash = "hash-" + i;
+				final FileLeaf source = new FileLeaf(basePath.resolve("a-" + i), false, hash);
+				final FileLeaf target = createTarget("b-" + i, hash);
+				final CountDownLatch start = new CountDownLatch(1);
+
+				Future<FileComponent> delete = executor.submit(() -> {
+					start.await();
+					return fileTree.takeMoveTargetOrPutSource(source, true);
+				});
+				Future<FileComponent> create = executor.submit(() -> {
+					start.await();
+					return fileTree.putMoveTargetAndTakeSource(target, true);
+				});
+				start.countDown();
+
+				// exactly one side of the move finds the other one
+				FileComponent foundTarget = delete.get();
+				FileComponent foundSource = create.get();
+				assertEquals(1, (foundTarget != null ? 1 : 0) + (foundSource != null ? 1 : 0));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private FileLeaf createTarget(String name, String hash) throws Exception {
+		Path path = Files.createFile(basePath.resolve(name));
+		return new FileLeaf(path, false, hash);
+	}
+}
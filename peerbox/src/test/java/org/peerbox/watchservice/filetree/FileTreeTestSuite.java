@@ -7,7 +7,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
 	FileComponentTest.class,
+ 	FileTreeInitializerTest.class,
  	FileLeafTest.class,
+ 	FileTreeMoveCandidatesTest.class,
  	FolderCompositeTest.class,
  	RemoteFileDaoTest.class,
  })
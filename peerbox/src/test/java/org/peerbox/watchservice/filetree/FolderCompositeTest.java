@@ -19,6 +19,9 @@ import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.peerbox.watchservice.FileComponentQueue;
+import org.peerbox.watchservice.IFileEventManager;
 import org.peerbox.watchservice.PathUtils;
 import org.peerbox.watchservice.filetree.composite.FileComponent;
 import org.peerbox.watchservice.filetree.composite.FileLeaf;
@@ -453,4 +456,188 @@ public class FolderCompositeTest {
 	public void testPropagateIsUploaded() throws IOException {
 		// TODO
 	}
+
+	@Test
+	public void testGetAfterDelete() throws IOException {
+		Path folder = rootPath.resolve("a");
+		Path file = folder.resolve("b").resolve("file.txt");
+		FileComponent cFolder = createFolder(folder);
+		FileComponent cFile = createFile(file);
+		rootFolder.putComponent(folder, cFolder);
+		rootFolder.putComponent(file, cFile);
+		assertEquals(cFile, rootFolder.getComponent(file));
+
+		// whole subtree is removed
+		setFileEventManager();
+		rootFolder.deleteComponent(folder);
+		assertNull(rootFolder.getComponent(folder));
+		assertNull(rootFolder.getComponent(file.getParent()));
+		assertNull(rootFolder.getComponent(file));
+	}
+
+	@Test
+	public void testGetAfterMove() throws IOException {
+		Path source = rootPath.resolve("source");
+		Path file = source.resolve("file.txt");
+		FileComponent cFolder = createFolder(source);
+		FileComponent cFile = createFile(file);
+		rootFolder.putComponent(source, cFolder);
+		rootFolder.putComponent(file, cFile);
+
+		// move: delete at source, put at target
+		setFileEventManager();
+		Path target = rootPath.resolve("x").resolve("target");
+		FileComponent moved = rootFolder.deleteComponent(source);
+		rootFolder.putComponent(target, moved);
+
+		assertNull(rootFolder.getComponent(source));
+		assertNull(rootFolder.getComponent(file));
+		assertEquals(cFolder, rootFolder.getComponent(target));
+		assertEquals(cFile, rootFolder.getComponent(target.resolve("file.txt")));
+		assertEquals(target.resolve("file.txt"), cFile.getPath());
+	}
+
+	@Test
+	public void testGetAfterReplace() throws IOException {
+		Path folder = rootPath.resolve("a");
+		Path file = folder.resolve("file.txt");
+		FileComponent cFolder = createFolder(folder);
+		rootFolder.putComponent(folder, cFolder);
+		rootFolder.putComponent(file, createFile(file));
+
+		// folder is replaced by a new (empty) folder
+		FileComponent newFolder = new TestFolderComposite(folder, true);
+		rootFolder.putComponent(folder, newFolder);
+		assertEquals(newFolder, rootFolder.getComponent(folder));
+		assertNull(rootFolder.getComponent(file));
+	}
+
+	@Test
+	public void testIncrementalHashOrderIndependent() throws IOException {
+		Path a = rootPath.resolve("a");
+		Path b = rootPath.resolve("b");
+		FileComponent cA = createFile(a);
+		FileComponent cB = createFile(b);
+		cA.updateContentHash();
+		cB.updateContentHash();
+
+		FolderComposite first = new TestFolderComposite(basePath.resolve("first"), true, true);
+		first.putComponent(first.getPath().resolve("a"), new FileLeaf(a, true, cA.getContentHash()));
+		first.putComponent(first.getPath().resolve("b"), new FileLeaf(b, true, cB.getContentHash()));
+		FolderComposite second = new TestFolderComposite(basePath.resolve("second"), true, true);
+		second.putComponent(second.getPath().resolve("b"), new FileLeaf(b, true, cB.getContentHash()));
+		second.putComponent(second.getPath().resolve("a"), new FileLeaf(a, true, cA.getContentHash()));
+		setSynchronized(first);
+		setSynchronized(second);
+
+		assertEquals(first.getContentHash(), second.getContentHash());
+		assertEquals(first.getStructureHash(), second.getStructureHash());
+
+		// removing a child is the inverse of adding it
+		rootFolder.putComponent(a, cA);
+		setSynchronized(rootFolder);
+		second.deleteComponent(second.getPath().resolve("b"));
+		assertEquals(rootFolder.getContentHash(), second.getContentHash());
+		assertEquals(rootFolder.getStructureHash(), second.getStructureHash());
+		// single child: same value as the compatible hash
+		assertEquals(computeHashOfString(cA.getContentHash()), second.getContentHash());
+	}
+
+	@Test
+	public void testCompatibleHashMode() throws IOException {
+		FolderComposite.setHashMode(FolderComposite.HashMode.COMPATIBLE);
+		try {
+			rootFolder = new TestFolderComposite(rootPath, true, true);
+			Path a = rootPath.resolve("a");
+			Path b = rootPath.resolve("b");
+			FileComponent cB = createFile(b);
+			FileComponent cA = createFile(a);
+			rootFolder.putComponent(b, cB);
+			rootFolder.putComponent(a, cA);
+			cA.setIsSynchronized(true);
+			cB.setIsSynchronized(true);
+			rootFolder.updateContentHash();
+			rootFolder.updateStructureHash();
+
+			// concatenated in the order of the names
+			assertEquals(computeHashOfString(cA.getContentHash() + cB.getContentHash()),
+					rootFolder.getContentHash());
+			assertEquals(computeHashOfString("ab"), rootFolder.getStructureHash());
+		} finally {
+			FolderComposite.setHashMode(FolderComposite.HashMode.INCREMENTAL);
+		}
+	}
+
+	@Test
+	public void testDeferredHashUpdates() throws IOException {
+		Path[] files = { rootPath.resolve("a.txt"), rootPath.resolve("x").resolve("b.txt"),
+				rootPath.resolve("x").resolve("y").resolve("c.txt") };
+		for (Path file : files) {
+			createFile(file);
+		}
+
+		FolderComposite.setDeferHashUpdates(false);
+		FolderComposite eager;
+		try {
+			eager = buildSynchronizedTree(files);
+		} finally {
+			FolderComposite.setDeferHashUpdates(true);
+		}
+		FolderComposite deferred = buildSynchronizedTree(files);
+
+		// computed when read
+		assertEquals(eager.getContentHash(), deferred.getContentHash());
+		assertEquals(eager.getStructureHash(), deferred.getStructureHash());
+		Path sub = rootPath.resolve("x");
+		assertEquals(((FolderComposite) eager.getComponent(sub)).getStructureHash(),
+				((FolderComposite) deferred.getComponent(sub)).getStructureHash());
+
+		// change of a file deep in the tree
+		Files.write(files[2], "changed".getBytes());
+		String oldHash = deferred.getContentHash();
+		deferred.getComponent(files[2]).updateContentHash();
+		assertFalse(oldHash.equals(deferred.getContentHash()));
+		FolderComposite.setDeferHashUpdates(false);
+		try {
+			eager.getComponent(files[2]).updateContentHash();
+		} finally {
+			FolderComposite.setDeferHashUpdates(true);
+		}
+		assertEquals(eager.getComponent(sub).getContentHash(), deferred.getComponent(sub).getContentHash());
+	}
+
+	private FolderComposite buildSynchronizedTree(Path[] files) {
+		FolderComposite root = new TestFolderComposite(rootPath, true, true);
+		for (Path file : files) {
+			FileLeaf leaf = new FileLeaf(file, true);
+			root.putComponent(file, leaf);
+			leaf.updateContentHash();
+			leaf.setIsSynchronized(true);
+			FolderComposite parent = leaf.getParent();
+			while (parent != root) {
+				parent.setIsSynchronized(true);
+				parent.updateContentHash();
+				parent.updateStructureHash();
+				parent = parent.getParent();
+			}
+		}
+		root.updateContentHash();
+		root.updateStructureHash();
+		return root;
+	}
+
+	private void setSynchronized(FolderComposite folder) {
+		for (FileComponent child : folder.getChildren().values()) {
+			child.setIsSynchronized(true);
+		}
+		folder.updateContentHash();
+		folder.updateStructureHash();
+	}
+
+	private void setFileEventManager() {
+		// removed subtrees are removed from the queue of the event manager
+		IFileEventManager eventManager = Mockito.mock(IFileEventManager.class);
+		Mockito.stub(eventManager.getFileComponentQueue()).toReturn(new FileComponentQueue());
+		rootFolder.getAction().setFileEventManager(eventManager);
+	}
 }
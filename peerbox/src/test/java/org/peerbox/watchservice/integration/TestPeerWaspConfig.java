@@ -10,12 +10,33 @@ public class TestPeerWaspConfig implements IPeerWaspConfig {
 
 	public static final long LONG_AGGREGATION_TIME_MS = 1000;
 	public static final int LONG_AGGREGATION_TIME_SEC = (int)(LONG_AGGREGATION_TIME_MS / 1000);
-	/** Maximal number of concurrent network transactions **/
+	/** Initial number of concurrent network transactions, adapted at runtime **/
 	public static final int NUMBER_OF_EXECUTE_SLOTS = 10;
 
+	/** Upper bound for the number of concurrent network transactions **/
+	public static final int MAX_NUMBER_OF_EXECUTE_SLOTS = 20;
+
 	/** Maximal number of attempts to re-execute failed transactions **/
 	public static final int MAX_EXECUTION_ATTEMPTS = 3;
 
+	/** Minimal file size for which running uploads are cancelled if the file changes again **/
+	public static final long UPLOAD_CANCEL_THRESHOLD_BYTES = 10 * 1024 * 1024;
+
+	/** Number of pending actions started per second after the connection was restored **/
+	public static final int BACKLOG_REPLAY_RATE = 100;
+
+	/** Time a file must not change before it is hashed, grows with the file size **/
+	public static final long WRITE_QUIET_PERIOD_MS = 100;
+
+	/** Whether a file must not be locked by another process before it is hashed **/
+	public static final boolean PROBE_WRITE_LOCK = false;
+
+	/** Number of threads scanning and hashing the root folder **/
+	public static final int FILE_SCAN_PARALLELISM = 4;
+
+	/** Maximal number of folders watched by the operating system, further folders are polled **/
+	public static final int MAX_WATCHED_FOLDERS = 1000;
+
 	@Override
 	public int getAggregationIntervalInSeconds() {
 		return AGGREGATION_TIME_SEC;
@@ -31,11 +52,46 @@ public class TestPeerWaspConfig implements IPeerWaspConfig {
 		return NUMBER_OF_EXECUTE_SLOTS;
 	}
 
+	@Override
+	public int getMaximalNumberOfExecutionSlots() {
+		return MAX_NUMBER_OF_EXECUTE_SLOTS;
+	}
+
 	@Override
 	public int getMaximalExecutionAttempts() {
 		return MAX_EXECUTION_ATTEMPTS;
 	}
 
+	@Override
+	public long getUploadCancelThresholdInBytes() {
+		return UPLOAD_CANCEL_THRESHOLD_BYTES;
+	}
+
+	@Override
+	public int getBacklogReplayRatePerSecond() {
+		return BACKLOG_REPLAY_RATE;
+	}
+
+	@Override
+	public int getFileScanParallelism() {
+		return FILE_SCAN_PARALLELISM;
+	}
+
+	@Override
+	public long getWriteQuietPeriodInMillis() {
+		return WRITE_QUIET_PERIOD_MS;
+	}
+
+	@Override
+	public boolean isWriteLockProbeEnabled() {
+		return PROBE_WRITE_LOCK;
+	}
+
+	@Override
+	public int getMaxWatchedFolders() {
+		return MAX_WATCHED_FOLDERS;
+	}
+
 	@Override
 	public long getLongAggregationIntervalInMillis() {
 		return LONG_AGGREGATION_TIME_MS;